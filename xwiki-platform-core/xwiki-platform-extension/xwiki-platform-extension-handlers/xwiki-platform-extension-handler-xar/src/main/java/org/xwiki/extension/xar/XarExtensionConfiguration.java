@@ -32,6 +32,13 @@
 @Unstable
 public interface XarExtensionConfiguration
 {
+    /**
+     * The maximum number of threads used by default to parse the documents of a XAR package.
+     *
+     * @since 10.11RC1
+     */
+    int DEFAULT_MAX_IMPORT_THREAD_COUNT = 4;
+
     /**
      * The type of protection to apply.
      * 
@@ -128,4 +135,15 @@ public boolean isSimple()
      * @return the protection to apply
      */
     DocumentProtection getDocumentProtection();
+
+    /**
+     * @return the number of threads used to parse the documents of a XAR package while they are being imported, 1 to
+     *         parse them in the thread importing the package. The default is the number of available processors,
+     *         with a maximum of {@link #DEFAULT_MAX_IMPORT_THREAD_COUNT}.
+     * @since 10.11RC1
+     */
+    default int getImportThreadCount()
+    {
+        return Math.min(DEFAULT_MAX_IMPORT_THREAD_COUNT, Runtime.getRuntime().availableProcessors());
+    }
 }
@@ -48,4 +48,11 @@ public DocumentProtection getDocumentProtection()
     {
         return this.configuration.getProperty(PREFIX + "protection", DocumentProtection.WARNING);
     }
+
+    @Override
+    public int getImportThreadCount()
+    {
+        return this.configuration.getProperty(PREFIX + "importThreads",
+            XarExtensionConfiguration.super.getImportThreadCount());
+    }
 }
@@ -19,13 +19,24 @@
  */
 package org.xwiki.extension.xar.internal.handler.packager;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,11 +45,17 @@
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
 import org.xwiki.extension.ExtensionId;
 import org.xwiki.extension.repository.InstalledExtensionRepository;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
 import org.xwiki.extension.xar.XarExtensionException;
 import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
 import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
@@ -98,6 +115,35 @@
     private static final TranslationMarker LOG_DELETEDDOCUMENT_FAILURE =
         new TranslationMarker("extension.xar.log.delete.document.failure");
 
+    /**
+     * The context entries needed to parse the XAR entries in another thread.
+     */
+    private static final List<String> CONTEXT_ENTRIES = Arrays.asList("wiki", "user", "locale");
+
+    /**
+     * A XAR entry parsed in advance, with the corresponding document of the previous version of the extension.
+     */
+    private static final class ParsedEntry
+    {
+        private final String name;
+
+        private final XarEntry xarEntry;
+
+        private XWikiDocument nextDocument;
+
+        private XWikiDocument previousDocument;
+
+        private Exception parseError;
+
+        private Exception previousError;
+
+        ParsedEntry(String name, XarEntry xarEntry)
+        {
+            this.name = name;
+            this.xarEntry = xarEntry;
+        }
+    }
+
     @Inject
     @Named("explicit")
     private DocumentReferenceResolver<EntityReference> resolver;
@@ -130,6 +176,15 @@
     @Named(XarExtensionHandler.TYPE)
     private InstalledExtensionRepository installedXARs;
 
+    @Inject
+    private XarExtensionConfiguration xarConfiguration;
+
+    @Inject
+    private ContextStoreManager contextStore;
+
+    @Inject
+    private ComponentManager componentManager;
+
     private XarInstalledExtensionRepository getXarInstalledExtensionRepository()
     {
         return (XarInstalledExtensionRepository) this.installedXARs;
@@ -168,58 +223,174 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
         XWikiContext xcontext = this.xcontextProvider.get();
 
         String currentWiki = xcontext.getWikiId();
+        ExecutorService executor = null;
         try {
             xcontext.setWikiId(wikiReference.getName());
 
             this.observation.notify(new XARImportingEvent(), null, xcontext);
 
+            executor = createParseExecutor();
+            Map<String, Serializable> context = executor != null ? saveContext() : null;
+            if (context == null && executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+
+            // The entries are parsed in advance by the executor but imported one by one, in the order of the package
+            int maxParsedEntries = executor != null ? this.xarConfiguration.getImportThreadCount() * 2 : 1;
+            Queue<Future<ParsedEntry>> parsedEntries = new LinkedList<>();
             for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
                 // Only import what should be imported
                 if (!entry.isDirectory() && !entry.getName().equals(XarModel.PATH_PACKAGE)) {
+                    XarEntry xarEntry = null;
                     if (configuration.getEntriesToImport() != null) {
-                        XarEntry xarEntry = configuration.getEntriesToImport().get(entry.getName());
-                        if (xarEntry != null) {
-                            configuration.setXarEntry(xarEntry);
-
-                            importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
+                        xarEntry = configuration.getEntriesToImport().get(entry.getName());
+                        if (xarEntry == null) {
+                            continue;
                         }
-                    } else {
-                        configuration.setXarEntry(null);
-                        importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
+                    }
+
+                    parsedEntries.add(parseEntry(zis, entry.getName(), xarEntry, wikiReference, configuration,
+                        executor, context));
+                    if (parsedEntries.size() >= maxParsedEntries) {
+                        importDocumentToWiki(comment, wikiReference, getParsedEntry(parsedEntries.poll()),
+                            configuration);
                     }
                 }
             }
+            while (!parsedEntries.isEmpty()) {
+                importDocumentToWiki(comment, wikiReference, getParsedEntry(parsedEntries.poll()), configuration);
+            }
         } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+
             this.observation.notify(new XARImportedEvent(), null, xcontext);
 
             xcontext.setWikiId(currentWiki);
         }
     }
 
-    private void importDocumentToWiki(String comment, WikiReference wikiReference, InputStream inputStream,
-        PackageConfiguration configuration, String name) throws XWikiException, XarException, IOException
+    private ExecutorService createParseExecutor()
     {
-        XWikiContext xcontext = this.xcontextProvider.get();
+        int threadCount = this.xarConfiguration.getImportThreadCount();
+        if (threadCount > 1) {
+            BasicThreadFactory factory =
+                new BasicThreadFactory.Builder().namingPattern("XAR import parsing thread %d").daemon(true).build();
 
-        XWikiDocument nextDocument;
+            return Executors.newFixedThreadPool(threadCount, factory);
+        }
+
+        return null;
+    }
+
+    private Map<String, Serializable> saveContext()
+    {
         try {
-            nextDocument = getXWikiDocument(inputStream, wikiReference);
+            return this.contextStore.save(CONTEXT_ENTRIES);
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to save the context, the XAR entries will be parsed in the current thread: {}",
+                e.getMessage());
+
+            return null;
+        }
+    }
+
+    private Future<ParsedEntry> parseEntry(InputStream stream, String name, XarEntry xarEntry,
+        WikiReference wikiReference, PackageConfiguration configuration, ExecutorService executor,
+        Map<String, Serializable> context) throws IOException
+    {
+        FutureTask<ParsedEntry> task;
+        if (executor != null) {
+            // The archive stream moves to the next entry right away so the entry has to be kept in memory
+            byte[] bytes = IOUtils.toByteArray(stream);
+            task = new FutureTask<>(
+                () -> parseEntry(new ByteArrayInputStream(bytes), name, xarEntry, wikiReference, configuration));
+            executor.execute(new ExecutionContextRunnable(() -> {
+                restoreContext(context);
+                task.run();
+            }, this.componentManager));
+        } else {
+            task = new FutureTask<>(() -> parseEntry(stream, name, xarEntry, wikiReference, configuration));
+            task.run();
+        }
+
+        return task;
+    }
+
+    private void restoreContext(Map<String, Serializable> context)
+    {
+        try {
+            this.contextStore.restore(context);
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to restore the context: {}", e.getMessage());
+        }
+    }
+
+    private ParsedEntry parseEntry(InputStream stream, String name, XarEntry xarEntry, WikiReference wikiReference,
+        PackageConfiguration configuration)
+    {
+        ParsedEntry parsedEntry = new ParsedEntry(name, xarEntry);
+
+        try {
+            parsedEntry.nextDocument = getXWikiDocument(stream, wikiReference);
         } catch (Exception e) {
-            this.logger.error("Failed to parse XAR entry [{}]", name, e);
+            parsedEntry.parseError = e;
+
+            return parsedEntry;
+        }
+
+        XarExtensionPlan xarExtensionPlan = configuration.getXarExtensionPlan();
+        if (xarExtensionPlan != null) {
+            try {
+                parsedEntry.previousDocument = xarExtensionPlan
+                    .getPreviousXWikiDocument(parsedEntry.nextDocument.getDocumentReferenceWithLocale(), this);
+            } catch (XarException | IOException e) {
+                parsedEntry.previousError = e;
+            }
+        }
+
+        return parsedEntry;
+    }
+
+    private ParsedEntry getParsedEntry(Future<ParsedEntry> future) throws XarException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XarException("The import of the XAR has been interrupted", e);
+        } catch (ExecutionException e) {
+            // Should never happen since the errors are kept in the parsed entry
+            throw new XarException("Failed to parse XAR entry", e);
+        }
+    }
+
+    private void importDocumentToWiki(String comment, WikiReference wikiReference, ParsedEntry parsedEntry,
+        PackageConfiguration configuration) throws XWikiException, XarException, IOException
+    {
+        if (parsedEntry.parseError != null) {
+            this.logger.error("Failed to parse XAR entry [{}]", parsedEntry.name, parsedEntry.parseError);
 
             return;
         }
+        if (parsedEntry.previousError instanceof XarException) {
+            throw (XarException) parsedEntry.previousError;
+        } else if (parsedEntry.previousError instanceof IOException) {
+            throw (IOException) parsedEntry.previousError;
+        }
+
+        configuration.setXarEntry(parsedEntry.xarEntry);
+
+        XWikiContext xcontext = this.xcontextProvider.get();
 
+        XWikiDocument nextDocument = parsedEntry.nextDocument;
         DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
         XWikiDocument currentDocument = xcontext.getWiki().getDocument(reference, xcontext);
         currentDocument.loadAttachmentsContentSafe(xcontext);
-        XWikiDocument previousDocument;
-        XarExtensionPlan xarExtensionPlan = configuration.getXarExtensionPlan();
-        if (xarExtensionPlan != null) {
-            previousDocument = xarExtensionPlan.getPreviousXWikiDocument(reference, this);
-        } else {
-            previousDocument = null;
-        }
+        XWikiDocument previousDocument = parsedEntry.previousDocument;
 
         if (configuration.isVerbose()) {
             this.logger.info(LOG_INSTALLDOCUMENT_BEGIN, "Installing document [{}]",
@@ -0,0 +1,298 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.handler.packager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.inject.Provider;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
+import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
+import org.xwiki.filter.FilterException;
+import org.xwiki.filter.input.InputStreamInputSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.xar.XarException;
+import org.xwiki.xar.internal.model.XarModel;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.filter.XWikiDocumentFilterUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link Packager}.
+ *
+ * @version $Id$
+ */
+public class PackagerTest
+{
+    private static final String FAILING_PAGE = "Fail";
+
+    @Rule
+    public MockitoComponentMockingRule<Packager> mocker =
+        new MockitoComponentMockingRule<>(Packager.class, Arrays.asList(ComponentManager.class));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private XWikiContext xcontext;
+
+    private XarExtensionConfiguration xarConfiguration;
+
+    private ContextStoreManager contextStore;
+
+    private XarExtensionPlan xarExtensionPlan = mock(XarExtensionPlan.class);
+
+    private PackageConfiguration configuration = new PackageConfiguration();
+
+    private List<DocumentReference> importedDocuments = new ArrayList<>();
+
+    private Set<String> parsingThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeComponent
+    public void registerComponents() throws Exception
+    {
+        this.xcontext = mock(XWikiContext.class);
+
+        Provider<XWikiContext> xcontextProvider = this.mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+
+        // Needed to parse the entries in other threads
+        this.mocker.registerMockComponent(ExecutionContextManager.class);
+        this.mocker.registerMockComponent(Execution.class);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getDocument(any(DocumentReference.class), same(this.xcontext)))
+            .then(invocation -> mock(XWikiDocument.class));
+
+        this.xarConfiguration = this.mocker.getInstance(XarExtensionConfiguration.class);
+
+        this.contextStore = this.mocker.getInstance(ContextStoreManager.class);
+        when(this.contextStore.save(any())).thenReturn(new HashMap<>());
+
+        // Each entry contains the name of the page
+        XWikiDocumentFilterUtils documentImporter = this.mocker.getInstance(XWikiDocumentFilterUtils.class);
+        when(documentImporter.importDocument(any(), any(), any())).then(invocation -> {
+            this.parsingThreads.add(Thread.currentThread().getName());
+
+            InputStreamInputSource source = invocation.getArgument(0);
+            String page = IOUtils.toString(source.getInputStream(), StandardCharsets.UTF_8);
+            if (page.equals(FAILING_PAGE)) {
+                throw new FilterException("Failed to parse the page");
+            }
+
+            XWikiDocument document = mock(XWikiDocument.class, page);
+            when(document.getDocumentReferenceWithLocale()).thenReturn(getDocumentReference(page));
+
+            return document;
+        });
+
+        DocumentMergeImporter importer = this.mocker.getInstance(DocumentMergeImporter.class);
+        doAnswer(invocation -> {
+            XWikiDocument nextDocument = invocation.getArgument(3);
+            this.importedDocuments.add(nextDocument.getDocumentReferenceWithLocale());
+
+            return null;
+        }).when(importer).importDocument(anyString(), any(), any(), any(), same(this.configuration));
+
+        this.configuration.setWiki("wiki");
+        this.configuration.setXarExtensionPlan(this.xarExtensionPlan);
+    }
+
+    private DocumentReference getDocumentReference(String page)
+    {
+        return new DocumentReference("wiki", "Space", page);
+    }
+
+    private List<DocumentReference> getDocumentReferences(String... pages)
+    {
+        List<DocumentReference> references = new ArrayList<>();
+        for (String page : pages) {
+            references.add(getDocumentReference(page));
+        }
+
+        return references;
+    }
+
+    private File createXAR(String... pages) throws Exception
+    {
+        File file = this.folder.newFile();
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+            stream.putNextEntry(new ZipEntry(XarModel.PATH_PACKAGE));
+            stream.write("<package/>".getBytes(StandardCharsets.UTF_8));
+            stream.closeEntry();
+
+            for (String page : pages) {
+                stream.putNextEntry(new ZipEntry("Space/" + page + ".xml"));
+                stream.write(page.getBytes(StandardCharsets.UTF_8));
+                stream.closeEntry();
+            }
+        }
+
+        return file;
+    }
+
+    private void importXAR(int threads, String... pages) throws Exception
+    {
+        when(this.xarConfiguration.getImportThreadCount()).thenReturn(threads);
+
+        this.mocker.getComponentUnderTest().importXAR("comment", createXAR(pages), this.configuration);
+    }
+
+    private String[] getPages(int count)
+    {
+        String[] pages = new String[count];
+        for (int i = 0; i < count; i++) {
+            pages[i] = "Page" + i;
+        }
+
+        return pages;
+    }
+
+    private void assertParsingThreads(boolean parallel)
+    {
+        String currentThread = Thread.currentThread().getName();
+        for (String thread : this.parsingThreads) {
+            if (parallel) {
+                assertTrue(thread.startsWith("XAR import parsing thread"));
+            } else {
+                assertEquals(currentThread, thread);
+            }
+        }
+    }
+
+    private void importInOrder(int threads) throws Exception
+    {
+        String[] pages = getPages(20);
+
+        importXAR(threads, pages);
+
+        assertEquals(getDocumentReferences(pages), this.importedDocuments);
+        assertParsingThreads(threads > 1);
+    }
+
+    private void importWithParseFailure(int threads) throws Exception
+    {
+        importXAR(threads, "Page1", "Page2", FAILING_PAGE, "Page3", "Page4");
+
+        // The entry which can't be parsed is skipped
+        assertEquals(getDocumentReferences("Page1", "Page2", "Page3", "Page4"), this.importedDocuments);
+        verify(this.mocker.getMockedLogger()).error(eq("Failed to parse XAR entry [{}]"),
+            eq("Space/" + FAILING_PAGE + ".xml"), any(FilterException.class));
+    }
+
+    private void importWithPreviousDocumentFailure(int threads) throws Exception
+    {
+        XarException exception = new XarException("Failed to read the previous document");
+        when(this.xarExtensionPlan.getPreviousXWikiDocument(getDocumentReference("Page3"),
+            this.mocker.getComponentUnderTest())).thenThrow(exception);
+
+        try {
+            importXAR(threads, getPages(10));
+
+            fail("The import should have failed");
+        } catch (XarException e) {
+            assertSame(exception, e);
+        }
+
+        // The import stops at the document for which the previous version can't be read
+        assertEquals(getDocumentReferences("Page0", "Page1", "Page2"), this.importedDocuments);
+    }
+
+    @Test
+    public void importInOrderWithOneThread() throws Exception
+    {
+        importInOrder(1);
+
+        verify(this.contextStore, never()).save(any());
+    }
+
+    @Test
+    public void importInOrderWithSeveralThreads() throws Exception
+    {
+        importInOrder(4);
+
+        verify(this.contextStore).save(Arrays.asList("wiki", "user", "locale"));
+    }
+
+    @Test
+    public void importWithParseFailureWithOneThread() throws Exception
+    {
+        importWithParseFailure(1);
+    }
+
+    @Test
+    public void importWithParseFailureWithSeveralThreads() throws Exception
+    {
+        importWithParseFailure(4);
+    }
+
+    @Test
+    public void importWithPreviousDocumentFailureWithOneThread() throws Exception
+    {
+        importWithPreviousDocumentFailure(1);
+    }
+
+    @Test
+    public void importWithPreviousDocumentFailureWithSeveralThreads() throws Exception
+    {
+        importWithPreviousDocumentFailure(4);
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.filter.xar.internal.output;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.xar.XarPackage;
+
+/**
+ * Compress the entries of a XAR package with a pool of threads and write them to the package in the order they were
+ * added.
+ * 
+ * @version $Id$
+ * @since 10.11RC1
+ */
+class XARParallelEntryWriter
+{
+    /**
+     * The size above which a serialized or compressed entry is moved from memory to a temporary file.
+     */
+    private static final int ENTRY_MEMORY_THRESHOLD = 1024 * 1024;
+
+    /**
+     * How long (in seconds) an idle compression thread is kept.
+     */
+    private static final long THREAD_KEEPALIVE = 10;
+
+    private static final String ENTRY_FILE_PREFIX = "xarentry";
+
+    /**
+     * An entry waiting to be compressed and written to the package.
+     * 
+     * @version $Id$
+     */
+    private static final class PendingEntry
+    {
+        private final LocalDocumentReference reference;
+
+        private final ZipArchiveEntry zipEntry;
+
+        private final DeferredFileOutputStream serialized;
+
+        private Future<DeferredFileOutputStream> compressed;
+
+        PendingEntry(LocalDocumentReference reference, ZipArchiveEntry zipEntry)
+        {
+            this.reference = reference;
+            this.zipEntry = zipEntry;
+            this.serialized = newBuffer(".xml");
+        }
+    }
+
+    private final ZipArchiveOutputStream zipStream;
+
+    private final XarPackage xarPackage;
+
+    private final boolean compressed;
+
+    private final int threads;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The entries being compressed, in the order they should be written to the package.
+     */
+    private final Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+
+    private PendingEntry currentEntry;
+
+    /**
+     * @param zipStream the package to write the entries to
+     * @param xarPackage the package descriptor in which to register the written entries
+     * @param threads the number of compression threads
+     * @param compressed true if the entries should be compressed, false to store them as they are
+     */
+    XARParallelEntryWriter(ZipArchiveOutputStream zipStream, XarPackage xarPackage, int threads, boolean compressed)
+    {
+        this.zipStream = zipStream;
+        this.xarPackage = xarPackage;
+        this.threads = threads;
+        this.compressed = compressed;
+
+        BasicThreadFactory factory = new BasicThreadFactory.Builder()
+            .namingPattern("XAR export compression thread %d").daemon(true).build();
+        this.executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEPALIVE, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), factory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static DeferredFileOutputStream newBuffer(String suffix)
+    {
+        return new DeferredFileOutputStream(ENTRY_MEMORY_THRESHOLD, ENTRY_FILE_PREFIX, suffix,
+            FileUtils.getTempDirectory());
+    }
+
+    private static InputStream openBuffer(DeferredFileOutputStream buffer) throws IOException
+    {
+        if (buffer.isInMemory()) {
+            return new ByteArrayInputStream(buffer.getData());
+        }
+
+        return new FileInputStream(buffer.getFile());
+    }
+
+    private static void deleteBuffer(DeferredFileOutputStream buffer)
+    {
+        if (buffer != null) {
+            IOUtils.closeQuietly(buffer);
+
+            if (!buffer.isInMemory()) {
+                FileUtils.deleteQuietly(buffer.getFile());
+            }
+        }
+    }
+
+    /**
+     * @param reference the reference of the document
+     * @param zipEntry the zip entry of the document
+     * @return the stream to serialize the document to (in memory or in a temporary file when too big)
+     */
+    OutputStream newEntry(LocalDocumentReference reference, ZipArchiveEntry zipEntry)
+    {
+        this.currentEntry = new PendingEntry(reference, zipEntry);
+
+        return this.currentEntry.serialized;
+    }
+
+    /**
+     * Start compressing the current entry and write the oldest entries already compressed.
+     * 
+     * @throws IOException when failing to write the entries
+     */
+    void closeEntry() throws IOException
+    {
+        PendingEntry entry = this.currentEntry;
+        this.currentEntry = null;
+
+        try {
+            entry.serialized.close();
+        } catch (IOException e) {
+            deleteBuffer(entry.serialized);
+
+            throw e;
+        }
+
+        entry.compressed = this.executor.submit(() -> compress(entry));
+        this.pendingEntries.add(entry);
+
+        // Don't accumulate more serialized entries than the threads can compress
+        while (this.pendingEntries.size() > this.threads * 2) {
+            writePendingEntry();
+        }
+    }
+
+    /**
+     * Wait for all the entries to be compressed and write them.
+     * 
+     * @throws IOException when failing to write the entries
+     */
+    void flush() throws IOException
+    {
+        while (!this.pendingEntries.isEmpty()) {
+            writePendingEntry();
+        }
+    }
+
+    /**
+     * Compute the CRC and the size of the serialized entry and compress it (unless the package is not compressed).
+     * Executed in a compression thread.
+     */
+    private DeferredFileOutputStream compress(PendingEntry entry) throws IOException
+    {
+        DeferredFileOutputStream result = this.compressed ? newBuffer(".deflate") : null;
+
+        try {
+            CRC32 crc = new CRC32();
+            long size = 0;
+
+            Deflater deflater = this.compressed ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+            try (InputStream input = openBuffer(entry.serialized);
+                OutputStream output = deflater != null ? new DeflaterOutputStream(result, deflater) : null) {
+                byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+                for (int n = input.read(buffer); n != IOUtils.EOF; n = input.read(buffer)) {
+                    crc.update(buffer, 0, n);
+                    size += n;
+                    if (output != null) {
+                        output.write(buffer, 0, n);
+                    }
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+
+            // The package was disposed while compressing
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("Interrupted while compressing the entry [" + entry.zipEntry.getName() + "]");
+            }
+
+            entry.zipEntry.setCrc(crc.getValue());
+            entry.zipEntry.setSize(size);
+            if (this.compressed) {
+                entry.zipEntry.setMethod(ZipEntry.DEFLATED);
+                entry.zipEntry.setCompressedSize(result.getByteCount());
+            } else {
+                entry.zipEntry.setMethod(ZipEntry.STORED);
+                entry.zipEntry.setCompressedSize(size);
+            }
+        } catch (Exception e) {
+            deleteBuffer(result);
+            deleteBuffer(entry.serialized);
+
+            throw e;
+        }
+
+        if (this.compressed) {
+            deleteBuffer(entry.serialized);
+
+            return result;
+        }
+
+        // Stored entries are copied as they are
+        return entry.serialized;
+    }
+
+    /**
+     * Wait for the oldest pending entry to be compressed and write it to the package.
+     */
+    private void writePendingEntry() throws IOException
+    {
+        PendingEntry entry = this.pendingEntries.peek();
+
+        DeferredFileOutputStream data;
+        try {
+            data = entry.compressed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while compressing the entry [" + entry.zipEntry.getName() + "]", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress the entry [" + entry.zipEntry.getName() + "]", e.getCause());
+        }
+
+        try (InputStream input = openBuffer(data)) {
+            this.zipStream.addRawArchiveEntry(entry.zipEntry, input);
+        } finally {
+            this.pendingEntries.poll();
+
+            deleteBuffer(data);
+        }
+
+        // Only register the entry in package.xml once it's actually part of the package
+        this.xarPackage.addEntry(entry.reference, entry.zipEntry.getName());
+    }
+
+    /**
+     * Stop the compression threads and delete the temporary files of the entries which were not written.
+     */
+    void dispose()
+    {
+        this.executor.shutdownNow();
+
+        if (this.currentEntry != null) {
+            deleteBuffer(this.currentEntry.serialized);
+            this.currentEntry = null;
+        }
+
+        for (PendingEntry entry : this.pendingEntries) {
+            if (entry.compressed.isDone() && !entry.compressed.isCancelled()) {
+                try {
+                    deleteBuffer(entry.compressed.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // The compression task already deleted its files
+                }
+            }
+
+            deleteBuffer(entry.serialized);
+        }
+        this.pendingEntries.clear();
+    }
+}
@@ -24,6 +24,7 @@
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Locale;
+import java.util.zip.Deflater;
 
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
@@ -52,6 +53,12 @@ public class XARWikiWriter implements Closeable
 
     private XarPackage xarPackage = new XarPackage();
 
+    private XARParallelEntryWriter parallelWriter;
+
+    private LocalDocumentReference currentReference;
+
+    private String currentEntryName;
+
     public XARWikiWriter(String name, XAROutputProperties xarProperties) throws FilterException
     {
         this.name = name;
@@ -91,6 +98,18 @@ public XARWikiWriter(String name, XAROutputProperties xarProperties) throws Filt
         // non-ascii characters in the document name using InfoZIP, and the filenames will be correctly
         // converted to the character set of the local file system.
         this.zipStream.setCreateUnicodeExtraFields(ZipArchiveOutputStream.UnicodeExtraFieldPolicy.ALWAYS);
+
+        if (!xarProperties.isCompressed()) {
+            // Entries are still deflated (the stored method requires to know the size and the CRC before writing the
+            // entry) but without spending time trying to compress them
+            this.zipStream.setLevel(Deflater.NO_COMPRESSION);
+        }
+
+        if (xarProperties.getCompressionThreads() > 1) {
+            // Serialized entries are compressed by a pool of threads and written in order as soon as they are ready
+            this.parallelWriter = new XARParallelEntryWriter(this.zipStream, this.xarPackage,
+                xarProperties.getCompressionThreads(), xarProperties.isCompressed());
+        }
     }
 
     public String getName()
@@ -135,23 +154,40 @@ public OutputStream newEntry(LocalDocumentReference reference) throws FilterExce
         String entryName = path.toString();
 
         ZipArchiveEntry zipentry = new ZipArchiveEntry(entryName);
+
+        if (this.parallelWriter != null) {
+            return this.parallelWriter.newEntry(reference, zipentry);
+        }
+
         try {
             this.zipStream.putArchiveEntry(zipentry);
         } catch (IOException e) {
             throw new FilterException("Failed to add a new zip entry for [" + path + "]", e);
         }
 
-        this.xarPackage.addEntry(reference, entryName);
+        // Only register the entry in package.xml once it's actually part of the package
+        this.currentReference = reference;
+        this.currentEntryName = entryName;
 
         return this.zipStream;
     }
 
     public void closeEntry() throws FilterException
     {
-        try {
-            this.zipStream.closeArchiveEntry();
-        } catch (IOException e) {
-            throw new FilterException("Failed to close zip archive entry", e);
+        if (this.parallelWriter != null) {
+            try {
+                this.parallelWriter.closeEntry();
+            } catch (IOException e) {
+                throw new FilterException("Failed to write compressed zip archive entry", e);
+            }
+        } else {
+            try {
+                this.zipStream.closeArchiveEntry();
+            } catch (IOException e) {
+                throw new FilterException("Failed to close zip archive entry", e);
+            }
+
+            this.xarPackage.addEntry(this.currentReference, this.currentEntryName);
         }
     }
 
@@ -167,14 +203,26 @@ private void writePackage() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Add package.xml descriptor
         try {
-            writePackage();
-        } catch (FilterException e) {
-            throw new IOException("Failed to write package", e);
-        }
+            // Write the entries still being compressed
+            if (this.parallelWriter != null) {
+                this.parallelWriter.flush();
+            }
+
+            // Add package.xml descriptor
+            try {
+                writePackage();
+            } catch (FilterException e) {
+                throw new IOException("Failed to write package", e);
+            }
 
-        // Close zip stream
-        this.zipStream.close();
+            // Close zip stream
+            this.zipStream.close();
+        } finally {
+            // Make sure the compression threads and temporary files don't outlive the package
+            if (this.parallelWriter != null) {
+                this.parallelWriter.dispose();
+            }
+        }
     }
 }
@@ -76,6 +76,16 @@ public class XAROutputProperties extends XMLOutputProperties
      */
     private String packageExtensionId;
 
+    /**
+     * @see #getCompressionThreads()
+     */
+    private int compressionThreads = 1;
+
+    /**
+     * @see #isCompressed()
+     */
+    private boolean compressed = true;
+
     /**
      * @return Indicate if all revisions related informations should be serialized
      */
@@ -239,4 +249,47 @@ public void setPackageExtensionId(String packageExtensionId)
     {
         this.packageExtensionId = packageExtensionId;
     }
+
+    /**
+     * @return the number of threads compressing the entries of the package, 1 to compress them in the thread writing
+     *         the package
+     * @since 10.11RC1
+     */
+    @PropertyName("Compression threads")
+    @PropertyDescription("The number of threads compressing the entries of the package")
+    public int getCompressionThreads()
+    {
+        return this.compressionThreads;
+    }
+
+    /**
+     * @param compressionThreads the number of threads compressing the entries of the package, 1 to compress them in
+     *            the thread writing the package
+     * @since 10.11RC1
+     */
+    public void setCompressionThreads(int compressionThreads)
+    {
+        this.compressionThreads = compressionThreads;
+    }
+
+    /**
+     * @return true if the entries of the package should be compressed, false to store them as they are (faster when
+     *         the package mostly contains already compressed attachments like images or archives)
+     * @since 10.11RC1
+     */
+    @PropertyName("Compressed")
+    @PropertyDescription("Indicate if the entries of the package should be compressed")
+    public boolean isCompressed()
+    {
+        return this.compressed;
+    }
+
+    /**
+     * @param compressed true if the entries of the package should be compressed, false to store them as they are
+     * @since 10.11RC1
+     */
+    public void setCompressed(boolean compressed)
+    {
+        this.compressed = compressed;
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.filter.xar.internal.output;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.xwiki.filter.output.DefaultOutputStreamOutputTarget;
+import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.xar.XarEntry;
+import org.xwiki.xar.XarPackage;
+import org.xwiki.xar.internal.model.XarModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Validate {@link XARWikiWriter}.
+ * 
+ * @version $Id$
+ */
+public class XARWikiWriterTest
+{
+    private static final int ENTRIES = 50;
+
+    private ByteArrayOutputStream write(int threads, boolean compressed) throws Exception
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        XAROutputProperties properties = new XAROutputProperties();
+        properties.setTarget(new DefaultOutputStreamOutputTarget(output));
+        properties.setCompressionThreads(threads);
+        properties.setCompressed(compressed);
+
+        try (XARWikiWriter writer = new XARWikiWriter("package", properties)) {
+            for (int i = 0; i < ENTRIES; ++i) {
+                OutputStream stream = writer.newEntry(new LocalDocumentReference("Space", "Page" + i));
+                stream.write(getContent(i));
+                writer.closeEntry();
+            }
+        }
+
+        return output;
+    }
+
+    private byte[] getContent(int index)
+    {
+        // Make some entries bigger than what is kept in memory while waiting to be compressed
+        int size = index % 10 == 0 ? 2 * 1024 * 1024 : 1000 + index;
+
+        return StringUtils.repeat(String.valueOf(index % 10), size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void assertPackage(ByteArrayOutputStream output, int expectedMethod) throws Exception
+    {
+        List<String> names = new ArrayList<>();
+        try (ZipArchiveInputStream zis = new ZipArchiveInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            for (ZipArchiveEntry entry = zis.getNextZipEntry(); entry != null; entry = zis.getNextZipEntry()) {
+                if (!entry.getName().equals(XarModel.PATH_PACKAGE)) {
+                    assertEquals(expectedMethod, entry.getMethod());
+                    assertEquals("Unexpected content for entry [" + entry.getName() + "]",
+                        new String(getContent(names.size()), StandardCharsets.UTF_8),
+                        IOUtils.toString(zis, StandardCharsets.UTF_8));
+                }
+                names.add(entry.getName());
+            }
+        }
+
+        // The entries are written in the order they were added, followed by the package descriptor
+        assertEquals(ENTRIES + 1, names.size());
+        for (int i = 0; i < ENTRIES; ++i) {
+            assertEquals("Space/Page" + i + ".xml", names.get(i));
+        }
+        assertEquals(XarModel.PATH_PACKAGE, names.get(ENTRIES));
+
+        XarPackage xarPackage = new XarPackage(new ByteArrayInputStream(output.toByteArray()));
+        List<XarEntry> entries = new ArrayList<>(xarPackage.getEntries());
+        assertEquals(ENTRIES, entries.size());
+        for (int i = 0; i < ENTRIES; ++i) {
+            assertEquals("Space/Page" + i + ".xml", entries.get(i).getEntryName());
+        }
+    }
+
+    @Test
+    public void writeSequentially() throws Exception
+    {
+        assertPackage(write(1, true), ZipEntry.DEFLATED);
+    }
+
+    @Test
+    public void writeWithSeveralThreads() throws Exception
+    {
+        assertPackage(write(4, true), ZipEntry.DEFLATED);
+    }
+
+    @Test
+    public void writeUncompressedWithSeveralThreads() throws Exception
+    {
+        assertPackage(write(2, false), ZipEntry.STORED);
+    }
+}
@@ -21,9 +21,20 @@
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -34,6 +45,8 @@
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.environment.Environment;
+import org.xwiki.observation.ObservationManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -62,6 +75,27 @@ public class ImagePlugin extends XWikiDefaultPlugin
      */
     private static final String PLUGIN_NAME = "image";
 
+    /**
+     * The MIME type of the images which can be decoded with subsampling.
+     */
+    private static final String JPEG_MIME_TYPE = "image/jpeg";
+
+    /**
+     * The decoded image is kept at least this many times larger than the thumbnail, so that subsampling doesn't affect
+     * the quality of the thumbnail.
+     */
+    private static final int SUBSAMPLING_MARGIN = 2;
+
+    /**
+     * The default maximum size of the disk cache, in MB.
+     */
+    private static final long DISK_CACHE_SIZE = 500;
+
+    /**
+     * The number of decimals kept from the requested quality, to limit the number of variants of the same thumbnail.
+     */
+    private static final float QUALITY_PRECISION = 100;
+
     /**
      * Cache for already served images.
      */
@@ -82,6 +116,18 @@ public class ImagePlugin extends XWikiDefaultPlugin
      */
     private ImageProcessor imageProcessor;
 
+    /**
+     * The disk cache of the thumbnails, {@code null} if disabled. This parameter can be configured using the key
+     * {@code xwiki.plugin.image.diskCache}.
+     */
+    private ThumbnailDiskCache diskCache;
+
+    /**
+     * The thumbnails being computed, so that concurrent requests for the same thumbnail compute it only once.
+     */
+    private final ConcurrentMap<String, CompletableFuture<XWikiAttachment>> pendingThumbnails =
+        new ConcurrentHashMap<>();
+
     /**
      * Creates a new instance of this plugin.
      *
@@ -115,6 +161,7 @@ public void init(XWikiContext context)
         super.init(context);
 
         initCache(context);
+        initDiskCache(context);
 
         String imageProcessorHint = context.getWiki().Param("xwiki.plugin.image.processorHint", "thumbnailator");
         this.imageProcessor = Utils.getComponent(ImageProcessor.class, imageProcessorHint);
@@ -166,6 +213,29 @@ private void initCache(XWikiContext context)
         }
     }
 
+    /**
+     * Initializes the disk cache of the thumbnails, unless it's disabled.
+     *
+     * @param context the XWiki context
+     */
+    private void initDiskCache(XWikiContext context)
+    {
+        if (this.diskCache == null && context.getWiki().ParamAsLong("xwiki.plugin.image.diskCache", 1) == 1) {
+            File permanentDirectory = Utils.getComponent(Environment.class).getPermanentDirectory();
+            if (permanentDirectory != null) {
+                long maxSize = context.getWiki().ParamAsLong("xwiki.plugin.image.diskCache.size", DISK_CACHE_SIZE);
+                this.diskCache =
+                    new ThumbnailDiskCache(new File(permanentDirectory, "cache/image"), maxSize * 1024 * 1024);
+
+                // Remove the thumbnails of the modified and deleted attachments (replacing the listener of a previous
+                // instance of the plugin)
+                ObservationManager observationManager = Utils.getComponent(ObservationManager.class);
+                observationManager.removeListener(ThumbnailDiskCacheListener.NAME);
+                observationManager.addListener(new ThumbnailDiskCacheListener(this.diskCache));
+            }
+        }
+    }
+
     @Override
     public void flushCache()
     {
@@ -173,6 +243,10 @@ public void flushCache()
             this.imageCache.dispose();
         }
         this.imageCache = null;
+
+        if (this.diskCache != null) {
+            this.diskCache.clear();
+        }
     }
 
     /**
@@ -215,6 +289,13 @@ public XWikiAttachment downloadAttachment(XWikiAttachment attachment, XWikiConte
             // Ignore.
         }
 
+        // Normalize the parameters so that equivalent requests share the same cached thumbnail.
+        height = Math.max(height, -1);
+        width = Math.max(width, -1);
+        if (quality >= 0) {
+            quality = Math.round(Math.min(quality, 1) * QUALITY_PRECISION) / QUALITY_PRECISION;
+        }
+
         // If no scaling is needed, return the original image.
         if (height <= 0 && width <= 0 && quality < 0) {
             return attachment;
@@ -249,8 +330,8 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
-            ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
+        XWikiAttachment thumbnail = (this.imageCache == null && this.diskCache == null)
+            ? shrinkImage(image, width, height, keepAspectRatio, quality, null, context)
             : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
 
         // If the image has been transformed, update the file name extension to match the image format.
@@ -284,11 +365,88 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
             String.format("%s;%s;%s;%s;%s;%s", image.getId(), image.getVersion(), width, height, keepAspectRatio,
                 quality);
 
-        XWikiAttachment thumbnail = this.imageCache.get(key);
+        XWikiAttachment thumbnail = this.imageCache != null ? this.imageCache.get(key) : null;
+        if (thumbnail != null && thumbnail.getAttachment_content() instanceof ThumbnailAttachmentContent
+            && !((ThumbnailAttachmentContent) thumbnail.getAttachment_content()).exists()) {
+            // The thumbnail has been removed from the disk cache
+            thumbnail = null;
+        }
         if (thumbnail == null) {
-            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
-            this.imageCache.set(key, thumbnail);
+            thumbnail = getThumbnail(key, image, width, height, keepAspectRatio, quality, context);
+            if (this.imageCache != null) {
+                this.imageCache.set(key, thumbnail);
+            }
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Gets the thumbnail from the disk cache or computes it, making sure that concurrent requests for the same
+     * thumbnail compute it only once.
+     *
+     * @param key the key of the thumbnail in the memory cache
+     * @param image the image to be downloaded
+     * @param width the desired image width
+     * @param height the desired image height
+     * @param keepAspectRatio {@code true} to preserve aspect ratio when resizing the image, {@code false} otherwise
+     * @param quality the desired compression quality
+     * @param context the XWiki context
+     * @return the transformed image
+     * @throws Exception if transforming the image fails
+     */
+    private XWikiAttachment getThumbnail(String key, XWikiAttachment image, int width, int height,
+        boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
+    {
+        CompletableFuture<XWikiAttachment> future = new CompletableFuture<>();
+        CompletableFuture<XWikiAttachment> pendingThumbnail = this.pendingThumbnails.putIfAbsent(key, future);
+        if (pendingThumbnail != null) {
+            // Another thread is already computing the same thumbnail
+            try {
+                return pendingThumbnail.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        try {
+            XWikiAttachment thumbnail;
+
+            if (this.diskCache != null) {
+                String attachmentKey = ThumbnailDiskCacheListener.getAttachmentKey(image.getReference());
+                String diskKey = String.format("%s;%s;%s;%s;%s;%s", image.getVersion(),
+                    image.getDate() != null ? image.getDate().getTime() : null, width, height, keepAspectRatio,
+                    quality);
+                File file = this.diskCache.get(attachmentKey, diskKey);
+                thumbnail = file != null ? createThumbnail(image, file)
+                    : shrinkImage(image, width, height, keepAspectRatio, quality,
+                        writer -> this.diskCache.put(attachmentKey, diskKey, writer), context);
+            } else {
+                thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, null, context);
+            }
+
+            future.complete(thumbnail);
+
+            return thumbnail;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            this.pendingThumbnails.remove(key, future);
         }
+    }
+
+    /**
+     * @param image the original image
+     * @param file the file containing the thumbnail
+     * @return the thumbnail attachment
+     */
+    private XWikiAttachment createThumbnail(XWikiAttachment image, File file)
+    {
+        XWikiAttachment thumbnail = image.clone();
+        thumbnail.setAttachment_content(new ThumbnailAttachmentContent(file, thumbnail));
+        thumbnail.setLongSize(file.length());
+
         return thumbnail;
     }
 
@@ -305,14 +463,16 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
      *            properly specified (in this case the image will be resized to best fit the rectangle with the
      *            requested width and height), {@code false} otherwise
      * @param requestedQuality the desired compression quality
+     * @param diskStore stores the thumbnail in the disk cache, {@code null} if it should not be stored on disk
      * @param context the XWiki context
      * @return the modified image attachment
      * @throws Exception if shrinking the image fails
      */
     private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
-        boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
+        boolean keepAspectRatio, float requestedQuality, ThumbnailDiskCache.ThumbnailStore diskStore,
+        XWikiContext context) throws Exception
     {
-        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
+        Image image = readImage(attachment, requestedWidth, requestedHeight, keepAspectRatio, context);
 
         // Compute the new image dimension.
         int currentWidth = image.getWidth(null);
@@ -332,6 +492,15 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         // Scale the image to the new dimensions.
         RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
 
+        if (diskStore != null) {
+            String mimeType = attachment.getMimeType(context);
+            float thumbnailQuality = quality;
+            File file = diskStore
+                .store(output -> this.imageProcessor.writeImage(shrunkImage, mimeType, thumbnailQuality, output));
+
+            return createThumbnail(attachment, file);
+        }
+
         // Create an image attachment for the shrunk image.
         XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
         thumbnail.loadAttachmentContent(context);
@@ -347,6 +516,73 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         return thumbnail;
     }
 
+    /**
+     * Reads the given image. Large JPEG images are decoded with subsampling when the thumbnail is much smaller, which
+     * avoids decoding (and keeping in memory) all their pixels.
+     *
+     * @param attachment the image to read
+     * @param requestedWidth the desired image width
+     * @param requestedHeight the desired image height
+     * @param keepAspectRatio {@code true} to preserve the image aspect ratio, {@code false} otherwise
+     * @param context the XWiki context
+     * @return the image, possibly subsampled
+     * @throws IOException if reading the image from the attachment content fails
+     * @throws XWikiException if reading the attachment content fails
+     */
+    private Image readImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, XWikiContext context) throws IOException, XWikiException
+    {
+        if (JPEG_MIME_TYPE.equals(attachment.getMimeType(context)) && (requestedWidth > 0 || requestedHeight > 0)) {
+            try {
+                Image image =
+                    readSubsampledImage(attachment, requestedWidth, requestedHeight, keepAspectRatio, context);
+                if (image != null) {
+                    return image;
+                }
+            } catch (Exception e) {
+                LOG.debug("Failed to decode the image with subsampling, decoding it entirely.", e);
+            }
+        }
+
+        return this.imageProcessor.readImage(attachment.getContentInputStream(context));
+    }
+
+    private Image readSubsampledImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, XWikiContext context) throws IOException, XWikiException
+    {
+        try (ImageInputStream input = ImageIO.createImageInputStream(attachment.getContentInputStream(context))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                // Only the header is read to get the dimensions of the image
+                int currentWidth = reader.getWidth(0);
+                int currentHeight = reader.getHeight(0);
+                int[] dimensions = reduceImageDimensions(currentWidth, currentHeight, requestedWidth, requestedHeight,
+                    keepAspectRatio);
+                int subsampling = Math.min(currentWidth / Math.max(1, dimensions[0]),
+                    currentHeight / Math.max(1, dimensions[1])) / SUBSAMPLING_MARGIN;
+
+                if (subsampling <= 1) {
+                    // Not worth it, let the image processor decode the image
+                    return null;
+                }
+
+                ImageReadParam parameters = reader.getDefaultReadParam();
+                parameters.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return reader.read(0, parameters);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
     /**
      * Computes the new image dimension which:
      * <ul>
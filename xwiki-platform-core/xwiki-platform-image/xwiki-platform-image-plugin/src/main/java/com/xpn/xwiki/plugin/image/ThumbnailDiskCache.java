@@ -0,0 +1,269 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+
+/**
+ * Store the thumbnails produced by the {@link ImagePlugin} on disk so that they survive restarts and don't use any
+ * heap.
+ * <p>
+ * The thumbnails of an attachment are stored in a directory named after the SHA-1 of the attachment key, so that they
+ * can all be removed when the attachment is modified or deleted. Each thumbnail is stored in a file named after the
+ * SHA-1 of its key. The files are written in a temporary file and then moved to their final location so that a
+ * partially written thumbnail is never served.
+ * <p>
+ * The total size of the stored thumbnails is bounded: the least recently used thumbnails are removed when it's
+ * exceeded.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+class ThumbnailDiskCache
+{
+    /**
+     * Write the content of a thumbnail.
+     */
+    @FunctionalInterface
+    interface ThumbnailWriter
+    {
+        /**
+         * @param output the stream to write the thumbnail to
+         * @throws Exception if writing the thumbnail fails
+         */
+        void write(OutputStream output) throws Exception;
+    }
+
+    /**
+     * Store a thumbnail in the cache.
+     */
+    @FunctionalInterface
+    interface ThumbnailStore
+    {
+        /**
+         * @param writer used to write the thumbnail
+         * @return the file containing the thumbnail
+         * @throws Exception if writing the thumbnail fails
+         */
+        File store(ThumbnailWriter writer) throws Exception;
+    }
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /**
+     * The stored thumbnails and their size, in least recently used order.
+     */
+    private final Map<File, Long> files = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size;
+
+    /**
+     * @param directory the directory where to store the thumbnails
+     * @param maxSize the maximum total size of the stored thumbnails, in bytes
+     */
+    ThumbnailDiskCache(File directory, long maxSize)
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        loadFiles();
+    }
+
+    private void loadFiles()
+    {
+        if (this.directory.isDirectory()) {
+            List<File> existingFiles =
+                new ArrayList<>(FileUtils.listFiles(this.directory, TrueFileFilter.TRUE, TrueFileFilter.TRUE));
+            // Consider the oldest thumbnails as the least recently used ones
+            existingFiles.sort(Comparator.comparingLong(File::lastModified));
+            for (File file : existingFiles) {
+                if (file.getName().endsWith(TEMPORARY_SUFFIX)) {
+                    // Left by a crash while writing a thumbnail
+                    FileUtils.deleteQuietly(file);
+                } else {
+                    add(file);
+                }
+            }
+
+            evict(null);
+        }
+    }
+
+    /**
+     * @param attachmentKey the key of the attachment of the thumbnail
+     * @param key the key of the thumbnail
+     * @return the file containing the thumbnail, or {@code null} if it's not in the cache
+     */
+    synchronized File get(String attachmentKey, String key)
+    {
+        File file = getFile(attachmentKey, key);
+
+        if (this.files.get(file) != null && file.isFile()) {
+            return file;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param attachmentKey the key of the attachment of the thumbnail
+     * @param key the key of the thumbnail
+     * @param writer used to write the thumbnail
+     * @return the file containing the thumbnail
+     * @throws Exception if writing the thumbnail fails
+     */
+    File put(String attachmentKey, String key, ThumbnailWriter writer) throws Exception
+    {
+        File file = getFile(attachmentKey, key);
+
+        File parent = file.getParentFile();
+        if (!parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Failed to create the thumbnail cache directory [" + parent + "]");
+        }
+
+        File temporaryFile = File.createTempFile(file.getName(), TEMPORARY_SUFFIX, parent);
+        try {
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+                writer.write(output);
+            }
+
+            synchronized (this) {
+                try {
+                    Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                add(file);
+                evict(file);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temporaryFile);
+        }
+
+        return file;
+    }
+
+    /**
+     * Remove all the thumbnails of an attachment.
+     *
+     * @param attachmentKey the key of the attachment
+     */
+    synchronized void remove(String attachmentKey)
+    {
+        File attachmentDirectory = getAttachmentDirectory(attachmentKey);
+
+        for (Iterator<Map.Entry<File, Long>> it = this.files.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<File, Long> entry = it.next();
+            if (attachmentDirectory.equals(entry.getKey().getParentFile())) {
+                this.size -= entry.getValue();
+                it.remove();
+            }
+        }
+
+        FileUtils.deleteQuietly(attachmentDirectory);
+    }
+
+    /**
+     * Remove all the thumbnails from the cache.
+     */
+    synchronized void clear()
+    {
+        this.files.clear();
+        this.size = 0;
+
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    /**
+     * @return the total size of the stored thumbnails, in bytes
+     */
+    synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    private void add(File file)
+    {
+        Long previousSize = this.files.put(file, file.length());
+        if (previousSize != null) {
+            this.size -= previousSize;
+        }
+        this.size += file.length();
+    }
+
+    /**
+     * Remove the least recently used thumbnails until the total size is below the maximum.
+     *
+     * @param keptFile a file which should not be removed (the thumbnail which has just been added)
+     */
+    private void evict(File keptFile)
+    {
+        Collection<File> evictedFiles = new ArrayList<>();
+        for (Iterator<Map.Entry<File, Long>> it = this.files.entrySet().iterator();
+            this.size > this.maxSize && it.hasNext();) {
+            Map.Entry<File, Long> entry = it.next();
+            if (!entry.getKey().equals(keptFile)) {
+                this.size -= entry.getValue();
+                evictedFiles.add(entry.getKey());
+                it.remove();
+            }
+        }
+
+        // A thumbnail being sent is not affected by the removal of its file on most file systems
+        evictedFiles.forEach(FileUtils::deleteQuietly);
+    }
+
+    private File getAttachmentDirectory(String attachmentKey)
+    {
+        String hash = DigestUtils.sha1Hex(attachmentKey);
+
+        // Spread the attachments in several directories to avoid huge directories
+        return new File(new File(this.directory, hash.substring(0, 2)), hash.substring(2));
+    }
+
+    private File getFile(String attachmentKey, String key)
+    {
+        return new File(getAttachmentDirectory(attachmentKey), DigestUtils.sha1Hex(key));
+    }
+}
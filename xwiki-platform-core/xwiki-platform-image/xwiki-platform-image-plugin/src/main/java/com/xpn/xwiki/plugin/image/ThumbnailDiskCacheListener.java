@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AbstractAttachmentEvent;
+import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
+import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
+
+/**
+ * Remove the thumbnails of an attachment from the {@link ThumbnailDiskCache} when the attachment is modified or
+ * deleted (including when its document is deleted).
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+class ThumbnailDiskCacheListener implements EventListener
+{
+    /**
+     * The name of the listener.
+     */
+    static final String NAME = "com.xpn.xwiki.plugin.image.ThumbnailDiskCacheListener";
+
+    private static final List<Event> EVENTS = Arrays.asList(new AttachmentUpdatedEvent(), new AttachmentDeletedEvent());
+
+    private final ThumbnailDiskCache diskCache;
+
+    /**
+     * @param diskCache the disk cache to clean
+     */
+    ThumbnailDiskCacheListener(ThumbnailDiskCache diskCache)
+    {
+        this.diskCache = diskCache;
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return EVENTS;
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        XWikiDocument document = (XWikiDocument) source;
+        String attachmentName = ((AbstractAttachmentEvent) event).getName();
+        AttachmentReference reference = new AttachmentReference(attachmentName, document.getDocumentReference());
+
+        this.diskCache.remove(getAttachmentKey(reference));
+    }
+
+    /**
+     * @param reference the reference of the attachment
+     * @return the key of the attachment in the disk cache
+     */
+    static String getAttachmentKey(AttachmentReference reference)
+    {
+        return reference.toString();
+    }
+}
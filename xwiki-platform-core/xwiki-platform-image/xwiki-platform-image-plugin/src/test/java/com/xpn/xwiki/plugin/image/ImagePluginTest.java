@@ -28,15 +28,22 @@
 import org.apache.commons.codec.binary.Base64;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
@@ -101,6 +108,7 @@ public void configure() throws Exception
     {
         XWiki xwiki = this.oldCore.getSpyXWiki();
         Mockito.doReturn("10").when(xwiki).Param("xwiki.plugin.image.cache.capacity");
+        Mockito.doReturn(0L).when(xwiki).ParamAsLong("xwiki.plugin.image.diskCache", 1);
         Mockito.doReturn("test").when(xwiki).Param(
                 ArgumentMatchers.eq("xwiki.plugin.image.processorHint"), ArgumentMatchers.anyString());
 
@@ -165,4 +173,92 @@ public void testCacheOfScaledAttachment() throws Exception
             "image/png", .5F, attachmentOutputStream);
         Mockito.verify(imageCache, Mockito.times(1)).set(cacheKey, attachment);
     }
+
+    private ImagePlugin newDiskCachePlugin(XWikiContext xcontext) throws Exception
+    {
+        Mockito.doReturn(1L).when(this.oldCore.getSpyXWiki()).ParamAsLong("xwiki.plugin.image.diskCache", 1);
+        CacheManager cacheManager = this.oldCore.getMocker().getInstance(CacheManager.class);
+        Cache<Object> imageCache = Mockito.mock(Cache.class);
+        Mockito.when(cacheManager.createNewLocalCache(ArgumentMatchers.any())).thenReturn(imageCache);
+
+        return new ImagePlugin("image", ImagePlugin.class.getName(), xcontext);
+    }
+
+    private XWikiAttachment mockScaledAttachment(AttachmentReference reference, XWikiContext xcontext,
+        InputStream attachmentInputStream) throws Exception
+    {
+        XWikiAttachment attachment = Mockito.mock(XWikiAttachment.class);
+        Mockito.when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        Mockito.when(attachment.getContentInputStream(xcontext)).thenReturn(attachmentInputStream);
+        Mockito.when(attachment.clone()).thenReturn(attachment);
+        Mockito.when(attachment.getVersion()).thenReturn("1.1");
+        Mockito.when(attachment.getReference()).thenReturn(reference);
+
+        XWikiServletRequest request = Mockito.mock(XWikiServletRequest.class);
+        Mockito.when(request.getParameter("width")).thenReturn("30");
+        xcontext.setRequest(request);
+
+        Image image = Mockito.mock(Image.class);
+        Mockito.when(image.getWidth(null)).thenReturn(400);
+        Mockito.when(image.getHeight(null)).thenReturn(300);
+        Mockito.when(imageProcessor.readImage(attachmentInputStream)).thenReturn(image);
+        RenderedImage renderedImage = Mockito.mock(RenderedImage.class);
+        Mockito.when(imageProcessor.scaleImage(image, 30, 22)).thenReturn(renderedImage);
+
+        return attachment;
+    }
+
+    @Test
+    public void testDiskCacheOfScaledAttachment() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        this.oldCore.getMocker().registerMockComponent(ObservationManager.class);
+        this.plugin = newDiskCachePlugin(xcontext);
+
+        InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
+        XWikiAttachment attachment = mockScaledAttachment(
+            new AttachmentReference("image.png", new DocumentReference("wiki", "Space", "Cached")), xcontext,
+            attachmentInputStream);
+
+        assertSame(attachment, plugin.downloadAttachment(attachment, xcontext));
+
+        // The memory cache is empty but the thumbnail is taken from the disk
+        assertSame(attachment, plugin.downloadAttachment(attachment, xcontext));
+
+        Mockito.verify(imageProcessor, Mockito.times(1)).readImage(attachmentInputStream);
+        Mockito.verify(imageProcessor, Mockito.times(1)).writeImage(ArgumentMatchers.any(RenderedImage.class),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+        Mockito.verify(attachment, Mockito.times(2))
+            .setAttachment_content(ArgumentMatchers.any(ThumbnailAttachmentContent.class));
+    }
+
+    @Test
+    public void testDiskCachePurgedWhenAttachmentIsUpdated() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        ObservationManager observationManager =
+            this.oldCore.getMocker().registerMockComponent(ObservationManager.class);
+        this.plugin = newDiskCachePlugin(xcontext);
+
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        Mockito.verify(observationManager).addListener(listenerCaptor.capture());
+        EventListener listener = listenerCaptor.getValue();
+
+        AttachmentReference reference =
+            new AttachmentReference("image.png", new DocumentReference("wiki", "Space", "Updated"));
+        InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
+        XWikiAttachment attachment = mockScaledAttachment(reference, xcontext, attachmentInputStream);
+
+        plugin.downloadAttachment(attachment, xcontext);
+
+        // The attachment is modified: its thumbnails are removed from the disk
+        listener.onEvent(new AttachmentUpdatedEvent("wiki:Space.Updated", "image.png"),
+            new XWikiDocument(reference.getDocumentReference()), xcontext);
+
+        plugin.downloadAttachment(attachment, xcontext);
+
+        Mockito.verify(imageProcessor, Mockito.times(2)).readImage(attachmentInputStream);
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.File;
+import java.util.Date;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ThumbnailDiskCache}.
+ *
+ * @version $Id$
+ */
+public class ThumbnailDiskCacheTest
+{
+    private File directory;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.directory = new File("target/test-" + new Date().getTime()).getAbsoluteFile();
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    private File put(ThumbnailDiskCache cache, String attachmentKey, String key, int size) throws Exception
+    {
+        return cache.put(attachmentKey, key, output -> output.write(new byte[size]));
+    }
+
+    @Test
+    public void putAndGet() throws Exception
+    {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(this.directory, 1000);
+
+        assertNull(cache.get("attachment", "thumbnail"));
+
+        File file = put(cache, "attachment", "thumbnail", 10);
+
+        assertEquals(file, cache.get("attachment", "thumbnail"));
+        assertEquals(10, file.length());
+        assertEquals(10, cache.getSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception
+    {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(this.directory, 100);
+
+        File file1 = put(cache, "attachment", "thumbnail1", 40);
+        File file2 = put(cache, "attachment", "thumbnail2", 40);
+
+        // Use the first thumbnail so that the second one is the least recently used
+        assertNotNull(cache.get("attachment", "thumbnail1"));
+
+        File file3 = put(cache, "attachment", "thumbnail3", 40);
+
+        assertEquals(80, cache.getSize());
+        assertTrue(file1.isFile());
+        assertFalse(file2.exists());
+        assertTrue(file3.isFile());
+        assertNull(cache.get("attachment", "thumbnail2"));
+
+        // A thumbnail bigger than the cache is still kept until the next one is added
+        File file4 = put(cache, "other", "thumbnail", 200);
+
+        assertEquals(200, cache.getSize());
+        assertTrue(file4.isFile());
+        assertFalse(file1.exists());
+        assertFalse(file3.exists());
+    }
+
+    @Test
+    public void removeAttachment() throws Exception
+    {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(this.directory, 1000);
+
+        File file1 = put(cache, "attachment", "thumbnail1", 10);
+        File file2 = put(cache, "attachment", "thumbnail2", 10);
+        File file3 = put(cache, "other", "thumbnail1", 10);
+
+        cache.remove("attachment");
+
+        assertFalse(file1.exists());
+        assertFalse(file2.exists());
+        assertNull(cache.get("attachment", "thumbnail1"));
+        assertEquals(file3, cache.get("other", "thumbnail1"));
+        assertEquals(10, cache.getSize());
+    }
+
+    @Test
+    public void loadExistingThumbnails() throws Exception
+    {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(this.directory, 1000);
+
+        File file1 = put(cache, "attachment", "thumbnail1", 30);
+        File file2 = put(cache, "attachment", "thumbnail2", 30);
+        file1.setLastModified(1000L);
+        file2.setLastModified(2000L);
+
+        // Restart with a smaller cache: the oldest thumbnail is removed
+        cache = new ThumbnailDiskCache(this.directory, 50);
+
+        assertEquals(30, cache.getSize());
+        assertFalse(file1.exists());
+        assertEquals(file2, cache.get("attachment", "thumbnail2"));
+    }
+}
@@ -56,4 +56,13 @@ public boolean isGenerateInlineSourceMaps()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "generateInlineSourceMaps", false);
     }
+
+    /**
+     * @return whether the compiled LESS resources should also be stored on disk, to be reused after a restart
+     * @since 10.11RC1
+     */
+    public boolean isDiskCacheEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "diskCache", true);
+    }
 }
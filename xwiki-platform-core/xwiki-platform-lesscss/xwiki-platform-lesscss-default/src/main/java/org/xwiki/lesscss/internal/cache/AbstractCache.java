@@ -19,10 +19,9 @@
  */
 package org.xwiki.lesscss.internal.cache;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -59,29 +58,42 @@
      * This map stores the list of the cached files keys corresponding to a skin, in order to clear the corresponding
      * cache when a skin is saved.
      */
-    private Map<Object, List<String>> cachedFilesKeysMapPerSkin = new HashMap<>();
+    private Map<Object, Set<String>> cachedFilesKeysMapPerSkin = new ConcurrentHashMap<>();
 
     /**
      * This map stores the list of the cached files keys corresponding to a color theme, in order to clear the
      * corresponding cache when a color theme is saved.
      */
-    private Map<Object, List<String>> cachedFilesKeysMapPerColorTheme = new HashMap<>();
+    private Map<Object, Set<String>> cachedFilesKeysMapPerColorTheme = new ConcurrentHashMap<>();
 
     /**
      * This map stores the list of the cached files keys corresponding to a LESS resource, in order to clear the
      * corresponding cache when a LESS resource is saved.
      */
-    private Map<Object, List<String>> cachedFilesKeysMapPerLESSResource = new HashMap<>();
+    private Map<Object, Set<String>> cachedFilesKeysMapPerLESSResource = new ConcurrentHashMap<>();
 
     @Inject
     private CacheKeyFactory cacheKeyFactory;
 
-    private Map<String, String> mutexList = new HashMap<>();
+    private Map<String, String> mutexList = new ConcurrentHashMap<>();
+
+    /**
+     * @param lessResourceReference reference of the compiled code
+     * @param skin reference of the skin
+     * @param colorTheme reference of the color theme
+     * @return the key of the corresponding entry in the cache
+     * @since 10.11RC1
+     */
+    protected String getCacheKey(LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme)
+    {
+        return cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled);
+    }
 
     @Override
     public T get(LESSResourceReference lessResourceReference, SkinReference skin, ColorThemeReference colorTheme)
     {
-        return cache.get(cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled));
+        return cache.get(getCacheKey(lessResourceReference, skin, colorTheme));
     }
 
     @Override
@@ -89,7 +101,7 @@ public void set(LESSResourceReference lessResourceReference, SkinReference skin,
         ColorThemeReference colorTheme, T content)
     {
         // Store the content in the cache
-        String cacheKey = cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled);
+        String cacheKey = getCacheKey(lessResourceReference, skin, colorTheme);
         cache.set(cacheKey, content);
 
         // Add the new key to maps
@@ -106,17 +118,10 @@ public void set(LESSResourceReference lessResourceReference, SkinReference skin,
      * @param cacheKey the cache key to register
      * @param reference name of the skin or of the color theme
      */
-    private void registerCacheKey(Map<Object, List<String>> cachedFilesKeysMap, String cacheKey, Object reference)
+    private void registerCacheKey(Map<Object, Set<String>> cachedFilesKeysMap, String cacheKey, Object reference)
     {
-        List<String> cachedFilesKeys = cachedFilesKeysMap.get(reference);
-        if (cachedFilesKeys == null) {
-            // if the list of cached files keys corresponding to the skin/colortheme name does not exist, we create it
-            cachedFilesKeys = new ArrayList<>();
-            cachedFilesKeysMap.put(reference, cachedFilesKeys);
-        }
-        if (!cachedFilesKeys.contains(cacheKey)) {
-            cachedFilesKeys.add(cacheKey);
-        }
+        // The keys are registered concurrently by the compilations of different resources
+        cachedFilesKeysMap.computeIfAbsent(reference, k -> ConcurrentHashMap.newKeySet()).add(cacheKey);
     }
 
     @Override
@@ -128,19 +133,28 @@ public void clear()
         cachedFilesKeysMapPerLESSResource.clear();
     }
 
-    private void clearFromCriteria(Map<Object, List<String>> cachedFilesKeysMap, Object criteria)
+    private void clearFromCriteria(Map<Object, Set<String>> cachedFilesKeysMap, Object criteria)
     {
-        // Get the list of cached files keys corresponding to the criteria
-        List<String> cachedFilesKeys = cachedFilesKeysMap.get(criteria);
+        // Get and remove the list of cached files keys corresponding to the criteria
+        Set<String> cachedFilesKeys = cachedFilesKeysMap.remove(criteria);
         if (cachedFilesKeys == null) {
             return;
         }
         // Remove all the cached files corresponding to the cached keys
         for (String cachedFileKey : cachedFilesKeys) {
-            cache.remove(cachedFileKey);
+            remove(cachedFileKey);
         }
-        // Remove the list of cached keys corresponding to the criteria
-        cachedFilesKeysMap.remove(criteria);
+    }
+
+    /**
+     * Remove an entry from the cache.
+     *
+     * @param cacheKey the key of the entry to remove
+     * @since 10.11RC1
+     */
+    protected void remove(String cacheKey)
+    {
+        cache.remove(cacheKey);
     }
 
     @Override
@@ -162,17 +176,12 @@ public void clearFromLESSResource(LESSResourceReference lessResourceReference)
     }
     
     @Override
-    public synchronized Object getMutex(LESSResourceReference lessResourceReference, SkinReference skin, 
+    public Object getMutex(LESSResourceReference lessResourceReference, SkinReference skin, 
         ColorThemeReference colorTheme)
     {
         // The mutex is a string (actually the cache key) to help debugging.
-        String cacheKey = cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled);
-        String mutex = mutexList.get(cacheKey);
-        if (mutex == null) {
-            // the mutex is the key, so no extra memory is needed
-            mutex = cacheKey;
-            mutexList.put(cacheKey, mutex);
-        }
-        return mutex;
+        // The mutex is the key, so no extra memory is needed. Getting it doesn't block the compilation of other keys.
+        String cacheKey = getCacheKey(lessResourceReference, skin, colorTheme);
+        return mutexList.computeIfAbsent(cacheKey, k -> k);
     }
 }
@@ -30,9 +30,16 @@
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.skin.SkinReference;
+import org.xwiki.lesscss.resources.LESSResourceReference;
 
 /**
  * Default implementation for {@link org.xwiki.lesscss.internal.cache.LESSResourcesCache}.
+ * <p>
+ * Since 10.11RC1 the compiled resources are also stored on disk (see {@link LESSResourcesDiskCache}) so that they
+ * are not compiled again after a restart.
  *
  * @since 6.4M2
  * @version $Id$
@@ -46,9 +53,17 @@ public class DefaultLESSResourcesCache extends AbstractCache<String> implements
      */
     public static final String LESS_FILES_CACHE_ID = "lesscss.skinfiles.cache";
 
+    /**
+     * The beginning of the result of a failed compilation (the serialized exception, in a comment).
+     */
+    private static final String FAILURE_PREFIX = "/* " + LESSCompilerException.class.getName();
+
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    private LESSResourcesDiskCache diskCache;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -61,4 +76,50 @@ public void initialize() throws InitializationException
                     String.format("Failed to initialize LESS skin files cache [%s].", LESS_FILES_CACHE_ID), e);
         }
     }
+
+    @Override
+    public String get(LESSResourceReference lessResourceReference, SkinReference skin, ColorThemeReference colorTheme)
+    {
+        String result = super.get(lessResourceReference, skin, colorTheme);
+
+        if (result == null) {
+            result = this.diskCache.get(getCacheKey(lessResourceReference, skin, colorTheme), lessResourceReference,
+                skin, colorTheme);
+            if (result != null) {
+                // Only in memory, it's already on disk
+                super.set(lessResourceReference, skin, colorTheme, result);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void set(LESSResourceReference lessResourceReference, SkinReference skin, ColorThemeReference colorTheme,
+        String content)
+    {
+        super.set(lessResourceReference, skin, colorTheme, content);
+
+        // Failed compilations are not stored on disk so that they are tried again after a restart
+        if (content != null && !content.startsWith(FAILURE_PREFIX)) {
+            this.diskCache.set(getCacheKey(lessResourceReference, skin, colorTheme), lessResourceReference, skin,
+                colorTheme, content);
+        }
+    }
+
+    @Override
+    protected void remove(String cacheKey)
+    {
+        super.remove(cacheKey);
+
+        this.diskCache.remove(cacheKey);
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+
+        this.diskCache.clear();
+    }
 }
@@ -0,0 +1,266 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.DocumentColorThemeReference;
+import org.xwiki.lesscss.internal.resources.LESSObjectPropertyResourceReference;
+import org.xwiki.lesscss.internal.skin.DocumentSkinReference;
+import org.xwiki.lesscss.internal.skin.SkinReference;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Store the compiled LESS resources on disk so that they don't need to be compiled again after a restart.
+ * <p>
+ * Each entry is stored with a fingerprint of the sources it has been compiled from: the version of the documents
+ * involved (skin, color theme, skin extension) and of the skins located on the file system. An entry is ignored when
+ * its fingerprint doesn't match the current sources anymore, which covers the modifications done while the cache
+ * could not be notified (e.g. while XWiki was stopped).
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component(roles = LESSResourcesDiskCache.class)
+@Singleton
+public class LESSResourcesDiskCache
+{
+    private static final String FINGERPRINT_SEPARATOR = "|";
+
+    private static final String EXTENSION = ".css";
+
+    @Inject
+    private LESSConfiguration configuration;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    private volatile File directory;
+
+    private volatile String fileSystemFingerprint;
+
+    /**
+     * @param cacheKey the key of the compiled resource
+     * @param lessResourceReference reference of the compiled code
+     * @param skin reference of the skin
+     * @param colorTheme reference of the color theme
+     * @return the compiled resource, or {@code null} if it's not stored on disk or if its sources have changed
+     */
+    public String get(String cacheKey, LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme)
+    {
+        File file = getFile(cacheKey);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        try {
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+
+            // The first line contains the fingerprint of the sources
+            String fingerprint = StringUtils.substringBefore(content, "\n");
+            if (fingerprint.equals(getFingerprint(lessResourceReference, skin, colorTheme))) {
+                return StringUtils.substringAfter(content, "\n");
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to read the compiled LESS resource [{}] from [{}]: {}", lessResourceReference,
+                file, e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * @param cacheKey the key of the compiled resource
+     * @param lessResourceReference reference of the compiled code
+     * @param skin reference of the skin
+     * @param colorTheme reference of the color theme
+     * @param content the compiled resource
+     */
+    public void set(String cacheKey, LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme, String content)
+    {
+        File file = getFile(cacheKey);
+        if (file == null) {
+            return;
+        }
+
+        File temporaryFile = null;
+        try {
+            String fingerprint = getFingerprint(lessResourceReference, skin, colorTheme);
+
+            File parent = file.getParentFile();
+            if (!parent.mkdirs() && !parent.isDirectory()) {
+                throw new IOException("Failed to create the directory [" + parent + "]");
+            }
+
+            // Write in a temporary file first so that a partially written file is never read
+            temporaryFile = File.createTempFile(file.getName(), ".tmp", parent);
+            FileUtils.writeStringToFile(temporaryFile, fingerprint + '\n' + content, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to store the compiled LESS resource [{}] in [{}]: {}", lessResourceReference,
+                file, e.getMessage());
+        } finally {
+            FileUtils.deleteQuietly(temporaryFile);
+        }
+    }
+
+    /**
+     * @param cacheKey the key of the compiled resource to remove
+     */
+    public void remove(String cacheKey)
+    {
+        File file = getFile(cacheKey);
+        if (file != null) {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Remove all the compiled resources stored on disk.
+     */
+    public void clear()
+    {
+        File cacheDirectory = getDirectory();
+        if (cacheDirectory != null) {
+            FileUtils.deleteQuietly(cacheDirectory);
+        }
+    }
+
+    private File getDirectory()
+    {
+        if (this.directory == null && this.configuration.isDiskCacheEnabled()) {
+            File permanentDirectory = this.environment.getPermanentDirectory();
+            if (permanentDirectory != null) {
+                this.directory = new File(permanentDirectory, "cache/lesscss");
+            }
+        }
+
+        return this.directory;
+    }
+
+    private File getFile(String cacheKey)
+    {
+        File cacheDirectory = getDirectory();
+        if (cacheDirectory == null) {
+            return null;
+        }
+
+        String hash = DigestUtils.sha1Hex(cacheKey);
+
+        return new File(new File(cacheDirectory, hash.substring(0, 2)), hash.substring(2) + EXTENSION);
+    }
+
+    private String getFingerprint(LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme) throws Exception
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        StringBuilder fingerprint = new StringBuilder(getFileSystemFingerprint(xcontext));
+
+        if (skin instanceof DocumentSkinReference) {
+            appendDocumentVersion(fingerprint, ((DocumentSkinReference) skin).getSkinDocument(), xcontext);
+        }
+        if (colorTheme instanceof DocumentColorThemeReference) {
+            appendDocumentVersion(fingerprint, ((DocumentColorThemeReference) colorTheme).getColorThemeDocument(),
+                xcontext);
+        }
+        if (lessResourceReference instanceof LESSObjectPropertyResourceReference) {
+            appendDocumentVersion(fingerprint, new DocumentReference(
+                ((LESSObjectPropertyResourceReference) lessResourceReference).getObjectPropertyReference()
+                    .extractReference(EntityType.DOCUMENT)), xcontext);
+        }
+
+        return DigestUtils.sha1Hex(fingerprint.toString());
+    }
+
+    private void appendDocumentVersion(StringBuilder fingerprint, DocumentReference documentReference,
+        XWikiContext xcontext) throws Exception
+    {
+        XWikiDocument document = xcontext.getWiki().getDocument(documentReference, xcontext);
+
+        fingerprint.append(FINGERPRINT_SEPARATOR).append(documentReference);
+        fingerprint.append(FINGERPRINT_SEPARATOR).append(document.getVersion());
+        fingerprint.append(FINGERPRINT_SEPARATOR).append(document.getDate() != null ? document.getDate().getTime() : 0);
+    }
+
+    /**
+     * The skins located on the file system only change when XWiki is upgraded or redeployed, so their fingerprint is
+     * computed only once.
+     */
+    private String getFileSystemFingerprint(XWikiContext xcontext)
+    {
+        if (this.fileSystemFingerprint == null) {
+            long lastModified = 0;
+            try {
+                URL skins = this.environment.getResource("/skins/");
+                if (skins != null && "file".equals(skins.getProtocol())) {
+                    Collection<File> files = FileUtils.listFiles(new File(skins.toURI()), null, true);
+                    for (File file : files) {
+                        lastModified = Math.max(lastModified, file.lastModified());
+                    }
+                }
+            } catch (URISyntaxException e) {
+                this.logger.debug("Failed to get the modification date of the skins.", e);
+            }
+
+            this.fileSystemFingerprint = xcontext.getWiki().getVersion() + FINGERPRINT_SEPARATOR + lastModified;
+        }
+
+        return this.fileSystemFingerprint;
+    }
+}
@@ -54,6 +54,15 @@ public LESSObjectPropertyResourceReference(ObjectPropertyReference objectPropert
         this.bridge = bridge;
     }
 
+    /**
+     * @return the reference to the property of the XObject storing the LESS code
+     * @since 10.11RC1
+     */
+    public ObjectPropertyReference getObjectPropertyReference()
+    {
+        return objectPropertyReference;
+    }
+
     @Override
     public boolean equals(Object o)
     {
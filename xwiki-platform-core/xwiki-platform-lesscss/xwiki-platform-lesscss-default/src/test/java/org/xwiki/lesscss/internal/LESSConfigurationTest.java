@@ -55,4 +55,12 @@ public void generateSourceMaps() throws Exception
         lessConfiguration.isGenerateInlineSourceMaps();
         verify(configurationSource).getProperty("lesscss.generateInlineSourceMaps", false);
     }
+
+    @Test
+    public void diskCache() throws Exception
+    {
+        when(configurationSource.getProperty("lesscss.diskCache", true)).thenReturn(true);
+        lessConfiguration.isDiskCacheEnabled();
+        verify(configurationSource).getProperty("lesscss.diskCache", true);
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.util.Date;
+
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.colortheme.DocumentColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.NamedColorThemeReference;
+import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
+import org.xwiki.lesscss.internal.skin.FSSkinReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link LESSResourcesDiskCache}.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class LESSResourcesDiskCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<LESSResourcesDiskCache> mocker =
+        new MockitoComponentMockingRule<>(LESSResourcesDiskCache.class);
+
+    private XWikiContext xcontext;
+
+    private XWiki xwiki;
+
+    private LESSSkinFileResourceReference resource = new LESSSkinFileResourceReference("style.less.vm", null, null);
+
+    private FSSkinReference skin = new FSSkinReference("flamingo");
+
+    private NamedColorThemeReference colorTheme = new NamedColorThemeReference("default");
+
+    @Before
+    public void setUp() throws Exception
+    {
+        LESSConfiguration configuration = mocker.getInstance(LESSConfiguration.class);
+        when(configuration.isDiskCacheEnabled()).thenReturn(true);
+
+        Environment environment = mocker.getInstance(Environment.class);
+        File permanentDirectory = new File("target/test-" + new Date().getTime()).getAbsoluteFile();
+        when(environment.getPermanentDirectory()).thenReturn(permanentDirectory);
+
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getVersion()).thenReturn("10.11");
+    }
+
+    @Test
+    public void setAndGet() throws Exception
+    {
+        mocker.getComponentUnderTest().set("key", resource, skin, colorTheme, "css\ncontent");
+
+        assertEquals("css\ncontent", mocker.getComponentUnderTest().get("key", resource, skin, colorTheme));
+        assertNull(mocker.getComponentUnderTest().get("otherKey", resource, skin, colorTheme));
+    }
+
+    @Test
+    public void getWhenColorThemeModified() throws Exception
+    {
+        DocumentReference colorThemeDocumentReference = new DocumentReference("wiki", "ColorThemes", "Theme");
+        DocumentColorThemeReference documentColorTheme =
+            new DocumentColorThemeReference(colorThemeDocumentReference, null);
+        XWikiDocument colorThemeDocument = mock(XWikiDocument.class);
+        when(xwiki.getDocument(colorThemeDocumentReference, xcontext)).thenReturn(colorThemeDocument);
+        when(colorThemeDocument.getVersion()).thenReturn("1.1");
+
+        mocker.getComponentUnderTest().set("key", resource, skin, documentColorTheme, "css");
+        assertEquals("css", mocker.getComponentUnderTest().get("key", resource, skin, documentColorTheme));
+
+        when(colorThemeDocument.getVersion()).thenReturn("1.2");
+        assertNull(mocker.getComponentUnderTest().get("key", resource, skin, documentColorTheme));
+    }
+
+    @Test
+    public void removeAndClear() throws Exception
+    {
+        mocker.getComponentUnderTest().set("key1", resource, skin, colorTheme, "css1");
+        mocker.getComponentUnderTest().set("key2", resource, skin, colorTheme, "css2");
+
+        mocker.getComponentUnderTest().remove("key1");
+        assertNull(mocker.getComponentUnderTest().get("key1", resource, skin, colorTheme));
+        assertEquals("css2", mocker.getComponentUnderTest().get("key2", resource, skin, colorTheme));
+
+        mocker.getComponentUnderTest().clear();
+        assertNull(mocker.getComponentUnderTest().get("key2", resource, skin, colorTheme));
+    }
+}
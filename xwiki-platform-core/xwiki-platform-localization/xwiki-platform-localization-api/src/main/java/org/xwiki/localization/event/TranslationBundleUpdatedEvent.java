@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.event;
+
+import java.util.Objects;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Event sent when the translations provided by a {@link org.xwiki.localization.TranslationBundle} have been modified,
+ * so that the components caching resolved translations can forget them.
+ * <p>
+ * The event also sends the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the component which modified the bundle</li>
+ * <li>data: null</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class TranslationBundleUpdatedEvent implements Event
+{
+    private String id;
+
+    /**
+     * Matches any {@link TranslationBundleUpdatedEvent}.
+     */
+    public TranslationBundleUpdatedEvent()
+    {
+
+    }
+
+    /**
+     * @param id the identifier of the modified bundle
+     */
+    public TranslationBundleUpdatedEvent(String id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * @return the identifier of the modified bundle
+     */
+    public String getId()
+    {
+        return this.id;
+    }
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        if (otherEvent instanceof TranslationBundleUpdatedEvent) {
+            return this.id == null || Objects.equals(this.id, ((TranslationBundleUpdatedEvent) otherEvent).getId());
+        }
+
+        return false;
+    }
+}
@@ -62,6 +62,12 @@ public class DefaultLocalizationManager implements LocalizationManager
     @Inject
     private TranslationBundleContext bundleContext;
 
+    /**
+     * Used to avoid searching the bundles for translations already resolved.
+     */
+    @Inject
+    private TranslationIndex index;
+
     /**
      * The logger to log.
      */
@@ -70,6 +76,17 @@ public class DefaultLocalizationManager implements LocalizationManager
 
     @Override
     public Translation getTranslation(String key, Locale locale)
+    {
+        if (key != null && locale != null && this.bundleContext instanceof DefaultTranslationBundleContext) {
+            String bundles = ((DefaultTranslationBundleContext) this.bundleContext).getBundlesKey();
+
+            return this.index.getTranslation(bundles, key, locale, this::getBundlesTranslation);
+        }
+
+        return getBundlesTranslation(key, locale);
+    }
+
+    private Translation getBundlesTranslation(String key, Locale locale)
     {
         for (TranslationBundle bundle : this.bundleContext.getBundles()) {
             try {
@@ -85,7 +102,7 @@ public Translation getTranslation(String key, Locale locale)
         // Try parent locale
         Locale parentLocale = LocaleUtils.getParentLocale(locale);
         if (parentLocale != null) {
-            return getTranslation(key, parentLocale);
+            return getBundlesTranslation(key, parentLocale);
         }
 
         return null;
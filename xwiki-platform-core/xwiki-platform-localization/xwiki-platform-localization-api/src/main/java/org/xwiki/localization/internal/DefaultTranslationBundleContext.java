@@ -58,6 +58,15 @@ public class DefaultTranslationBundleContext implements TranslationBundleContext
      */
     public static final String CKEY_BUNDLES = "localization.bundles";
 
+    /**
+     * The key associated to the identifiers of the list of bundles in the {@link ExecutionContext}.
+     *
+     * @since 10.11RC1
+     */
+    public static final String CKEY_BUNDLES_KEYS = "localization.bundles.keys";
+
+    private static final char KEY_SEPARATOR = '|';
+
     /**
      * Used to access the current context.
      */
@@ -80,6 +89,22 @@ public class DefaultTranslationBundleContext implements TranslationBundleContext
     @Inject
     private ModelContext modelContext;
 
+    /**
+     * The identifier of a set of bundles.
+     */
+    private static final class BundlesKey
+    {
+        private final int size;
+
+        private final String value;
+
+        BundlesKey(int size, String value)
+        {
+            this.size = size;
+            this.value = value;
+        }
+    }
+
     private SortedSet<TranslationBundle> initializeCurrentBundles()
     {
         SortedSet<TranslationBundle> currentBundles = new TreeSet<>();
@@ -121,7 +146,11 @@ private Map<String, SortedSet<TranslationBundle>> getBundlesInternal()
 
     private SortedSet<TranslationBundle> getCurrentBundlesInternal()
     {
-        String currentWiki = getCurrentWiki();
+        return getCurrentBundlesInternal(getCurrentWiki());
+    }
+
+    private SortedSet<TranslationBundle> getCurrentBundlesInternal(String currentWiki)
+    {
         Map<String, SortedSet<TranslationBundle>> bundlesMap = getBundlesInternal();
         SortedSet<TranslationBundle> currentBundles = bundlesMap.get(currentWiki);
 
@@ -140,6 +169,45 @@ public Collection<TranslationBundle> getBundles()
         return getCurrentBundlesInternal();
     }
 
+    /**
+     * @return an identifier of the current wiki and of the current bundles, shared by all the contexts using the same
+     *         bundles to resolve the translations
+     * @since 10.11RC1
+     */
+    public String getBundlesKey()
+    {
+        String currentWiki = getCurrentWiki();
+        SortedSet<TranslationBundle> currentBundles = getCurrentBundlesInternal(currentWiki);
+
+        Map<String, BundlesKey> keys;
+        ExecutionContext context = this.execution.getContext();
+        if (context != null) {
+            keys = (Map<String, BundlesKey>) context.getProperty(CKEY_BUNDLES_KEYS);
+
+            if (keys == null) {
+                keys = new HashMap<>();
+                context.newProperty(CKEY_BUNDLES_KEYS).inherited().cloneValue().initial(keys).declare();
+            }
+        } else {
+            keys = new HashMap<>();
+        }
+
+        // Bundles are only added to the current bundles so a different size means that the key has to be updated
+        BundlesKey key = keys.get(currentWiki);
+        if (key == null || key.size != currentBundles.size()) {
+            StringBuilder builder = new StringBuilder(currentWiki);
+            for (TranslationBundle bundle : currentBundles) {
+                builder.append(KEY_SEPARATOR);
+                builder.append(bundle.getId());
+            }
+
+            key = new BundlesKey(currentBundles.size(), builder.toString());
+            keys.put(currentWiki, key);
+        }
+
+        return key.value;
+    }
+
     @Override
     public void addBundle(TranslationBundle bundle)
     {
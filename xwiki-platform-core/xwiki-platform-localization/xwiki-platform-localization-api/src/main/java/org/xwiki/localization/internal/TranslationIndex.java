@@ -0,0 +1,183 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.event.TranslationBundleUpdatedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Index of the translations already resolved for a given set of bundles and a given locale, so that the bundles are
+ * walked only once for each key.
+ * <p>
+ * The index is filled lazily and cleared as soon as one of the bundles is modified (see
+ * {@link TranslationBundleUpdatedEvent}).
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component(roles = TranslationIndex.class)
+@Singleton
+public class TranslationIndex implements Initializable
+{
+    /**
+     * The maximum number of sets of bundles indexed at the same time.
+     */
+    private static final int MAX_INDEXES = 100;
+
+    /**
+     * The maximum number of keys indexed for a given set of bundles and locale.
+     */
+    private static final int MAX_KEYS = 20000;
+
+    private static final Entry MISSING = new Entry(null);
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    private Logger logger;
+
+    private volatile Map<String, Map<Locale, Map<String, Entry>>> indexes = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder rebuilds = new LongAdder();
+
+    private static final class Entry
+    {
+        private final Translation translation;
+
+        Entry(Translation translation)
+        {
+            this.translation = translation;
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.observation.addListener(
+            new AbstractEventListener("localization.index", new TranslationBundleUpdatedEvent())
+            {
+                @Override
+                public void onEvent(Event event, Object source, Object data)
+                {
+                    clear();
+                }
+            });
+    }
+
+    /**
+     * @param bundles the identifier of the set of bundles to search
+     * @param key the key of the translation
+     * @param locale the locale of the translation
+     * @param resolver used to search the bundles when the translation is not yet indexed
+     * @return the translation, or {@code null} if none could be found
+     */
+    public Translation getTranslation(String bundles, String key, Locale locale,
+        BiFunction<String, Locale, Translation> resolver)
+    {
+        // Remember the index of the current generation: a translation resolved while the index is being cleared is
+        // stored in the discarded index
+        Map<String, Map<Locale, Map<String, Entry>>> currentIndexes = this.indexes;
+
+        Map<Locale, Map<String, Entry>> localeIndexes = currentIndexes.get(bundles);
+        if (localeIndexes == null) {
+            if (currentIndexes.size() >= MAX_INDEXES) {
+                clear();
+                currentIndexes = this.indexes;
+            }
+            localeIndexes = currentIndexes.computeIfAbsent(bundles, k -> new ConcurrentHashMap<>());
+        }
+        Map<String, Entry> index = localeIndexes.computeIfAbsent(locale, k -> new ConcurrentHashMap<>());
+
+        Entry entry = index.get(key);
+        if (entry != null) {
+            this.hits.increment();
+
+            return entry.translation;
+        }
+
+        this.misses.increment();
+
+        // Don't use computeIfAbsent since resolving a translation can lead to resolving other translations
+        Translation translation = resolver.apply(key, locale);
+        if (index.size() < MAX_KEYS) {
+            index.put(key, translation != null ? new Entry(translation) : MISSING);
+        }
+
+        return translation;
+    }
+
+    /**
+     * Forget all the indexed translations.
+     */
+    public void clear()
+    {
+        this.indexes = new ConcurrentHashMap<>();
+
+        this.rebuilds.increment();
+
+        this.logger.debug("Translation index cleared (hits: [{}], misses: [{}], rebuilds: [{}])", getHits(),
+            getMisses(), getRebuilds());
+    }
+
+    /**
+     * @return the number of translations found in the index
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of translations which had to be searched in the bundles
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return the number of times the index was cleared
+     */
+    public long getRebuilds()
+    {
+        return this.rebuilds.sum();
+    }
+}
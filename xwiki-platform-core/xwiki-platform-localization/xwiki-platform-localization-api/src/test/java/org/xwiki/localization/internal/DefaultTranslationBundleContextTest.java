@@ -166,4 +166,32 @@ public void addBundlesToCurrentContext() throws Exception
         assertEquals(1, bundles.size());
         assertTrue(bundles.contains(mockBundleToAdd));
     }
+
+    @Test
+    public void getBundlesKey() throws Exception
+    {
+        when(this.mockContextComponentManagerProvider.get()).thenReturn(this.mocker);
+
+        TranslationBundle mockTranslationBundle = this.mocker.registerMockComponent(TranslationBundle.class);
+        when(mockTranslationBundle.getId()).thenReturn("bundle");
+
+        DefaultTranslationBundleContext bundleContext =
+            (DefaultTranslationBundleContext) this.mocker.getComponentUnderTest();
+
+        assertEquals("currentWiki|bundle", bundleContext.getBundlesKey());
+
+        // The key changes when a bundle is added
+        TranslationBundle mockBundleToAdd = mock(TranslationBundle.class);
+        when(mockBundleToAdd.getId()).thenReturn("added");
+        when(mockBundleToAdd.compareTo(mockTranslationBundle)).thenReturn(1);
+        when(mockTranslationBundle.compareTo(mockBundleToAdd)).thenReturn(-1);
+        bundleContext.addBundle(mockBundleToAdd);
+
+        assertEquals("currentWiki|bundle|added", bundleContext.getBundlesKey());
+
+        // The key depends on the current wiki
+        when(this.mockModelContext.getCurrentEntityReference()).thenReturn(new WikiReference("otherWiki"));
+
+        assertEquals("otherWiki|bundle", bundleContext.getBundlesKey());
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.event.TranslationBundleUpdatedEvent;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TranslationIndex}.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class TranslationIndexTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<TranslationIndex> mocker =
+        new MockitoComponentMockingRule<>(TranslationIndex.class);
+
+    private BiFunction<String, Locale, Translation> resolver;
+
+    private Translation translation;
+
+    @Before
+    public void before() throws Exception
+    {
+        this.translation = mock(Translation.class);
+
+        this.resolver = mock(BiFunction.class);
+        when(this.resolver.apply("key", Locale.FRENCH)).thenReturn(this.translation);
+    }
+
+    @Test
+    public void getTranslation() throws Exception
+    {
+        TranslationIndex index = this.mocker.getComponentUnderTest();
+
+        assertEquals(this.translation, index.getTranslation("wiki|bundle", "key", Locale.FRENCH, this.resolver));
+        assertEquals(this.translation, index.getTranslation("wiki|bundle", "key", Locale.FRENCH, this.resolver));
+        assertNull(index.getTranslation("wiki|bundle", "missing", Locale.FRENCH, this.resolver));
+        assertNull(index.getTranslation("wiki|bundle", "missing", Locale.FRENCH, this.resolver));
+
+        verify(this.resolver, times(1)).apply("key", Locale.FRENCH);
+        verify(this.resolver, times(1)).apply("missing", Locale.FRENCH);
+
+        // Each set of bundles and locale has its own index
+        index.getTranslation("otherwiki|bundle", "key", Locale.FRENCH, this.resolver);
+        index.getTranslation("wiki|bundle", "key", Locale.GERMAN, this.resolver);
+
+        verify(this.resolver, times(2)).apply("key", Locale.FRENCH);
+        verify(this.resolver, times(1)).apply("key", Locale.GERMAN);
+
+        assertEquals(2, index.getHits());
+        assertEquals(4, index.getMisses());
+    }
+
+    @Test
+    public void getTranslationAfterBundleUpdate() throws Exception
+    {
+        TranslationIndex index = this.mocker.getComponentUnderTest();
+
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        ObservationManager observation = this.mocker.getInstance(ObservationManager.class);
+        verify(observation).addListener(listenerCaptor.capture());
+
+        index.getTranslation("wiki|bundle", "key", Locale.FRENCH, this.resolver);
+
+        listenerCaptor.getValue().onEvent(new TranslationBundleUpdatedEvent("bundle"), null, null);
+
+        index.getTranslation("wiki|bundle", "key", Locale.FRENCH, this.resolver);
+
+        verify(this.resolver, times(2)).apply("key", Locale.FRENCH);
+        verify(this.resolver, times(2)).apply(any(), any());
+
+        assertEquals(1, index.getRebuilds());
+    }
+}
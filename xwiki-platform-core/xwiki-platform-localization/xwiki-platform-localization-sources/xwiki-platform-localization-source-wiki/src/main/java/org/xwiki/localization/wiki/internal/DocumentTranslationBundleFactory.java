@@ -52,6 +52,7 @@
 import org.xwiki.localization.TranslationBundle;
 import org.xwiki.localization.TranslationBundleDoesNotExistsException;
 import org.xwiki.localization.TranslationBundleFactory;
+import org.xwiki.localization.event.TranslationBundleUpdatedEvent;
 import org.xwiki.localization.message.TranslationMessageParser;
 import org.xwiki.localization.wiki.internal.TranslationDocumentModel.Scope;
 import org.xwiki.model.reference.DocumentReference;
@@ -239,6 +240,9 @@ private void loadTranslations(String wiki)
         } catch (Exception e) {
             this.logger.error("Failed to load existing translations", e);
         }
+
+        // The translations resolved before the wiki was ready might not be accurate
+        this.observation.notify(new TranslationBundleUpdatedEvent(), this);
     }
 
     @Override
@@ -349,6 +353,12 @@ private void translationDocumentUpdated(XWikiDocument document)
                     document.getDocumentReference(), e);
             }
         }
+
+        if (getScope(document) != null || getScope(document.getOriginalDocument()) != null) {
+            String bundleId = ID_PREFIX + this.serializer.serialize(document.getDocumentReference());
+
+            this.observation.notify(new TranslationBundleUpdatedEvent(bundleId), this);
+        }
     }
 
     private Scope getScope(XWikiDocument document)
@@ -101,4 +101,32 @@
      * @since 6.4RC1
      */
     long getSendWaitTime();
+
+    /**
+     * @return the number of threads preparing the mails to send
+     * @since 10.11RC1
+     */
+    default int getPrepareThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the number of threads sending the mails, each of them using its own connection to the mail server
+     * @since 10.11RC1
+     */
+    default int getSendThreads()
+    {
+        return 4;
+    }
+
+    /**
+     * @return the maximum number of mails sent using the same connection to the mail server before reconnecting, 0 or
+     *         less for no limit
+     * @since 10.11RC1
+     */
+    default int getMaxMessagesPerConnection()
+    {
+        return 100;
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -40,7 +41,7 @@ public class MemoryMailStatusResult extends AbstractMailStatusResult
 {
     private abstract class AbstractMailStatusIterator implements Iterator<MailStatus>
     {
-        private final Iterator<MailStatus> it = statusMap.values().iterator();
+        private final Iterator<MailStatus> it = getAll();
         private MailStatus nextStatus;
 
         abstract boolean match(MailStatus status);
@@ -83,8 +84,11 @@ public void remove()
      *
      * Note that we keep the order in which messages are passed (i.e. the first status result will contain the first
      * mail sent, etc).
+     * <p>
+     * Accesses are synchronized on the map since several mail sender threads can update the statuses of the same
+     * batch at the same time.
      */
-    private Map<String, MailStatus> statusMap = new LinkedHashMap<>();
+    private final Map<String, MailStatus> statusMap = new LinkedHashMap<>();
 
     /**
      * Retrieve the status for the given message identifier.
@@ -94,7 +98,9 @@ public void remove()
      */
     public MailStatus getStatus(String uniqueMessageId)
     {
-        return this.statusMap.get(uniqueMessageId);
+        synchronized (this.statusMap) {
+            return this.statusMap.get(uniqueMessageId);
+        }
     }
 
     /**
@@ -104,13 +110,18 @@ public MailStatus getStatus(String uniqueMessageId)
      */
     public void setStatus(MailStatus status)
     {
-        this.statusMap.put(status.getMessageId(), status);
+        synchronized (this.statusMap) {
+            this.statusMap.put(status.getMessageId(), status);
+        }
     }
 
     @Override
     public Iterator<MailStatus> getAll()
     {
-        return this.statusMap.values().iterator();
+        // Iterate over a copy to not fail when a status is updated in the meantime
+        synchronized (this.statusMap) {
+            return new ArrayList<>(this.statusMap.values()).iterator();
+        }
     }
 
     @Override
@@ -95,6 +95,12 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
      */
     private static final long DEFAULT_SEND_WAIT_TIME = 8 * 1000L;
 
+    private static final int DEFAULT_PREPARE_THREADS = 1;
+
+    private static final int DEFAULT_SEND_THREADS = 4;
+
+    private static final int DEFAULT_MAX_MESSAGES_PER_CONNECTION = 100;
+
     private static final String FROM_PROPERTY = "from";
     private static final String BCC_PROPERTY = "bcc";
     private static final String HOST_PROPERTY = "host";
@@ -103,6 +109,9 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
     private static final String PASSWORD_PROPERTY = "password";
     private static final String PROPERTIES_PROPERTY = "properties";
     private static final String SEND_WAIT_TIME = "sendWaitTime";
+    private static final String PREPARE_THREADS = "prepareThreads";
+    private static final String SEND_THREADS = "sendThreads";
+    private static final String MAX_MESSAGES_PER_CONNECTION = "maxMessagesPerConnection";
 
     @Inject
     private Logger logger;
@@ -318,4 +327,23 @@ public long getSendWaitTime()
 
         return waitTime;
     }
+
+    @Override
+    public int getPrepareThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + PREPARE_THREADS, DEFAULT_PREPARE_THREADS);
+    }
+
+    @Override
+    public int getSendThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_THREADS, DEFAULT_SEND_THREADS);
+    }
+
+    @Override
+    public int getMaxMessagesPerConnection()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + MAX_MESSAGES_PER_CONNECTION,
+            DEFAULT_MAX_MESSAGES_PER_CONNECTION);
+    }
 }
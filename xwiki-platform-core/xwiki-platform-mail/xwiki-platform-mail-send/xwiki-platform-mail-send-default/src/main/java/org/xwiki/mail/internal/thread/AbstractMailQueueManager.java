@@ -37,6 +37,11 @@
      */
     private Queue<T> mailQueue = new ConcurrentLinkedQueue<>();
 
+    /**
+     * The mails of the queue which have not yet been taken by a worker thread.
+     */
+    private Queue<T> pendingQueue = new ConcurrentLinkedQueue<>();
+
     /**
      * @return the mail queue containing all pending mails to be sent
      */
@@ -49,6 +54,7 @@ private Queue<T> getMailQueue()
     public void addToQueue(T mailQueueItem)
     {
         getMailQueue().add(mailQueueItem);
+        this.pendingQueue.add(mailQueueItem);
     }
 
     @Override
@@ -63,9 +69,17 @@ public T peekMessage()
         return getMailQueue().peek();
     }
 
+    @Override
+    public T takeMessage()
+    {
+        return this.pendingQueue.poll();
+    }
+
     @Override
     public boolean removeMessageFromQueue(T mailQueueItem)
     {
+        this.pendingQueue.remove(mailQueueItem);
+
         return getMailQueue().remove(mailQueueItem);
     }
 }
@@ -48,6 +48,16 @@
      */
     T peekMessage();
 
+    /**
+     * Take the next mail on the queue so that it's not handed to another worker. The mail stays in the queue (and
+     * {@link #hasMessage()} keeps returning true) until {@link #removeMessageFromQueue(MailQueueItem)} is called once
+     * it has been processed.
+     *
+     * @return the next mail on the queue not already taken by a worker or {@code null} if there is none
+     * @since 10.11RC1
+     */
+    T takeMessage();
+
     /**
      * Removes the next mail on the queue.
      *
@@ -70,10 +70,12 @@ public void run()
         do {
             try {
                 // Handle next message in the queue
-                if (this.prepareMailQueueManager.hasMessage()) {
+                // Note: several Mail Prepare Threads can share this runnable so we take the item to make sure it's
+                // not prepared twice.
+                PrepareMailQueueItem mailItem = this.prepareMailQueueManager.takeMessage();
+                if (mailItem != null) {
                     // Important: only remove the mail item after the message has been created and put on the sender
                     // queue.
-                    PrepareMailQueueItem mailItem = this.prepareMailQueueManager.peekMessage();
                     try {
                         prepareMail(mailItem);
                     } finally {
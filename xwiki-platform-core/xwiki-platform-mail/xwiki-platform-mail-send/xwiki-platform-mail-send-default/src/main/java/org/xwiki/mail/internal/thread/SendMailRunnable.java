@@ -20,6 +20,9 @@
 package org.xwiki.mail.internal.thread;
 
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,6 +45,9 @@
 
 /**
  * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * <p>
+ * The same runnable can be executed by several Mail Sender Threads: each of them keeps its own SMTP connection open to
+ * send many mails, while the wait time between two mails is applied per SMTP server, whatever the thread sending them.
  *
  * @version $Id$
  * @since 6.4
@@ -64,11 +70,24 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    /**
+     * The SMTP connection of each Mail Sender Thread.
+     */
+    private final ThreadLocal<SendMailConnection> connection = ThreadLocal.withInitial(SendMailConnection::new);
+
+    /**
+     * The date before which no mail should be sent to a SMTP server, indexed by SMTP server.
+     */
+    private final Map<String, AtomicLong> nextSendDates = new ConcurrentHashMap<>();
+
+    private static final class SendMailConnection
+    {
+        private Transport transport;
 
-    private Session currentSession;
+        private Session session;
 
-    private int count;
+        private int count;
+    }
 
     @Override
     public void run()
@@ -83,6 +102,7 @@ public void run()
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
             closeTransport();
+            this.connection.remove();
         }
     }
 
@@ -106,20 +126,17 @@ private void runInternal()
         do {
             try {
                 // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
+                // Note: several Mail Sender Threads can share this runnable so we take the item to make sure it's
+                // not sent twice.
+                SendMailQueueItem mailItem = this.sendMailQueueManager.takeMessage();
+                if (mailItem != null) {
                     // Important: only remove the mail item from the queue after the mail has been sent as
                     // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
                     try {
                         sendMail(mailItem);
                     } finally {
                         this.sendMailQueueManager.removeMessageFromQueue(mailItem);
                     }
-                    // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
-                    waitSendWaitTime();
                 }
                 // Note: a short pause to catch thread interruptions and to be kind on CPU.
                 Thread.sleep(50L);
@@ -138,8 +155,9 @@ private void runInternal()
      * Send the mail.
      *
      * @param item the queue item containing all the data for sending the mail
+     * @throws InterruptedException if the thread is stopped while waiting to send the mail
      */
-    protected void sendMail(SendMailQueueItem item)
+    protected void sendMail(SendMailQueueItem item) throws InterruptedException
     {
         prepareContextForQueueItem(item);
 
@@ -156,25 +174,36 @@ protected void sendMail(SendMailQueueItem item)
             return;
         }
 
+        // Email throttling: wait until the SMTP server can receive a new mail.
+        // Note: it's important that we wait before sending the mail and not after in order to let users know as soon
+        // as possible that their mail has been sent (otherwise when sending a synchronous mail, the user would have to
+        // wait the send wait time!).
+        waitSendWaitTime(item.getSession());
+
+        SendMailConnection mailConnection = this.connection.get();
         try {
             // Step 2: If the current Session in use is different from the one passed then close
             // the current Transport, get a new one and reconnect.
-            // Also do that every 100 mails sent.
-            // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
+            // Also do that after the configured number of mails sent, since some SMTP servers limit the number of
+            // mails accepted on a single connection.
+            int maxMessages = this.configuration.getMaxMessagesPerConnection();
+            if (item.getSession() != mailConnection.session || mailConnection.transport == null
+                || (maxMessages > 0 && mailConnection.count >= maxMessages))
+            {
                 closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
+                mailConnection.session = item.getSession();
+                mailConnection.transport = mailConnection.session.getTransport("smtp");
+                mailConnection.count = 0;
+                mailConnection.transport.connect();
+            } else if (!mailConnection.transport.isConnected()) {
+                mailConnection.transport.connect();
             }
 
             // Step 3: Send the mail
             // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
             // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            mailConnection.transport.sendMessage(message, message.getAllRecipients());
+            mailConnection.count++;
 
             // Step 4: Notify the user of the success if a listener has been provided
             if (listener != null) {
@@ -188,17 +217,34 @@ protected void sendMail(SendMailQueueItem item)
         }
     }
 
-    private void waitSendWaitTime() throws InterruptedException
+    private void waitSendWaitTime(Session session) throws InterruptedException
     {
         long sendWaitTime = this.configuration.getSendWaitTime();
-        Thread.sleep(sendWaitTime);
+        if (sendWaitTime > 0) {
+            AtomicLong nextSendDate = this.nextSendDates.computeIfAbsent(getServerId(session), k -> new AtomicLong());
+
+            // Book the next free slot on the SMTP server so that the threads sending to the same server wait for each
+            // other
+            long now = System.currentTimeMillis();
+            long sendDate = Math.max(nextSendDate.getAndUpdate(date -> Math.max(date, now) + sendWaitTime), now);
+
+            if (sendDate > now) {
+                Thread.sleep(sendDate - now);
+            }
+        }
+    }
+
+    private String getServerId(Session session)
+    {
+        return session.getProperty("mail.smtp.host") + ':' + session.getProperty("mail.smtp.port");
     }
 
     private void closeTransport()
     {
-        if (this.currentTransport != null) {
+        Transport transport = this.connection.get().transport;
+        if (transport != null) {
             try {
-                this.currentTransport.close();
+                transport.close();
             } catch (MessagingException e) {
                 this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
                     ExceptionUtils.getRootCauseMessage(e));
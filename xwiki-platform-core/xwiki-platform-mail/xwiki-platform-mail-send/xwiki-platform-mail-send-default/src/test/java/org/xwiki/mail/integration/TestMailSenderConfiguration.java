@@ -104,6 +104,24 @@ public long getSendWaitTime()
         return 0;
     }
 
+    @Override
+    public int getPrepareThreads()
+    {
+        return 2;
+    }
+
+    @Override
+    public int getSendThreads()
+    {
+        return 2;
+    }
+
+    @Override
+    public int getMaxMessagesPerConnection()
+    {
+        return 2;
+    }
+
     public void setBCCAddresses(List<String> addresses)
     {
         this.bccAddresses = addresses;
@@ -47,7 +47,10 @@
 import com.xpn.xwiki.XWikiContext;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -206,4 +209,66 @@ public void sendMailWhenMailRetrievalFails() throws Exception
         }
         assertEquals(2, errorCount);
     }
+
+    @Test
+    public void sendMailWithSeveralThreads() throws Exception
+    {
+        // Create a Session with an invalid host so that it generates an error
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "xwiki-unknown");
+        Session session = Session.getInstance(properties);
+
+        MemoryMailListener listener = this.mocker.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(10);
+
+        MailQueueManager mailQueueManager = this.mocker.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        MailContentStore contentStore = this.mocker.getInstance(MailContentStore.class, "filesystem");
+
+        String[] ids = new String[10];
+        for (int i = 0; i < ids.length; ++i) {
+            MimeMessage msg = new MimeMessage(session);
+            msg.setText("Content" + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+            ids[i] = message.getUniqueMessageId();
+            when(contentStore.load(session, batchId, ids[i])).thenReturn(message);
+            mailQueueManager.addToQueue(new SendMailQueueItem(ids[i], session, listener, batchId, "xwiki"));
+        }
+
+        // Several Mail Sender Threads share the same runnable
+        MailRunnable runnable = this.mocker.getComponentUnderTest();
+        Thread thread1 = new Thread(runnable);
+        Thread thread2 = new Thread(runnable);
+        thread1.start();
+        thread2.start();
+
+        // Wait for the mails to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            runnable.stopProcessing();
+            thread1.interrupt();
+            thread2.interrupt();
+            thread1.join();
+            thread2.join();
+        }
+
+        // Each mail has been handled by a single thread
+        for (String id : ids) {
+            verify(contentStore, times(1)).load(session, batchId, id);
+        }
+        assertFalse(mailQueueManager.hasMessage());
+
+        // No status update has been lost
+        assertTrue(listener.getMailStatusResult().isProcessed());
+        assertEquals(10, listener.getMailStatusResult().getProcessedMailCount());
+        int errorCount = 0;
+        for (Iterator<MailStatus> statuses = listener.getMailStatusResult().getAllErrors(); statuses.hasNext();) {
+            statuses.next();
+            errorCount++;
+        }
+        assertEquals(10, errorCount);
+    }
 }
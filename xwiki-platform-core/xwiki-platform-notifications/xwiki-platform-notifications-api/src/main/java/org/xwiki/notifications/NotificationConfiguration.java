@@ -51,4 +51,24 @@
      * @since 9.6RC1
      */
     int liveNotificationsGraceTime();
+
+    /**
+     * @return true if the notifications displayed to the users should be kept in a per-user inbox and only computed
+     *         again when new events could change them
+     * @since 10.11RC1
+     */
+    boolean isInboxEnabled();
+
+    /**
+     * @return the maximum number of users for which notifications are kept in the inbox
+     * @since 10.11RC1
+     */
+    int getInboxSize();
+
+    /**
+     * @return the number of threads retrieving and rendering the notifications of the users when generating the
+     *         periodic notification emails
+     * @since 10.11RC1
+     */
+    int getEmailGenerationThreads();
 }
@@ -60,4 +60,22 @@ public int liveNotificationsGraceTime()
 
         return (graceTime < 0) ? 0 : graceTime;
     }
+
+    @Override
+    public boolean isInboxEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "inbox.enabled", false);
+    }
+
+    @Override
+    public int getInboxSize()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "inbox.size", 1000);
+    }
+
+    @Override
+    public int getEmailGenerationThreads()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "emails.generationThreads", 4);
+    }
 }
@@ -19,15 +19,24 @@
  */
 package org.xwiki.notifications.notifiers.internal.email;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -35,8 +44,13 @@
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
 import org.xwiki.mail.MailSenderConfiguration;
 import org.xwiki.mail.MimeMessageFactory;
 import org.xwiki.model.reference.DocumentReference;
@@ -50,6 +64,9 @@
 
 /**
  * Abstract iterator for sending MIME notification messages (usually emails).
+ * <p>
+ * The notifications of the next users are retrieved and rendered by a pool of threads (see
+ * {@link #getThreadCount()}) while the messages are created in the order of the users.
  *
  * @since 9.6RC1
  * @version $Id$
@@ -76,6 +93,37 @@ public abstract class AbstractMimeMessageIterator implements Iterator<MimeMessag
 
     private static final String ATTACHMENTS = "attachments";
 
+    /**
+     * The context entries needed to retrieve and render the notifications of a user in another thread.
+     */
+    private static final List<String> CONTEXT_ENTRIES =
+        Arrays.asList("wiki", "user", "locale", "request.base", "request.url", "request.wiki");
+
+    /**
+     * The notifications of a user, ready to be sent.
+     */
+    private static final class UserDigest
+    {
+        private final DocumentReference user;
+
+        private final InternetAddress email;
+
+        private final List<CompositeEvent> events;
+
+        private final List<String> htmlEvents;
+
+        private final List<String> plainTextEvents;
+
+        UserDigest(DocumentReference user, InternetAddress email, List<CompositeEvent> events)
+        {
+            this.user = user;
+            this.email = email;
+            this.events = events;
+            this.htmlEvents = new ArrayList<>(events.size());
+            this.plainTextEvents = new ArrayList<>(events.size());
+        }
+    }
+
     @Inject
     protected Logger logger;
 
@@ -107,19 +155,36 @@ public abstract class AbstractMimeMessageIterator implements Iterator<MimeMessag
     @Inject
     private MailTemplateImageAttachmentsExtractor mailTemplateImageAttachmentsExtractor;
 
+    @Inject
+    private ContextStoreManager contextStore;
+
+    @Inject
+    private ComponentManager componentManager;
+
     private NotificationUserIterator userIterator;
 
     private Map<String, Object> factoryParameters = new HashMap<>();
 
     private DocumentReference templateReference;
 
-    private List<CompositeEvent> currentEvents = Collections.emptyList();
+    private UserDigest currentDigest;
 
-    private DocumentReference currentUser;
+    private boolean hasNext;
 
-    private InternetAddress currentUserEmail;
+    /**
+     * The notifications of the next users, being computed.
+     */
+    private final Queue<Future<UserDigest>> nextDigests = new ArrayDeque<>();
 
-    private boolean hasNext;
+    private ThreadPoolExecutor executor;
+
+    private Map<String, Serializable> context;
+
+    private long startTime;
+
+    private long userCount;
+
+    private long messageCount;
 
     /**
      * Initialize the iterator.
@@ -136,9 +201,43 @@ protected void initialize(NotificationUserIterator userIterator, Map<String, Obj
         this.userIterator = userIterator;
         this.factoryParameters = factoryParameters;
         this.templateReference = templateReference;
+        this.startTime = System.currentTimeMillis();
+        initializeExecutor();
         this.computeNext();
     }
 
+    private void initializeExecutor()
+    {
+        int threadCount = getThreadCount();
+        if (threadCount > 1) {
+            try {
+                this.context = this.contextStore.save(CONTEXT_ENTRIES);
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to save the context, the notification emails will be generated in the"
+                    + " current thread: {}", e.getMessage());
+
+                return;
+            }
+
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("Notification emails generation thread %d").daemon(true).build();
+            this.executor = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+            // Don't keep idle threads around if the iterator is not consumed until the end
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * @return the number of threads retrieving and rendering the notifications of the users, 1 to do it in the
+     *         thread consuming the iterator
+     * @since 10.11RC1
+     */
+    protected int getThreadCount()
+    {
+        return 1;
+    }
+
     protected abstract List<CompositeEvent> retrieveCompositeEventList(DocumentReference user)
             throws NotificationException;
 
@@ -147,27 +246,107 @@ protected abstract List<CompositeEvent> retrieveCompositeEventList(DocumentRefer
      */
     protected void computeNext()
     {
-        this.currentEvents = Collections.emptyList();
-        this.currentUserEmail = null;
-        while ((this.currentEvents.isEmpty() || currentUserEmail == null) && this.userIterator.hasNext()) {
-            this.currentUser = this.userIterator.next();
+        this.currentDigest = null;
+        while (this.currentDigest == null && (this.userIterator.hasNext() || !this.nextDigests.isEmpty())) {
+            // Make sure the workers always have the next users to handle
+            scheduleNextDigests();
+
             try {
-                this.currentUserEmail = new InternetAddress(getUserEmail(this.currentUser));
-            } catch (AddressException e) {
-                // The user has not written a valid email
-                continue;
+                this.currentDigest = this.nextDigests.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.logger.warn("The generation of the notification emails has been interrupted");
+                break;
+            } catch (ExecutionException e) {
+                // Should never happen since the errors are handled when computing the digest
+                this.logger.error("Failed to generate a notification email", e);
             }
+        }
 
-            try {
-                // TODO: in a next version, it will be important to paginate these results and to send several emails
-                // if there is too much content
-                this.currentEvents = retrieveCompositeEventList(currentUser);
-            } catch (NotificationException e) {
-                logger.error(ERROR_MESSAGE, this.currentUser, e);
+        this.hasNext = this.currentDigest != null;
+
+        if (!this.hasNext) {
+            end();
+        }
+    }
+
+    private void scheduleNextDigests()
+    {
+        int maxSize = this.executor != null ? this.executor.getMaximumPoolSize() * 2 : 1;
+        while (this.nextDigests.size() < maxSize && this.userIterator.hasNext()) {
+            DocumentReference user = this.userIterator.next();
+            ++this.userCount;
+
+            FutureTask<UserDigest> task = new FutureTask<>(() -> computeDigest(user));
+            if (this.executor != null) {
+                this.executor.execute(new ExecutionContextRunnable(() -> {
+                    restoreContext();
+                    task.run();
+                }, this.componentManager));
+            } else {
+                task.run();
             }
+            this.nextDigests.add(task);
+        }
+    }
+
+    private void restoreContext()
+    {
+        try {
+            this.contextStore.restore(this.context);
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to restore the context: {}", e.getMessage());
+        }
+    }
+
+    private void end()
+    {
+        if (this.executor != null) {
+            this.executor.shutdown();
+            this.executor = null;
         }
 
-        this.hasNext = currentUserEmail != null && !this.currentEvents.isEmpty();
+        long time = System.currentTimeMillis() - this.startTime;
+        this.logger.info("Generated [{}] notification emails for [{}] users in [{}] ms ([{}] emails per second).",
+            this.messageCount, this.userCount, time, time > 0 ? this.messageCount * 1000 / time : this.messageCount);
+    }
+
+    /**
+     * Retrieve and render the notifications of the given user.
+     *
+     * @param user the user
+     * @return the notifications of the user or null if no mail should be sent to the user
+     */
+    private UserDigest computeDigest(DocumentReference user)
+    {
+        try {
+            InternetAddress email = new InternetAddress(getUserEmail(user));
+
+            // TODO: in a next version, it will be important to paginate these results and to send several emails
+            // if there is too much content
+            List<CompositeEvent> events = retrieveCompositeEventList(user);
+            if (events.isEmpty()) {
+                return null;
+            }
+
+            UserDigest digest = new UserDigest(user, email, events);
+
+            // Render all the events both in HTML and Plain Text
+            String userId = this.serializer.serialize(user);
+            for (CompositeEvent event : events) {
+                digest.htmlEvents.add(this.defaultNotificationEmailRenderer.renderHTML(event, userId));
+                digest.plainTextEvents.add(this.defaultNotificationEmailRenderer.renderPlainText(event, userId));
+            }
+
+            return digest;
+        } catch (AddressException e) {
+            // The user has not written a valid email
+            return null;
+        } catch (Exception e) {
+            this.logger.error(ERROR_MESSAGE, user, e);
+
+            return null;
+        }
     }
 
     private void updateFactoryParameters() throws NotificationException, AddressException
@@ -182,7 +361,7 @@ private void updateFactoryParameters() throws NotificationException, AddressExce
             logger.warn("No default email address is configured in the administration.");
         }
 
-        factoryParameters.put(TO, this.currentUserEmail);
+        factoryParameters.put(TO, this.currentDigest.email);
     }
 
     private void handleImageAttachmentsFromTemplate() throws NotificationException
@@ -197,26 +376,19 @@ private void handleImageAttachmentsFromTemplate() throws NotificationException
         }
     }
 
-    private void handleEvents() throws NotificationException
+    private void handleEvents()
     {
-        String usedId = serializer.serialize(this.currentUser);
-        // Render all the events both in HTML and Plain Text
-        List<String> htmlEvents = new ArrayList<>();
-        List<String> plainTextEvents = new ArrayList<>();
         EventsSorter eventsSorter = new EventsSorter();
-        for (CompositeEvent event : currentEvents) {
-            String html = defaultNotificationEmailRenderer.renderHTML(event, usedId);
-            String plainText = defaultNotificationEmailRenderer.renderPlainText(event, usedId);
-            htmlEvents.add(html);
-            plainTextEvents.add(plainText);
-            eventsSorter.add(event, html, plainText);
+        for (int i = 0; i < this.currentDigest.events.size(); ++i) {
+            eventsSorter.add(this.currentDigest.events.get(i), this.currentDigest.htmlEvents.get(i),
+                this.currentDigest.plainTextEvents.get(i));
         }
 
         // Put in the velocity parameters all the events and their rendered version
         Map<String, Object> velocityVariables = getVelocityVariables();
-        velocityVariables.put(EVENTS, currentEvents);
-        velocityVariables.put(HTML_EVENTS, htmlEvents);
-        velocityVariables.put(PLAIN_TEXT_EVENTS, plainTextEvents);
+        velocityVariables.put(EVENTS, this.currentDigest.events);
+        velocityVariables.put(HTML_EVENTS, this.currentDigest.htmlEvents);
+        velocityVariables.put(PLAIN_TEXT_EVENTS, this.currentDigest.plainTextEvents);
         velocityVariables.put(SORTED_EVENTS, eventsSorter.sort());
 
         handleAvatars();
@@ -246,7 +418,7 @@ private Collection<Attachment> getAttachments()
     private void handleAvatars()
     {
         Set<DocumentReference> userAvatars = new HashSet<>();
-        for (CompositeEvent event : currentEvents) {
+        for (CompositeEvent event : this.currentDigest.events) {
             userAvatars.addAll(event.getUsers());
         }
         Collection<Attachment> attachments = getAttachments();
@@ -291,8 +463,9 @@ public MimeMessage next()
         try {
             updateFactoryParameters();
             message = this.factory.createMessage(templateReference, factoryParameters);
+            ++this.messageCount;
         } catch (Exception e) {
-            logger.error(ERROR_MESSAGE, this.currentUser, e);
+            logger.error(ERROR_MESSAGE, this.currentDigest.user, e);
         }
 
         // Look for the next email to send
@@ -31,6 +31,7 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.sources.NotificationManager;
@@ -49,6 +50,9 @@ public class DefaultPeriodicMimeMessageIterator extends AbstractMimeMessageItera
     @Inject
     private NotificationManager notificationManager;
 
+    @Inject
+    private NotificationConfiguration configuration;
+
     private Date lastTrigger;
 
     @Override
@@ -59,6 +63,13 @@ public void initialize(NotificationUserIterator userIterator, Map<String, Object
         super.initialize(userIterator, factoryParameters, templateReference);
     }
 
+    @Override
+    protected int getThreadCount()
+    {
+        return this.configuration.getEmailGenerationThreads();
+    }
+
+    @Override
     protected List<CompositeEvent> retrieveCompositeEventList(DocumentReference user) throws NotificationException
     {
         return notificationManager.getEvents(serializer.serialize(user),
@@ -53,6 +53,7 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -166,4 +167,59 @@ public void test() throws Exception
         assertEquals(iterator, iterator.iterator());
     }
 
+    @Test
+    public void renderEventsForEachRecipient() throws Exception
+    {
+        DocumentReference templateReference = new DocumentReference("xwiki", "XWiki", "Template");
+        Map<String, Object> factoryParameters = new HashedMap();
+
+        NotificationUserIterator userIterator = mock(NotificationUserIterator.class);
+        DocumentReference userA = new DocumentReference("xwiki", "XWiki", "UserA");
+        DocumentReference userB = new DocumentReference("xwiki", "XWiki", "UserB");
+        when(userIterator.hasNext()).thenReturn(true, true, false);
+        when(userIterator.next()).thenReturn(userA, userB);
+        DocumentReference userClass = new DocumentReference("xwiki", "XWiki", "XWikiUsers");
+        when(documentAccessBridge.getProperty(userA, userClass, 0, "email")).thenReturn("userA@xwiki.org");
+        when(documentAccessBridge.getProperty(userB, userClass, 0, "email")).thenReturn("userB@xwiki.org");
+        when(serializer.serialize(userA)).thenReturn("xwiki:XWiki.UserA");
+        when(serializer.serialize(userB)).thenReturn("xwiki:XWiki.UserB");
+
+        // The same page update is seen by both users
+        CompositeEvent event = mock(CompositeEvent.class);
+        when(event.getType()).thenReturn("update");
+        when(notificationManager.getEvents(anyString(), eq(NotificationFormat.EMAIL), eq(Integer.MAX_VALUE / 4),
+                eq(null), eq(new Date(0L)), eq(Collections.emptyList()))).thenReturn(Arrays.asList(event));
+
+        MimeMessage message = mock(MimeMessage.class);
+        when(factory.createMessage(templateReference, factoryParameters)).thenReturn(message, message);
+
+        // The rendering can depend on the recipient (the templates get it as $emailUser)
+        when(defaultNotificationEmailRenderer.renderHTML(event, "xwiki:XWiki.UserA")).thenReturn("eventHTML A");
+        when(defaultNotificationEmailRenderer.renderPlainText(event, "xwiki:XWiki.UserA")).thenReturn("event A");
+        when(defaultNotificationEmailRenderer.renderHTML(event, "xwiki:XWiki.UserB")).thenReturn("eventHTML B");
+        when(defaultNotificationEmailRenderer.renderPlainText(event, "xwiki:XWiki.UserB")).thenReturn("event B");
+
+        // Test
+        PeriodicMimeMessageIterator iterator = mocker.getComponentUnderTest();
+
+        iterator.initialize(userIterator, factoryParameters, new Date(0L), templateReference);
+
+        assertTrue(iterator.hasNext());
+        assertEquals(message, iterator.next());
+        assertEquals(new InternetAddress("userA@xwiki.org"), factoryParameters.get("to"));
+        Map<String, Object> velocityVariables = (Map<String, Object>) factoryParameters.get("velocityVariables");
+        assertEquals(Arrays.asList("eventHTML A"), velocityVariables.get("htmlEvents"));
+        assertEquals(Arrays.asList("event A"), velocityVariables.get("plainTextEvents"));
+        assertTrue(iterator.hasNext());
+        assertEquals(message, iterator.next());
+        assertEquals(new InternetAddress("userB@xwiki.org"), factoryParameters.get("to"));
+        velocityVariables = (Map<String, Object>) factoryParameters.get("velocityVariables");
+        assertEquals(Arrays.asList("eventHTML B"), velocityVariables.get("htmlEvents"));
+        assertEquals(Arrays.asList("event B"), velocityVariables.get("plainTextEvents"));
+        assertFalse(iterator.hasNext());
+
+        // The event has been rendered for each recipient
+        verify(defaultNotificationEmailRenderer, times(2)).renderHTML(eq(event), anyString());
+        verify(defaultNotificationEmailRenderer, times(2)).renderPlainText(eq(event), anyString());
+    }
 }
@@ -32,11 +32,13 @@
 import org.xwiki.eventstream.EventStatusManager;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.CompositeEvent;
 import org.xwiki.notifications.CompositeEventStatus;
 import org.xwiki.notifications.CompositeEventStatusManager;
 import org.xwiki.notifications.script.NotificationScriptService;
+import org.xwiki.notifications.sources.internal.NotificationInbox;
 
 /**
  * Helper for event related operations on the {@link NotificationScriptService}.
@@ -61,6 +63,9 @@
     @Inject
     private DocumentAccessBridge documentAccessBridge;
 
+    @Inject
+    private NotificationInbox notificationInbox;
+
     /**
      * Just as {@link NotificationScriptService#getEventStatuses(List)}, get the list of statuses concerning the given
      * events and the current user.
@@ -103,7 +108,9 @@ public void saveEventStatus(String eventId, boolean isRead) throws Exception
     {
         DefaultEvent event = new DefaultEvent();
         event.setId(eventId);
-        String userId = entityReferenceSerializer.serialize(documentAccessBridge.getCurrentUserReference());
+        DocumentReference user = documentAccessBridge.getCurrentUserReference();
+        String userId = entityReferenceSerializer.serialize(user);
         eventStatusManager.saveEventStatus(new DefaultEventStatus(event, userId, isRead));
+        notificationInbox.invalidate(user);
     }
 }
@@ -21,8 +21,11 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -56,6 +59,11 @@
 @Singleton
 public class DefaultParametrizedNotificationManager implements ParametrizedNotificationManager
 {
+    /**
+     * The maximum number of events retrieved by each query.
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
     @Inject
     private EventStream eventStream;
 
@@ -85,6 +93,9 @@ public class DefaultParametrizedNotificationManager implements ParametrizedNotif
     @Inject
     private PreferenceDateNotificationFilter preferenceDateNotificationFilter;
 
+    @Inject
+    private NotificationInbox notificationInbox;
+
     @Override
     public List<CompositeEvent> getEvents(NotificationParameters parameters)
             throws NotificationException
@@ -95,6 +106,9 @@ public List<CompositeEvent> getEvents(NotificationParameters parameters)
         if (Boolean.TRUE.equals(parameters.onlyUnread) && !parameters.filters.contains(eventReadEmailFilter)) {
             parameters.filters.add(eventReadEmailFilter);
         }
+        if (notificationInbox.isEnabled(parameters)) {
+            return notificationInbox.getEvents(parameters, p -> getEvents(new ArrayList<>(), p));
+        }
         return getEvents(new ArrayList<>(), parameters);
     }
 
@@ -103,51 +117,126 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
     {
         // Because the user might not be able to see all notifications because of the rights, we take from the database
         // more events than expected and we will filter afterwards.
-        final int batchSize = parameters.expectedCount * 2;
+        int batchSize = parameters.expectedCount * 2;
+
+        // The position of the last retrieved event, to get the next batch of older events
+        Date cursorDate = null;
+        List<String> cursorIds = new ArrayList<>();
+
+        // Used to adapt the size of the next batch to the proportion of filtered events
+        int fetchedCount = 0;
+        int keptCount = 0;
+
         try {
-            // Create the query
-            Query query = queryGenerator.generateQuery(parameters);
-            if (query == null) {
-                return Collections.emptyList();
-            }
-            query.setLimit(batchSize);
-
-            // Get a batch of events
-            List<Event> batch = eventStream.searchEvents(query);
-
-            // Add to the results the events the user has the right to see
-            for (Event event : batch) {
-                DocumentReference document = event.getDocument();
-                // Don't record events concerning a doc the user cannot see
-                if (document != null && !authorizationManager.hasAccess(Right.VIEW, parameters.user,
-                        document)) {
-                    continue;
+            while (true) {
+                // Create the query
+                Query query = queryGenerator.generateQuery(parameters, cursorDate, cursorIds);
+                if (query == null) {
+                    return results;
                 }
-
-                if (filterEvent(event, parameters)) {
-                    continue;
+                query.setLimit(batchSize);
+
+                // Get a batch of events
+                List<Event> batch = eventStream.searchEvents(query);
+
+                // Check the rights of the user on all the documents of the batch at once
+                Set<DocumentReference> viewableDocuments = getViewableDocuments(batch, parameters.user);
+
+                // Add to the results the events the user has the right to see
+                for (Event event : batch) {
+                    DocumentReference document = event.getDocument();
+                    // Don't record events concerning a doc the user cannot see
+                    if (document != null && !viewableDocuments.contains(document)) {
+                        continue;
+                    }
+
+                    if (filterEvent(event, parameters)) {
+                        continue;
+                    }
+
+                    // Record this event
+                    recordEvent(results, event);
+                    keptCount++;
+                    // If the expected count is reached, stop now
+                    if (results.size() >= parameters.expectedCount) {
+                        return results;
+                    }
                 }
 
-                // Record this event
-                recordEvent(results, event);
-                // If the expected count is reached, stop now
-                if (results.size() >= parameters.expectedCount) {
+                // If we haven't get the expected number of events and there is more, perform a new batch
+                if (batch.isEmpty() || batch.size() < batchSize) {
                     return results;
                 }
-            }
 
-            // If we haven't get the expected number of events, perform a new batch
-            if (results.size() < parameters.expectedCount && batch.size() == batchSize) {
-                parameters.blackList.addAll(getEventsIds(batch));
-                getEvents(results, parameters);
-            }
+                fetchedCount += batch.size();
 
-            return results;
+                cursorDate = updateCursor(batch, cursorDate, cursorIds);
+                batchSize = getNextBatchSize(parameters.expectedCount - results.size(), fetchedCount, keptCount);
+            }
         } catch (Exception e) {
             throw new NotificationException("Fail to get the list of notifications.", e);
         }
     }
 
+    /**
+     * Move the cursor after the last event of the batch (the events are ordered by date).
+     *
+     * @param batch the last retrieved batch of events
+     * @param cursorDate the current cursor date
+     * @param cursorIds the ids of the already retrieved events triggered at the cursor date, updated by this method
+     * @return the new cursor date
+     */
+    private Date updateCursor(List<Event> batch, Date cursorDate, List<String> cursorIds)
+    {
+        Date lastDate = batch.get(batch.size() - 1).getDate();
+
+        if (!lastDate.equals(cursorDate)) {
+            cursorIds.clear();
+        }
+
+        for (Event event : batch) {
+            if (lastDate.equals(event.getDate())) {
+                cursorIds.add(event.getId());
+            }
+        }
+
+        return lastDate;
+    }
+
+    /**
+     * Estimate, from the proportion of events kept so far, the number of events to retrieve to get the missing
+     * notifications in one query.
+     *
+     * @param missingCount the number of missing notifications
+     * @param fetchedCount the number of events retrieved so far
+     * @param keptCount the number of events kept so far
+     * @return the size of the next batch
+     */
+    private int getNextBatchSize(int missingCount, int fetchedCount, int keptCount)
+    {
+        // Fetch a bit more than what the proportion of kept events suggests to limit the probability of an extra query
+        int size;
+        if (keptCount > 0) {
+            size = (int) Math.ceil(2.0 * missingCount * fetchedCount / keptCount);
+        } else {
+            size = fetchedCount * 2;
+        }
+
+        return Math.max(missingCount * 2, Math.min(size, MAX_BATCH_SIZE));
+    }
+
+    private Set<DocumentReference> getViewableDocuments(List<Event> events, DocumentReference user)
+    {
+        Set<DocumentReference> documents = new LinkedHashSet<>();
+        for (Event event : events) {
+            if (event.getDocument() != null) {
+                documents.add(event.getDocument());
+            }
+        }
+
+        return new HashSet<>(authorizationManager.filterAccessible(Right.VIEW, user, documents));
+    }
+
     private boolean filterEvent(Event event, NotificationParameters parameters) throws EventStreamException
     {
         // Don't record events that have a target that don't include the current user
@@ -182,11 +271,6 @@ private boolean filterEvent(Event event, NotificationParameters parameters) thro
         return false;
     }
 
-    private List<String> getEventsIds(List<Event> events)
-    {
-        return events.stream().map(Event::getId).collect(Collectors.toList());
-    }
-
     private class BestSimilarity
     {
         public int value;
@@ -0,0 +1,347 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.sources.NotificationParameters;
+
+/**
+ * Keep the last computed notifications of each user so that they are not computed again from the whole event stream
+ * each time they are displayed.
+ * <p>
+ * Each time an event is added to the event stream, the inbox records its date. When the notifications of a user are
+ * requested again, only the events recorded since the notifications were computed are checked against the
+ * parameters of the user: the notifications are computed again only if one of these new events concerns the user, or
+ * if the preferences or the filters of the user have changed.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component(roles = NotificationInbox.class)
+@Singleton
+public class NotificationInbox implements Initializable
+{
+    /**
+     * Compute the notifications matching some parameters.
+     */
+    @FunctionalInterface
+    public interface NotificationLoader
+    {
+        /**
+         * @param parameters the parameters of the notifications to compute
+         * @return the notifications
+         * @throws NotificationException if an error happens
+         */
+        List<CompositeEvent> load(NotificationParameters parameters) throws NotificationException;
+    }
+
+    private static final String CACHE_NAME = "notifications.inbox";
+
+    /**
+     * The maximum number of recent events for which the date is kept. The notifications of a user computed before
+     * that many events have been added are computed again.
+     */
+    private static final int RECENT_EVENTS_SIZE = 1000;
+
+    /**
+     * The time after which notifications are computed again in any case, so that changes not related to events
+     * (rights, events recorded by another cluster member, etc.) are eventually taken into account.
+     */
+    private static final int LIFESPAN = 600;
+
+    /**
+     * Margin applied to the date of the new events since the database might store it with a lower precision.
+     */
+    private static final long DATE_MARGIN = 1000L;
+
+    /**
+     * The maximum number of notification lists kept for each user (the first page of notifications, the unread count,
+     * etc.).
+     */
+    private static final int USER_INBOX_SIZE = 16;
+
+    private static final String KEY_SEPARATOR = "|";
+
+    private static final class InboxEntry
+    {
+        private final List<CompositeEvent> events;
+
+        private final long version;
+
+        private final int fingerprint;
+
+        InboxEntry(List<CompositeEvent> events, long version, int fingerprint)
+        {
+            this.events = events;
+            this.version = version;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    @Inject
+    private NotificationConfiguration configuration;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Map<String, InboxEntry>> cache;
+
+    /**
+     * Incremented each time an event is added to the event stream.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * The dates of the last added events, indexed by the version they produced.
+     */
+    private final NavigableMap<Long, Date> recentEvents = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        if (this.configuration.isInboxEnabled()) {
+            CacheConfiguration cacheConfiguration = new CacheConfiguration(CACHE_NAME);
+            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+            lru.setMaxEntries(this.configuration.getInboxSize());
+            lru.setLifespan(LIFESPAN);
+            cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+
+            try {
+                this.cache = this.cacheManager.createNewCache(cacheConfiguration);
+            } catch (CacheException e) {
+                throw new InitializationException(
+                    String.format("Failed to initialize the notifications inbox cache [%s].", CACHE_NAME), e);
+            }
+        }
+    }
+
+    /**
+     * @param parameters the parameters of the notifications to get
+     * @return true if the notifications matching the given parameters can be taken from the inbox
+     */
+    public boolean isEnabled(NotificationParameters parameters)
+    {
+        return this.cache != null && parameters.user != null && parameters.format == NotificationFormat.ALERT;
+    }
+
+    /**
+     * Get the notifications matching the given parameters from the inbox, computing them only when needed.
+     *
+     * @param parameters the parameters of the notifications to get
+     * @param loader used to compute the notifications
+     * @return the notifications
+     * @throws NotificationException if an error happens
+     */
+    public List<CompositeEvent> getEvents(NotificationParameters parameters, NotificationLoader loader)
+        throws NotificationException
+    {
+        Map<String, InboxEntry> userInbox = getUserInbox(parameters.user);
+        String key = getKey(parameters);
+        int fingerprint = getFingerprint(parameters);
+        // Read the version before computing anything so that the events added in the meantime are checked next time
+        long currentVersion = this.version.get();
+
+        InboxEntry entry = userInbox.get(key);
+        if (entry != null && entry.fingerprint == fingerprint) {
+            if (entry.version == currentVersion) {
+                return new ArrayList<>(entry.events);
+            }
+
+            Date since = getOldestEventDate(entry.version, currentVersion);
+            if (since != null && !hasNewEvents(parameters, since, loader)) {
+                userInbox.put(key, new InboxEntry(entry.events, currentVersion, fingerprint));
+
+                return new ArrayList<>(entry.events);
+            }
+        }
+
+        List<CompositeEvent> events = loader.load(parameters);
+        if (userInbox.size() >= USER_INBOX_SIZE) {
+            userInbox.clear();
+        }
+        userInbox.put(key, new InboxEntry(new ArrayList<>(events), currentVersion, fingerprint));
+
+        return events;
+    }
+
+    /**
+     * Record that an event has been added to the event stream.
+     *
+     * @param event the new event
+     */
+    public void onEventAdded(Event event)
+    {
+        if (this.cache == null) {
+            return;
+        }
+
+        Date date = event.getDate() != null ? event.getDate() : new Date();
+        long newVersion = this.version.incrementAndGet();
+
+        this.recentEvents.put(newVersion, date);
+        this.recentEvents.remove(newVersion - RECENT_EVENTS_SIZE);
+    }
+
+    /**
+     * Forget all the notifications of all users, for example because an event has been removed from the event
+     * stream.
+     */
+    public void invalidateAll()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+    }
+
+    /**
+     * Forget the notifications of the given user, for example because the user has read some of them.
+     *
+     * @param user the user
+     */
+    public void invalidate(DocumentReference user)
+    {
+        if (this.cache != null && user != null) {
+            this.cache.remove(this.serializer.serialize(user));
+        }
+    }
+
+    private Map<String, InboxEntry> getUserInbox(DocumentReference user)
+    {
+        String userId = this.serializer.serialize(user);
+
+        Map<String, InboxEntry> userInbox = this.cache.get(userId);
+        if (userInbox == null) {
+            // The cache API has no computeIfAbsent so make sure concurrent requests end up with the same inbox
+            synchronized (this.cache) {
+                userInbox = this.cache.get(userId);
+                if (userInbox == null) {
+                    userInbox = new ConcurrentHashMap<>();
+                    this.cache.set(userId, userInbox);
+                }
+            }
+        }
+
+        return userInbox;
+    }
+
+    private Date getOldestEventDate(long fromVersion, long toVersion)
+    {
+        Map<Long, Date> newEvents = this.recentEvents.subMap(fromVersion, false, toVersion, true);
+
+        // The dates of some of the events are not known anymore
+        if (newEvents.size() < toVersion - fromVersion) {
+            return null;
+        }
+
+        Date oldest = null;
+        for (Date date : newEvents.values()) {
+            if (oldest == null || date.before(oldest)) {
+                oldest = date;
+            }
+        }
+
+        return oldest != null ? new Date(oldest.getTime() - DATE_MARGIN) : null;
+    }
+
+    private boolean hasNewEvents(NotificationParameters parameters, Date since, NotificationLoader loader)
+        throws NotificationException
+    {
+        NotificationParameters newEventsParameters = new NotificationParameters();
+        newEventsParameters.user = parameters.user;
+        newEventsParameters.format = parameters.format;
+        newEventsParameters.expectedCount = 1;
+        newEventsParameters.endDate = parameters.endDate;
+        newEventsParameters.fromDate =
+            parameters.fromDate != null && parameters.fromDate.after(since) ? parameters.fromDate : since;
+        newEventsParameters.onlyUnread = parameters.onlyUnread;
+        newEventsParameters.blackList = parameters.blackList;
+        newEventsParameters.preferences = parameters.preferences;
+        newEventsParameters.filterPreferences = parameters.filterPreferences;
+        newEventsParameters.filters = parameters.filters;
+
+        return !loader.load(newEventsParameters).isEmpty();
+    }
+
+    private String getKey(NotificationParameters parameters)
+    {
+        StringBuilder key = new StringBuilder();
+        key.append(parameters.expectedCount);
+        key.append(KEY_SEPARATOR).append(parameters.onlyUnread);
+        key.append(KEY_SEPARATOR).append(parameters.fromDate != null ? parameters.fromDate.getTime() : null);
+        key.append(KEY_SEPARATOR).append(parameters.endDate != null ? parameters.endDate.getTime() : null);
+        if (!isEmpty(parameters.blackList)) {
+            key.append(KEY_SEPARATOR).append(StringUtils.join(parameters.blackList, ','));
+        }
+
+        return key.toString();
+    }
+
+    private int getFingerprint(NotificationParameters parameters)
+    {
+        int fingerprint = Objects.hash(parameters.preferences, parameters.filterPreferences, parameters.filters);
+
+        // The hash code of the preferences doesn't cover their state, which changes when the user marks all the
+        // notifications as read for example
+        for (NotificationPreference preference : parameters.preferences) {
+            fingerprint = 31 * fingerprint
+                + Objects.hash(preference.isNotificationEnabled(), preference.getStartDate());
+        }
+
+        return fingerprint;
+    }
+
+    private boolean isEmpty(Collection<?> collection)
+    {
+        return collection == null || collection.isEmpty();
+    }
+}
@@ -21,6 +21,7 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -103,7 +104,27 @@
      */
     public Query generateQuery(NotificationParameters parameters) throws QueryException, EventStreamException
     {
-        ExpressionNodeToHQLConverter.HQLQuery result = hqlConverter.parse(generateQueryExpression(parameters));
+        return generateQuery(parameters, null, null);
+    }
+
+    /**
+     * Generate the query to get the events which are older than a given cursor, in order to paginate the events
+     * without having to exclude explicitly all the events already retrieved.
+     *
+     * @param parameters parameters to use
+     * @param cursorDate if not null, only get the events triggered before or at this date and which are not listed
+     *            in {@code cursorIds}
+     * @param cursorIds the ids of the already retrieved events triggered at {@code cursorDate}
+     * @return the query to execute
+     * @throws QueryException if error happens
+     * @throws EventStreamException if error happens
+     * @since 10.11RC1
+     */
+    public Query generateQuery(NotificationParameters parameters, Date cursorDate, Collection<String> cursorIds)
+        throws QueryException, EventStreamException
+    {
+        ExpressionNodeToHQLConverter.HQLQuery result =
+            hqlConverter.parse(generateQueryExpression(parameters, cursorDate, cursorIds));
         if (result.getQuery().isEmpty()) {
             return null;
         }
@@ -125,6 +146,23 @@ public Query generateQuery(NotificationParameters parameters) throws QueryExcept
      * @since 9.8RC12x
      */
     public ExpressionNode generateQueryExpression(NotificationParameters parameters) throws EventStreamException
+    {
+        return generateQueryExpression(parameters, null, null);
+    }
+
+    /**
+     * Generate the query.
+     *
+     * @param parameters parameters to use
+     * @param cursorDate if not null, only get the events triggered before or at this date and which are not listed
+     *            in {@code cursorIds}
+     * @param cursorIds the ids of the already retrieved events triggered at {@code cursorDate}
+     * @return the query to execute
+     * @throws EventStreamException if error happens
+     * @since 10.11RC1
+     */
+    public ExpressionNode generateQueryExpression(NotificationParameters parameters, Date cursorDate,
+        Collection<String> cursorIds) throws EventStreamException
     {
         // First: get the active preferences of the given user
         Collection<NotificationPreference> preferences = parameters.preferences;
@@ -178,6 +216,7 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
         // Other basic filters
         topNode = handleBlackList(parameters, topNode);
         topNode = handleEndDate(parameters, topNode);
+        topNode = handleCursor(cursorDate, cursorIds, topNode);
         topNode = handleHiddenEvents(parameters, topNode);
         topNode = handleWiki(parameters, topNode);
         topNode = handleOrder(topNode);
@@ -313,6 +352,42 @@ private AbstractOperatorNode handleEndDate(NotificationParameters parameters, Ab
         return topNode;
     }
 
+    private AbstractOperatorNode handleCursor(Date cursorDate, Collection<String> cursorIds,
+        AbstractOperatorNode topNode)
+    {
+        if (cursorDate != null) {
+            // The events are ordered by date so the events already retrieved are the ones after the cursor and the
+            // ones triggered at the cursor date (usually only a few)
+            AbstractOperatorNode node = new LesserThanNode(
+                    new PropertyValueNode(EventProperty.DATE),
+                    new DateValueNode(cursorDate)
+            );
+
+            if (cursorIds != null && !cursorIds.isEmpty()) {
+                Collection<AbstractValueNode> values = new ArrayList<>();
+                for (String value : cursorIds) {
+                    values.add(new StringValueNode(value));
+                }
+
+                node = node.and(
+                        new NotNode(
+                                new InNode(
+                                        new PropertyValueNode(EventProperty.ID),
+                                        values
+                                )
+                        )
+                );
+            }
+
+            if (topNode != null) {
+                return topNode.and(node);
+            } else {
+                return node;
+            }
+        }
+        return topNode;
+    }
+
     private AbstractOperatorNode handleBlackList(NotificationParameters parameters, AbstractOperatorNode topNode)
     {
         if (parameters.blackList != null && !parameters.blackList.isEmpty()) {
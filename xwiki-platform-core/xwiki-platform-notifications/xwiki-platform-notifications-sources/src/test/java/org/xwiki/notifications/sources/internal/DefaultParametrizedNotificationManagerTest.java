@@ -19,6 +19,7 @@
  */
 package org.xwiki.notifications.sources.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -27,6 +28,7 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventStream;
 import org.xwiki.model.reference.DocumentReference;
@@ -53,8 +55,11 @@
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -82,11 +87,12 @@ public void setUp() throws Exception
         eventStream = mocker.getInstance(EventStream.class);
         queryGenerator = mocker.getInstance(QueryGenerator.class);
         authorizationManager = mocker.getInstance(AuthorizationManager.class);
+        when(authorizationManager.filterAccessible(any(Right.class), any(), anyCollection())).thenCallRealMethod();
         startDate = new Date(10);
         recordableEventDescriptorHelper = mocker.getInstance(RecordableEventDescriptorHelper.class);
 
         query = mock(Query.class);
-        when(queryGenerator.generateQuery(any(NotificationParameters.class))).thenReturn(query);
+        when(queryGenerator.generateQuery(any(NotificationParameters.class), any(), any())).thenReturn(query);
 
         NotificationPreference pref1 = mock(NotificationPreference.class);
         when(pref1.getProperties()).thenReturn(Collections.singletonMap(NotificationPreferenceProperty.EVENT_TYPE, "create"));
@@ -168,7 +174,7 @@ public void getEventsWhenException() throws Exception
     {
         // Mocks
         QueryException exception = new QueryException("Error", null, null);
-        when(queryGenerator.generateQuery(any(NotificationParameters.class))).thenThrow(exception);
+        when(queryGenerator.generateQuery(any(NotificationParameters.class), any(), any())).thenThrow(exception);
 
         // Test
         NotificationException caughtException = null;
@@ -209,7 +215,8 @@ public void getEventsCount() throws Exception
 
         // Verify
         assertEquals(5, result);
-        verifyZeroInteractions(event3);
+        // The rights are checked for the whole batch but the events after the expected count are not processed
+        verify(event3, never()).getType();
     }
 
     @Test
@@ -747,4 +754,116 @@ public void getEventsThatHaveNoDescriptor() throws Exception
         assertEquals(1, results.size());
         assertEquals(event2, results.get(0).getEvents().get(0));
     }
+
+    @Test
+    public void getEventsWithSeveralBatches() throws Exception
+    {
+        DocumentReference visibleDoc = new DocumentReference("xwiki", "Main", "WebHome");
+        DocumentReference hiddenDoc = new DocumentReference("xwiki", "PrivateSpace", "WebHome");
+        when(authorizationManager.hasAccess(Right.VIEW, userReference, visibleDoc)).thenReturn(true);
+
+        // The last 3 events of the first batch have the same date
+        Event event1 = createCursorEvent("e1", visibleDoc, 30L);
+        Event event2 = createCursorEvent("e2", hiddenDoc, 20L);
+        Event event3 = createCursorEvent("e3", hiddenDoc, 20L);
+        Event event4 = createCursorEvent("e4", hiddenDoc, 20L);
+        Event event5 = createCursorEvent("e5", visibleDoc, 10L);
+        Event event6 = createCursorEvent("e6", visibleDoc, 5L);
+        when(eventStream.searchEvents(query)).thenReturn(Arrays.asList(event1, event2, event3, event4),
+                Arrays.asList(event5, event6));
+
+        List<Date> cursorDates = new ArrayList<>();
+        List<List<String>> cursorIds = new ArrayList<>();
+        recordCursors(cursorDates, cursorIds);
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.expectedCount = 2;
+        List<CompositeEvent> results = mocker.getComponentUnderTest().getEvents(parameters);
+
+        // Verify
+        assertEquals(2, results.size());
+        assertEquals(event1, results.get(0).getEvents().get(0));
+        assertEquals(event5, results.get(1).getEvents().get(0));
+
+        // The second batch starts after all the events having the date of the last event of the first batch
+        assertEquals(Arrays.asList(null, new Date(20L)), cursorDates);
+        assertEquals(Arrays.asList(Collections.emptyList(), Arrays.asList("e2", "e3", "e4")), cursorIds);
+
+        // The first batch is twice the expected count, the second one is sized from the proportion of kept events
+        InOrder inOrder = inOrder(query);
+        inOrder.verify(query).setLimit(4);
+        inOrder.verify(query).setLimit(8);
+
+        // The expected count has been reached in the second batch
+        verify(eventStream, times(2)).searchEvents(query);
+        verify(event6, never()).getType();
+    }
+
+    @Test
+    public void getEventsWhenLastBatchIsEmpty() throws Exception
+    {
+        DocumentReference visibleDoc = new DocumentReference("xwiki", "Main", "WebHome");
+        DocumentReference hiddenDoc = new DocumentReference("xwiki", "PrivateSpace", "WebHome");
+        when(authorizationManager.hasAccess(Right.VIEW, userReference, visibleDoc)).thenReturn(true);
+
+        Event event1 = createCursorEvent("e1", visibleDoc, 30L);
+        Event event2 = createCursorEvent("e2", hiddenDoc, 20L);
+        Event event3 = createCursorEvent("e3", hiddenDoc, 20L);
+        Event event4 = createCursorEvent("e4", hiddenDoc, 10L);
+        // The second batch is full and all its events have the date of the last event of the first batch
+        List<Event> secondBatch = new ArrayList<>();
+        for (int i = 5; i < 13; i++) {
+            secondBatch.add(createCursorEvent("e" + i, hiddenDoc, 10L));
+        }
+        when(eventStream.searchEvents(query)).thenReturn(Arrays.asList(event1, event2, event3, event4),
+                secondBatch, Collections.emptyList());
+
+        List<Date> cursorDates = new ArrayList<>();
+        List<List<String>> cursorIds = new ArrayList<>();
+        recordCursors(cursorDates, cursorIds);
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.expectedCount = 2;
+        List<CompositeEvent> results = mocker.getComponentUnderTest().getEvents(parameters);
+
+        // Verify
+        assertEquals(1, results.size());
+        assertEquals(event1, results.get(0).getEvents().get(0));
+
+        // The ids of the events with the same date are accumulated while the cursor date doesn't change
+        assertEquals(Arrays.asList(null, new Date(10L), new Date(10L)), cursorDates);
+        assertEquals(Arrays.asList("e4"), cursorIds.get(1));
+        assertEquals(Arrays.asList("e4", "e5", "e6", "e7", "e8", "e9", "e10", "e11", "e12"), cursorIds.get(2));
+
+        InOrder inOrder = inOrder(query);
+        inOrder.verify(query).setLimit(4);
+        inOrder.verify(query).setLimit(8);
+        inOrder.verify(query).setLimit(24);
+
+        // No more query after the empty batch
+        verify(eventStream, times(3)).searchEvents(query);
+    }
+
+    private Event createCursorEvent(String id, DocumentReference doc, long date)
+    {
+        // Different types and group ids so that the events are not grouped
+        Event event = createMockedEvent("type-" + id, userReference, doc, new Date(date), id);
+        when(event.getId()).thenReturn(id);
+
+        return event;
+    }
+
+    private void recordCursors(List<Date> cursorDates, List<List<String>> cursorIds) throws Exception
+    {
+        // Copy the cursor ids since the same list is updated between the queries
+        when(queryGenerator.generateQuery(any(NotificationParameters.class), any(), any())).then(invocation -> {
+            cursorDates.add(invocation.getArgument(1));
+            cursorIds.add(new ArrayList<>(invocation.<List<String>>getArgument(2)));
+            return query;
+        });
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link NotificationInbox}.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class NotificationInboxTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<NotificationInbox> mocker =
+            new MockitoComponentMockingRule<>(NotificationInbox.class);
+
+    private NotificationConfiguration configuration;
+
+    private DocumentReference user = new DocumentReference("xwiki", "XWiki", "User");
+
+    private Map<String, Object> cacheContent = new ConcurrentHashMap<>();
+
+    private Cache cache;
+
+    private List<NotificationParameters> loadedParameters = new ArrayList<>();
+
+    private List<CompositeEvent> newEvents = Collections.emptyList();
+
+    private List<CompositeEvent> events = Arrays.asList(mock(CompositeEvent.class));
+
+    @Before
+    public void setUp() throws Exception
+    {
+        configuration = mocker.getInstance(NotificationConfiguration.class);
+        when(configuration.isInboxEnabled()).thenReturn(true);
+        when(configuration.getInboxSize()).thenReturn(10);
+
+        cache = mock(Cache.class);
+        CacheManager cacheManager = mocker.getInstance(CacheManager.class);
+        when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
+        when(cache.get(anyString())).then(invocation -> cacheContent.get(invocation.getArgument(0)));
+        doAnswer(invocation -> cacheContent.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(anyString(), any());
+        doAnswer(invocation -> cacheContent.remove(invocation.getArgument(0))).when(cache).remove(anyString());
+
+        EntityReferenceSerializer<String> serializer = mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(user)).thenReturn("xwiki:XWiki.User");
+    }
+
+    private NotificationParameters getParameters()
+    {
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = user;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.expectedCount = 10;
+
+        return parameters;
+    }
+
+    private List<CompositeEvent> getEvents() throws Exception
+    {
+        return mocker.getComponentUnderTest().getEvents(getParameters(), parameters -> {
+            loadedParameters.add(parameters);
+            return parameters.expectedCount == 1 ? newEvents : events;
+        });
+    }
+
+    private void addEvent() throws Exception
+    {
+        Event event = mock(Event.class);
+        when(event.getDate()).thenReturn(new Date(1000000L));
+        mocker.getComponentUnderTest().onEventAdded(event);
+    }
+
+    @Test
+    public void isEnabled() throws Exception
+    {
+        assertTrue(mocker.getComponentUnderTest().isEnabled(getParameters()));
+
+        NotificationParameters parameters = getParameters();
+        parameters.format = NotificationFormat.EMAIL;
+        assertFalse(mocker.getComponentUnderTest().isEnabled(parameters));
+
+        parameters = getParameters();
+        parameters.user = null;
+        assertFalse(mocker.getComponentUnderTest().isEnabled(parameters));
+    }
+
+    @Test
+    public void getEventsWithoutNewEvents() throws Exception
+    {
+        assertEquals(events, getEvents());
+        assertEquals(events, getEvents());
+
+        assertEquals(1, loadedParameters.size());
+    }
+
+    @Test
+    public void getEventsWithNewEventsNotConcerningTheUser() throws Exception
+    {
+        assertEquals(events, getEvents());
+        addEvent();
+        assertEquals(events, getEvents());
+        assertEquals(events, getEvents());
+
+        // Only the new events have been checked
+        assertEquals(2, loadedParameters.size());
+        assertEquals(1, loadedParameters.get(1).expectedCount);
+        assertEquals(new Date(999000L), loadedParameters.get(1).fromDate);
+    }
+
+    @Test
+    public void getEventsWithNewEventsConcerningTheUser() throws Exception
+    {
+        newEvents = Arrays.asList(mock(CompositeEvent.class));
+
+        assertEquals(events, getEvents());
+        addEvent();
+        assertEquals(events, getEvents());
+
+        // The new events have been checked and the notifications have been computed again
+        assertEquals(3, loadedParameters.size());
+        assertEquals(10, loadedParameters.get(2).expectedCount);
+    }
+
+    @Test
+    public void getEventsAfterInvalidate() throws Exception
+    {
+        assertEquals(events, getEvents());
+        mocker.getComponentUnderTest().invalidate(user);
+        assertEquals(events, getEvents());
+
+        assertEquals(2, loadedParameters.size());
+    }
+
+    @Test
+    public void getEventsConcurrentlyForTheSameUser() throws Exception
+    {
+        NotificationInbox inbox = mocker.getComponentUnderTest();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<CompositeEvent>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return inbox.getEvents(getParameters(), parameters -> events);
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<CompositeEvent>> future : futures) {
+                assertEquals(events, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // All the requests share the same inbox
+        verify(cache, times(1)).set(anyString(), any());
+    }
+}
@@ -273,6 +273,30 @@ public void generateQueryWithUntilDate() throws Exception
 
     }
 
+    @Test
+    public void generateQueryWithCursor() throws Exception
+    {
+        Date cursorDate = new Date(1000000000000L);
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.preferences = Arrays.asList(pref1);
+        parameters.filterPreferences = Arrays.asList(fakeFilterPreference);
+        ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters, cursorDate,
+            Arrays.asList("event1", "event2"));
+
+        // Verify
+        assertEquals("(((TYPE = \"create\" " +
+            "AND DATE >= \"" + this.pref1StartDate.toString() + "\") " +
+            "AND (DATE <= \"" + cursorDate.toString() + "\" " +
+            "AND NOT (ID IN (\"event1\", \"event2\")))) " +
+            "AND HIDDEN <> true) " +
+            "ORDER BY DATE DESC",
+            node.toString());
+    }
+
     @Test
     public void generateQueryWithUntilDateAndBlackList() throws Exception
     {
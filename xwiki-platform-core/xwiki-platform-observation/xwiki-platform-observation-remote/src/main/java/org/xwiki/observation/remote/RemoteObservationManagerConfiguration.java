@@ -46,4 +46,43 @@
      * @return the identifier of the network adapter implementation to use to actually send and receive network messages
      */
     String getNetworkAdapter();
+
+    /**
+     * @return the number of threads notifying the events received from the other cluster members, the events are
+     *         notified in the thread receiving them if lower than 1
+     * @since 10.11RC1
+     */
+    default int getReceiverThreads()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of received events waiting to be notified by each receiver thread before the
+     *         reception of new events is blocked
+     * @since 10.11RC1
+     */
+    default int getReceiverQueueSize()
+    {
+        return 1000;
+    }
+
+    /**
+     * @return true if the events sent to the other cluster members are grouped in compressed batch messages, false
+     *         to send each event in its own message as cluster members older than 10.11 expect
+     * @since 10.11RC1
+     */
+    default boolean isSenderBatchEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * @return the maximum number of events waiting to be sent to the other cluster members
+     * @since 10.11RC1
+     */
+    default int getSenderQueueSize()
+    {
+        return 10000;
+    }
 }
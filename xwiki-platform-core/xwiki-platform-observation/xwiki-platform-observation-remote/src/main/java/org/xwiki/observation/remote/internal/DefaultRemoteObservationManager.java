@@ -19,13 +19,19 @@
  */
 package org.xwiki.observation.remote.internal;
 
+import java.lang.management.ManagementFactory;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.context.Execution;
@@ -44,14 +50,26 @@
 
 /**
  * JGoups based {@link RemoteObservationManager}. It's also the default implementation for now.
+ * <p>
+ * Since 10.11RC1 the received events are converted and notified by a {@link RemoteEventDispatcher}.
  *
  * @version $Id$
  * @since 2.0M3
  */
 @Component
 @Singleton
-public class DefaultRemoteObservationManager implements RemoteObservationManager, Initializable
+public class DefaultRemoteObservationManager implements RemoteObservationManager, Initializable, Disposable
 {
+    private static final ObjectName DISPATCHER_NAME;
+
+    static {
+        try {
+            DISPATCHER_NAME = new ObjectName("org.xwiki:type=RemoteObservation,name=receiver");
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Access {@link RemoteObservationManager} configuration.
      */
@@ -105,6 +123,11 @@ public class DefaultRemoteObservationManager implements RemoteObservationManager
      */
     private NetworkAdapter networkAdapter;
 
+    /**
+     * Notify the received events.
+     */
+    private RemoteEventDispatcher dispatcher;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -116,6 +139,15 @@ public void initialize() throws InitializationException
                 + this.configuration.getNetworkAdapter() + "]", e);
         }
 
+        this.dispatcher = new RemoteEventDispatcher(this.configuration.getReceiverThreads(),
+            this.configuration.getReceiverQueueSize(), this::notifyLocal, this.logger);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this.dispatcher, DISPATCHER_NAME);
+        } catch (Exception e) {
+            this.logger.warn("Failed to register the remote events dispatcher against the JMX Server", e);
+        }
+
         // Start configured channels and register them against the JMX server
         for (String channelId : this.configuration.getChannels()) {
             try {
@@ -153,6 +185,17 @@ public void notify(LocalEventData localEvent)
 
     @Override
     public void notify(RemoteEventData remoteEvent)
+    {
+        try {
+            this.dispatcher.dispatch(remoteEvent);
+        } catch (InterruptedException e) {
+            this.logger.warn("Interrupted while waiting to notify remote event [{}]", remoteEvent);
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void notifyLocal(RemoteEventData remoteEvent)
     {
         // Make sure the Execution context is properly initialized
         initializeContext();
@@ -173,6 +216,20 @@ public void notify(RemoteEventData remoteEvent)
         }
     }
 
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.dispatcher != null) {
+            this.dispatcher.stop();
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(DISPATCHER_NAME);
+            } catch (Exception e) {
+                this.logger.debug("Failed to unregister the remote events dispatcher from the JMX Server", e);
+            }
+        }
+    }
+
     @Override
     public void startChannel(String channelId) throws RemoteEventException
     {
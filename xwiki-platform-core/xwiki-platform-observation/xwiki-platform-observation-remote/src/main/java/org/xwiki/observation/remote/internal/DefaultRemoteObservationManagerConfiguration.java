@@ -69,4 +69,28 @@ public String getNetworkAdapter()
     {
         return this.configurationSource.getProperty("observation.remote.networkadapter", "jgroups");
     }
+
+    @Override
+    public int getReceiverThreads()
+    {
+        return this.configurationSource.getProperty("observation.remote.receiver.threads", 4);
+    }
+
+    @Override
+    public int getReceiverQueueSize()
+    {
+        return this.configurationSource.getProperty("observation.remote.receiver.queueSize", 1000);
+    }
+
+    @Override
+    public boolean isSenderBatchEnabled()
+    {
+        return this.configurationSource.getProperty("observation.remote.sender.batch", true);
+    }
+
+    @Override
+    public int getSenderQueueSize()
+    {
+        return this.configurationSource.getProperty("observation.remote.sender.queueSize", 10000);
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.xwiki.observation.event.FilterableEvent;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Notify the received remote events in several threads so that a slow listener does not delay the reception of all
+ * the other events.
+ * <p>
+ * The events associated with the same entity (the filter of the event, generally the reference of the entity) are
+ * always notified by the same thread, in the order they have been received. When too many events are waiting to be
+ * notified the reception of new events is blocked so that the network layer slows down the cluster member sending them.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class RemoteEventDispatcher implements RemoteEventDispatcherMBean
+{
+    private static final long STOP_TIMEOUT = 10000L;
+
+    private static final class ReceivedEvent
+    {
+        private final RemoteEventData remoteEvent;
+
+        private final long date;
+
+        ReceivedEvent(RemoteEventData remoteEvent)
+        {
+            this.remoteEvent = remoteEvent;
+            this.date = System.nanoTime();
+        }
+    }
+
+    private static final ReceivedEvent STOP = new ReceivedEvent(null);
+
+    private final class Lane implements Runnable
+    {
+        private final BlockingQueue<ReceivedEvent> queue;
+
+        private final Thread thread;
+
+        Lane(int index, int queueSize)
+        {
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+
+            this.thread = new Thread(this, "XWiki remote events receiver " + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                for (ReceivedEvent event = this.queue.take(); event != STOP; event = this.queue.take()) {
+                    process(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void process(ReceivedEvent event)
+        {
+            long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - event.date);
+            lastLag = lag;
+            maxLag.accumulateAndGet(lag, Math::max);
+
+            try {
+                handler.accept(event.remoteEvent);
+            } catch (Exception e) {
+                logger.error("Failed to notify remote event [{}]", event.remoteEvent, e);
+            }
+
+            processedEvents.incrementAndGet();
+        }
+    }
+
+    private final Consumer<RemoteEventData> handler;
+
+    private final Logger logger;
+
+    private final Lane[] lanes;
+
+    private final AtomicLong processedEvents = new AtomicLong();
+
+    private final AtomicLong blockedDispatches = new AtomicLong();
+
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private volatile long lastLag;
+
+    /**
+     * @param threads the number of threads notifying the events, the events are notified in the receiving thread if
+     *            lower than 1
+     * @param queueSize the maximum number of events waiting to be notified by each thread
+     * @param handler actually notify the events
+     * @param logger the logger to use to report errors
+     */
+    public RemoteEventDispatcher(int threads, int queueSize, Consumer<RemoteEventData> handler, Logger logger)
+    {
+        this.handler = handler;
+        this.logger = logger;
+
+        this.lanes = new Lane[Math.max(threads, 0)];
+        for (int i = 0; i < this.lanes.length; ++i) {
+            this.lanes[i] = new Lane(i, Math.max(queueSize, 1));
+            this.lanes[i].thread.start();
+        }
+    }
+
+    /**
+     * Notify the passed event, asynchronously if threads have been allocated.
+     *
+     * @param remoteEvent the received event
+     * @throws InterruptedException when interrupted while waiting for some room in the queue
+     */
+    public void dispatch(RemoteEventData remoteEvent) throws InterruptedException
+    {
+        if (this.lanes.length == 0) {
+            this.handler.accept(remoteEvent);
+            this.processedEvents.incrementAndGet();
+
+            return;
+        }
+
+        Lane lane = this.lanes[Math.floorMod(getKey(remoteEvent).hashCode(), this.lanes.length)];
+
+        ReceivedEvent event = new ReceivedEvent(remoteEvent);
+        if (!lane.queue.offer(event)) {
+            // Wait for the listeners to catch up
+            this.blockedDispatches.incrementAndGet();
+
+            lane.queue.put(event);
+        }
+    }
+
+    private Object getKey(RemoteEventData remoteEvent)
+    {
+        Object event = remoteEvent.getEvent();
+
+        if (event instanceof FilterableEvent) {
+            EventFilter filter = ((FilterableEvent) event).getEventFilter();
+
+            if (filter != null && filter.getFilter() != null) {
+                return filter.getFilter();
+            }
+        }
+
+        return event != null ? event.getClass().getName() : "";
+    }
+
+    /**
+     * Notify the events already received and stop the threads.
+     */
+    public void stop()
+    {
+        for (Lane lane : this.lanes) {
+            try {
+                lane.queue.put(STOP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return;
+            }
+        }
+
+        for (Lane lane : this.lanes) {
+            try {
+                lane.thread.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return this.lanes.length;
+    }
+
+    @Override
+    public int getPendingEvents()
+    {
+        int pending = 0;
+        for (Lane lane : this.lanes) {
+            pending += lane.queue.size();
+        }
+
+        return pending;
+    }
+
+    @Override
+    public long getProcessedEvents()
+    {
+        return this.processedEvents.get();
+    }
+
+    @Override
+    public long getBlockedDispatches()
+    {
+        return this.blockedDispatches.get();
+    }
+
+    @Override
+    public long getLastLag()
+    {
+        return this.lastLag;
+    }
+
+    @Override
+    public long getMaxLag()
+    {
+        return this.maxLag.get();
+    }
+
+    @Override
+    public void reset()
+    {
+        this.processedEvents.set(0);
+        this.blockedDispatches.set(0);
+        this.maxLag.set(0);
+        this.lastLag = 0;
+    }
+}
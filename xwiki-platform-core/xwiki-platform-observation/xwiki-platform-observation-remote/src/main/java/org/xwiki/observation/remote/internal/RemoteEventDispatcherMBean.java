@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+/**
+ * Expose the state of the {@link RemoteEventDispatcher} through JMX.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public interface RemoteEventDispatcherMBean
+{
+    /**
+     * @return the number of threads notifying the received events
+     */
+    int getThreads();
+
+    /**
+     * @return the number of received events waiting to be notified
+     */
+    int getPendingEvents();
+
+    /**
+     * @return the number of received events already notified
+     */
+    long getProcessedEvents();
+
+    /**
+     * @return the number of times the reception of events had to wait because too many events were already waiting
+     */
+    long getBlockedDispatches();
+
+    /**
+     * @return the time in milliseconds the last notified event waited before being notified
+     */
+    long getLastLag();
+
+    /**
+     * @return the maximum time in milliseconds an event waited before being notified
+     */
+    long getMaxLag();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -35,6 +37,8 @@
 /**
  * Default implementation of JGroupsReceiver. Receive remote events and send them as is to
  * {@link RemoteObservationManager} to be converted and injected as local events.
+ * <p>
+ * Since 10.11RC1 a message can also contain several events encoded with {@link RemoteEventDataCodec}.
  *
  * @version $Id$
  * @since 2.0M3
@@ -79,8 +83,35 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        if (RemoteEventDataCodec.isBatch(msg.getRawBuffer(), msg.getOffset(), msg.getLength())) {
+            List<RemoteEventData> remoteEvents;
+            try {
+                remoteEvents = RemoteEventDataCodec.decode(msg.getRawBuffer(), msg.getOffset(), msg.getLength());
+            } catch (Exception e) {
+                this.logger.error("Failed to decode JGroups remote events sent by [{}]", msg.getSrc(), e);
+
+                return;
+            }
+
+            // The same event is often sent several times in a row (for example when the same document is invalidated
+            // several times): there is no point in notifying it more than once. Identical events which are not
+            // consecutive are all notified since the events in between can change their meaning (for example a
+            // document created, deleted and created again).
+            RemoteEventData previousEvent = null;
+            for (RemoteEventData remoteEvent : remoteEvents) {
+                if (!remoteEvent.equals(previousEvent)) {
+                    notify(remoteEvent);
+                }
 
+                previousEvent = remoteEvent;
+            }
+        } else {
+            notify((RemoteEventData) msg.getObject());
+        }
+    }
+
+    private void notify(RemoteEventData remoteEvent)
+    {
         this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
         getRemoteObservationManager().notify(remoteEvent);
@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.View;
+import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
+
+/**
+ * Update the statistics of a channel before passing the received messages to the {@link JGroupsReceiver} associated
+ * with the channel.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class JGroupsChannelReceiver extends ReceiverAdapter
+{
+    private final JGroupsReceiver receiver;
+
+    private final JGroupsChannelStatistics statistics;
+
+    /**
+     * @param receiver the receiver associated with the channel
+     * @param statistics the statistics of the channel
+     */
+    public JGroupsChannelReceiver(JGroupsReceiver receiver, JGroupsChannelStatistics statistics)
+    {
+        this.receiver = receiver;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void receive(Message msg)
+    {
+        int events = RemoteEventDataCodec.isBatch(msg.getRawBuffer(), msg.getOffset(), msg.getLength())
+            ? RemoteEventDataCodec.getSize(msg.getRawBuffer(), msg.getOffset()) : 1;
+        this.statistics.onMessageReceived(events, msg.getLength());
+
+        this.receiver.receive(msg);
+    }
+
+    @Override
+    public void getState(OutputStream output) throws Exception
+    {
+        this.receiver.getState(output);
+    }
+
+    @Override
+    public void setState(InputStream input) throws Exception
+    {
+        this.receiver.setState(input);
+    }
+
+    @Override
+    public void viewAccepted(View view)
+    {
+        this.receiver.viewAccepted(view);
+    }
+
+    @Override
+    public void suspect(Address address)
+    {
+        this.receiver.suspect(address);
+    }
+
+    @Override
+    public void block()
+    {
+        this.receiver.block();
+    }
+
+    @Override
+    public void unblock()
+    {
+        this.receiver.unblock();
+    }
+}
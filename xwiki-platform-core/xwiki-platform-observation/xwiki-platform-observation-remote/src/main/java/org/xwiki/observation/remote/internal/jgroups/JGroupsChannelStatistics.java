@@ -0,0 +1,199 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+/**
+ * The statistics of a remote events channel.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class JGroupsChannelStatistics implements JGroupsChannelStatisticsMBean
+{
+    private static final long SECOND = 1000L;
+
+    /**
+     * Count something in total and during the last complete second.
+     */
+    private static final class Counter
+    {
+        private long total;
+
+        private long windowStart = System.currentTimeMillis();
+
+        private long windowCount;
+
+        private long lastSecondCount;
+
+        synchronized void add(long value)
+        {
+            updateWindow();
+
+            this.total += value;
+            this.windowCount += value;
+        }
+
+        synchronized long getTotal()
+        {
+            return this.total;
+        }
+
+        synchronized long getPerSecond()
+        {
+            updateWindow();
+
+            return this.lastSecondCount;
+        }
+
+        synchronized void reset()
+        {
+            this.total = 0;
+            this.windowStart = System.currentTimeMillis();
+            this.windowCount = 0;
+            this.lastSecondCount = 0;
+        }
+
+        private void updateWindow()
+        {
+            long now = System.currentTimeMillis();
+            long elapsed = now - this.windowStart;
+
+            if (elapsed >= SECOND) {
+                // Nothing was counted during the last second if the window is older than that
+                this.lastSecondCount = elapsed < 2 * SECOND ? this.windowCount * SECOND / elapsed : 0;
+                this.windowStart = now;
+                this.windowCount = 0;
+            }
+        }
+    }
+
+    private final Counter sentMessages = new Counter();
+
+    private final Counter sentEvents = new Counter();
+
+    private final Counter sentBytes = new Counter();
+
+    private final Counter receivedMessages = new Counter();
+
+    private final Counter receivedEvents = new Counter();
+
+    private final Counter receivedBytes = new Counter();
+
+    /**
+     * @param events the number of events contained in the sent message
+     * @param bytes the size of the sent message
+     */
+    public void onMessageSent(int events, int bytes)
+    {
+        this.sentMessages.add(1);
+        this.sentEvents.add(events);
+        this.sentBytes.add(bytes);
+    }
+
+    /**
+     * @param events the number of events contained in the received message
+     * @param bytes the size of the received message
+     */
+    public void onMessageReceived(int events, int bytes)
+    {
+        this.receivedMessages.add(1);
+        this.receivedEvents.add(events);
+        this.receivedBytes.add(bytes);
+    }
+
+    @Override
+    public long getSentMessages()
+    {
+        return this.sentMessages.getTotal();
+    }
+
+    @Override
+    public long getSentEvents()
+    {
+        return this.sentEvents.getTotal();
+    }
+
+    @Override
+    public long getSentBytes()
+    {
+        return this.sentBytes.getTotal();
+    }
+
+    @Override
+    public long getSentEventsPerSecond()
+    {
+        return this.sentEvents.getPerSecond();
+    }
+
+    @Override
+    public long getSentBytesPerSecond()
+    {
+        return this.sentBytes.getPerSecond();
+    }
+
+    @Override
+    public long getReceivedMessages()
+    {
+        return this.receivedMessages.getTotal();
+    }
+
+    @Override
+    public long getReceivedEvents()
+    {
+        return this.receivedEvents.getTotal();
+    }
+
+    @Override
+    public long getReceivedBytes()
+    {
+        return this.receivedBytes.getTotal();
+    }
+
+    @Override
+    public long getReceivedEventsPerSecond()
+    {
+        return this.receivedEvents.getPerSecond();
+    }
+
+    @Override
+    public long getReceivedBytesPerSecond()
+    {
+        return this.receivedBytes.getPerSecond();
+    }
+
+    @Override
+    public void reset()
+    {
+        this.sentMessages.reset();
+        this.sentEvents.reset();
+        this.sentBytes.reset();
+        this.receivedMessages.reset();
+        this.receivedEvents.reset();
+        this.receivedBytes.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("sent: [%d] events in [%d] messages ([%d] bytes), received: [%d] events in [%d] messages"
+            + " ([%d] bytes)", getSentEvents(), getSentMessages(), getSentBytes(), getReceivedEvents(),
+            getReceivedMessages(), getReceivedBytes());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+/**
+ * Expose the statistics of a remote events channel through JMX.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public interface JGroupsChannelStatisticsMBean
+{
+    /**
+     * @return the number of messages sent to the channel
+     */
+    long getSentMessages();
+
+    /**
+     * @return the number of events sent to the channel
+     */
+    long getSentEvents();
+
+    /**
+     * @return the number of bytes sent to the channel
+     */
+    long getSentBytes();
+
+    /**
+     * @return the number of events sent to the channel during the last second
+     */
+    long getSentEventsPerSecond();
+
+    /**
+     * @return the number of bytes sent to the channel during the last second
+     */
+    long getSentBytesPerSecond();
+
+    /**
+     * @return the number of messages received from the channel
+     */
+    long getReceivedMessages();
+
+    /**
+     * @return the number of events received from the channel
+     */
+    long getReceivedEvents();
+
+    /**
+     * @return the number of bytes received from the channel
+     */
+    long getReceivedBytes();
+
+    /**
+     * @return the number of events received from the channel during the last second
+     */
+    long getReceivedEventsPerSecond();
+
+    /**
+     * @return the number of bytes received from the channel during the last second
+     */
+    long getReceivedBytesPerSecond();
+
+    /**
+     * Reset all the counters.
+     */
+    void reset();
+}
@@ -23,13 +23,21 @@
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import org.jgroups.Global;
 import org.jgroups.JChannel;
@@ -42,14 +50,21 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
  * JGroups based implementation of {@link NetworkAdapter}.
+ * <p>
+ * Since 10.11RC1 the events are sent asynchronously: all the events generated while the previous message was being
+ * sent are grouped in the same message, encoded with {@link RemoteEventDataCodec}. Cluster members older than 10.11
+ * can't read these messages so each event can still be sent in its own message during a rolling upgrade (see
+ * {@link RemoteObservationManagerConfiguration#isSenderBatchEnabled()}).
  *
  * @version $Id$
  * @since 2.0RC1
@@ -57,19 +72,38 @@
 @Component
 @Named("jgroups")
 @Singleton
-public class JGroupsNetworkAdapter implements NetworkAdapter
+public class JGroupsNetworkAdapter implements NetworkAdapter, Disposable
 {
     /**
      * Relative path where to find jgroups channels configurations.
      */
     public static final String CONFIGURATION_PATH = "observation/remote/jgroups/";
 
+    /**
+     * The maximum number of events sent in the same message.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * The maximum time to wait for the remaining events to be sent when stopping the channels, or for some room in the
+     * queue when sending an event.
+     */
+    private static final long STOP_TIMEOUT = 10000L;
+
+    /**
+     * Put in the queue to stop the sender thread.
+     */
+    private static final RemoteEventData STOP = new RemoteEventData();
+
     /**
      * Used to lookup the receiver corresponding to the channel identifier.
      */
     @Inject
     private ComponentManager componentManager;
 
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
     /**
      * The logger to log.
      */
@@ -81,21 +115,195 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * The statistics of the network channels.
+     */
+    private Map<String, JGroupsChannelStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * The events waiting to be sent, null when the sender thread is not running.
+     */
+    private volatile BlockingQueue<RemoteEventData> queue;
+
+    /**
+     * The thread sending the events waiting in the queue.
+     */
+    private Thread senderThread;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
-        // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        if (this.channels.isEmpty()) {
+            // Nobody to send the event to
+            return;
+        }
+
+        if (!this.configuration.isSenderBatchEnabled()) {
+            sendSingle(remoteEvent);
+
+            return;
+        }
+
+        BlockingQueue<RemoteEventData> currentQueue = this.queue;
+        if (currentQueue == null) {
+            this.logger.warn("The remote events sender is stopped, the event [{}] is not sent", remoteEvent);
+
+            return;
+        }
+
+        // The events are sent by a dedicated thread which sends together all the events generated in the meantime
+        try {
+            if (!currentQueue.offer(remoteEvent, STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                this.logger.error("Too many remote events waiting to be sent, the event [{}] is dropped", remoteEvent);
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("Interrupted while waiting to send the remote event [{}]", remoteEvent);
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send the event in its own message, as understood by cluster members older than 10.11.
+     */
+    private void sendSingle(RemoteEventData remoteEvent)
+    {
+        Message message;
+        try {
+            message = new Message(null, remoteEvent);
+        } catch (Exception e) {
+            this.logger.error("Failed to serialize remote event [{}]", remoteEvent, e);
+
+            return;
+        }
+
+        sendMessage(message, 1, remoteEvent);
+    }
+
+    /**
+     * @param channelId the identifier of the channel
+     * @return the statistics of the channel, null if the channel is not started
+     * @since 10.11RC1
+     */
+    public JGroupsChannelStatistics getStatistics(String channelId)
+    {
+        return this.statistics.get(channelId);
+    }
+
+    private synchronized void startSender()
+    {
+        if (this.senderThread == null) {
+            BlockingQueue<RemoteEventData> senderQueue =
+                new LinkedBlockingQueue<>(this.configuration.getSenderQueueSize());
+            this.senderThread = new Thread(() -> sendQueuedEvents(senderQueue), "XWiki remote events sender");
+            this.senderThread.setDaemon(true);
+            this.senderThread.start();
+            this.queue = senderQueue;
+        }
+    }
 
+    private synchronized void stopSender()
+    {
+        if (this.senderThread != null) {
+            BlockingQueue<RemoteEventData> senderQueue = this.queue;
+
+            // Don't accept new events
+            this.queue = null;
+
+            try {
+                // Make sure the events already waiting are sent before stopping the thread
+                if (senderQueue.offer(STOP, STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    this.senderThread.join(STOP_TIMEOUT);
+                }
+            } catch (InterruptedException e) {
+                this.logger.warn("Interrupted while waiting for the remaining remote events to be sent");
+
+                Thread.currentThread().interrupt();
+            }
+
+            // Don't leave the thread behind when it did not finish in time
+            this.senderThread.interrupt();
+            this.senderThread = null;
+        }
+    }
+
+    private void sendQueuedEvents(BlockingQueue<RemoteEventData> senderQueue)
+    {
+        List<RemoteEventData> batch = new ArrayList<>(BATCH_SIZE);
+
+        try {
+            while (true) {
+                batch.add(senderQueue.take());
+                senderQueue.drainTo(batch, BATCH_SIZE - 1);
+
+                int stopIndex = indexOfStop(batch);
+                if (stopIndex != -1) {
+                    send(batch.subList(0, stopIndex));
+
+                    break;
+                }
+
+                send(batch);
+
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int indexOfStop(List<RemoteEventData> batch)
+    {
+        for (int i = 0; i < batch.size(); ++i) {
+            if (batch.get(i) == STOP) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void send(List<RemoteEventData> remoteEvents)
+    {
+        if (remoteEvents.isEmpty()) {
+            return;
+        }
+
+        byte[] payload;
+        try {
+            payload = RemoteEventDataCodec.encode(remoteEvents);
+        } catch (IOException e) {
+            if (remoteEvents.size() > 1) {
+                // Don't lose the whole batch because of a single event
+                for (RemoteEventData remoteEvent : remoteEvents) {
+                    send(Collections.singletonList(remoteEvent));
+                }
+            } else {
+                this.logger.error("Failed to serialize remote event [{}]", remoteEvents.get(0), e);
+            }
+
+            return;
+        }
+
+        sendMessage(new Message(null, payload), remoteEvents.size(), remoteEvents);
+    }
+
+    private void sendMessage(Message message, int eventCount, Object events)
+    {
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
+                // Send the message to the whole group
                 entry.getValue().send(message);
+
+                JGroupsChannelStatistics channelStatistics = this.statistics.get(entry.getKey());
+                if (channelStatistics != null) {
+                    channelStatistics.onMessageSent(eventCount, message.getLength());
+                }
             } catch (Exception e) {
-                this.logger
-                    .error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey() + "]", e);
+                this.logger.error("Failed to send messages [{}] to the channel [{}]", events, entry.getKey(), e);
             }
         }
     }
@@ -107,11 +315,17 @@ public void startChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] already started", channelId));
         }
 
+        // Make sure the events can be sent as soon as the channel is registered
+        startSender();
+
+        JGroupsChannelStatistics channelStatistics = new JGroupsChannelStatistics();
+
         JChannel channel;
         try {
-            channel = createChannel(channelId);
+            channel = createChannel(channelId, channelStatistics);
             channel.connect("event");
 
+            this.statistics.put(channelId, channelStatistics);
             this.channels.put(channelId, channel);
         } catch (Exception e) {
             throw new RemoteEventException("Failed to create channel [" + channelId + "]", e);
@@ -121,6 +335,7 @@ public void startChannel(String channelId) throws RemoteEventException
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
             JmxConfigurator.registerChannel(channel, mbs, channel.getClusterName());
+            mbs.registerMBean(channelStatistics, getStatisticsName(channelId));
         } catch (Exception e) {
             this.logger.warn("Failed to register channel [" + channelId + "] against the JMX Server", e);
         }
@@ -140,11 +355,13 @@ public void stopChannel(String channelId) throws RemoteEventException
         channel.close();
 
         this.channels.remove(channelId);
+        this.statistics.remove(channelId);
 
         // Unregister the channel from the JMX Server
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
             JmxConfigurator.unregister(channel, mbs, channel.getClusterName());
+            mbs.unregisterMBean(getStatisticsName(channelId));
         } catch (Exception e) {
             this.logger.warn("Failed to unregister channel [" + channelId + "] from the JMX Server", e);
         }
@@ -152,14 +369,20 @@ public void stopChannel(String channelId) throws RemoteEventException
         this.logger.info("Channel [{}] stopped", channelId);
     }
 
+    private ObjectName getStatisticsName(String channelId) throws MalformedObjectNameException
+    {
+        return new ObjectName("org.xwiki:type=RemoteObservation,channel=" + ObjectName.quote(channelId));
+    }
+
     /**
      * Create a new channel.
      *
      * @param channelId the identifier of the channel to create
+     * @param channelStatistics the statistics of the channel to create
      * @return the new channel
      * @throws Exception failed to create new channel
      */
-    private JChannel createChannel(String channelId) throws Exception
+    private JChannel createChannel(String channelId, JGroupsChannelStatistics channelStatistics) throws Exception
     {
         // load configuration
         ProtocolStackConfigurator channelConf = loadChannelConfiguration(channelId);
@@ -175,7 +398,7 @@ private JChannel createChannel(String channelId) throws Exception
         // create channel
         JChannel channel = new JChannel(channelConf);
 
-        channel.setReceiver(channelReceiver);
+        channel.setReceiver(new JGroupsChannelReceiver(channelReceiver, channelStatistics));
         channel.setDiscardOwnMessages(true);
 
         return channel;
@@ -218,12 +441,28 @@ private ProtocolStackConfigurator loadChannelConfiguration(String channelId) thr
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        stopSender();
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
+
+            try {
+                mbs.unregisterMBean(getStatisticsName(channelEntry.getKey()));
+            } catch (Exception e) {
+                this.logger.debug("Failed to unregister the statistics of channel [{}]", channelEntry.getKey(), e);
+            }
         }
 
         this.channels.clear();
+        this.statistics.clear();
 
         this.logger.info("All channels stopped");
     }
+
+    @Override
+    public void dispose()
+    {
+        stopSender();
+    }
 }
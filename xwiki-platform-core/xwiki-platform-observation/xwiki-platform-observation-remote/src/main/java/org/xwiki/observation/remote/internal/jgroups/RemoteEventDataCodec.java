@@ -0,0 +1,142 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Encode several {@link RemoteEventData} in a single message payload and decode it.
+ * <p>
+ * All the events of a batch are written in the same compressed serialization stream so that the class descriptors and
+ * the objects shared by the events (wiki identifiers, user references, etc.) are written only once.
+ * <p>
+ * The payload starts with a header made of a magic number, the version of the format and the number of events it
+ * contains so that it can be distinguished from a single serialized {@link RemoteEventData} and counted without being
+ * decoded.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public final class RemoteEventDataCodec
+{
+    private static final byte[] MAGIC = {'X', 'W', 'E', 'B'};
+
+    private static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = MAGIC.length + 1 + Integer.BYTES;
+
+    private RemoteEventDataCodec()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param events the events to encode
+     * @return the payload containing the events
+     * @throws IOException when failing to serialize one of the events
+     */
+    public static byte[] encode(List<RemoteEventData> events) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.write(MAGIC);
+        header.writeByte(VERSION);
+        header.writeInt(events.size());
+
+        try (ObjectOutputStream output = new ObjectOutputStream(new DeflaterOutputStream(bytes))) {
+            for (RemoteEventData event : events) {
+                output.writeObject(event);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param buffer the buffer containing the payload
+     * @param offset the offset of the payload in the buffer
+     * @param length the length of the payload
+     * @return true if the payload has been produced by {@link #encode(List)}
+     */
+    public static boolean isBatch(byte[] buffer, int offset, int length)
+    {
+        if (buffer == null || length < HEADER_SIZE) {
+            return false;
+        }
+
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (buffer[offset + i] != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return buffer[offset + MAGIC.length] == VERSION;
+    }
+
+    /**
+     * @param buffer the buffer containing the payload
+     * @param offset the offset of the payload in the buffer
+     * @return the number of events contained in the payload
+     */
+    public static int getSize(byte[] buffer, int offset)
+    {
+        int position = offset + MAGIC.length + 1;
+
+        return ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+            | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+    }
+
+    /**
+     * @param buffer the buffer containing the payload
+     * @param offset the offset of the payload in the buffer
+     * @param length the length of the payload
+     * @return the events contained in the payload
+     * @throws IOException when failing to read the payload
+     * @throws ClassNotFoundException when the class of one of the events cannot be found
+     */
+    public static List<RemoteEventData> decode(byte[] buffer, int offset, int length)
+        throws IOException, ClassNotFoundException
+    {
+        int size = getSize(buffer, offset);
+
+        List<RemoteEventData> events = new ArrayList<>(size);
+
+        try (ObjectInputStream input = new ObjectInputStream(new InflaterInputStream(
+            new ByteArrayInputStream(buffer, offset + HEADER_SIZE, length - HEADER_SIZE)))) {
+            for (int i = 0; i < size; ++i) {
+                events.add((RemoteEventData) input.readObject());
+            }
+        }
+
+        return events;
+    }
+}
@@ -92,4 +92,32 @@ public void testSerializableEvent() throws InterruptedException
         verify(localListener).onEvent(same(event), same(unserializable), same(unserializable));
         verify(remoteListener).onEvent(eq(event), eq("some source"), eq("some data"));
     }
+
+    /**
+     * Validate that events are still sent in their own message, as expected by cluster members older than 10.11, when
+     * batches are disabled.
+     */
+    @Test
+    public void testSerializableEventWithoutBatch() throws InterruptedException
+    {
+        getConfigurationSource1().setProperty("observation.remote.sender.batch", false);
+
+        EventListener remoteListener = mock(EventListener.class, "remote");
+
+        TestEvent event = new TestEvent();
+
+        when(remoteListener.getName()).thenReturn("mylistener");
+        when(remoteListener.getEvents()).thenReturn(Arrays.asList(event));
+
+        getObservationManager2().addListener(remoteListener);
+
+        getObservationManager1().notify(event, "some source", "some data");
+        getObservationManager1().notify(event, "other source", "other data");
+
+        // Make sure JGroups has enough time to send the message
+        Thread.sleep(1000);
+
+        verify(remoteListener).onEvent(eq(event), eq("some source"), eq("some data"));
+        verify(remoteListener).onEvent(eq(event), eq("other source"), eq("other data"));
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.remote.RemoteEventData;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Validate {@link RemoteEventDispatcher}.
+ * 
+ * @version $Id$
+ */
+public class RemoteEventDispatcherTest
+{
+    private static class ReferenceEvent extends AbstractFilterableEvent
+    {
+        private static final long serialVersionUID = 1L;
+
+        ReferenceEvent(String reference)
+        {
+            super(reference);
+        }
+    }
+
+    private final List<Object> notified = Collections.synchronizedList(new ArrayList<>());
+
+    private RemoteEventData createEvent(String reference, Serializable source)
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new ReferenceEvent(reference));
+        remoteEvent.setSource(source);
+
+        return remoteEvent;
+    }
+
+    @Test
+    public void dispatchSynchronously() throws Exception
+    {
+        RemoteEventDispatcher dispatcher =
+            new RemoteEventDispatcher(0, 10, event -> this.notified.add(event.getSource()), mock(Logger.class));
+
+        dispatcher.dispatch(createEvent("reference", 1));
+
+        assertEquals(Collections.singletonList(1), this.notified);
+        assertEquals(1, dispatcher.getProcessedEvents());
+    }
+
+    @Test
+    public void dispatchKeepsOrderOfSameReference() throws Exception
+    {
+        RemoteEventDispatcher dispatcher =
+            new RemoteEventDispatcher(4, 10, event -> this.notified.add(event.getSource()), mock(Logger.class));
+
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            dispatcher.dispatch(createEvent("reference", i));
+            expected.add(i);
+        }
+
+        dispatcher.stop();
+
+        assertEquals(expected, this.notified);
+        assertEquals(100, dispatcher.getProcessedEvents());
+        assertEquals(0, dispatcher.getPendingEvents());
+    }
+
+    @Test
+    public void slowListenerDoesNotBlockOtherReferences() throws Exception
+    {
+        String slowReference = "slow";
+        String otherReference = "other";
+        // Make sure the two references are associated with different threads
+        while (Math.floorMod(otherReference.hashCode(), 2) == Math.floorMod(slowReference.hashCode(), 2)) {
+            otherReference += "0";
+        }
+
+        CountDownLatch slowLatch = new CountDownLatch(1);
+        CountDownLatch otherLatch = new CountDownLatch(1);
+
+        RemoteEventDispatcher dispatcher = new RemoteEventDispatcher(2, 10, event -> {
+            try {
+                if (event.getSource().equals(slowReference)) {
+                    slowLatch.await();
+                } else {
+                    otherLatch.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, mock(Logger.class));
+
+        dispatcher.dispatch(createEvent(slowReference, slowReference));
+        dispatcher.dispatch(createEvent(otherReference, otherReference));
+
+        assertTrue(otherLatch.await(10, TimeUnit.SECONDS));
+
+        slowLatch.countDown();
+        dispatcher.stop();
+
+        assertEquals(2, dispatcher.getProcessedEvents());
+    }
+}
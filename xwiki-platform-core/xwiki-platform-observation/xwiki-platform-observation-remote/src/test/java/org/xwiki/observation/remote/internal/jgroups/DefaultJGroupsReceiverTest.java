@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jgroups.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Validate {@link DefaultJGroupsReceiver}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultJGroupsReceiverTest
+{
+    @InjectMockComponents
+    private DefaultJGroupsReceiver receiver;
+
+    private RemoteObservationManager remoteObservationManager = mock(RemoteObservationManager.class);
+
+    @BeforeEach
+    public void setUp()
+    {
+        ReflectionUtils.setFieldValue(this.receiver, "remoteObservationManager", this.remoteObservationManager);
+    }
+
+    private RemoteEventData createEvent(String source)
+    {
+        RemoteEventData event = new RemoteEventData();
+        event.setEvent(new TestEvent());
+        event.setSource(source);
+        event.setData("xwiki:Space.Page");
+
+        return event;
+    }
+
+    private void receive(List<RemoteEventData> events) throws Exception
+    {
+        this.receiver.receive(new Message(null, RemoteEventDataCodec.encode(events)));
+    }
+
+    @Test
+    public void receiveBatch() throws Exception
+    {
+        RemoteEventData created = createEvent("created");
+        RemoteEventData deleted = createEvent("deleted");
+
+        receive(Arrays.asList(created, deleted));
+
+        InOrder order = inOrder(this.remoteObservationManager);
+        order.verify(this.remoteObservationManager).notify(created);
+        order.verify(this.remoteObservationManager).notify(deleted);
+        verify(this.remoteObservationManager, times(2)).notify(any());
+    }
+
+    @Test
+    public void receiveBatchWithConsecutiveDuplicates() throws Exception
+    {
+        RemoteEventData updated = createEvent("updated");
+
+        receive(Arrays.asList(updated, createEvent("updated"), createEvent("updated")));
+
+        verify(this.remoteObservationManager).notify(updated);
+    }
+
+    @Test
+    public void receiveBatchWithOutOfOrderDuplicate() throws Exception
+    {
+        RemoteEventData created = createEvent("created");
+        RemoteEventData deleted = createEvent("deleted");
+
+        // The document is created, deleted and created again: the second creation must not be lost
+        receive(Arrays.asList(created, deleted, createEvent("created"), createEvent("created")));
+
+        InOrder order = inOrder(this.remoteObservationManager);
+        order.verify(this.remoteObservationManager).notify(created);
+        order.verify(this.remoteObservationManager).notify(deleted);
+        order.verify(this.remoteObservationManager).notify(created);
+        verify(this.remoteObservationManager, times(3)).notify(any());
+    }
+
+    @Test
+    public void receiveSingleEvent() throws Exception
+    {
+        RemoteEventData event = createEvent("source");
+
+        this.receiver.receive(new Message(null, event));
+
+        verify(this.remoteObservationManager).notify(event);
+    }
+}
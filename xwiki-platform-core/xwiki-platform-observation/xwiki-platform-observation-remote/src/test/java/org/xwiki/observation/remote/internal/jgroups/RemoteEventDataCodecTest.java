@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.test.TestEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link RemoteEventDataCodec}.
+ * 
+ * @version $Id$
+ */
+public class RemoteEventDataCodecTest
+{
+    private RemoteEventData createEvent(String source)
+    {
+        RemoteEventData event = new RemoteEventData();
+        event.setEvent(new TestEvent());
+        event.setSource(source);
+        event.setData("xwiki:XWiki.Admin");
+
+        return event;
+    }
+
+    @Test
+    public void encodeAndDecode() throws Exception
+    {
+        List<RemoteEventData> events = Arrays.asList(createEvent("source1"), createEvent("source2"));
+
+        byte[] payload = RemoteEventDataCodec.encode(events);
+
+        assertTrue(RemoteEventDataCodec.isBatch(payload, 0, payload.length));
+        assertEquals(2, RemoteEventDataCodec.getSize(payload, 0));
+        assertEquals(events, RemoteEventDataCodec.decode(payload, 0, payload.length));
+
+        // With an offset
+        byte[] buffer = new byte[payload.length + 3];
+        System.arraycopy(payload, 0, buffer, 3, payload.length);
+
+        assertTrue(RemoteEventDataCodec.isBatch(buffer, 3, payload.length));
+        assertEquals(2, RemoteEventDataCodec.getSize(buffer, 3));
+        assertEquals(events, RemoteEventDataCodec.decode(buffer, 3, payload.length));
+    }
+
+    @Test
+    public void encodeIsSmallerThanIndividualSerialization() throws Exception
+    {
+        List<RemoteEventData> events = new ArrayList<>();
+        int individualSize = 0;
+        for (int i = 0; i < 100; ++i) {
+            RemoteEventData event = createEvent("xwiki:Space.Page" + i);
+            events.add(event);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(event);
+            }
+            individualSize += bytes.size();
+        }
+
+        assertTrue(RemoteEventDataCodec.encode(events).length * 10 < individualSize);
+    }
+
+    @Test
+    public void isBatchWithSingleEvent() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(createEvent("source"));
+        }
+
+        assertFalse(RemoteEventDataCodec.isBatch(bytes.toByteArray(), 0, bytes.size()));
+        assertFalse(RemoteEventDataCodec.isBatch(null, 0, 0));
+        assertFalse(RemoteEventDataCodec.isBatch(new byte[] {'X', 'W'}, 0, 2));
+    }
+
+    @Test
+    public void encodeUnserializable()
+    {
+        RemoteEventData event = createEvent("source");
+        event.setData(new Object[] {new Object()});
+
+        assertThrows(IOException.class, () -> RemoteEventDataCodec.encode(Arrays.asList(event)));
+    }
+}
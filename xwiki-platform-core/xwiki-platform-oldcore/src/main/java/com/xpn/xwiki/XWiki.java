@@ -37,12 +37,14 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -1978,6 +1980,69 @@ public XWikiDocument getDocument(DocumentReference reference, XWikiContext conte
         return getDocument(doc, context);
     }
 
+    /**
+     * Load several documents at once. The documents are grouped by wiki and the ones which are not in the cache are
+     * passed together to {@link XWikiStoreInterface#loadXWikiDocs(List, XWikiContext)}, which lets the store load them
+     * the best way it can (the default store currently loads them one by one).
+     *
+     * @param references the references of the documents to load
+     * @param context see {@link XWikiContext}
+     * @return the documents, in the same order as the passed references (if a document couldn't be found a new one is
+     *         created in memory, see {@link XWikiDocument#isNew()})
+     * @throws XWikiException when failing to load the documents
+     * @since 10.11RC1
+     */
+    @Unstable
+    public List<XWikiDocument> getDocuments(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        XWikiDocument[] documents = new XWikiDocument[references.size()];
+
+        // The store loads the documents of the current wiki so group them by wiki
+        Map<String, List<Integer>> indexesByWiki = new LinkedHashMap<>();
+        List<XWikiDocument> docs = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            XWikiDocument doc = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                reference.getLocale());
+            doc.setContentDirty(true);
+
+            indexesByWiki.computeIfAbsent(reference.getWikiReference().getName(), k -> new ArrayList<>())
+                .add(docs.size());
+            docs.add(doc);
+        }
+
+        String currentWiki = context.getWikiId();
+        try {
+            for (Map.Entry<String, List<Integer>> entry : indexesByWiki.entrySet()) {
+                context.setWikiId(entry.getKey());
+
+                List<XWikiDocument> wikiDocs = new ArrayList<>(entry.getValue().size());
+                for (Integer index : entry.getValue()) {
+                    XWikiDocument doc = docs.get(index);
+                    try {
+                        // Indicate the the async context manipulated documents
+                        getAsyncContext().useEntity(doc.getDocumentReferenceWithLocale());
+                    } catch (Exception e) {
+                        // If the AsyncContext component does not work then we are not in an asynchronous context
+                        // anyway
+                        LOGGER.debug("Failed to register the document in the asynchronous context", e);
+                    }
+                    wikiDocs.add(doc);
+                }
+
+                List<XWikiDocument> loadedDocs = getStore().loadXWikiDocs(wikiDocs, context);
+                for (int i = 0; i < loadedDocs.size(); ++i) {
+                    documents[entry.getValue().get(i)] = loadedDocs.get(i);
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        return Arrays.asList(documents);
+    }
+
     /**
      * @param reference the reference of the page
      * @param context see {@link XWikiContext}
@@ -57,6 +57,8 @@
 import com.xpn.xwiki.internal.XWikiInitializerJob;
 import com.xpn.xwiki.internal.XWikiInitializerJobStatus;
 import com.xpn.xwiki.objects.meta.MetaClass;
+import com.xpn.xwiki.store.XWikiCacheStore;
+import com.xpn.xwiki.store.XWikiCacheStoreStatistics;
 import com.xpn.xwiki.user.api.XWikiUser;
 import com.xpn.xwiki.util.Programming;
 import com.xpn.xwiki.web.Utils;
@@ -1447,6 +1449,24 @@ public void flushCache()
         }
     }
 
+    /**
+     * Privileged API to get the hit and miss counts of the document cache and the estimated memory retained by the
+     * cached documents.
+     *
+     * @return the statistics of the document cache or null if there is no document cache or the current user doesn't
+     *         have programming rights
+     * @since 10.11RC1
+     */
+    @Unstable
+    public XWikiCacheStoreStatistics getDocumentCacheStatistics()
+    {
+        if (hasProgrammingRights() && this.xwiki.getStore() instanceof XWikiCacheStore) {
+            return ((XWikiCacheStore) this.xwiki.getStore()).getStatistics();
+        }
+
+        return null;
+    }
+
     /**
      * Privileged API to create a new user from the request This API is used by RegisterNewUser wiki page
      *
@@ -22,6 +22,7 @@
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -150,6 +151,14 @@ public DocumentModelBridge getDocumentInstance(EntityReference reference) throws
         return xcontext.getWiki().getDocument(reference, xcontext);
     }
 
+    @Override
+    public List<DocumentModelBridge> getDocumentInstances(Collection<DocumentReference> documentReferences)
+        throws Exception
+    {
+        XWikiContext xcontext = getContext();
+        return new ArrayList<>(xcontext.getWiki().getDocuments(documentReferences, xcontext));
+    }
+
     @Override
     public DocumentModelBridge getTranslatedDocumentInstance(DocumentReference documentReference) throws Exception
     {
@@ -24,6 +24,7 @@
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -40,6 +41,7 @@
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.web.Utils;
 
 /**
  * Contains document history. Allows to load any version of document.
@@ -48,6 +50,9 @@
  */
 public class XWikiDocumentArchive
 {
+    /** Default number of versions between two versions containing the full document. */
+    private static final int DEFAULT_NODES_PER_FULL = 5;
+
     /** =docId. */
     private long id;
 
@@ -130,9 +135,7 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
         XWikiRCSNodeInfo latestNode = getLatestNode();
         if (latestNode != null) {
             int nodesCount = getNodes().size();
-            int nodesPerFull =
-                context.getWiki() == null ? 5 : Integer.parseInt(context.getWiki().getConfig()
-                    .getProperty("xwiki.store.rcs.nodesPerFull", "5"));
+            int nodesPerFull = getNodesPerFull(context);
             if (nodesPerFull <= 0 || (nodesCount % nodesPerFull) != 0) {
                 XWikiRCSNodeContent latestContent = latestNode.getContent(context);
                 latestContent.getPatch().setDiffVersion(latestContent.getPatch().getContent(),
@@ -145,6 +148,62 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
         return result;
     }
 
+    /**
+     * @param context - used to access the configuration
+     * @return the number of versions between two versions containing the full document, or 0 or less when only the
+     *         latest version is full
+     * @since 10.11RC1
+     */
+    public static int getNodesPerFull(XWikiContext context)
+    {
+        return context == null || context.getWiki() == null ? DEFAULT_NODES_PER_FULL : Integer.parseInt(context
+            .getWiki().getConfig().getProperty("xwiki.store.rcs.nodesPerFull", String.valueOf(DEFAULT_NODES_PER_FULL)));
+    }
+
+    /**
+     * Store the full document in every version located {@code nodesPerFull} versions after the previous full version
+     * so that rebuilding any version never requires applying more than {@code nodesPerFull - 1} patches. This mostly
+     * matters for archives which were imported or created before this rule was applied, since
+     * {@link #updateArchive(XWikiDocument, String, Date, String, Version, XWikiContext)} already respects it. The
+     * modified nodes need to be saved after.
+     *
+     * @param nodesPerFull - the maximum distance between two full versions, nothing is done when 0 or less
+     * @param context - used for loading nodes content
+     * @return true if at least one version has been modified
+     * @throws XWikiException if any error
+     * @since 10.11RC1
+     */
+    public boolean updateFullVersions(int nodesPerFull, XWikiContext context) throws XWikiException
+    {
+        if (nodesPerFull <= 0 || getNodes().size() <= nodesPerFull) {
+            return false;
+        }
+
+        boolean modified = false;
+        List<String> text = new ArrayList<String>();
+        int diffCount = 0;
+        // Nodes are ordered from the latest version, which is always full, to the oldest one
+        for (XWikiRCSNodeContent nodeContent : loadRCSNodeContents(getNodes(), context)) {
+            XWikiPatch patch = nodeContent.getPatch();
+            patch.patch(text);
+            if (patch.isDiff()) {
+                if (++diffCount >= nodesPerFull) {
+                    patch.setFullVersion(ToString.arrayToString(text.toArray()));
+                    XWikiRCSNodeInfo nodeInfo = getNode(nodeContent.getId().getVersion());
+                    nodeInfo.setContent(nodeContent);
+                    updateNode(nodeInfo);
+                    this.updatedNodeContents.add(nodeContent);
+                    diffCount = 0;
+                    modified = true;
+                }
+            } else {
+                diffCount = 0;
+            }
+        }
+
+        return modified;
+    }
+
     /** @return {@link XWikiDocument#getId()} - primary key */
     public long getId()
     {
@@ -219,6 +278,9 @@ public void setArchive(String text) throws XWikiException
                 this.updatedNodeInfos.add(nodeInfo);
                 this.updatedNodeContents.add(nodeContent);
             }
+            // Imported histories only contain the full latest version
+            XWikiContext xcontext = Utils.getContext();
+            updateFullVersions(getNodesPerFull(xcontext), xcontext);
         } catch (Exception e) {
             Object[] args = { text, Long.valueOf(getId()) };
             throw new XWikiException(XWikiException.MODULE_XWIKI_DIFF,
@@ -441,11 +503,56 @@ public Version getNearestFullVersion(Version ver)
     private List<XWikiRCSNodeContent> loadRCSNodeContents(Version vfrom, Version vto, XWikiContext context)
         throws XWikiException
     {
-        List<XWikiRCSNodeContent> result = new ArrayList<XWikiRCSNodeContent>();
-        for (XWikiRCSNodeInfo nodeInfo : getNodes(vfrom, vto)) {
-            XWikiRCSNodeContent nodeContent = nodeInfo.getContent(context);
+        return loadRCSNodeContents(getNodes(vfrom, vto), context);
+    }
+
+    /**
+     * Load the content of the passed nodes, using a single request for the ones which are not already loaded.
+     *
+     * @param nodes - the nodes for which to load the content
+     * @param context - used for loading
+     * @return the contents, in the same order as the nodes
+     * @throws XWikiException if any error
+     */
+    private List<XWikiRCSNodeContent> loadRCSNodeContents(Collection<XWikiRCSNodeInfo> nodes, XWikiContext context)
+        throws XWikiException
+    {
+        List<XWikiRCSNodeContent> result = new ArrayList<XWikiRCSNodeContent>(nodes.size());
+        List<XWikiRCSNodeId> missingIds = new ArrayList<XWikiRCSNodeId>();
+        for (XWikiRCSNodeInfo nodeInfo : nodes) {
+            XWikiRCSNodeContent nodeContent = nodeInfo.getContent(null);
+            if (nodeContent == null) {
+                missingIds.add(nodeInfo.getId());
+            }
             result.add(nodeContent);
         }
+
+        if (missingIds.size() > 1 && context != null && context.getWiki() != null) {
+            Map<Version, XWikiRCSNodeContent> loaded = new TreeMap<Version, XWikiRCSNodeContent>();
+            for (XWikiRCSNodeContent nodeContent : context.getWiki().getVersioningStore()
+                .loadRCSNodeContents(missingIds, true, context)) {
+                loaded.put(nodeContent.getId().getVersion(), nodeContent);
+            }
+            int index = 0;
+            for (XWikiRCSNodeInfo nodeInfo : nodes) {
+                XWikiRCSNodeContent nodeContent = loaded.get(nodeInfo.getId().getVersion());
+                if (result.get(index) == null && nodeContent != null) {
+                    nodeInfo.setContent(nodeContent);
+                    result.set(index, nodeContent);
+                }
+                index++;
+            }
+        }
+
+        // Load the remaining ones (if any) one by one
+        int index = 0;
+        for (XWikiRCSNodeInfo nodeInfo : nodes) {
+            if (result.get(index) == null) {
+                result.set(index, nodeInfo.getContent(context));
+            }
+            index++;
+        }
+
         return result;
     }
 
@@ -29,6 +29,8 @@
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.observation.remote.converter.AbstractEventConverter;
 
 import com.xpn.xwiki.XWikiContext;
@@ -76,6 +78,18 @@ public abstract class AbstractXWikiEventConverter extends AbstractEventConverter
     @Inject
     private XWikiStubContextProvider stubContextProvider;
 
+    /**
+     * Used to send document references in a compact form.
+     */
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * Used to parse the received document references.
+     */
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
     /**
      * @param context the XWiki context to serialize
      * @return the serialized version of the context
@@ -139,7 +153,7 @@ protected Serializable serializeXWikiDocument(XWikiDocument document)
     {
         HashMap<String, Serializable> remoteDataMap = new HashMap<String, Serializable>();
 
-        remoteDataMap.put(DOC_NAME, document.getDocumentReference());
+        remoteDataMap.put(DOC_NAME, serializeDocumentReference(document.getDocumentReference()));
 
         if (!document.isNew()) {
             remoteDataMap.put(DOC_VERSION, document.getVersion());
@@ -156,6 +170,32 @@ protected Serializable serializeXWikiDocument(XWikiDocument document)
         return remoteDataMap;
     }
 
+    /**
+     * @param documentReference the document reference to serialize
+     * @return the serialized version of the document reference, much smaller than the serialized
+     *         {@link DocumentReference}
+     * @since 10.11RC1
+     */
+    protected Serializable serializeDocumentReference(DocumentReference documentReference)
+    {
+        return this.serializer.serialize(documentReference);
+    }
+
+    /**
+     * @param remoteData the serialized version of the document reference
+     * @return the document reference
+     * @since 10.11RC1
+     */
+    protected DocumentReference unserializeDocumentReference(Serializable remoteData)
+    {
+        // Members running an older version send the reference itself
+        if (remoteData instanceof DocumentReference) {
+            return (DocumentReference) remoteData;
+        }
+
+        return this.resolver.resolve((String) remoteData);
+    }
+
     protected XWikiDocument getDocument(DocumentReference documentReference, String language, String version)
         throws XWikiException
     {
@@ -184,7 +224,7 @@ protected XWikiDocument unserializeDocument(Serializable remoteData) throws XWik
     {
         Map<String, Serializable> remoteDataMap = (Map<String, Serializable>) remoteData;
 
-        DocumentReference docReference = (DocumentReference) remoteDataMap.get(DOC_NAME);
+        DocumentReference docReference = unserializeDocumentReference(remoteDataMap.get(DOC_NAME));
 
         XWikiDocument doc;
         if (remoteDataMap.get(DOC_VERSION) == null) {
@@ -118,7 +118,7 @@ private XWikiDocument unserializeDeletdDocument(Serializable remoteData, XWikiCo
     {
         Map<String, Serializable> remoteDataMap = (Map<String, Serializable>) remoteData;
 
-        DocumentReference docReference = (DocumentReference) remoteDataMap.get(DOC_NAME);
+        DocumentReference docReference = unserializeDocumentReference(remoteDataMap.get(DOC_NAME));
         Locale locale = LocaleUtils.toLocale((String) remoteDataMap.get(DOC_LANGUAGE));
 
         XWikiDocument doc = new XWikiDocument(docReference, locale);
@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.internal.template;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -44,18 +45,28 @@
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.environment.Environment;
 import org.xwiki.filter.input.InputSource;
 import org.xwiki.filter.input.InputStreamInputSource;
 import org.xwiki.filter.input.ReaderInputSource;
 import org.xwiki.filter.input.StringInputSource;
+import org.xwiki.filter.input.URLInputSource;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
 import org.xwiki.properties.BeanManager;
 import org.xwiki.properties.ConverterManager;
 import org.xwiki.properties.PropertyException;
@@ -83,9 +94,14 @@
 import org.xwiki.skin.Skin;
 import org.xwiki.template.Template;
 import org.xwiki.template.TemplateContent;
+import org.xwiki.template.event.TemplateDeletedEvent;
+import org.xwiki.template.event.TemplateEvent;
+import org.xwiki.template.event.TemplateUpdatedEvent;
 import org.xwiki.velocity.VelocityManager;
 
 import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.skin.AbstractEnvironmentResource;
 import com.xpn.xwiki.internal.skin.InternalSkinManager;
 import com.xpn.xwiki.internal.skin.WikiResource;
@@ -99,7 +115,7 @@
  */
 @Component(roles = InternalTemplateManager.class)
 @Singleton
-public class InternalTemplateManager
+public class InternalTemplateManager implements Initializable
 {
     private static final Pattern PROPERTY_LINE = Pattern.compile("^##!(.+)=(.*)$\r?\n?", Pattern.MULTILINE);
 
@@ -162,10 +178,37 @@
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    private CacheManager cacheManager;
+
     @Inject
     private Logger logger;
 
-    private static abstract class AbtractTemplate<T extends TemplateContent, R extends Resource<?>> implements Template
+    /**
+     * The parsed content of the templates, indexed by resource id.
+     */
+    private Cache<CachedTemplateContent> contentCache;
+
+    private static class CachedTemplateContent
+    {
+        private final String version;
+
+        private final TemplateContent content;
+
+        CachedTemplateContent(String version, TemplateContent content)
+        {
+            this.version = version;
+            this.content = content;
+        }
+    }
+
+    private abstract class AbtractTemplate<T extends TemplateContent, R extends Resource<?>> implements Template
     {
         protected R resource;
 
@@ -192,6 +235,17 @@ public String getPath()
         public TemplateContent getContent() throws Exception
         {
             if (this.content == null) {
+                // Reuse the content already parsed by a previous execution of the same version of the template
+                String version = getVersion();
+                if (version != null) {
+                    CachedTemplateContent cachedContent = contentCache.get(getId());
+                    if (cachedContent != null && cachedContent.version.equals(version)) {
+                        this.content = (T) cachedContent.content;
+
+                        return this.content;
+                    }
+                }
+
                 // TODO: work with streams instead of forcing String
                 String strinContent;
 
@@ -211,6 +265,10 @@ public TemplateContent getContent() throws Exception
                 }
 
                 this.content = getContentInternal(strinContent);
+
+                if (version != null) {
+                    contentCache.set(getId(), new CachedTemplateContent(version, this.content));
+                }
             }
 
             return this.content;
@@ -218,6 +276,14 @@ public TemplateContent getContent() throws Exception
 
         protected abstract T getContentInternal(String content) throws Exception;
 
+        /**
+         * @return the version of the template content, or {@code null} if the content should not be cached
+         */
+        protected String getVersion() throws Exception
+        {
+            return null;
+        }
+
         @Override
         public String toString()
         {
@@ -237,6 +303,12 @@ protected FilesystemTemplateContent getContentInternal(String content)
         {
             return new FilesystemTemplateContent(content);
         }
+
+        @Override
+        protected String getVersion() throws Exception
+        {
+            return getLastModified(environment.getResource(this.resource.getPath()));
+        }
     }
 
     private class ClassloaderTemplate extends AbtractTemplate<FilesystemTemplateContent, ClassloaderResource>
@@ -251,6 +323,14 @@ protected FilesystemTemplateContent getContentInternal(String content)
         {
             return new FilesystemTemplateContent(content);
         }
+
+        @Override
+        protected String getVersion() throws Exception
+        {
+            URLInputSource source = this.resource.getInputSource();
+
+            return getLastModified(source.getURL());
+        }
     }
 
     private class DefaultTemplate extends AbtractTemplate<DefaultTemplateContent, Resource<?>>
@@ -271,6 +351,20 @@ protected DefaultTemplateContent getContentInternal(String content)
                 return new DefaultTemplateContent(content);
             }
         }
+
+        @Override
+        protected String getVersion() throws Exception
+        {
+            if (this.resource instanceof WikiResource) {
+                XWikiContext xcontext = xcontextProvider.get();
+                XWikiDocument document =
+                    xcontext.getWiki().getDocument(((WikiResource<?>) this.resource).getDocumentReference(), xcontext);
+
+                return document.getVersion() + ':' + (document.getDate() != null ? document.getDate().getTime() : 0);
+            }
+
+            return null;
+        }
     }
 
     private class StringTemplate extends DefaultTemplate
@@ -303,6 +397,11 @@ private class DefaultTemplateContent implements RawProperties, TemplateContent
 
         protected Map<String, Object> properties = new HashMap<>();
 
+        /**
+         * The result of the parsing of the content, shared by all the executions of the template.
+         */
+        protected volatile XDOM xdom;
+
         DefaultTemplateContent(String content)
         {
             this.content = content;
@@ -385,6 +484,18 @@ public String getContent()
             return this.content;
         }
 
+        /**
+         * @return a copy of the parsed content, which can be freely transformed
+         */
+        XDOM getXDOM() throws Exception
+        {
+            if (this.xdom == null) {
+                this.xdom = parser.parse(this.content, this.sourceSyntax);
+            }
+
+            return this.xdom.clone();
+        }
+
         @PropertyHidden
         @Override
         public boolean isAuthorProvided()
@@ -479,6 +590,38 @@ public void setPrivileged(boolean privileged)
         }
     }
 
+    @Override
+    public void initialize() throws InitializationException
+    {
+        // Initialize cache
+        try {
+            this.contentCache = this.cacheManager.createNewCache(new LRUCacheConfiguration("templates", 1000));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to initialize cache", e);
+        }
+
+        // Initialize listener
+        this.observation.addListener(
+            new AbstractEventListener("templates.content", new TemplateUpdatedEvent(), new TemplateDeletedEvent())
+            {
+                @Override
+                public void onEvent(Event event, Object source, Object data)
+                {
+                    InternalTemplateManager.this.contentCache.remove(((TemplateEvent) event).getId());
+                }
+            });
+    }
+
+    private String getLastModified(URL url) throws Exception
+    {
+        if (url == null) {
+            return null;
+        }
+
+        // Resources which are not located on the filesystem (in a jar, in a packed war, etc.) never change
+        return "file".equals(url.getProtocol()) ? String.valueOf(new File(url.toURI()).lastModified()) : "";
+    }
+
     private String getResourcePath(String suffixPath, String templateName, boolean testExist)
     {
         String templatePath = suffixPath + templateName;
@@ -602,7 +745,11 @@ private XDOM getXDOM(Template template, TemplateContent content) throws Exceptio
         XDOM xdom;
 
         if (content.getSourceSyntax() != null) {
-            xdom = this.parser.parse(content.getContent(), content.getSourceSyntax());
+            if (content instanceof DefaultTemplateContent) {
+                xdom = ((DefaultTemplateContent) content).getXDOM();
+            } else {
+                xdom = this.parser.parse(content.getContent(), content.getSourceSyntax());
+            }
         } else {
             String result = evaluateContent(template, content);
             if (StringUtils.isEmpty(result)) {
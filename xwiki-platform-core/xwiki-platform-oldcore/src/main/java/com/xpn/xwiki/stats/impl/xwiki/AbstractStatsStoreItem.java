@@ -21,6 +21,7 @@
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
@@ -38,6 +39,12 @@
  */
 public abstract class AbstractStatsStoreItem implements XWikiStatsStoreItem
 {
+    private static final long SEALED = -1L;
+
+    private static final int VISITS_SHIFT = 32;
+
+    private static final long HITS_MASK = 0xFFFFFFFFL;
+
     /**
      * The XWiki context clone made when this statistics event occurred.
      */
@@ -63,6 +70,17 @@ public abstract class AbstractStatsStoreItem implements XWikiStatsStoreItem
      */
     protected int period;
 
+    /**
+     * The number of hits (lower 32 bits) and visits (upper 32 bits) aggregated in this item, or {@link #SEALED} once
+     * the item is being stored.
+     */
+    private final AtomicLong counters = new AtomicLong(1);
+
+    /**
+     * The counters of the item when it has been sealed.
+     */
+    private volatile long sealedCounters;
+
     /**
      * @param name the statistic name.
      * @param periodDate the period date.
@@ -80,6 +98,90 @@ public AbstractStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         this.context = context.clone();
     }
 
+    /**
+     * @return the wiki in which the statistic occurred
+     * @since 10.11RC1
+     */
+    public String getWikiId()
+    {
+        return this.context != null ? this.context.getWikiId() : null;
+    }
+
+    /**
+     * Count a visit in this item in addition to the hit it represents.
+     *
+     * @since 10.11RC1
+     */
+    protected void countVisit()
+    {
+        this.counters.addAndGet(1L << VISITS_SHIFT);
+    }
+
+    /**
+     * @return the number of hits aggregated in this item
+     * @since 10.11RC1
+     */
+    public int getHits()
+    {
+        return (int) (getCounters() & HITS_MASK);
+    }
+
+    /**
+     * @return the number of visits aggregated in this item
+     * @since 10.11RC1
+     */
+    public int getVisits()
+    {
+        return (int) (getCounters() >>> VISITS_SHIFT);
+    }
+
+    private long getCounters()
+    {
+        long value = this.counters.get();
+
+        return value == SEALED ? this.sealedCounters : value;
+    }
+
+    /**
+     * Aggregate the given statistic in this one, without locking.
+     *
+     * @param item a statistic with the same identifier, not yet shared with other threads
+     * @return false if this item is already being stored and the statistic could not be aggregated in it
+     * @since 10.11RC1
+     */
+    public boolean merge(AbstractStatsStoreItem item)
+    {
+        long delta = item.getCounters();
+
+        long current;
+        do {
+            current = this.counters.get();
+            if (current == SEALED) {
+                return false;
+            }
+        } while (!this.counters.compareAndSet(current, current + delta));
+
+        return true;
+    }
+
+    /**
+     * Forbid any new aggregation in this item before storing it.
+     *
+     * @since 10.11RC1
+     */
+    public void seal()
+    {
+        long value;
+        do {
+            value = this.counters.get();
+            if (value == SEALED) {
+                return;
+            }
+            // Remember the counters before sealing so that they stay readable once sealed
+            this.sealedCounters = value;
+        } while (!this.counters.compareAndSet(value, SEALED));
+    }
+
     @Override
     public void store(List<XWikiStatsStoreItem> statsList)
     {
@@ -49,11 +49,6 @@ public class DocumentStatsStoreItem extends AbstractStatsStoreItem
      */
     private String action;
 
-    /**
-     * Is this part of a user visit.
-     */
-    private boolean isVisit;
-
     /**
      * Create new instance of {@link DocumentStatsStoreItem}.
      *
@@ -75,7 +70,10 @@ public DocumentStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         super(name, periodDate, periodType, context);
 
         this.action = action;
-        this.isVisit = isVisit;
+
+        if (isVisit) {
+            countVisit();
+        }
     }
 
     @Override
@@ -108,14 +106,16 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        documentStat.setIntValue("pageViews", documentStat.getPageViews() + stats.size());
+        int hits = 0;
+        int visits = 0;
         for (XWikiStatsStoreItem statItem : stats) {
             DocumentStatsStoreItem docStat = (DocumentStatsStoreItem) statItem;
 
-            if (docStat.isVisit) {
-                documentStat.incVisits();
-            }
+            hits += docStat.getHits();
+            visits += docStat.getVisits();
         }
+        documentStat.setIntValue("pageViews", documentStat.getPageViews() + hits);
+        documentStat.setVisits(documentStat.getVisits() + visits);
 
         // Re-save statistics object
         try {
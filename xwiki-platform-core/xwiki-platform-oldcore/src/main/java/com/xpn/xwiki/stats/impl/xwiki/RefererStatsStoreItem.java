@@ -96,7 +96,11 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        refererStat.setIntValue("pageViews", refererStat.getPageViews() + stats.size());
+        int hits = 0;
+        for (XWikiStatsStoreItem statItem : stats) {
+            hits += ((RefererStatsStoreItem) statItem).getHits();
+        }
+        refererStat.setIntValue("pageViews", refererStat.getPageViews() + hits);
 
         // Re-save statistics object
         try {
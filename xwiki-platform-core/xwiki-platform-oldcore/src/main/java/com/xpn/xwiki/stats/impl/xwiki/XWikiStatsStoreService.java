@@ -20,11 +20,17 @@
 package com.xpn.xwiki.stats.impl.xwiki;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +47,10 @@
 
 /**
  * Back-end statistics storing service.
+ * <p>
+ * The statistics are aggregated in memory (one item per wiki, statistic, period and action, with lock-free counters)
+ * and stored at regular intervals so that each aggregated statistic is updated only once per interval in the database,
+ * whatever the number of hits it received, and the request threads never wait for the database.
  *
  * @version $Id$
  * @since 1.4M2
@@ -53,9 +63,43 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiStatsStoreService.class);
 
     /**
-     * The queue containing the statistics to store.
+     * The default interval between two storages of the aggregated statistics, in milliseconds.
      */
-    private ArrayBlockingQueue<XWikiStatsStoreItem> queue;
+    private static final long DEFAULT_FLUSH_INTERVAL = 10000L;
+
+    /**
+     * The default maximum number of aggregated statistics waiting to be stored.
+     */
+    private static final long DEFAULT_MAX_PENDING = 10000L;
+
+    /**
+     * The aggregated statistics waiting to be stored, indexed by wiki and statistic identifier.
+     */
+    private final Map<String, AbstractStatsStoreItem> pendingStats = new ConcurrentHashMap<>();
+
+    /**
+     * The statistics which cannot be aggregated (e.g. the visits), waiting to be stored.
+     */
+    private final Queue<XWikiStatsStoreItem> otherStats = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger otherStatsSize = new AtomicInteger();
+
+    /**
+     * Released to store the pending statistics before the end of the interval.
+     */
+    private final Semaphore flushRequest = new Semaphore(0);
+
+    /**
+     * The interval between two storages of the aggregated statistics, in milliseconds.
+     */
+    private final long flushInterval;
+
+    /**
+     * The number of aggregated statistics after which they are stored without waiting for the end of the interval.
+     */
+    private final long maxPending;
+
+    private volatile boolean stopped;
 
     /**
      * The thread on which the storing service is running.
@@ -75,8 +119,8 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     public XWikiStatsStoreService(XWikiContext context)
     {
         this.xwikiContext = context.clone();
-        long queueSize = context.getWiki().ParamAsLong("stats.queue.size", 200);
-        this.queue = new ArrayBlockingQueue<XWikiStatsStoreItem>((int) queueSize);
+        this.flushInterval = context.getWiki().ParamAsLong("xwiki.stats.flushInterval", DEFAULT_FLUSH_INTERVAL);
+        this.maxPending = context.getWiki().ParamAsLong("xwiki.stats.maxPending", DEFAULT_MAX_PENDING);
     }
 
     @Override
@@ -100,15 +144,17 @@ public void start()
     }
 
     /**
-     * Stop storing thread.
+     * Stop storing thread, after storing the pending statistics.
      */
     public void stop()
     {
-        this.queue.clear();
+        this.stopped = true;
+        this.flushRequest.release();
         try {
-            this.queue.put(new StopStatsRegisterObject());
-            this.thread.join();
-            this.thread = null;
+            if (this.thread != null) {
+                this.thread.join();
+                this.thread = null;
+            }
         } catch (InterruptedException e) {
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("Thread join has been interrupted", e);
@@ -120,56 +166,58 @@ public void stop()
     public void runInternal()
     {
         try {
-            while (true) {
-                register();
+            while (!this.stopped) {
+                // Wait for the end of the interval or for a flush request
+                this.flushRequest.tryAcquire(this.flushInterval, TimeUnit.MILLISECONDS);
+                this.flushRequest.drainPermits();
+
+                flush();
             }
         } catch (InterruptedException e) {
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("Statistics storing thread has been interrupted.", e);
             }
-        } catch (StopStatsStoreException e) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.warn("Statistics storing thread received stop order.", e);
-            }
+        } finally {
+            // Don't lose the statistics aggregated since the last storage
+            flush();
         }
     }
 
     /**
-     * Store the statistics in the queue.
+     * Store the pending statistics.
      *
-     * @throws InterruptedException thread has been interrupted.
-     * @throws StopStatsStoreException service received stop order.
+     * @since 10.11RC1
      */
-    private void register() throws InterruptedException, StopStatsStoreException
+    protected void flush()
     {
-        XWikiStatsStoreItem stat = this.queue.take();
-
-        List<List<XWikiStatsStoreItem>> statsList = new ArrayList<List<XWikiStatsStoreItem>>();
-        Map<String, List<XWikiStatsStoreItem>> statsMap = new HashMap<String, List<XWikiStatsStoreItem>>();
+        for (String key : this.pendingStats.keySet()) {
+            AbstractStatsStoreItem stat = this.pendingStats.remove(key);
 
-        do {
-            if (stat instanceof StopStatsRegisterObject) {
-                throw new StopStatsStoreException();
-            }
-
-            String statId = stat.getId();
-
-            List<XWikiStatsStoreItem> stats = statsMap.get(statId);
-
-            if (stats == null) {
-                stats = new ArrayList<XWikiStatsStoreItem>();
+            if (stat != null) {
+                // Once sealed, the item cannot receive new hits: the next ones go to a new item
+                stat.seal();
 
-                statsMap.put(statId, stats);
-                statsList.add(stats);
+                store(Collections.<XWikiStatsStoreItem>singletonList(stat));
             }
+        }
 
-            stats.add(stat);
-
-            stat = this.queue.poll();
-        } while (stat != null);
+        // Store the statistics which could not be aggregated, merging the ones with the same identifier
+        Map<String, List<XWikiStatsStoreItem>> statsMap = new LinkedHashMap<>();
+        for (XWikiStatsStoreItem stat = this.otherStats.poll(); stat != null; stat = this.otherStats.poll()) {
+            this.otherStatsSize.decrementAndGet();
+            statsMap.computeIfAbsent(stat.getId(), k -> new ArrayList<>()).add(stat);
+        }
+        for (List<XWikiStatsStoreItem> stats : statsMap.values()) {
+            store(stats);
+        }
+    }
 
-        for (List<XWikiStatsStoreItem> stats : statsList) {
+    private void store(List<XWikiStatsStoreItem> stats)
+    {
+        try {
             stats.get(0).store(stats);
+        } catch (Exception e) {
+            LOGGER.error("Failed to store statistics [{}]", stats.get(0).getId(), e);
         }
     }
 
@@ -184,10 +232,33 @@ private void register() throws InterruptedException, StopStatsStoreException
      */
     public void add(XWikiStatsStoreItem statsRegisterItem)
     {
-        try {
-            this.queue.put(statsRegisterItem);
-        } catch (InterruptedException e) {
-            LOGGER.error("Statistics storage thread has been interrupted", e);
+        // The visits are stored in order since their identifier can change during the visit
+        if (statsRegisterItem instanceof AbstractStatsStoreItem
+            && !(statsRegisterItem instanceof VisitStatsStoreItem)) {
+            AbstractStatsStoreItem stat = (AbstractStatsStoreItem) statsRegisterItem;
+            String key = stat.getWikiId() + ':' + stat.getId();
+
+            AbstractStatsStoreItem pendingStat;
+            do {
+                pendingStat = this.pendingStats.putIfAbsent(key, stat);
+                // The pending statistic can be in the process of being stored, in which case a new one is created
+            } while (pendingStat != null && !pendingStat.merge(stat));
+
+            if (pendingStat == null) {
+                checkPendingSize();
+            }
+        } else {
+            this.otherStats.add(statsRegisterItem);
+            this.otherStatsSize.incrementAndGet();
+            checkPendingSize();
+        }
+    }
+
+    private void checkPendingSize()
+    {
+        if (this.pendingStats.size() + this.otherStatsSize.get() >= this.maxPending) {
+            // Don't wait for the end of the interval to store the statistics
+            this.flushRequest.release();
         }
     }
 
@@ -279,32 +350,3 @@ private void addRefererStats(XWikiDocument doc, XWikiContext context)
         }
     }
 }
-
-/**
- * Item used to stop the statistics storing.
- *
- * @version $Id$
- */
-class StopStatsRegisterObject implements XWikiStatsStoreItem
-{
-    @Override
-    public String getId()
-    {
-        return null;
-    }
-
-    @Override
-    public void store(List<XWikiStatsStoreItem> register)
-    {
-    }
-}
-
-/**
- * Used to order stopping storing thread.
- *
- * @version $Id$
- */
-class StopStatsStoreException extends Exception
-{
-
-}
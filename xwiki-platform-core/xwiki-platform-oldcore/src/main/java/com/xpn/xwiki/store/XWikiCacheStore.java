@@ -19,8 +19,14 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -35,6 +41,8 @@
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -51,10 +59,14 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -73,6 +85,22 @@ public class XWikiCacheStore extends AbstractXWikiStore
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    /**
+     * The estimated memory retained by a document without content, objects or attachments.
+     */
+    private static final long DOCUMENT_WEIGHT = 2048L;
+
+    private static final long OBJECT_WEIGHT = 512L;
+
+    private static final long PROPERTY_WEIGHT = 128L;
+
+    /**
+     * The estimated memory retained by the metadata of an attachment, its content being counted only when loaded.
+     */
+    private static final long ATTACHMENT_WEIGHT = 512L;
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -102,6 +130,25 @@ public class XWikiCacheStore extends AbstractXWikiStore
 
     private Cache<Boolean> pageExistCache;
 
+    /**
+     * The maximum estimated memory retained by the cached documents, 0 when only the number of documents is bounded.
+     */
+    private long maxWeight;
+
+    /**
+     * The estimated weight of each cached document, in least recently used order. Only filled when the weight is
+     * bounded.
+     */
+    private final LinkedHashMap<String, Long> weights = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long totalWeight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong weightEvictionCount = new AtomicLong();
+
     /**
      * Default constructor generally used by the Component Manager.
      */
@@ -168,6 +215,20 @@ private void initCache() throws CacheException
         int pageExistCacheCapacity = this.configuration.getProperty("xwiki.store.cache.pageexistcapacity", 10000);
         this.pageExistCache = this.cacheManager
             .createNewCache(new LRUCacheConfiguration("xwiki.store.pageexistcache", pageExistCacheCapacity));
+
+        this.maxWeight = this.configuration.getProperty("xwiki.store.cache.maxweight", 0L) * BYTES_PER_MEGABYTE;
+        if (this.maxWeight > 0) {
+            // Stop tracking the weight of the documents removed from the cache for any reason (capacity, lifespan,
+            // invalidation, etc.)
+            this.cache.addCacheEntryListener(new AbstractCacheEntryListener<XWikiDocument>()
+            {
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<XWikiDocument> event)
+                {
+                    removeWeight(event.getEntry().getKey());
+                }
+            });
+        }
     }
 
     @Deprecated
@@ -239,6 +300,23 @@ public void flushCache()
     {
         getCache().removeAll();
         getPageExistCache().removeAll();
+
+        synchronized (this.weights) {
+            this.weights.clear();
+            this.totalWeight = 0;
+        }
+    }
+
+    /**
+     * @return the hit and miss counts of the document cache and the estimated memory retained by the cached documents
+     * @since 10.11RC1
+     */
+    public XWikiCacheStoreStatistics getStatistics()
+    {
+        synchronized (this.weights) {
+            return new XWikiCacheStoreStatistics(this.hitCount.get(), this.missCount.get(),
+                this.weightEvictionCount.get(), this.weights.size(), this.totalWeight, this.maxWeight);
+        }
     }
 
     @Override
@@ -319,64 +397,281 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             // Calculate the cache key
             String key = getKey(doc, context);
 
-            LOGGER.debug("Cache: Trying to get doc {} from cache", key);
+            XWikiDocument cachedoc = getCachedDocument(doc, key);
 
-            XWikiDocument cachedoc;
-            try {
-                cachedoc = getCache().get(key);
-            } catch (Exception e) {
-                LOGGER.error("Failed to get document from the cache", e);
+            if (cachedoc == null) {
+                LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
 
-                cachedoc = null;
-            }
+                cachedoc = this.store.loadXWikiDoc(doc, context);
 
-            if (cachedoc != null) {
-                cachedoc.setFromCache(true);
+                LOGGER.debug("Cache: Got doc {} from storage", key);
 
-                LOGGER.debug("Cache: got doc {} from cache", key);
-            } else {
-                Boolean result = getPageExistCache().get(key);
+                cacheLoadedDocument(cachedoc, key);
+            }
 
-                if (result == Boolean.FALSE) {
-                    LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
+            LOGGER.debug("Cache: end for doc {} in cache", key);
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
+            return cachedoc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
 
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
-                } else {
-                    LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> docs, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+        try {
+            XWikiDocument[] loadedDocs = new XWikiDocument[docs.size()];
+
+            // Take from the cache all the documents which are there and load the others at once
+            List<XWikiDocument> missingDocs = new ArrayList<>();
+            List<Integer> missingIndexes = new ArrayList<>();
+            List<String> missingKeys = new ArrayList<>();
+            for (int i = 0; i < loadedDocs.length; ++i) {
+                XWikiDocument doc = docs.get(i);
+                String key = getKey(doc, context);
+
+                loadedDocs[i] = getCachedDocument(doc, key);
+                if (loadedDocs[i] == null) {
+                    missingDocs.add(doc);
+                    missingIndexes.add(i);
+                    missingKeys.add(key);
+                }
+            }
 
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
+            if (!missingDocs.isEmpty()) {
+                LOGGER.debug("Cache: Trying to get docs {} from persistent storage", missingKeys);
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
+                List<XWikiDocument> storedDocs = this.store.loadXWikiDocs(missingDocs, context);
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
-                    }
+                for (int i = 0; i < storedDocs.size(); ++i) {
+                    XWikiDocument storedDoc = storedDocs.get(i);
 
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+                    cacheLoadedDocument(storedDoc, missingKeys.get(i));
+
+                    loadedDocs[missingIndexes.get(i)] = storedDoc;
                 }
+            }
+
+            return Arrays.asList(loadedDocs);
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    /**
+     * @param doc the document to load
+     * @param key the cache key of the document
+     * @return the cached document, a new document if the document is known not to exist or null if the document need
+     *         to be loaded from the store
+     */
+    private XWikiDocument getCachedDocument(XWikiDocument doc, String key)
+    {
+        LOGGER.debug("Cache: Trying to get doc {} from cache", key);
+
+        XWikiDocument cachedoc;
+        try {
+            cachedoc = getCache().get(key);
+        } catch (Exception e) {
+            LOGGER.error("Failed to get document from the cache", e);
+
+            cachedoc = null;
+        }
+
+        if (cachedoc != null) {
+            cachedoc.setFromCache(true);
+
+            this.hitCount.incrementAndGet();
+            if (this.maxWeight > 0) {
+                // Mark the document as recently used and update its weight since the content of its attachments might
+                // have been loaded since it was put in the cache
+                updateWeight(key, getWeight(cachedoc));
+            }
+
+            LOGGER.debug("Cache: got doc {} from cache", key);
+        } else {
+            Boolean result = getPageExistCache().get(key);
+
+            if (result == Boolean.FALSE) {
+                LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
+
+                cachedoc = doc;
+                cachedoc.setNew(true);
+
+                // Make sure to always return a document with an original version, even for one that does not exist.
+                // Allow writing more generic code.
+                cachedoc.setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
 
                 cachedoc.setStore(this.store);
             }
+        }
 
-            LOGGER.debug("Cache: end for doc {} in cache", key);
+        return cachedoc;
+    }
 
-            return cachedoc;
-        } finally {
-            restoreExecutionXContext();
+    private void cacheLoadedDocument(XWikiDocument doc, String key)
+    {
+        this.missCount.incrementAndGet();
+
+        if (doc.isNew()) {
+            getPageExistCache().set(key, Boolean.FALSE);
+        } else {
+            getCache().set(key, doc);
+            if (this.maxWeight > 0) {
+                addWeight(key, getWeight(doc));
+            }
+
+            // Also update exist cache
+            getPageExistCache().set(key, Boolean.TRUE);
+        }
+
+        LOGGER.debug("Cache: put doc {} in cache", key);
+
+        doc.setStore(this.store);
+    }
+
+    private void addWeight(String key, long weight)
+    {
+        List<String> evictedKeys;
+
+        synchronized (this.weights) {
+            Long previousWeight = this.weights.put(key, weight);
+            this.totalWeight += weight - (previousWeight != null ? previousWeight : 0);
+
+            evictedKeys = evictOverweight();
+        }
+
+        removeEvicted(evictedKeys);
+    }
+
+    /**
+     * Update the weight of a document which is still in the cache and mark it as recently used.
+     */
+    private void updateWeight(String key, long weight)
+    {
+        List<String> evictedKeys;
+
+        synchronized (this.weights) {
+            Long previousWeight = this.weights.get(key);
+            // Don't track again a document which has been removed from the cache in the meantime
+            if (previousWeight == null || previousWeight.longValue() == weight) {
+                return;
+            }
+
+            this.weights.put(key, weight);
+            this.totalWeight += weight - previousWeight;
+
+            evictedKeys = evictOverweight();
+        }
+
+        removeEvicted(evictedKeys);
+    }
+
+    /**
+     * Stop tracking the least recently used documents until the cache is back under the maximum weight (but always
+     * keep the most recently used document). Must be called while holding the lock on the weights.
+     *
+     * @return the keys of the documents to remove from the cache
+     */
+    private List<String> evictOverweight()
+    {
+        List<String> evictedKeys = new ArrayList<>();
+
+        Iterator<Map.Entry<String, Long>> it = this.weights.entrySet().iterator();
+        while (this.totalWeight > this.maxWeight && this.weights.size() > 1) {
+            Map.Entry<String, Long> eldest = it.next();
+            this.totalWeight -= eldest.getValue();
+            evictedKeys.add(eldest.getKey());
+            it.remove();
+        }
+
+        return evictedKeys;
+    }
+
+    private void removeEvicted(List<String> evictedKeys)
+    {
+        // Remove the documents from the cache outside of the lock since it triggers the cache listener
+        for (String evictedKey : evictedKeys) {
+            getCache().remove(evictedKey);
+            this.weightEvictionCount.incrementAndGet();
+
+            LOGGER.debug("Cache: removed doc {} from cache to stay under the maximum weight", evictedKey);
+        }
+    }
+
+    private void removeWeight(String key)
+    {
+        synchronized (this.weights) {
+            Long weight = this.weights.remove(key);
+            if (weight != null) {
+                this.totalWeight -= weight;
+            }
         }
     }
 
+    /**
+     * @return a rough estimation of the memory retained by the passed document, in bytes
+     */
+    private long getWeight(XWikiDocument doc)
+    {
+        long weight = DOCUMENT_WEIGHT;
+
+        weight += getWeight(doc.getContent());
+        weight += getWeight(doc.getXClassXML());
+
+        for (List<BaseObject> objects : doc.getXObjects().values()) {
+            for (BaseObject object : objects) {
+                if (object != null) {
+                    weight += OBJECT_WEIGHT;
+                    for (Object field : object.getFieldList()) {
+                        weight += PROPERTY_WEIGHT + getWeight(((BaseProperty) field).getValue());
+                    }
+                }
+            }
+        }
+
+        weight += doc.getAttachmentList().size() * ATTACHMENT_WEIGHT;
+
+        // The loaded document also keeps a clone of itself as original document
+        weight *= 2;
+
+        // The content of the attachments is loaded lazily on the document only
+        for (XWikiAttachment attachment : doc.getAttachmentList()) {
+            weight += getContentWeight(attachment);
+        }
+
+        return weight;
+    }
+
+    private long getContentWeight(XWikiAttachment attachment)
+    {
+        // Don't load the content of the attachment, only count it when it's already loaded
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+
+        return content != null ? Math.max(content.getLongSize(), 0) : 0;
+    }
+
+    private long getWeight(Object value)
+    {
+        if (value instanceof String) {
+            // Java strings use 2 bytes per character
+            return ((String) value).length() * 2L;
+        } else if (value instanceof Collection) {
+            long weight = 0;
+            for (Object element : (Collection<?>) value) {
+                weight += PROPERTY_WEIGHT + getWeight(element);
+            }
+
+            return weight;
+        }
+
+        return 0;
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -0,0 +1,128 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A snapshot of the state of the document cache, to help sizing it.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Unstable
+public class XWikiCacheStoreStatistics
+{
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long weightEvictionCount;
+
+    private final int weightedSize;
+
+    private final long weight;
+
+    private final long maxWeight;
+
+    /**
+     * @param hitCount the number of documents found in the cache
+     * @param missCount the number of documents loaded from the underlying store
+     * @param weightEvictionCount the number of documents removed from the cache to stay under the maximum weight
+     * @param weightedSize the number of documents for which the weight is tracked
+     * @param weight the estimated memory retained by the cached documents, in bytes
+     * @param maxWeight the maximum estimated memory the cached documents can retain, in bytes (0 when unbounded)
+     */
+    public XWikiCacheStoreStatistics(long hitCount, long missCount, long weightEvictionCount, int weightedSize,
+        long weight, long maxWeight)
+    {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.weightEvictionCount = weightEvictionCount;
+        this.weightedSize = weightedSize;
+        this.weight = weight;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return the number of documents found in the cache
+     */
+    public long getHitCount()
+    {
+        return this.hitCount;
+    }
+
+    /**
+     * @return the number of documents loaded from the underlying store
+     */
+    public long getMissCount()
+    {
+        return this.missCount;
+    }
+
+    /**
+     * @return the ratio of documents found in the cache
+     */
+    public double getHitRatio()
+    {
+        long requestCount = this.hitCount + this.missCount;
+
+        return requestCount > 0 ? (double) this.hitCount / requestCount : 0;
+    }
+
+    /**
+     * @return the number of documents removed from the cache to stay under the maximum weight
+     */
+    public long getWeightEvictionCount()
+    {
+        return this.weightEvictionCount;
+    }
+
+    /**
+     * @return the number of documents for which the weight is tracked (0 when the weight is not bounded)
+     */
+    public int getWeightedSize()
+    {
+        return this.weightedSize;
+    }
+
+    /**
+     * @return the estimated memory retained by the cached documents, in bytes (0 when the weight is not bounded)
+     */
+    public long getWeight()
+    {
+        return this.weight;
+    }
+
+    /**
+     * @return the maximum estimated memory the cached documents can retain, in bytes (0 when unbounded)
+     */
+    public long getMaxWeight()
+    {
+        return this.maxWeight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("hits: %d, misses: %d, weight evictions: %d, weighted size: %d, weight: %d/%d",
+            this.hitCount, this.missCount, this.weightEvictionCount, this.weightedSize, this.weight, this.maxWeight);
+    }
+}
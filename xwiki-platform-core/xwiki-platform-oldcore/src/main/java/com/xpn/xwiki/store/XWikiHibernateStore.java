@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -117,6 +118,12 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface
 {
+    /**
+     * The maximum number of objects for which the properties are loaded with the same queries (some databases limit
+     * the number of values accepted in a {@code in} clause).
+     */
+    private static final int PROPERTIES_BATCH_SIZE = 500;
+
     @Inject
     private Logger logger;
 
@@ -944,6 +951,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                         localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
 
                     boolean hasGroups = false;
+                    List<BaseObject> objectsToLoad = new ArrayList<>();
                     while (it.hasNext()) {
                         BaseObject object = it.next();
                         DocumentReference classReference = object.getXClassReference();
@@ -977,11 +985,14 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                             // Groups objects are handled differently.
                             hasGroups = true;
                         } else {
-                            loadXWikiCollectionInternal(object, doc, context, false, true);
+                            objectsToLoad.add(object);
                         }
                         doc.setXObject(object.getNumber(), object);
                     }
 
+                    // Load the properties of all the objects at once instead of issuing several queries per object
+                    loadXWikiProperties(objectsToLoad, doc, context);
+
                     // AFAICT this was added as an emergency patch because loading of objects has proven
                     // too slow and the objects which cause the most overhead are the XWikiGroups objects
                     // as each group object (each group member) would otherwise cost 2 database queries.
@@ -1411,55 +1422,8 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
                         continue;
                     }
                     String classType = (String) result[1];
-                    BaseProperty property = null;
 
-                    try {
-                        property = (BaseProperty) Class.forName(classType).newInstance();
-                        property.setObject(object);
-                        property.setName(name);
-                        loadXWikiProperty(property, context, false);
-                    } catch (Exception e) {
-                        // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
-                        try {
-                            if (property instanceof StringProperty) {
-                                LargeStringProperty property2 = new LargeStringProperty();
-                                property2.setObject(object);
-                                property2.setName(name);
-                                loadXWikiProperty(property2, context, false);
-                                property.setValue(property2.getValue());
-
-                                if (bclass != null) {
-                                    if (bclass.get(name) instanceof TextAreaClass) {
-                                        property = property2;
-                                    }
-                                }
-
-                            } else if (property instanceof LargeStringProperty) {
-                                StringProperty property2 = new StringProperty();
-                                property2.setObject(object);
-                                property2.setName(name);
-                                loadXWikiProperty(property2, context, false);
-                                property.setValue(property2.getValue());
-
-                                if (bclass != null) {
-                                    if (bclass.get(name) instanceof StringClass) {
-                                        property = property2;
-                                    }
-                                }
-                            } else {
-                                throw e;
-                            }
-                        } catch (Throwable e2) {
-                            Object[] args =
-                                { object.getName(), object.getClass(), Integer.valueOf(object.getNumber() + ""), name };
-                            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
-                                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
-                                "Exception while loading object '{0}' of class '{1}', number '{2}' and property '{3}'",
-                                e, args);
-                        }
-                    }
-
-                    object.addField(name, property);
+                    object.addField(name, loadXWikiProperty(object, bclass, name, classType, context));
                 }
             }
 
@@ -1574,6 +1538,168 @@ public void deleteXWikiCollection(BaseCollection object, XWikiContext inputxcont
         }
     }
 
+    /**
+     * Load the properties of the passed objects with a constant number of queries: one to list the properties of a
+     * batch of objects and then one per property type. The objects using a custom mapping are loaded one by one.
+     */
+    void loadXWikiProperties(List<BaseObject> objects, XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        Map<Long, BaseObject> batch = new LinkedHashMap<>();
+        for (BaseObject object : objects) {
+            BaseClass bclass = getXClass(object, doc, context);
+            if (bclass != null && bclass.hasCustomMapping() && context.getWiki().hasCustomMappings()) {
+                loadXWikiCollectionInternal(object, doc, context, false, true);
+            } else {
+                batch.put(object.getId(), object);
+
+                if (batch.size() == PROPERTIES_BATCH_SIZE) {
+                    loadXWikiPropertiesBatch(batch, doc, context);
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            loadXWikiPropertiesBatch(batch, doc, context);
+        }
+    }
+
+    private void loadXWikiPropertiesBatch(Map<Long, BaseObject> objects, XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        Session session = getSession(context);
+
+        Query query = session.createQuery(
+            "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)");
+        query.setParameterList("ids", objects.keySet());
+        @SuppressWarnings("unchecked")
+        List<Object[]> properties = query.list();
+
+        Map<String, Set<Long>> idsByType = new HashMap<>();
+        for (Object[] result : properties) {
+            String classType = (String) result[2];
+            Set<Long> ids = idsByType.get(classType);
+            if (ids == null) {
+                ids = new HashSet<>();
+                idsByType.put(classType, ids);
+            }
+            ids.add((Long) result[0]);
+        }
+
+        // Load the values of all the properties stored in the same table at once
+        Map<Long, Map<String, BaseProperty>> loadedProperties = new HashMap<>();
+        for (Map.Entry<String, Set<Long>> entry : idsByType.entrySet()) {
+            String classType = entry.getKey();
+            if (session.getSessionFactory().getClassMetadata(classType) == null) {
+                // Not a mapped property type, let the property by property loading deal with it
+                continue;
+            }
+
+            Query propertiesQuery = session.createQuery(
+                "from " + classType + " as prop where prop.id.id in (:ids) and prop.classType = :classType");
+            propertiesQuery.setParameterList("ids", entry.getValue());
+            propertiesQuery.setString("classType", classType);
+            for (Object result : propertiesQuery.list()) {
+                BaseProperty property = (BaseProperty) result;
+                Map<String, BaseProperty> objectProperties = loadedProperties.get(property.getId());
+                if (objectProperties == null) {
+                    objectProperties = new HashMap<>();
+                    loadedProperties.put(property.getId(), objectProperties);
+                }
+                objectProperties.put(property.getName(), property);
+            }
+        }
+
+        for (Object[] result : properties) {
+            Long id = (Long) result[0];
+            String name = (String) result[1];
+            BaseObject object = objects.get(id);
+
+            Map<String, BaseProperty> objectProperties = loadedProperties.get(id);
+            BaseProperty property = objectProperties != null ? objectProperties.get(name) : null;
+            if (property != null) {
+                property.setObject(object);
+                initLoadedProperty(property);
+                if (property instanceof ListProperty) {
+                    ((ListProperty) property).getList();
+                }
+            } else {
+                // The value is not where the property type says it should be
+                property = loadXWikiProperty(object, getXClass(object, doc, context), name, (String) result[2],
+                    context);
+            }
+
+            object.addField(name, property);
+        }
+    }
+
+    private BaseClass getXClass(BaseCollection object, XWikiDocument doc, XWikiContext context)
+    {
+        DocumentReference classReference = object.getXClassReference();
+
+        if (classReference == null) {
+            return null;
+        } else if (!classReference.equals(object.getDocumentReference())) {
+            return object.getXClass(context);
+        } else {
+            // We need to get it from the document otherwise we will go in an endless loop
+            return doc != null ? doc.getXClass() : null;
+        }
+    }
+
+    private BaseProperty loadXWikiProperty(BaseCollection object, BaseClass bclass, String name, String classType,
+        XWikiContext context) throws XWikiException
+    {
+        BaseProperty property = null;
+
+        try {
+            property = (BaseProperty) Class.forName(classType).newInstance();
+            property.setObject(object);
+            property.setName(name);
+            loadXWikiProperty(property, context, false);
+        } catch (Exception e) {
+            // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
+            try {
+                if (property instanceof StringProperty) {
+                    LargeStringProperty property2 = new LargeStringProperty();
+                    property2.setObject(object);
+                    property2.setName(name);
+                    loadXWikiProperty(property2, context, false);
+                    property.setValue(property2.getValue());
+
+                    if (bclass != null) {
+                        if (bclass.get(name) instanceof TextAreaClass) {
+                            property = property2;
+                        }
+                    }
+
+                } else if (property instanceof LargeStringProperty) {
+                    StringProperty property2 = new StringProperty();
+                    property2.setObject(object);
+                    property2.setName(name);
+                    loadXWikiProperty(property2, context, false);
+                    property.setValue(property2.getValue());
+
+                    if (bclass != null) {
+                        if (bclass.get(name) instanceof StringClass) {
+                            property = property2;
+                        }
+                    }
+                } else {
+                    throw e;
+                }
+            } catch (Throwable e2) {
+                Object[] args = { object.getName(), object.getClass(), Integer.valueOf(object.getNumber() + ""), name };
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
+                    "Exception while loading object '{0}' of class '{1}', number '{2}' and property '{3}'", e, args);
+            }
+        }
+
+        return property;
+    }
+
     private void loadXWikiProperty(PropertyInterface property, XWikiContext context, boolean bTransaction)
         throws XWikiException
     {
@@ -1586,15 +1712,7 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
 
             try {
                 session.load(property, (Serializable) property);
-                // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
-                // safe to assume that a retrieved NULL value should actually be an empty string.
-                if (property instanceof BaseStringProperty) {
-                    BaseStringProperty stringProperty = (BaseStringProperty) property;
-                    if (stringProperty.getValue() == null) {
-                        stringProperty.setValue("");
-                    }
-                }
-                ((BaseProperty) property).setValueDirty(false);
+                initLoadedProperty((BaseProperty) property);
             } catch (ObjectNotFoundException e) {
                 // Let's accept that there is no data in property tables but log it
                 this.logger.error("No data for property [{}] of object id [{}]", property.getName(), property.getId());
@@ -1628,6 +1746,19 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
         }
     }
 
+    private void initLoadedProperty(BaseProperty property)
+    {
+        // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
+        // safe to assume that a retrieved NULL value should actually be an empty string.
+        if (property instanceof BaseStringProperty) {
+            BaseStringProperty stringProperty = (BaseStringProperty) property;
+            if (stringProperty.getValue() == null) {
+                stringProperty.setValue("");
+            }
+        }
+        property.setValueDirty(false);
+    }
+
     private void saveXWikiPropertyInternal(final PropertyInterface property, final XWikiContext context,
         final boolean runInOwnTransaction) throws XWikiException
     {
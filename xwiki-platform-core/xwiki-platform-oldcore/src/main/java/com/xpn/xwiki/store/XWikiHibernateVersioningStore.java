@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -28,6 +29,7 @@
 import javax.inject.Singleton;
 
 import org.hibernate.HibernateException;
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
@@ -57,6 +59,9 @@ public class XWikiHibernateVersioningStore extends XWikiHibernateBaseStore imple
     /** Logger. */
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiHibernateVersioningStore.class);
 
+    /** The maximum number of node contents loaded with a single query. */
+    private static final int CONTENTS_PER_QUERY = 100;
+
     /**
      * This allows to initialize our storage engine. The hibernate config file path is taken from xwiki.cfg or directly
      * in the WEB-INF directory.
@@ -105,6 +110,11 @@ public XWikiHibernateVersioningStore()
     public Version[] getXWikiDocVersions(XWikiDocument doc, XWikiContext context) throws XWikiException
     {
         try {
+            if (doc.getDocumentArchive() == null) {
+                // Don't load the whole archive when only the versions are needed
+                return loadXWikiDocVersions(doc, context);
+            }
+
             XWikiDocumentArchive archive = getXWikiDocumentArchive(doc, context);
             if (archive == null) {
                 return new Version[0];
@@ -201,10 +211,23 @@ public XWikiDocument loadXWikiDoc(XWikiDocument basedoc, String sversion, XWikiC
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
         try {
-            XWikiDocumentArchive archive = getXWikiDocumentArchive(basedoc, context);
             Version version = new Version(sversion);
 
-            XWikiDocument doc = archive.loadDocument(version, context);
+            XWikiDocument doc = null;
+            if (basedoc.getDocumentArchive() == null) {
+                // Only load the part of the history needed to rebuild the requested version
+                XWikiDocumentArchive archive = loadXWikiDocArchive(basedoc, version, context);
+                if (archive != null) {
+                    doc = archive.loadDocument(version, context);
+                    if (doc != null) {
+                        doc.setMostRecent(version.equals(basedoc.getRCSVersion()));
+                    }
+                }
+            }
+            if (doc == null) {
+                XWikiDocumentArchive archive = getXWikiDocumentArchive(basedoc, context);
+                doc = archive.loadDocument(version, context);
+            }
             if (doc == null) {
                 Object[] args = { basedoc.getDocumentReferenceWithLocale(), version.toString() };
                 throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
@@ -225,6 +248,121 @@ public XWikiDocument loadXWikiDoc(XWikiDocument basedoc, String sversion, XWikiC
         }
     }
 
+    /**
+     * Load the versions of the document history without loading the corresponding nodes.
+     *
+     * @param doc the document for which to load the versions
+     * @param inputxcontext the XWiki context
+     * @return the versions of the document, from the oldest to the latest
+     * @throws XWikiException if any error
+     */
+    private Version[] loadXWikiDocVersions(final XWikiDocument doc, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String db = context.getWikiId();
+        try {
+            if (doc.getDatabase() != null) {
+                context.setWikiId(doc.getDatabase());
+            }
+
+            List<Object[]> results = executeRead(context, true, new HibernateCallback<List<Object[]>>()
+            {
+                @SuppressWarnings("unchecked")
+                @Override
+                public List<Object[]> doInHibernate(Session session) throws HibernateException
+                {
+                    return session
+                        .createQuery("select rcs.id.version1, rcs.id.version2 from " + XWikiRCSNodeInfo.class.getName()
+                            + " as rcs where rcs.id.docId = :docId and rcs.diff is not null"
+                            + " order by rcs.id.version1, rcs.id.version2")
+                        .setLong("docId", doc.getId()).list();
+                }
+            });
+
+            Version[] versions = new Version[results.size()];
+            for (int i = 0; i < versions.length; i++) {
+                Object[] result = results.get(i);
+                versions[i] = new Version((Integer) result[0], (Integer) result[1]);
+            }
+
+            return versions;
+        } finally {
+            context.setWikiId(db);
+
+            restoreExecutionXContext();
+        }
+    }
+
+    /**
+     * Load the part of the document history going from the passed version to the nearest following version containing
+     * the full document, which is all that is needed to rebuild the passed version. The returned archive is not
+     * complete so it's not attached to the document.
+     *
+     * @param doc the document for which to load the history
+     * @param version the version to rebuild
+     * @param inputxcontext the XWiki context
+     * @return the partial archive or null if no full version could be found
+     * @throws XWikiException if any error
+     */
+    XWikiDocumentArchive loadXWikiDocArchive(final XWikiDocument doc, final Version version,
+        XWikiContext inputxcontext) throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String db = context.getWikiId();
+        try {
+            if (doc.getDatabase() != null) {
+                context.setWikiId(doc.getDatabase());
+            }
+
+            List<XWikiRCSNodeInfo> nodes = executeRead(context, true, new HibernateCallback<List<XWikiRCSNodeInfo>>()
+            {
+                @SuppressWarnings("unchecked")
+                @Override
+                public List<XWikiRCSNodeInfo> doInHibernate(Session session) throws HibernateException
+                {
+                    String fromVersion =
+                        " and (rcs.id.version1 > :v1 or (rcs.id.version1 = :v1 and rcs.id.version2 >= :v2))";
+
+                    List<Object[]> fullVersions = session
+                        .createQuery("select rcs.id.version1, rcs.id.version2 from " + XWikiRCSNodeInfo.class.getName()
+                            + " as rcs where rcs.id.docId = :docId and rcs.diff = false" + fromVersion
+                            + " order by rcs.id.version1, rcs.id.version2")
+                        .setLong("docId", doc.getId()).setInteger("v1", version.at(0))
+                        .setInteger("v2", version.at(1)).setMaxResults(1).list();
+                    if (fullVersions.isEmpty()) {
+                        return null;
+                    }
+
+                    Object[] fullVersion = fullVersions.get(0);
+                    return session
+                        .createQuery("from " + XWikiRCSNodeInfo.class.getName()
+                            + " as rcs where rcs.id.docId = :docId and rcs.diff is not null" + fromVersion
+                            + " and (rcs.id.version1 < :fullv1"
+                            + " or (rcs.id.version1 = :fullv1 and rcs.id.version2 <= :fullv2))")
+                        .setLong("docId", doc.getId()).setInteger("v1", version.at(0))
+                        .setInteger("v2", version.at(1)).setInteger("fullv1", (Integer) fullVersion[0])
+                        .setInteger("fullv2", (Integer) fullVersion[1]).list();
+                }
+            });
+
+            if (nodes == null) {
+                return null;
+            }
+
+            XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+            archive.setNodes(nodes);
+
+            return archive;
+        } finally {
+            context.setWikiId(db);
+
+            restoreExecutionXContext();
+        }
+    }
+
     @Override
     public void resetRCSArchive(final XWikiDocument doc, boolean bTransaction, final XWikiContext inputxcontext)
         throws XWikiException
@@ -317,6 +455,52 @@ public XWikiRCSNodeContent doInHibernate(Session session) throws HibernateExcept
         });
     }
 
+    @Override
+    public List<XWikiRCSNodeContent> loadRCSNodeContents(final Collection<XWikiRCSNodeId> ids, boolean bTransaction,
+        XWikiContext context) throws XWikiException
+    {
+        return executeRead(context, bTransaction, new HibernateCallback<List<XWikiRCSNodeContent>>()
+        {
+            @SuppressWarnings("unchecked")
+            @Override
+            public List<XWikiRCSNodeContent> doInHibernate(Session session) throws HibernateException
+            {
+                List<XWikiRCSNodeContent> contents = new ArrayList<>(ids.size());
+
+                // Group the versions in a few requests to not end up with a too big query
+                List<XWikiRCSNodeId> idList = new ArrayList<>(ids);
+                for (int start = 0; start < idList.size(); start += CONTENTS_PER_QUERY) {
+                    List<XWikiRCSNodeId> batch =
+                        idList.subList(start, Math.min(start + CONTENTS_PER_QUERY, idList.size()));
+
+                    StringBuilder statement = new StringBuilder("from ");
+                    statement.append(XWikiRCSNodeContent.class.getName());
+                    statement.append(" as rcs where rcs.id.docId = :docId and (");
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (i > 0) {
+                            statement.append(" or ");
+                        }
+                        statement.append("(rcs.id.version1 = :v1_").append(i);
+                        statement.append(" and rcs.id.version2 = :v2_").append(i).append(')');
+                    }
+                    statement.append(')');
+
+                    Query query = session.createQuery(statement.toString());
+                    query.setLong("docId", batch.get(0).getDocId());
+                    for (int i = 0; i < batch.size(); i++) {
+                        Version version = batch.get(i).getVersion();
+                        query.setInteger("v1_" + i, version.at(0));
+                        query.setInteger("v2_" + i, version.at(1));
+                    }
+
+                    contents.addAll(query.list());
+                }
+
+                return contents;
+            }
+        });
+    }
+
     @Override
     public void deleteArchive(final XWikiDocument doc, boolean bTransaction, XWikiContext context) throws XWikiException
     {
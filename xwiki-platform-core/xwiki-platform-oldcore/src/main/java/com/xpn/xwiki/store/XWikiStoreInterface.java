@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
@@ -41,6 +42,28 @@
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load several documents at once. All the passed documents must belong to the wiki of the passed context.
+     * <p>
+     * The default implementation loads the documents one by one.
+     *
+     * @param docs the documents to load
+     * @param context the XWiki context
+     * @return the loaded documents, in the same order as the passed documents (the documents which don't exist are
+     *         returned with {@link XWikiDocument#isNew()} set to true)
+     * @throws XWikiException when failing to load one of the documents
+     * @since 10.11RC1
+     */
+    default List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> docs, XWikiContext context) throws XWikiException
+    {
+        List<XWikiDocument> loadedDocs = new ArrayList<>(docs.size());
+        for (XWikiDocument doc : docs) {
+            loadedDocs.add(loadXWikiDoc(doc, context));
+        }
+
+        return loadedDocs;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
@@ -19,6 +19,10 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.suigeneris.jrcs.rcs.Version;
 import org.xwiki.component.annotation.Role;
 
@@ -69,4 +73,26 @@ void saveXWikiDocArchive(XWikiDocumentArchive archivedoc, boolean bTransaction,
      */
     XWikiRCSNodeContent loadRCSNodeContent(XWikiRCSNodeId id, boolean bTransaction, XWikiContext context)
         throws XWikiException;
+
+    /**
+     * Load several {@link XWikiRCSNodeContent} at once. Used to avoid one request per version when a document version
+     * has to be rebuilt by applying a list of patches.
+     *
+     * @param ids the node ids to load (see {@link XWikiRCSNodeContent#getId()})
+     * @param bTransaction true if a new transaction should be created
+     * @param context the XWiki context
+     * @return the RCS node contents for the passed node ids
+     * @throws XWikiException when failing to load the node contents
+     * @since 10.11RC1
+     */
+    default List<XWikiRCSNodeContent> loadRCSNodeContents(Collection<XWikiRCSNodeId> ids, boolean bTransaction,
+        XWikiContext context) throws XWikiException
+    {
+        List<XWikiRCSNodeContent> contents = new ArrayList<>(ids.size());
+        for (XWikiRCSNodeId id : ids) {
+            contents.add(loadRCSNodeContent(id, bTransaction, context));
+        }
+
+        return contents;
+    }
 }
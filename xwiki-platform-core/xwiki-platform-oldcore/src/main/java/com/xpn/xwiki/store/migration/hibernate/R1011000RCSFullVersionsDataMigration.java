@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store.migration.hibernate;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
+import com.xpn.xwiki.store.migration.DataMigrationException;
+import com.xpn.xwiki.store.migration.XWikiDBVersion;
+
+/**
+ * Store the full document regularly in the history of the documents where only the latest version is full (typically
+ * histories imported from a XAR) so that rebuilding an old version does not require applying thousands of patches.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component
+@Named("R1011000RCSFullVersions")
+@Singleton
+public class R1011000RCSFullVersionsDataMigration extends AbstractHibernateDataMigration
+{
+    @Inject
+    private Logger logger;
+
+    @Override
+    public String getDescription()
+    {
+        return "Regularly store the full document in the history of the documents.";
+    }
+
+    @Override
+    public XWikiDBVersion getVersion()
+    {
+        return new XWikiDBVersion(1011000);
+    }
+
+    private XWikiVersioningStoreInterface getVersioningStore() throws XWikiException
+    {
+        try {
+            return this.componentManager.getInstance(XWikiVersioningStoreInterface.class,
+                XWikiHibernateBaseStore.HINT);
+        } catch (ComponentLookupException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_STORE_MIGRATION,
+                String.format("Unable to reach the versioning store for database %s", getXWikiContext().getWikiId()),
+                e);
+        }
+    }
+
+    @Override
+    protected void hibernateMigrate() throws DataMigrationException, XWikiException
+    {
+        XWikiContext xcontext = getXWikiContext();
+        int nodesPerFull = XWikiDocumentArchive.getNodesPerFull(xcontext);
+        if (nodesPerFull <= 0) {
+            // Only the latest version is supposed to be full
+            return;
+        }
+
+        XWikiVersioningStoreInterface versioningStore = getVersioningStore();
+        for (Long docId : getDocumentsWithoutFullVersions(nodesPerFull)) {
+            // Each document is updated in its own transaction to not keep the whole history in memory
+            XWikiDocumentArchive archive = new XWikiDocumentArchive(docId);
+            versioningStore.loadXWikiDocArchive(archive, true, xcontext);
+            if (archive.updateFullVersions(nodesPerFull, xcontext)) {
+                this.logger.info("Adding full versions to the history of document with id [{}]...", docId);
+
+                versioningStore.saveXWikiDocArchive(archive, true, xcontext);
+            }
+        }
+    }
+
+    private List<Long> getDocumentsWithoutFullVersions(int nodesPerFull) throws DataMigrationException, XWikiException
+    {
+        return getStore().executeRead(getXWikiContext(), new HibernateCallback<List<Long>>()
+        {
+            @SuppressWarnings("unchecked")
+            @Override
+            public List<Long> doInHibernate(Session session) throws HibernateException, XWikiException
+            {
+                // A history respecting the rule has at least one full version every nodesPerFull versions
+                return session
+                    .createQuery("select rcs.id.docId from " + XWikiRCSNodeInfo.class.getName()
+                        + " as rcs where rcs.diff is not null group by rcs.id.docId"
+                        + " having count(rcs) > :nodesPerFull * sum(case when rcs.diff = false then 1 else 0 end)")
+                    .setLong("nodesPerFull", nodesPerFull).list();
+            }
+        });
+    }
+}
@@ -21,13 +21,16 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -90,8 +93,36 @@ public class DownloadAction extends XWikiAction
     /** The name of the HTTP Header that signals a byte-range request. */
     private static final String RANGE_HEADER_NAME = "Range";
 
-    /** The format of a valid range header. */
-    private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
+    /** The name of the HTTP Header that makes a byte-range request conditional. */
+    private static final String IF_RANGE_HEADER_NAME = "If-Range";
+
+    /** The name of the HTTP Header holding the entity tags known by the client. */
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
+
+    /** The name of the HTTP Header holding the entity tag of the attachment. */
+    private static final String ETAG_HEADER_NAME = "ETag";
+
+    /** The name of the HTTP Header describing the returned byte range. */
+    private static final String CONTENT_RANGE_HEADER_NAME = "Content-Range";
+
+    /** The prefix of the byte ranges. */
+    private static final String BYTES_PREFIX = "bytes";
+
+    /** The format of a valid range header, with one or several byte ranges. */
+    private static final Pattern RANGE_HEADER_PATTERN =
+        Pattern.compile("bytes=[0-9]*-[0-9]*(\\s*,\\s*[0-9]*-[0-9]*)*");
+
+    /** The format of a byte range. */
+    private static final Pattern BYTE_RANGE_PATTERN = Pattern.compile("([0-9]+)?-([0-9]+)?");
+
+    /**
+     * The maximum number of ranges accepted in a request, beyond which the full content is sent. Prevents clients from
+     * requesting many small or overlapping ranges.
+     */
+    private static final int MAX_RANGES = 16;
+
+    /** The line separator used in the multipart responses. */
+    private static final String CRLF = "\r\n";
 
     /**
      * Default constructor.
@@ -163,15 +194,14 @@ public String render(XWikiContext context) throws XWikiException
                     "Attachment content {0} not found", null, args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+            if (isNotModified(attachment, request)) {
+                response.setHeader(ETAG_HEADER_NAME, getETag(attachment));
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return null;
             }
 
             // Sending the content of the attachment
-            if (request.getHeader(RANGE_HEADER_NAME) != null) {
+            if (request.getHeader(RANGE_HEADER_NAME) != null && isRangeApplicable(attachment, request)) {
                 try {
                     if (sendPartialContent(attachment, request, response, context)) {
                         return null;
@@ -197,9 +227,78 @@ private void throwNotFoundException(String filename) throws XWikiException
             XWikiException.ERROR_XWIKI_APP_ATTACHMENT_NOT_FOUND, message);
     }
 
+    /**
+     * Check if the client already has the current version of the attachment, using the entity tags it knows if any,
+     * or the date of its copy otherwise.
+     *
+     * @param attachment the requested attachment
+     * @param request the current client request
+     * @return {@code true} if the attachment has not been modified since the client got it
+     */
+    private boolean isNotModified(XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+        if (ifNoneMatch != null) {
+            String etag = getETag(attachment);
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                // Weak comparison, as required for If-None-Match
+                String tag = StringUtils.removeStart(clientETag.trim(), "W/");
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+        long lastModifiedOnServer = attachment.getDate().getTime();
+
+        return lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer;
+    }
+
+    /**
+     * Check the {@code If-Range} header, which asks to send the whole content instead of the requested ranges when the
+     * attachment has changed since the client got the first part of it.
+     *
+     * @param attachment the requested attachment
+     * @param request the current client request
+     * @return {@code true} if the requested ranges should be sent
+     */
+    private boolean isRangeApplicable(XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifRange = request.getHeader(IF_RANGE_HEADER_NAME);
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.trim().startsWith("\"")) {
+            // Strong comparison, as required for If-Range
+            return getETag(attachment).equals(ifRange.trim());
+        }
+
+        try {
+            return request.getDateHeader(IF_RANGE_HEADER_NAME) == attachment.getDate().getTime() / 1000L * 1000L;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The entity tag of an attachment changes with each version of the attachment. The date is included since an
+     * attachment deleted and then uploaded again starts again with the first version.
+     *
+     * @param attachment the attachment
+     * @return the strong entity tag of the attachment
+     */
+    private String getETag(XWikiAttachment attachment)
+    {
+        return String.format("\"%s-%d\"", attachment.getVersion(), attachment.getDate().getTime());
+    }
+
     /**
      * Respond to a range request, either with the requested bytes, or with a {@code 416 REQUESTED RANGE NOT
-     * SATISFIABLE} response if the requested byte range falls outside the length of the attachment. If the range
+     * SATISFIABLE} response if the requested byte ranges all fall outside the length of the attachment. If the range
      * request header is syntactically invalid, nothing is written, and instead {@code false} is returned, letting the
      * action handler ignore the Range header and treat this as a normal (full) download request.
      *
@@ -219,33 +318,56 @@ private boolean sendPartialContent(final XWikiAttachment attachment,
         throws XWikiException, IOException
     {
         String range = request.getHeader(RANGE_HEADER_NAME);
-        Matcher m = RANGE_HEADER_PATTERN.matcher(range);
-        if (m.matches()) {
-            String startStr = m.group(1);
-            String endStr = m.group(2);
-            Long start = NumberUtils.createLong(startStr);
-            Long end = NumberUtils.createLong(endStr);
+        if (!RANGE_HEADER_PATTERN.matcher(range).matches()) {
+            return false;
+        }
+
+        String[] byteRanges = StringUtils.split(range.substring(BYTES_PREFIX.length() + 1), ',');
+        if (byteRanges.length > MAX_RANGES) {
+            return false;
+        }
+
+        long size = attachment.getContentLongSize(context);
+        List<long[]> ranges = new ArrayList<>(byteRanges.length);
+        for (String byteRange : byteRanges) {
+            Matcher m = BYTE_RANGE_PATTERN.matcher(byteRange.trim());
+            if (!m.matches()) {
+                return false;
+            }
+            Long start = NumberUtils.createLong(m.group(1));
+            Long end = NumberUtils.createLong(m.group(2));
             if (start == null && end != null && end > 0) {
                 // Tail request, output the last <end> bytes
-                start = Math.max(attachment.getContentLongSize(context) - end, 0L);
-                end = attachment.getContentLongSize(context) - 1L;
+                start = Math.max(size - end, 0L);
+                end = size - 1L;
             }
             if (!isValidRange(start, end)) {
                 return false;
             }
             if (end == null) {
-                end = attachment.getContentSize(context) - 1L;
+                end = size - 1L;
+            }
+            end = Math.min(end, size - 1L);
+            // Ranges starting after the end of the content are ignored
+            if (start != null && start >= 0 && start < size) {
+                ranges.add(new long[] { start, end });
             }
-            end = Math.min(end, attachment.getContentSize(context) - 1L);
-            writeByteRange(attachment, start, end, request, response, context);
-            return true;
         }
-        return false;
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(CONTENT_RANGE_HEADER_NAME, BYTES_PREFIX + " */" + size);
+        } else if (ranges.size() == 1) {
+            writeByteRange(attachment, ranges.get(0)[0], ranges.get(0)[1], request, response, context);
+        } else {
+            writeByteRanges(attachment, ranges, request, response, context);
+        }
+
+        return true;
     }
 
     /**
-     * Write a byte range from the attachment to the response, if the requested range is valid and falls within the file
-     * limits.
+     * Write a byte range from the attachment to the response.
      *
      * @param attachment the attachment to get content from
      * @param start the first byte to write
@@ -256,27 +378,75 @@ private boolean sendPartialContent(final XWikiAttachment attachment,
      * @throws XWikiException if the attachment content cannot be retrieved
      * @throws IOException if the response cannot be written
      */
-    private void writeByteRange(final XWikiAttachment attachment, Long start, Long end,
+    private void writeByteRange(final XWikiAttachment attachment, long start, long end,
         final XWikiRequest request,
         final XWikiResponse response,
         final XWikiContext context)
         throws XWikiException, IOException
     {
-        if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
-            setCommonHeaders(attachment, request, response, context);
-            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-            if ((end - start + 1L) < Integer.MAX_VALUE) {
-                response.setContentLength((int) (end - start + 1));
-            }
-            response.setHeader("Content-Range", "bytes " + start + "-" + end + SEPARATOR
-                + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
-        } else {
-            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        setContentTypeHeaders(attachment, response, context);
+        setCommonHeaders(attachment, request, response, context);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if ((end - start + 1L) < Integer.MAX_VALUE) {
+            response.setContentLength((int) (end - start + 1));
         }
+        response.setHeader(CONTENT_RANGE_HEADER_NAME, getContentRange(start, end, attachment, context));
+        writeContent(attachment, start, end - start + 1, response.getOutputStream(), context);
+    }
+
+    /**
+     * Write several byte ranges from the attachment to the response, as a {@code multipart/byteranges} content.
+     *
+     * @param attachment the attachment to get content from
+     * @param ranges the first and last bytes of each range to write
+     * @param request the current client request
+     * @param response the response to write to.
+     * @param context the current request context
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the response cannot be written
+     */
+    private void writeByteRanges(final XWikiAttachment attachment, List<long[]> ranges,
+        final XWikiRequest request,
+        final XWikiResponse response,
+        final XWikiContext context)
+        throws XWikiException, IOException
+    {
+        String boundary = UUID.randomUUID().toString();
+        String mimetype = attachment.getMimeType(context);
+
+        // Prepare the headers of each part first in order to know the length of the response
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long length = 0;
+        for (long[] range : ranges) {
+            String partHeader = CRLF + "--" + boundary + CRLF
+                + "Content-Type: " + mimetype + CRLF
+                + CONTENT_RANGE_HEADER_NAME + ": " + getContentRange(range[0], range[1], attachment, context) + CRLF
+                + CRLF;
+            partHeaders.add(partHeader.getBytes(StandardCharsets.ISO_8859_1));
+            length += partHeaders.get(partHeaders.size() - 1).length + range[1] - range[0] + 1;
+        }
+        byte[] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.ISO_8859_1);
+        length += end.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        setCommonHeaders(attachment, request, response, context);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (length < Integer.MAX_VALUE) {
+            response.setContentLength((int) length);
+        }
+
+        OutputStream out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); ++i) {
+            out.write(partHeaders.get(i));
+            writeContent(attachment, ranges.get(i)[0], ranges.get(i)[1] - ranges.get(i)[0] + 1, out, context);
+        }
+        out.write(end);
+    }
+
+    private String getContentRange(long start, long end, XWikiAttachment attachment, XWikiContext context)
+        throws XWikiException
+    {
+        return BYTES_PREFIX + " " + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context);
     }
 
     /**
@@ -296,20 +466,41 @@ private void sendContent(final XWikiAttachment attachment,
         final XWikiContext context)
         throws XWikiException
     {
-        InputStream stream = null;
         try {
+            setContentTypeHeaders(attachment, response, context);
             setCommonHeaders(attachment, request, response, context);
             response.setContentLength(attachment.getContentSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            writeContent(attachment, 0, attachment.getContentLongSize(context), response.getOutputStream(), context);
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION,
                 "Exception while sending response", e);
-        } finally {
-            if (stream != null) {
-                IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Write a part of the attachment content.
+     *
+     * @param attachment the attachment to get content from
+     * @param start the first byte to write
+     * @param length the number of bytes to write
+     * @param out where to write the content
+     * @param context the current request context
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the content cannot be written
+     */
+    private void writeContent(XWikiAttachment attachment, long start, long length, OutputStream out,
+        XWikiContext context) throws XWikiException, IOException
+    {
+        InputStream data = attachment.getContentInputStream(context);
+        try {
+            if (start > 0 || length < attachment.getContentLongSize(context)) {
+                data = new BoundedInputStream(data, start + length);
+                data.skip(start);
             }
+            IOUtils.copyLarge(data, out);
+        } finally {
+            IOUtils.closeQuietly(data);
         }
     }
 
@@ -427,15 +618,13 @@ private XWikiAttachment getAttachment(XWikiRequest request, XWikiDocument docume
     }
 
     /**
-     * Set the response HTTP headers common to both partial (Range) and full responses.
+     * Set the response HTTP headers describing the type of a single part content.
      *
      * @param attachment the attachment to get content from
-     * @param request the current client request
      * @param response the response to write to.
      * @param context the current request context
      */
-    private void setCommonHeaders(final XWikiAttachment attachment,
-        final XWikiRequest request,
+    private void setContentTypeHeaders(final XWikiAttachment attachment,
         final XWikiResponse response,
         final XWikiContext context)
     {
@@ -448,6 +637,22 @@ private void setCommonHeaders(final XWikiAttachment attachment,
         if (characterEncoding != null) {
             response.setCharacterEncoding(characterEncoding);
         }
+    }
+
+    /**
+     * Set the response HTTP headers common to both partial (Range) and full responses.
+     *
+     * @param attachment the attachment to get content from
+     * @param request the current client request
+     * @param response the response to write to.
+     * @param context the current request context
+     */
+    private void setCommonHeaders(final XWikiAttachment attachment,
+        final XWikiRequest request,
+        final XWikiResponse response,
+        final XWikiContext context)
+    {
+        String mimetype = attachment.getMimeType(context);
 
         String ofilename =
             Util.encodeURI(attachment.getFilename(), context).replaceAll("\\+", "%20");
@@ -478,6 +683,7 @@ private void setCommonHeaders(final XWikiAttachment attachment,
         response.addHeader("Content-disposition", dispType + "; filename*=utf-8''" + ofilename);
 
         response.setDateHeader("Last-Modified", attachment.getDate().getTime());
+        response.setHeader(ETAG_HEADER_NAME, getETag(attachment));
         // Advertise that downloads can be resumed
         response.setHeader("Accept-Ranges", "bytes");
     }
@@ -326,6 +326,35 @@ public void testVerifyDiffAndFullRevisionAlgorithm() throws Exception
         assertFalse(archive.getNode(new Version(6, 1)).isDiff());
     }
 
+    public void testUpdateFullVersions() throws Exception
+    {
+        // Build a history where only the latest version is full, like an imported one
+        XWikiConfig config = new XWikiConfig();
+        config.setProperty("xwiki.store.rcs.nodesPerFull", "0");
+        this.mockXWiki.stubs().method("getConfig").will(returnValue(config));
+
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        String author = "XWiki.some author";
+        for (int i = 1; i <= 12; i++) {
+            addRevisionToHistory(archive, doc, "content " + i + ".1", author, i + ".1");
+        }
+        for (int i = 1; i <= 11; i++) {
+            assertTrue(archive.getNode(new Version(i, 1)).isDiff());
+        }
+
+        assertTrue(archive.updateFullVersions(5, this.context));
+
+        // Versions are counted from the latest one, which is always full
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(i != 2 && i != 7 && i != 12, archive.getNode(new Version(i, 1)).isDiff());
+            assertEquals("content " + i + ".1", archive.loadDocument(new Version(i, 1), this.context).getContent());
+        }
+
+        // Nothing to do the second time
+        assertFalse(archive.updateFullVersions(5, this.context));
+    }
+
     private void addRevisionToHistory(XWikiDocumentArchive archive, XWikiDocument document, String content,
         String author, String comment) throws XWikiException
     {
@@ -49,6 +49,8 @@
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -131,6 +133,18 @@ public void testRenderWiki() throws Exception
         assertEquals("<p>first line<br/>second line</p>", mocker.getComponentUnderTest().render("template"));
     }
 
+    @Test
+    public void testRenderWikiTwice() throws Exception
+    {
+        setTemplateContent("##!source.syntax=xwiki/2.1\nfirst line\\\\second line");
+
+        assertEquals("<p>first line<br/>second line</p>", mocker.getComponentUnderTest().render("template"));
+        assertEquals("<p>first line<br/>second line</p>", mocker.getComponentUnderTest().render("template"));
+
+        // The content of the template is read and parsed only once
+        verify(this.environmentMock, times(1)).getResourceAsStream("/templates/template");
+    }
+
     @Test
     public void testRenderClassloaderTemplate() throws ComponentLookupException, Exception
     {
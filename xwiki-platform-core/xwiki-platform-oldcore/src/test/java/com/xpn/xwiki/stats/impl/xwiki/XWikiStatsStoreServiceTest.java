@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XWikiStatsStoreService}.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class XWikiStatsStoreServiceTest
+{
+    private final List<List<XWikiStatsStoreItem>> stored = Collections.synchronizedList(new ArrayList<>());
+
+    private XWikiContext context;
+
+    private XWikiStatsStoreService service;
+
+    private class TestStatsStoreItem extends AbstractStatsStoreItem
+    {
+        TestStatsStoreItem(String name, boolean isVisit)
+        {
+            super(name, new Date(), PeriodType.MONTH, context);
+
+            if (isVisit) {
+                countVisit();
+            }
+        }
+
+        @Override
+        public String getId()
+        {
+            return this.name;
+        }
+
+        @Override
+        public void store(List<XWikiStatsStoreItem> statsList)
+        {
+            storeInternal(statsList);
+        }
+
+        @Override
+        protected void storeInternal(List<XWikiStatsStoreItem> statsList)
+        {
+            stored.add(statsList);
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        this.context = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(this.context.getWiki()).thenReturn(xwiki);
+        when(this.context.clone()).thenReturn(this.context);
+        when(this.context.getWikiId()).thenReturn("wiki");
+        when(xwiki.ParamAsLong(anyString(), anyLong())).then(invocation -> invocation.getArgument(1));
+
+        this.service = new XWikiStatsStoreService(this.context);
+    }
+
+    @Test
+    public void aggregateConcurrentHits() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; ++i) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; ++j) {
+                    this.service.add(new TestStatsStoreItem("Space.Page", j % 10 == 0));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        this.service.flush();
+
+        assertEquals(1, this.stored.size());
+        AbstractStatsStoreItem item = (AbstractStatsStoreItem) this.stored.get(0).get(0);
+        assertEquals(4000, item.getHits());
+        assertEquals(400, item.getVisits());
+    }
+
+    @Test
+    public void hitsAfterFlushGoToANewItem()
+    {
+        this.service.add(new TestStatsStoreItem("Space.Page", false));
+        this.service.add(new TestStatsStoreItem("Space.Other", false));
+        this.service.flush();
+
+        assertEquals(2, this.stored.size());
+
+        this.service.add(new TestStatsStoreItem("Space.Page", false));
+        this.service.flush();
+
+        assertEquals(3, this.stored.size());
+        assertEquals(1, ((AbstractStatsStoreItem) this.stored.get(2).get(0)).getHits());
+    }
+}
@@ -19,6 +19,11 @@
  */
 package com.xpn.xwiki.store;
 
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,15 +35,20 @@
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
 import org.xwiki.test.annotation.ComponentList;
 
+import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -115,4 +125,110 @@ public void testLoadXWikiDoc() throws Exception
         verifyNoMoreInteractions(this.cache);
         verifyNoMoreInteractions(this.existCache);
     }
+
+    @Test
+    public void testLoadXWikiDocs() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        this.oldcore.getSpyXWiki().saveDocument(new XWikiDocument(new DocumentReference("wiki", "space", "page")),
+            this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument cachedDocument = new XWikiDocument(new DocumentReference("wiki", "space", "cachedpage"));
+        when(this.cache.get("4:wiki5:space10:cachedpage")).thenReturn(cachedDocument);
+
+        List<XWikiDocument> documents = store.loadXWikiDocs(
+            Arrays.asList(new XWikiDocument(new DocumentReference("wiki", "space", "page")),
+                new XWikiDocument(new DocumentReference("wiki", "space", "cachedpage")),
+                new XWikiDocument(new DocumentReference("wiki", "space", "nopage"))),
+            this.oldcore.getXWikiContext());
+
+        assertEquals(3, documents.size());
+        assertFalse(documents.get(0).isNew());
+        assertEquals(new DocumentReference("wiki", "space", "page"), documents.get(0).getDocumentReference());
+        assertSame(cachedDocument, documents.get(1));
+        assertTrue(documents.get(2).isNew());
+
+        // Only the documents which were not in the cache have been loaded from the store
+        verify(this.oldcore.getMockStore()).loadXWikiDocs(
+            argThat(docs -> docs.size() == 2 && docs.get(0).getDocumentReference().getName().equals("page")
+                && docs.get(1).getDocumentReference().getName().equals("nopage")),
+            any());
+        verify(this.cache).set(eq("4:wiki5:space4:page"), any(XWikiDocument.class));
+        verify(this.existCache).set("4:wiki5:space4:page", Boolean.TRUE);
+        verify(this.existCache).set("4:wiki5:space6:nopage", Boolean.FALSE);
+    }
+
+    @Test
+    public void testLoadXWikiDocWhenMaxWeightIsReached() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.store.cache.maxweight", 1);
+
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        XWikiDocument page1 = new XWikiDocument(new DocumentReference("wiki", "space", "page1"));
+        page1.setContent(StringUtils.repeat('a', 150000));
+        this.oldcore.getSpyXWiki().saveDocument(page1, this.oldcore.getXWikiContext());
+        XWikiDocument page2 = new XWikiDocument(new DocumentReference("wiki", "space", "page2"));
+        page2.setContent(StringUtils.repeat('b', 150000));
+        this.oldcore.getSpyXWiki().saveDocument(page2, this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        store.loadXWikiDoc(new XWikiDocument(page1.getDocumentReference()), this.oldcore.getXWikiContext());
+
+        verify(this.cache, never()).remove(any());
+        assertEquals(1, store.getStatistics().getWeightedSize());
+
+        store.loadXWikiDoc(new XWikiDocument(page2.getDocumentReference()), this.oldcore.getXWikiContext());
+
+        // Both documents don't fit in 1MB so the least recently used one is removed from the cache
+        verify(this.cache).remove("4:wiki5:space5:page1");
+
+        XWikiCacheStoreStatistics statistics = store.getStatistics();
+        assertEquals(1, statistics.getWeightEvictionCount());
+        assertEquals(1, statistics.getWeightedSize());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(1024L * 1024L, statistics.getMaxWeight());
+        assertTrue(statistics.getWeight() > 600000);
+    }
+
+    @Test
+    public void testLoadXWikiDocWhenAttachmentContentIsLoaded() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.store.cache.maxweight", 1);
+
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        XWikiDocument page1 = new XWikiDocument(new DocumentReference("wiki", "space", "page1"));
+        this.oldcore.getSpyXWiki().saveDocument(page1, this.oldcore.getXWikiContext());
+        XWikiDocument page2 = new XWikiDocument(new DocumentReference("wiki", "space", "page2"));
+        page2.setAttachment(new XWikiAttachment(page2, "file.txt"));
+        this.oldcore.getSpyXWiki().saveDocument(page2, this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        store.loadXWikiDoc(new XWikiDocument(page1.getDocumentReference()), this.oldcore.getXWikiContext());
+        XWikiDocument cachedPage2 =
+            store.loadXWikiDoc(new XWikiDocument(page2.getDocumentReference()), this.oldcore.getXWikiContext());
+
+        // The content of the attachment is not loaded yet
+        long weight = store.getStatistics().getWeight();
+        assertTrue(weight < 100000);
+        assertEquals(2, store.getStatistics().getWeightedSize());
+
+        // Load the content of the attachment in the cached document
+        cachedPage2.getAttachment("file.txt").setContent(new ByteArrayInputStream(new byte[1100000]));
+        when(this.cache.get("4:wiki5:space5:page2")).thenReturn(cachedPage2);
+
+        assertSame(cachedPage2,
+            store.loadXWikiDoc(new XWikiDocument(page2.getDocumentReference()), this.oldcore.getXWikiContext()));
+
+        // The weight of the document is updated and the other document is removed from the cache
+        verify(this.cache).remove("4:wiki5:space5:page1");
+        XWikiCacheStoreStatistics statistics = store.getStatistics();
+        assertEquals(1, statistics.getWeightEvictionCount());
+        assertEquals(1, statistics.getWeightedSize());
+        assertTrue(statistics.getWeight() > 1100000);
+        assertEquals(1, statistics.getHitCount());
+    }
 }
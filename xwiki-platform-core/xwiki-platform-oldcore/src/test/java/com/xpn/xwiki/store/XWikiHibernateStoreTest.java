@@ -19,19 +19,26 @@
  */
 package com.xpn.xwiki.store;
 
+import java.io.Serializable;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.hibernate.FlushMode;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.id.SequenceGenerator;
+import org.hibernate.metadata.ClassMetadata;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -47,15 +54,22 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.StringProperty;
 import com.xpn.xwiki.store.migration.DataMigrationManager;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -330,4 +344,123 @@ public void getTranslationList() throws Exception
         verify(query).bindValue("space", "Path.To");
         verify(query).bindValue("name", documentReference.getName());
     }
+
+    @Test
+    public void loadXWikiPropertiesInBatches() throws Exception
+    {
+        // More objects than a single batch can hold
+        int objectCount = 1200;
+        long objectWithMissingValue = 1100;
+
+        List<BaseObject> objects = new ArrayList<>();
+        Map<Long, Map<String, BaseProperty>> fields = new HashMap<>();
+        for (long id = 1; id <= objectCount; id++) {
+            BaseObject object = mock(BaseObject.class);
+            when(object.getId()).thenReturn(id);
+            Map<String, BaseProperty> objectFields = new HashMap<>();
+            doAnswer(invocation -> objectFields.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(object).addField(anyString(), any());
+            objects.add(object);
+            fields.put(id, objectFields);
+        }
+
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(this.session.getSessionFactory()).thenReturn(sessionFactory);
+        when(sessionFactory.getClassMetadata(anyString())).thenReturn(mock(ClassMetadata.class));
+
+        List<Collection<Long>> listedIds = new ArrayList<>();
+        List<String> loadedTypes = new ArrayList<>();
+        when(this.session.createQuery(anyString())).then(invocation -> {
+            String statement = invocation.getArgument(0);
+            Query query = mock(Query.class, RETURNS_SELF);
+            List<Long> ids = new ArrayList<>();
+            when(query.setParameterList(eq("ids"), anyCollection())).then(parameterInvocation -> {
+                ids.addAll(parameterInvocation.getArgument(1));
+                return query;
+            });
+            when(query.list()).then(listInvocation -> {
+                if (statement.startsWith("select prop.id.id, prop.name, prop.classType from BaseProperty")) {
+                    listedIds.add(ids);
+                    return listProperties(ids);
+                } else {
+                    String classType = statement.substring("from ".length(), statement.indexOf(" as prop"));
+                    loadedTypes.add(classType);
+                    return loadProperties(classType, ids, objectWithMissingValue);
+                }
+            });
+            return query;
+        });
+
+        // The value which is missing from the table of its type is loaded alone
+        doAnswer(invocation -> {
+            invocation.<IntegerProperty>getArgument(0).setValue(42);
+            return null;
+        }).when(this.session).load(any(IntegerProperty.class), any(Serializable.class));
+
+        this.store.loadXWikiProperties(objects, mock(XWikiDocument.class), this.xcontext);
+
+        // One query to list the properties of each batch and one per property type found in the batch
+        assertEquals(3, listedIds.size());
+        assertEquals(500, listedIds.get(0).size());
+        assertEquals(500, listedIds.get(1).size());
+        assertEquals(200, listedIds.get(2).size());
+        assertEquals(7, loadedTypes.size());
+        assertEquals(1, Collections.frequency(loadedTypes, LargeStringProperty.class.getName()));
+        verify(this.session).load(any(IntegerProperty.class), any(Serializable.class));
+
+        for (long id = 1; id <= objectCount; id++) {
+            Map<String, BaseProperty> objectFields = fields.get(id);
+            assertEquals("name" + id, objectFields.get("name").getValue());
+            assertTrue(objectFields.get("age") instanceof IntegerProperty);
+            assertEquals(id == objectWithMissingValue ? 42 : (int) id, objectFields.get("age").getValue());
+            if (id <= 10) {
+                assertTrue(objectFields.get("text") instanceof LargeStringProperty);
+                assertEquals("text" + id, objectFields.get("text").getValue());
+            } else {
+                assertFalse(objectFields.containsKey("text"));
+            }
+            assertSame(objects.get((int) id - 1), objectFields.get("name").getObject());
+        }
+    }
+
+    private List<Object[]> listProperties(List<Long> ids)
+    {
+        List<Object[]> properties = new ArrayList<>();
+        for (Long id : ids) {
+            properties.add(new Object[] { id, "name", StringProperty.class.getName() });
+            properties.add(new Object[] { id, "age", IntegerProperty.class.getName() });
+            if (id <= 10) {
+                properties.add(new Object[] { id, "text", LargeStringProperty.class.getName() });
+            }
+        }
+
+        return properties;
+    }
+
+    private List<BaseProperty> loadProperties(String classType, List<Long> ids, long objectWithMissingValue)
+    {
+        List<BaseProperty> properties = new ArrayList<>();
+        for (Long id : ids) {
+            BaseProperty property;
+            if (classType.equals(StringProperty.class.getName())) {
+                property = new StringProperty();
+                property.setName("name");
+                property.setValue("name" + id);
+            } else if (classType.equals(LargeStringProperty.class.getName())) {
+                property = new LargeStringProperty();
+                property.setName("text");
+                property.setValue("text" + id);
+            } else if (id != objectWithMissingValue) {
+                property = new IntegerProperty();
+                property.setName("age");
+                property.setValue(id.intValue());
+            } else {
+                continue;
+            }
+            property.setId(id);
+            properties.add(property);
+        }
+
+        return properties;
+    }
 }
@@ -0,0 +1,236 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XWikiHibernateVersioningStore}.
+ *
+ * @version $Id$
+ */
+public class XWikiHibernateVersioningStoreTest
+    extends AbstractXWikiHibernateStoreTest<XWikiVersioningStoreInterface>
+{
+    private static final long DOCUMENT_ID = 42;
+
+    /**
+     * A special component manager that mocks automatically all dependencies of the component under test.
+     */
+    @Rule
+    public MockitoComponentMockingRule<XWikiVersioningStoreInterface> mocker =
+        new MockitoComponentMockingRule<XWikiVersioningStoreInterface>(XWikiHibernateVersioningStore.class);
+
+    private XWikiDocument document = mock(XWikiDocument.class);
+
+    @Override
+    protected MockitoComponentMockingRule<XWikiVersioningStoreInterface> getMocker()
+    {
+        return mocker;
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+
+        when(this.document.getId()).thenReturn(DOCUMENT_ID);
+    }
+
+    private XWikiRCSNodeInfo createNode(String version, boolean diff)
+    {
+        XWikiRCSNodeInfo node = new XWikiRCSNodeInfo(new XWikiRCSNodeId(DOCUMENT_ID, new Version(version)));
+        node.setDiff(diff);
+
+        return node;
+    }
+
+    @Test
+    public void getXWikiDocVersionsWhenArchiveIsNotLoaded() throws Exception
+    {
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(query.list()).thenReturn(Arrays.asList(new Object[] { 1, 1 }, new Object[] { 1, 2 },
+            new Object[] { 2, 1 }));
+        when(this.session.createQuery(anyString())).thenReturn(query);
+
+        assertArrayEquals(new Version[] { new Version("1.1"), new Version("1.2"), new Version("2.1") },
+            this.mocker.getComponentUnderTest().getXWikiDocVersions(this.document, this.xcontext));
+
+        verify(this.session).createQuery(startsWith("select rcs.id.version1, rcs.id.version2 from"));
+        verify(query).setLong("docId", DOCUMENT_ID);
+        // Only the versions are needed, not the nodes
+        verify(this.session, never()).createCriteria(XWikiRCSNodeInfo.class);
+        verify(this.document, never()).setDocumentArchive(any(XWikiDocumentArchive.class));
+    }
+
+    @Test
+    public void loadXWikiDocArchiveUntilNextFullVersion() throws Exception
+    {
+        Query fullVersionsQuery = mock(Query.class, RETURNS_SELF);
+        when(fullVersionsQuery.list()).thenReturn(Collections.singletonList(new Object[] { 1, 4 }));
+        when(this.session.createQuery(startsWith("select rcs.id.version1, rcs.id.version2 from")))
+            .thenReturn(fullVersionsQuery);
+
+        Query nodesQuery = mock(Query.class, RETURNS_SELF);
+        when(nodesQuery.list()).thenReturn(Arrays.asList(createNode("1.2", true), createNode("1.3", true),
+            createNode("1.4", false)));
+        when(this.session.createQuery(startsWith("from "))).thenReturn(nodesQuery);
+
+        XWikiDocumentArchive archive = ((XWikiHibernateVersioningStore) this.mocker.getComponentUnderTest())
+            .loadXWikiDocArchive(this.document, new Version("1.2"), this.xcontext);
+
+        assertEquals(DOCUMENT_ID, archive.getId());
+        assertEquals(3, archive.getNodes().size());
+        assertEquals(new Version("1.4"), archive.getLatestVersion());
+        assertFalse(archive.getNode(new Version("1.4")).isDiff());
+        assertTrue(archive.getNode(new Version("1.2")).isDiff());
+
+        verify(fullVersionsQuery).setLong("docId", DOCUMENT_ID);
+        verify(fullVersionsQuery).setInteger("v1", 1);
+        verify(fullVersionsQuery).setInteger("v2", 2);
+        verify(fullVersionsQuery).setMaxResults(1);
+
+        verify(nodesQuery).setLong("docId", DOCUMENT_ID);
+        verify(nodesQuery).setInteger("v1", 1);
+        verify(nodesQuery).setInteger("v2", 2);
+        verify(nodesQuery).setInteger("fullv1", 1);
+        verify(nodesQuery).setInteger("fullv2", 4);
+
+        // The partial archive must never be attached to the document
+        verify(this.document, never()).setDocumentArchive(any(XWikiDocumentArchive.class));
+    }
+
+    @Test
+    public void loadXWikiDocArchiveWhenNoLaterFullVersion() throws Exception
+    {
+        Query fullVersionsQuery = mock(Query.class, RETURNS_SELF);
+        when(fullVersionsQuery.list()).thenReturn(Collections.emptyList());
+        when(this.session.createQuery(anyString())).thenReturn(fullVersionsQuery);
+
+        assertNull(((XWikiHibernateVersioningStore) this.mocker.getComponentUnderTest())
+            .loadXWikiDocArchive(this.document, new Version("1.2"), this.xcontext));
+
+        // The nodes are not loaded at all
+        verify(this.session, times(1)).createQuery(anyString());
+    }
+
+    @Test
+    public void loadXWikiDocWhenNoLaterFullVersionFallsBackOnCompleteArchive() throws Exception
+    {
+        Query fullVersionsQuery = mock(Query.class, RETURNS_SELF);
+        when(fullVersionsQuery.list()).thenReturn(Collections.emptyList());
+        when(this.session.createQuery(anyString())).thenReturn(fullVersionsQuery);
+
+        Criteria criteria = mock(Criteria.class, RETURNS_SELF);
+        when(criteria.list()).thenReturn(Collections.emptyList());
+        when(this.session.createCriteria(XWikiRCSNodeInfo.class)).thenReturn(criteria);
+
+        try {
+            this.mocker.getComponentUnderTest().loadXWikiDoc(this.document, "1.2", this.xcontext);
+            fail("Should have failed since the version does not exist");
+        } catch (XWikiException expected) {
+            assertEquals(XWikiException.ERROR_XWIKI_STORE_HIBERNATE_UNEXISTANT_VERSION, expected.getCode());
+        }
+
+        // The complete archive has been loaded and attached to the document
+        verify(this.session).createCriteria(XWikiRCSNodeInfo.class);
+        verify(this.document).setDocumentArchive(any(XWikiDocumentArchive.class));
+    }
+
+    @Test
+    public void loadRCSNodeContentsInBatches() throws Exception
+    {
+        List<XWikiRCSNodeId> ids = new ArrayList<>();
+        for (int i = 1; i <= 250; i++) {
+            ids.add(new XWikiRCSNodeId(DOCUMENT_ID, new Version(1, i)));
+        }
+
+        Query query = mock(Query.class, RETURNS_SELF);
+        XWikiRCSNodeContent content1 = new XWikiRCSNodeContent(ids.get(0));
+        XWikiRCSNodeContent content2 = new XWikiRCSNodeContent(ids.get(100));
+        XWikiRCSNodeContent content3 = new XWikiRCSNodeContent(ids.get(200));
+        when(query.list()).thenReturn(Collections.singletonList(content1), Collections.singletonList(content2),
+            Collections.singletonList(content3));
+        when(this.session.createQuery(anyString())).thenReturn(query);
+
+        List<XWikiRCSNodeContent> contents =
+            this.mocker.getComponentUnderTest().loadRCSNodeContents(ids, true, this.xcontext);
+
+        assertEquals(3, contents.size());
+        assertSame(content1, contents.get(0));
+        assertSame(content2, contents.get(1));
+        assertSame(content3, contents.get(2));
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(this.session, times(3)).createQuery(statements.capture());
+        assertTrue(statements.getAllValues().get(0).contains(":v2_99)"));
+        assertFalse(statements.getAllValues().get(0).contains(":v1_100 "));
+        assertTrue(statements.getAllValues().get(2).contains(":v2_49)"));
+        assertFalse(statements.getAllValues().get(2).contains(":v1_50 "));
+
+        verify(query, times(3)).setLong("docId", DOCUMENT_ID);
+        // Each batch restarts the parameter numbering
+        verify(query, times(3)).setInteger("v1_0", 1);
+        verify(query).setInteger("v2_0", 1);
+        verify(query).setInteger("v2_0", 101);
+        verify(query).setInteger("v2_0", 201);
+        verify(query, times(2)).setInteger(eq("v2_99"), anyInt());
+        verify(query, never()).setInteger(eq("v1_100"), anyInt());
+    }
+}
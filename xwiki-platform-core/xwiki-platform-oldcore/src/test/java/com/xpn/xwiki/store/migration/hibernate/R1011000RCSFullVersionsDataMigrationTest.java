@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store.migration.hibernate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiConfig;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiPatch;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link R1011000RCSFullVersionsDataMigration}.
+ *
+ * @version $Id$
+ */
+public class R1011000RCSFullVersionsDataMigrationTest
+{
+    @Rule
+    public MockitoComponentMockingRule<HibernateDataMigration> mocker =
+        new MockitoComponentMockingRule<>(R1011000RCSFullVersionsDataMigration.class,
+            Arrays.asList(ComponentManager.class));
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private XWikiConfig config = new XWikiConfig();
+
+    private Session session = mock(Session.class);
+
+    private Query query = mock(Query.class, RETURNS_SELF);
+
+    private XWikiHibernateStore store = mock(XWikiHibernateStore.class);
+
+    private XWikiVersioningStoreInterface versioningStore;
+
+    /**
+     * Keep a strong reference to the contents of the nodes so that they are never garbage collected.
+     */
+    private List<XWikiRCSNodeContent> contents = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ExecutionContext executionContext = mock(ExecutionContext.class);
+        when(executionContext.getProperty("xwikicontext")).thenReturn(this.xcontext);
+        Execution execution = this.mocker.getInstance(Execution.class);
+        when(execution.getContext()).thenReturn(executionContext);
+
+        XWiki wiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(wiki);
+        when(wiki.getConfig()).thenReturn(this.config);
+
+        this.mocker.registerComponent(XWikiStoreInterface.class, XWikiHibernateBaseStore.HINT, this.store);
+        this.versioningStore =
+            this.mocker.registerMockComponent(XWikiVersioningStoreInterface.class, XWikiHibernateBaseStore.HINT);
+
+        when(this.store.executeRead(same(this.xcontext), any(HibernateCallback.class))).then(invocation -> {
+            HibernateCallback<?> callback = invocation.getArgument(1);
+            return callback.doInHibernate(this.session);
+        });
+        when(this.session.createQuery(anyString())).thenReturn(this.query);
+    }
+
+    private List<XWikiRCSNodeInfo> createNodes(long docId, int count) throws Exception
+    {
+        List<XWikiRCSNodeInfo> nodes = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            XWikiRCSNodeInfo node = new XWikiRCSNodeInfo(new XWikiRCSNodeId(docId, new Version(1, i)));
+            XWikiRCSNodeContent content = new XWikiRCSNodeContent(node.getId());
+            if (i == count) {
+                content.setPatch(new XWikiPatch().setFullVersion("content " + i));
+            } else {
+                // The history keeps the patches from the following version
+                content.setPatch(new XWikiPatch().setDiffVersion("content " + i, "content " + (i + 1), "doc"));
+            }
+            node.setContent(content);
+            this.contents.add(content);
+            nodes.add(node);
+        }
+
+        return nodes;
+    }
+
+    private void mockArchive(long docId, List<XWikiRCSNodeInfo> nodes) throws Exception
+    {
+        doAnswer(invocation -> {
+            XWikiDocumentArchive archive = invocation.getArgument(0);
+            archive.setNodes(nodes);
+            return null;
+        }).when(this.versioningStore).loadXWikiDocArchive(argThat(archive -> archive.getId() == docId), eq(true),
+            same(this.xcontext));
+    }
+
+    @Test
+    public void migrate() throws Exception
+    {
+        this.config.setProperty("xwiki.store.rcs.nodesPerFull", "2");
+
+        when(this.query.list()).thenReturn(Arrays.asList(1L, 2L));
+        List<XWikiRCSNodeInfo> nodes1 = createNodes(1L, 4);
+        mockArchive(1L, nodes1);
+        mockArchive(2L, createNodes(2L, 2));
+
+        this.mocker.getComponentUnderTest().migrate();
+
+        // Only select the documents having more versions than allowed by their full versions
+        ArgumentCaptor<String> statement = ArgumentCaptor.forClass(String.class);
+        verify(this.session).createQuery(statement.capture());
+        assertEquals("select rcs.id.docId from " + XWikiRCSNodeInfo.class.getName()
+            + " as rcs where rcs.diff is not null group by rcs.id.docId"
+            + " having count(rcs) > :nodesPerFull * sum(case when rcs.diff = false then 1 else 0 end)",
+            statement.getValue());
+        verify(this.query).setLong("nodesPerFull", 2);
+
+        // Versions are counted from the latest one, which is always full
+        assertTrue(nodes1.get(0).isDiff());
+        assertFalse(nodes1.get(1).isDiff());
+        assertTrue(nodes1.get(2).isDiff());
+        assertFalse(nodes1.get(3).isDiff());
+        assertEquals("content 2", nodes1.get(1).getContent(null).getPatch().getContent().trim());
+        verify(this.versioningStore).saveXWikiDocArchive(argThat(archive -> archive.getId() == 1L), eq(true),
+            same(this.xcontext));
+
+        // The second history is already valid
+        verify(this.versioningStore, never()).saveXWikiDocArchive(argThat(archive -> archive.getId() == 2L),
+            eq(true), same(this.xcontext));
+    }
+
+    @Test
+    public void migrateWhenOnlyLatestVersionIsFull() throws Exception
+    {
+        this.config.setProperty("xwiki.store.rcs.nodesPerFull", "0");
+
+        this.mocker.getComponentUnderTest().migrate();
+
+        verifyZeroInteractions(this.store, this.versioningStore);
+    }
+}
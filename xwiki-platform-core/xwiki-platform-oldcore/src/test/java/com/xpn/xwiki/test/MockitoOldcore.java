@@ -85,6 +85,7 @@
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiDocument;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -576,6 +577,19 @@ public XWikiDocument answer(InvocationOnMock invocation) throws Throwable
                 return getSpyXWiki().getDocument(reference, xcontext);
             }
         });
+        when(getMockStore().loadXWikiDocs(anyList(), anyXWikiContext())).then(new Answer<List<XWikiDocument>>()
+        {
+            @Override
+            public List<XWikiDocument> answer(InvocationOnMock invocation) throws Throwable
+            {
+                List<XWikiDocument> documents = new ArrayList<>();
+                for (XWikiDocument document : invocation.<List<XWikiDocument>>getArgument(0)) {
+                    documents.add(getMockStore().loadXWikiDoc(document, invocation.getArgument(1)));
+                }
+
+                return documents;
+            }
+        });
         doAnswer(new Answer<Void>()
         {
             @Override
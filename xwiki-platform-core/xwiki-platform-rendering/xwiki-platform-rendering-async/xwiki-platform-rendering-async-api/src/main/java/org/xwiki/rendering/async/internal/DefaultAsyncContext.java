@@ -98,6 +98,16 @@ public Map<String, Collection<Object>> getUses()
         {
             return this.uses;
         }
+
+        private void add(ContextUse contextUse)
+        {
+            this.references.addAll(contextUse.references);
+            this.roleTypes.addAll(contextUse.roleTypes);
+            this.roles.addAll(contextUse.roles);
+            for (Map.Entry<String, Collection<Object>> entry : contextUse.uses.entrySet()) {
+                this.uses.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+        }
     }
 
     private static final String KEY_ENABLED = "rendering.async.enabled";
@@ -162,7 +172,15 @@ public ContextUse popContextUse()
             Deque<ContextUse> deque = (Deque<ContextUse>) econtext.getProperty(KEY_CONTEXTUSE);
 
             if (deque != null && !deque.isEmpty()) {
-                return deque.pop();
+                ContextUse contextUse = deque.pop();
+
+                // What was used by a nested execution is also used by the execution containing it
+                ContextUse parentContextUse = deque.peek();
+                if (parentContextUse != null) {
+                    parentContextUse.add(contextUse);
+                }
+
+                return contextUse;
             }
         }
 
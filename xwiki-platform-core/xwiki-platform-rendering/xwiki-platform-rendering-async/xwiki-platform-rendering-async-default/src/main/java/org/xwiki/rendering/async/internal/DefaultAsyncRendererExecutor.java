@@ -20,6 +20,7 @@
 package org.xwiki.rendering.async.internal;
 
 import java.io.Serializable;
+import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -38,6 +39,7 @@
 import org.apache.commons.collections4.MapUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.descriptor.ComponentRole;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.context.concurrent.ContextStoreManager;
@@ -45,6 +47,7 @@
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
 import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.rendering.RenderingException;
 import org.xwiki.rendering.async.AsyncContext;
 import org.xwiki.rendering.async.AsyncContextHandler;
@@ -214,6 +217,17 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, Set<String>
 
     private void injectUses(AsyncRendererJobStatus status)
     {
+        // Make sure an execution containing this one (a cached one for example) is aware of what it depends on
+        for (EntityReference reference : status.getReferences()) {
+            this.asyncContext.useEntity(reference);
+        }
+        for (Type roleType : status.getRoleTypes()) {
+            this.asyncContext.useComponent(roleType);
+        }
+        for (ComponentRole<?> role : status.getRoles()) {
+            this.asyncContext.useComponent(role.getRoleType(), role.getRoleHint());
+        }
+
         Map<String, Collection<Object>> uses = status.getUses();
 
         if (uses != null) {
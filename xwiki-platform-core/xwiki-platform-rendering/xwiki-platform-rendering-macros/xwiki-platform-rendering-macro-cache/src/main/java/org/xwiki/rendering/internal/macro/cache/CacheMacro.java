@@ -19,12 +19,17 @@
  */
 package org.xwiki.rendering.internal.macro.cache;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.xwiki.cache.Cache;
@@ -32,7 +37,12 @@
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.LRUCacheConfiguration;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.job.JobException;
+import org.xwiki.rendering.RenderingException;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererConfiguration;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererExecutor;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.macro.AbstractMacro;
 import org.xwiki.rendering.macro.MacroContentParser;
 import org.xwiki.rendering.macro.MacroExecutionException;
@@ -42,6 +52,7 @@
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.TransformationContext;
 
 /**
  * Provides Caching for the content of the macro.
@@ -64,6 +75,12 @@ public class CacheMacro extends AbstractMacro<CacheMacroParameters>
      */
     private static final String CONTENT_DESCRIPTION = "the content to cache.";
 
+    /**
+     * The context entries the content cached until its dependencies are modified is associated with, so that it's not
+     * shared between users who don't have the same rights.
+     */
+    static final Set<String> CONTEXT_ENTRIES = new HashSet<>(Arrays.asList("wiki", "user", "locale"));
+
     /**
      * Used to create the macro content cache.
      */
@@ -83,6 +100,13 @@ public class CacheMacro extends AbstractMacro<CacheMacroParameters>
     @Named("plain/1.0")
     private BlockRenderer plainTextBlockRenderer;
 
+    /**
+     * Used to execute and cache the content while tracking the entities it uses. Resolved lazily since it's not always
+     * available.
+     */
+    @Inject
+    private Provider<BlockAsyncRendererExecutor> asyncExecutorProvider;
+
     /**
      * Map of all caches. There's one cache per timeToLive/maxEntry combination since currently we cannot set these
      * configuration values at the cache entry level but only for the whole cache.
@@ -122,6 +146,10 @@ public List<Block> execute(CacheMacroParameters parameters, String content, Macr
             cacheKey = content;
         }
 
+        if (parameters.isTrackDependencies() && isDependencyTrackingSupported(context)) {
+            return executeWithDependencies(cacheKey, content, context);
+        }
+
         Cache<List<Block>> contentCache = getContentCache(parameters.getTimeToLive(), parameters.getMaxEntries());
         List<Block> result = contentCache.get(cacheKey);
         if (result == null) {
@@ -135,6 +163,45 @@ public List<Block> execute(CacheMacroParameters parameters, String content, Macr
         return result;
     }
 
+    private boolean isDependencyTrackingSupported(MacroTransformationContext context)
+    {
+        TransformationContext transformationContext = context.getTransformationContext();
+
+        // The cached result is rendered in the target syntax and the renderer does not support restricted mode
+        return transformationContext != null && transformationContext.getTargetSyntax() != null
+            && !transformationContext.isRestricted();
+    }
+
+    /**
+     * Execute the content (or get it from the cache) while recording the documents, objects and components it uses so
+     * that the cached result is invalidated as soon as one of them is modified.
+     */
+    private List<Block> executeWithDependencies(String cacheKey, String content, MacroTransformationContext context)
+        throws MacroExecutionException
+    {
+        // The content is transformed by the executor so that the entities it uses are recorded
+        XDOM xdom = this.contentParser.parse(content, context, false, context.isInline());
+
+        BlockAsyncRendererConfiguration configuration =
+            new BlockAsyncRendererConfiguration(Arrays.asList("rendering", "macro", "cache", cacheKey), xdom);
+        configuration.setAsyncAllowed(false);
+        configuration.setCacheAllowed(true);
+        configuration.setDefaultSyntax(context.getSyntax());
+        configuration.setTargetSyntax(context.getTransformationContext().getTargetSyntax());
+        configuration.setTransformationId(context.getTransformationContext().getId());
+        configuration.setInline(context.isInline());
+
+        Block result;
+        try {
+            result = this.asyncExecutorProvider.get().execute(configuration, CONTEXT_ENTRIES);
+        } catch (JobException | RenderingException e) {
+            throw new MacroExecutionException("Failed to execute the content to cache", e);
+        }
+
+        // The cached block is shared between all the executions
+        return Collections.singletonList(result.clone());
+    }
+
     /**
      * Get a cache matching the passed time to live and max entries.
      * <p>
@@ -44,6 +44,11 @@
      */
     private int maxEntries = 1000;
 
+    /**
+     * @see #isTrackDependencies()
+     */
+    private boolean trackDependencies;
+
     /**
      * @return the optional unique id to use to cache the content. If not defined then use the content itself as the id
      *         but this doesn't guarantee unicity since the same content could be located on several pages with
@@ -97,4 +102,25 @@ public void setMaxEntries(int maxEntries)
     {
         this.maxEntries = maxEntries;
     }
+
+    /**
+     * @return true if the content should be cached for each user until one of the documents, objects or components it
+     *         used during its execution is modified, instead of for a fixed time (in which case the time to live and
+     *         the maximum number of entries are ignored)
+     * @since 10.11RC1
+     */
+    public boolean isTrackDependencies()
+    {
+        return this.trackDependencies;
+    }
+
+    /**
+     * @param trackDependencies refer to {@link #isTrackDependencies()}
+     * @since 10.11RC1
+     */
+    @PropertyDescription("cache the content for each user until one of the entities it used is modified")
+    public void setTrackDependencies(boolean trackDependencies)
+    {
+        this.trackDependencies = trackDependencies;
+    }
 }
@@ -22,8 +22,12 @@
 import java.io.StringWriter;
 import java.util.List;
 
+import org.jmock.Expectations;
 import org.junit.Test;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererConfiguration;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererExecutor;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.internal.transformation.macro.MacroTransformation;
 import org.xwiki.rendering.macro.Macro;
 import org.xwiki.rendering.macro.cache.CacheMacroParameters;
@@ -32,6 +36,7 @@
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.test.jmock.AbstractComponentTestCase;
 import org.xwiki.velocity.VelocityManager;
 
@@ -215,6 +220,54 @@ public void executeWithDifferentMaxEntries() throws Exception
         assertFalse(result2.equals(result1));
     }
 
+    @Test
+    public void executeWithDependenciesTracking() throws Exception
+    {
+        final BlockAsyncRendererExecutor executor = registerMockComponent(BlockAsyncRendererExecutor.class);
+        final Block cachedBlock = new WordBlock("cached");
+
+        getMockery().checking(new Expectations()
+        {{
+            exactly(2).of(executor).execute(with(any(BlockAsyncRendererConfiguration.class)),
+                with(equal(CacheMacro.CONTEXT_ENTRIES)));
+            will(returnValue(cachedBlock));
+        }});
+
+        CacheMacroParameters params = new CacheMacroParameters();
+        params.setTrackDependencies(true);
+        MacroTransformationContext context = createMacroTransformationContext();
+        TransformationContext transformationContext = new TransformationContext();
+        transformationContext.setTargetSyntax(Syntax.XHTML_1_0);
+        context.setTransformationContext(transformationContext);
+
+        List<Block> result1 = this.cacheMacro.execute(params, "content", context);
+        List<Block> result2 = this.cacheMacro.execute(params, "content", context);
+
+        // The cached block is never returned directly since it's inserted in the executed content
+        assertEquals(1, result1.size());
+        assertNotSame(cachedBlock, result1.get(0));
+        assertNotSame(result1.get(0), result2.get(0));
+        assertEquals("cached", ((WordBlock) result2.get(0)).getWord());
+    }
+
+    @Test
+    public void executeWithDependenciesTrackingInRestrictedMode() throws Exception
+    {
+        CacheMacroParameters params = new CacheMacroParameters();
+        params.setTrackDependencies(true);
+        params.setId("restricted");
+        MacroTransformationContext context = createMacroTransformationContext();
+        TransformationContext transformationContext = new TransformationContext();
+        transformationContext.setTargetSyntax(Syntax.XHTML_1_0);
+        transformationContext.setRestricted(true);
+        context.setTransformationContext(transformationContext);
+
+        // Falls back on the time based cache
+        List<Block> result1 = this.cacheMacro.execute(params, "content1", context);
+        List<Block> result2 = this.cacheMacro.execute(params, "content2", context);
+        assertEquals(result1, result2);
+    }
+
     private MacroTransformationContext createMacroTransformationContext() throws Exception
     {
         MacroTransformation macroTransformation = getComponentManager().getInstance(Transformation.class, "macro");
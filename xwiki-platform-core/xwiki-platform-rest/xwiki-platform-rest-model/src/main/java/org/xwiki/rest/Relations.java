@@ -37,6 +37,13 @@
      */
     public static final String WADL = "wadl";
 
+    /**
+     * Relation for links pointing to the next range of results of a collection.
+     *
+     * @since 10.11RC1
+     */
+    public static final String NEXT = "next";
+
     /**
      * Relation for links pointing to the list of available wikis.
      */
@@ -43,8 +43,11 @@
 import org.xwiki.localization.LocaleUtils;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.LinkCollection;
 import org.xwiki.rest.model.jaxb.ObjectFactory;
 
 import com.xpn.xwiki.XWikiContext;
@@ -326,4 +329,65 @@ protected Logger getLogger()
     {
         return this.slf4Jlogger;
     }
+
+    /**
+     * Push the requested range of results down to the query. One more result than requested is asked so that
+     * {@link #getRange(List, Integer, Integer, LinkCollection)} can tell if there is a next range of results.
+     *
+     * @param query the query to limit
+     * @param start the index of the first result to return
+     * @param number the number of results to return, all the results are returned when negative
+     * @return the passed query
+     * @since 10.11RC1
+     */
+    protected Query setRange(Query query, Integer start, Integer number)
+    {
+        if (start != null && start > 0) {
+            query.setOffset(start);
+        }
+        if (number != null && number >= 0) {
+            query.setLimit(number + 1);
+        }
+
+        return query;
+    }
+
+    /**
+     * Remove the extra result asked by {@link #setRange(Query, Integer, Integer)} and, if there was one, add to the
+     * collection a link to the next range of results so that clients can iterate over large collections.
+     *
+     * @param <T> the type of the results
+     * @param results the results of a query limited with {@link #setRange(Query, Integer, Integer)}
+     * @param start the index of the first result to return
+     * @param number the number of results to return, all the results are returned when negative
+     * @param collection the collection to which to add the link to the next range of results
+     * @return the results to return
+     * @since 10.11RC1
+     */
+    protected <T> List<T> getRange(List<T> results, Integer start, Integer number, LinkCollection collection)
+    {
+        if (number == null || number < 0 || results.size() <= number) {
+            return results;
+        }
+
+        addNextLink(collection, (start != null && start > 0 ? start : 0) + number);
+
+        return results.subList(0, number);
+    }
+
+    /**
+     * Add to the collection a link to the range of results starting at the given index, keeping the other parameters
+     * of the current request.
+     *
+     * @param collection the collection to which to add the link to the next range of results
+     * @param nextStart the index of the first result of the next range
+     * @since 10.11RC1
+     */
+    protected void addNextLink(LinkCollection collection, int nextStart)
+    {
+        Link nextLink = this.objectFactory.createLink();
+        nextLink.setRel(Relations.NEXT);
+        nextLink.setHref(this.uriInfo.getRequestUriBuilder().replaceQueryParam("start", nextStart).build().toString());
+        collection.getLinks().add(nextLink);
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.objects;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.xwiki.rest.model.jaxb.ObjectSummary;
+import org.xwiki.rest.model.jaxb.Objects;
+
+/**
+ * Objects which are loaded and converted page by page while {@link StreamingObjectsWriter} writes them to the
+ * response, so that only one page of objects is in memory at a time.
+ * <p>
+ * The first page is loaded when creating the instance so that a failure to load the objects can still be reported
+ * with an error status.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class StreamingObjects extends Objects implements Iterable<ObjectSummary>
+{
+    /**
+     * Load a page of object summaries.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface PageLoader
+    {
+        /**
+         * @param offset the index of the first object to load
+         * @param limit the maximum number of objects to load
+         * @return the loaded object summaries
+         * @throws Exception when failing to load the objects
+         */
+        List<ObjectSummary> load(int offset, int limit) throws Exception;
+    }
+
+    private final PageLoader loader;
+
+    private final int pageSize;
+
+    private final int number;
+
+    private final int start;
+
+    private final List<ObjectSummary> firstPage;
+
+    private boolean iterated;
+
+    /**
+     * @param start the index of the first object to return
+     * @param number the maximum number of objects to return, or 0 or a negative number to return all the objects
+     * @param pageSize the maximum number of objects loaded at once
+     * @param loader used to load the pages of objects
+     * @throws Exception when failing to load the first page of objects
+     */
+    public StreamingObjects(int start, int number, int pageSize, PageLoader loader) throws Exception
+    {
+        this.start = start;
+        this.number = number;
+        this.pageSize = pageSize;
+        this.loader = loader;
+
+        this.firstPage = loadPage(start, 0);
+    }
+
+    private List<ObjectSummary> loadPage(int offset, int count) throws Exception
+    {
+        int limit = this.number <= 0 ? this.pageSize : Math.min(this.pageSize, this.number - count);
+
+        return this.loader.load(offset, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The objects can be iterated only once since they are loaded again for each page.
+     */
+    @Override
+    public Iterator<ObjectSummary> iterator()
+    {
+        if (this.iterated) {
+            throw new IllegalStateException("The objects have already been iterated");
+        }
+        this.iterated = true;
+
+        return new Iterator<ObjectSummary>()
+        {
+            private List<ObjectSummary> page = firstPage;
+
+            private int pageIndex;
+
+            private int count;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (this.pageIndex == this.page.size()) {
+                    // A page smaller than requested is the last one
+                    if (this.page.size() < pageSize || (number > 0 && this.count >= number)) {
+                        return false;
+                    }
+
+                    try {
+                        this.page = loadPage(start + this.count, this.count);
+                    } catch (Exception e) {
+                        throw new RuntimeException(
+                            String.format("Failed to load the objects starting at [%s]", start + this.count), e);
+                    }
+                    this.pageIndex = 0;
+                }
+
+                return this.pageIndex < this.page.size();
+            }
+
+            @Override
+            public ObjectSummary next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                ++this.count;
+
+                return this.page.get(this.pageIndex++);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Load all the objects in memory, for the users which don't go through {@link StreamingObjectsWriter}.
+     */
+    @Override
+    public List<ObjectSummary> getObjectSummaries()
+    {
+        List<ObjectSummary> objectSummaries = super.getObjectSummaries();
+        if (!this.iterated) {
+            iterator().forEachRemaining(objectSummaries::add);
+        }
+
+        return objectSummaries;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.objects;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.rest.XWikiRestComponent;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.ObjectSummary;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Write the {@link StreamingObjects} to the response one object at a time, in the same XML and JSON formats as the
+ * ones used for the other {@link org.xwiki.rest.model.jaxb.Objects}.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component
+@Named("org.xwiki.rest.internal.representations.objects.StreamingObjectsWriter")
+@Provider
+@Produces({ MediaType.APPLICATION_XML, MediaType.TEXT_XML, MediaType.APPLICATION_JSON })
+@Singleton
+public class StreamingObjectsWriter implements MessageBodyWriter<StreamingObjects>, XWikiRestComponent
+{
+    private static final String NAMESPACE = "http://www.xwiki.org";
+
+    private static final QName OBJECTS = new QName(NAMESPACE, "objects");
+
+    private static final QName LINK = new QName(NAMESPACE, "link");
+
+    private static final QName OBJECT_SUMMARY = new QName(NAMESPACE, "objectSummary");
+
+    private JAXBContext jaxbContext;
+
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return StreamingObjects.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(StreamingObjects objects, Class<?> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType)
+    {
+        // The size is not known before writing, the response is sent in chunks
+        return -1;
+    }
+
+    @Override
+    public void writeTo(StreamingObjects objects, Class<?> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+        throws IOException, WebApplicationException
+    {
+        if (MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)) {
+            writeJSON(objects, entityStream);
+        } else {
+            try {
+                writeXML(objects, entityStream);
+            } catch (JAXBException | XMLStreamException e) {
+                throw new IOException("Failed to write the objects", e);
+            }
+        }
+    }
+
+    private void writeXML(StreamingObjects objects, OutputStream entityStream)
+        throws JAXBException, XMLStreamException
+    {
+        Marshaller marshaller = getJAXBContext().createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+        String encoding = StandardCharsets.UTF_8.name();
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(entityStream, encoding);
+        writer.writeStartDocument(encoding, "1.0");
+        writer.setDefaultNamespace(NAMESPACE);
+        writer.writeStartElement(NAMESPACE, OBJECTS.getLocalPart());
+        writer.writeDefaultNamespace(NAMESPACE);
+
+        for (Link link : objects.getLinks()) {
+            marshaller.marshal(new JAXBElement<>(LINK, Link.class, link), writer);
+        }
+
+        for (ObjectSummary objectSummary : objects) {
+            marshaller.marshal(new JAXBElement<>(OBJECT_SUMMARY, ObjectSummary.class, objectSummary), writer);
+            // Send the objects as soon as they are converted
+            writer.flush();
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    private void writeJSON(StreamingObjects objects, OutputStream entityStream) throws IOException
+    {
+        ObjectMapper mapper = getObjectMapper();
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(entityStream, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+
+            generator.writeFieldName("links");
+            mapper.writeValue(generator, objects.getLinks());
+
+            generator.writeArrayFieldStart("objectSummaries");
+            for (ObjectSummary objectSummary : objects) {
+                // Also flushes the generator so that the objects are sent as soon as they are converted
+                mapper.writeValue(generator, objectSummary);
+            }
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        }
+    }
+
+    private JAXBContext getJAXBContext() throws JAXBException
+    {
+        if (this.jaxbContext == null) {
+            this.jaxbContext = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName());
+        }
+
+        return this.jaxbContext;
+    }
+
+    /**
+     * @return a mapper configured like the one used by the Restlet Jackson converter, which produces the JSON
+     *         representation of the other resources
+     */
+    private ObjectMapper getObjectMapper()
+    {
+        if (this.objectMapper == null) {
+            JsonFactory jsonFactory = new JsonFactory();
+            jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            this.objectMapper = new ObjectMapper(jsonFactory);
+        }
+
+        return this.objectMapper;
+    }
+}
@@ -23,6 +23,7 @@
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Formatter;
 import java.util.HashMap;
@@ -144,33 +145,33 @@ public Attachments getAttachments(String wikiName, String name, String page, Str
                 }
             }
 
-            f.format(")");
+            // Stable order so that the ranges of results don't overlap
+            f.format(") order by doc.fullName, attachment.filename");
 
             String queryString = f.toString();
 
+            Set<String> acceptedMimeTypes = new HashSet<String>();
+            if (!types.equals("")) {
+                String[] acceptedMimetypesArray = types.split(",");
+                for (String type : acceptedMimetypesArray) {
+                    acceptedMimeTypes.add(type);
+                }
+            }
+
             /* Execute the query by filling the parameters */
-            List<Object> queryResult = null;
+            List<Object[]> queryResult = null;
             try {
-                Query query = queryManager.createQuery(queryString, Query.XWQL).setLimit(number).setOffset(start);
+                Query query = queryManager.createQuery(queryString, Query.XWQL);
                 for (String param : filters.keySet()) {
                     query.bindValue(param, String.format("%%%s%%", filters.get(param).toUpperCase()));
                 }
 
-                queryResult = query.execute();
+                queryResult = getAcceptedAttachments(query, acceptedMimeTypes, start, number, attachments);
             } catch (QueryException e) {
                 throw new XWikiRestException(e);
             }
 
-            Set<String> acceptedMimeTypes = new HashSet<String>();
-            if (!types.equals("")) {
-                String[] acceptedMimetypesArray = types.split(",");
-                for (String type : acceptedMimetypesArray) {
-                    acceptedMimeTypes.add(type);
-                }
-            }
-
-            for (Object object : queryResult) {
-                Object[] fields = (Object[]) object;
+            for (Object[] fields : queryResult) {
                 String pageSpaceId = (String) fields[0];
                 List<String> pageSpaces = Utils.getSpacesFromSpaceId(pageSpaceId);
                 String pageName = (String) fields[1];
@@ -180,75 +181,115 @@ public Attachments getAttachments(String wikiName, String name, String page, Str
 
                 String mimeType = xwikiAttachment.getMimeType(Utils.getXWikiContext(componentManager));
 
-                boolean add = true;
+                /*
+                 * We manufacture attachments in place because we don't have all the data for calling the
+                 * DomainObjectFactory method (doing so would require to retrieve an actual Document)
+                 */
+                Attachment attachment = objectFactory.createAttachment();
+                attachment.setId(String.format("%s@%s", pageId, xwikiAttachment.getFilename()));
+                attachment.setName(xwikiAttachment.getFilename());
+                attachment.setLongSize(xwikiAttachment.getLongSize());
+                // Retro compatibility
+                attachment.setSize((int) xwikiAttachment.getLongSize());
+                attachment.setMimeType(mimeType);
+                attachment.setAuthor(xwikiAttachment.getAuthor());
+                if (withPrettyNames) {
+                    attachment
+                        .setAuthorName(Utils.getAuthorName(xwikiAttachment.getAuthorReference(), componentManager));
+                }
+
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTime(xwikiAttachment.getDate());
+                attachment.setDate(calendar);
+
+                attachment.setPageId(pageId);
+                attachment.setPageVersion(pageVersion);
+                attachment.setVersion(xwikiAttachment.getVersion());
+
+                URL absoluteUrl = Utils.getXWikiContext(componentManager).getURLFactory().createAttachmentURL(
+                    xwikiAttachment.getFilename(), pageSpaceId, pageName, "download", null, wikiName,
+                    Utils.getXWikiContext(componentManager));
+                attachment.setXwikiAbsoluteUrl(absoluteUrl.toString());
+                attachment.setXwikiRelativeUrl(Utils.getXWikiContext(componentManager).getURLFactory()
+                    .getURL(absoluteUrl, Utils.getXWikiContext(componentManager)));
+
+                URI pageUri =
+                    Utils.createURI(uriInfo.getBaseUri(), PageResource.class, wikiName, pageSpaces, pageName);
+                Link pageLink = objectFactory.createLink();
+                pageLink.setHref(pageUri.toString());
+                pageLink.setRel(Relations.PAGE);
+                attachment.getLinks().add(pageLink);
+
+                URI attachmentUri = Utils.createURI(uriInfo.getBaseUri(), AttachmentResource.class, wikiName,
+                    pageSpaces, pageName, xwikiAttachment.getFilename());
+                Link attachmentLink = objectFactory.createLink();
+                attachmentLink.setHref(attachmentUri.toString());
+                attachmentLink.setRel(Relations.ATTACHMENT_DATA);
+                attachment.getLinks().add(attachmentLink);
+
+                attachments.getAttachments().add(attachment);
+            }
+        } finally {
+            Utils.getXWikiContext(componentManager).setWikiId(database);
+        }
 
-                /* Check the mime type filter */
-                if (acceptedMimeTypes.size() > 0) {
-                    add = false;
+        return attachments;
+    }
 
-                    for (String type : acceptedMimeTypes) {
-                        if (mimeType.toUpperCase().contains(type.toUpperCase())) {
-                            add = true;
-                            break;
-                        }
+    /**
+     * Execute the query and keep only the attachments having one of the accepted mime types. The mime type filter is
+     * applied on the query results so the query is executed again, starting after the last result, as long as the
+     * requested range is not full. The link to the next range is added only when an accepted attachment is left.
+     *
+     * @param query the query returning the space, name and version of the document and the attachment
+     * @param acceptedMimeTypes the accepted mime types, all the attachments are accepted when empty
+     * @param start the index of the first query result to consider
+     * @param number the number of attachments to return, all the attachments are returned when negative
+     * @param attachments the collection to which to add the link to the next range of attachments
+     * @return the query results holding an accepted attachment
+     * @throws QueryException if the query fails
+     */
+    private List<Object[]> getAcceptedAttachments(Query query, Set<String> acceptedMimeTypes, Integer start,
+        Integer number, Attachments attachments) throws QueryException
+    {
+        List<Object[]> acceptedResults = new ArrayList<Object[]>();
+        boolean limited = number != null && number >= 0;
+        int offset = start != null && start > 0 ? start : 0;
+
+        List<Object[]> results;
+        do {
+            results = setRange(query, offset, number).execute();
+            for (Object[] result : results) {
+                if (isAccepted((XWikiAttachment) result[3], acceptedMimeTypes)) {
+                    if (limited && acceptedResults.size() == number) {
+                        // The next range starts with this attachment
+                        addNextLink(attachments, offset);
+
+                        return acceptedResults;
                     }
+                    acceptedResults.add(result);
                 }
+                offset++;
+            }
+        } while (limited && results.size() > number);
 
-                if (add) {
-                    /*
-                     * We manufacture attachments in place because we don't have all the data for calling the
-                     * DomainObjectFactory method (doing so would require to retrieve an actual Document)
-                     */
-                    Attachment attachment = objectFactory.createAttachment();
-                    attachment.setId(String.format("%s@%s", pageId, xwikiAttachment.getFilename()));
-                    attachment.setName(xwikiAttachment.getFilename());
-                    attachment.setLongSize(xwikiAttachment.getLongSize());
-                    // Retro compatibility
-                    attachment.setSize((int) xwikiAttachment.getLongSize());
-                    attachment.setMimeType(mimeType);
-                    attachment.setAuthor(xwikiAttachment.getAuthor());
-                    if (withPrettyNames) {
-                        attachment
-                            .setAuthorName(Utils.getAuthorName(xwikiAttachment.getAuthorReference(), componentManager));
-                    }
+        return acceptedResults;
+    }
 
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(xwikiAttachment.getDate());
-                    attachment.setDate(calendar);
-
-                    attachment.setPageId(pageId);
-                    attachment.setPageVersion(pageVersion);
-                    attachment.setVersion(xwikiAttachment.getVersion());
-
-                    URL absoluteUrl = Utils.getXWikiContext(componentManager).getURLFactory().createAttachmentURL(
-                        xwikiAttachment.getFilename(), pageSpaceId, pageName, "download", null, wikiName,
-                        Utils.getXWikiContext(componentManager));
-                    attachment.setXwikiAbsoluteUrl(absoluteUrl.toString());
-                    attachment.setXwikiRelativeUrl(Utils.getXWikiContext(componentManager).getURLFactory()
-                        .getURL(absoluteUrl, Utils.getXWikiContext(componentManager)));
-
-                    URI pageUri =
-                        Utils.createURI(uriInfo.getBaseUri(), PageResource.class, wikiName, pageSpaces, pageName);
-                    Link pageLink = objectFactory.createLink();
-                    pageLink.setHref(pageUri.toString());
-                    pageLink.setRel(Relations.PAGE);
-                    attachment.getLinks().add(pageLink);
-
-                    URI attachmentUri = Utils.createURI(uriInfo.getBaseUri(), AttachmentResource.class, wikiName,
-                        pageSpaces, pageName, xwikiAttachment.getFilename());
-                    Link attachmentLink = objectFactory.createLink();
-                    attachmentLink.setHref(attachmentUri.toString());
-                    attachmentLink.setRel(Relations.ATTACHMENT_DATA);
-                    attachment.getLinks().add(attachmentLink);
-
-                    attachments.getAttachments().add(attachment);
-                }
+    private boolean isAccepted(XWikiAttachment xwikiAttachment, Set<String> acceptedMimeTypes)
+    {
+        if (acceptedMimeTypes.isEmpty()) {
+            return true;
+        }
+
+        String mimeType = xwikiAttachment.getMimeType(Utils.getXWikiContext(componentManager));
+        for (String type : acceptedMimeTypes) {
+            if (mimeType.toUpperCase().contains(type.toUpperCase())) {
+                return true;
             }
-        } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
         }
 
-        return attachments;
+        return false;
     }
 
     protected Attachments getAttachmentsForDocument(Document doc, int start, int number, Boolean withPrettyNames)
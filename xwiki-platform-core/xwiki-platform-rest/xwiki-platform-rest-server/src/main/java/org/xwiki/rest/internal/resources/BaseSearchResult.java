@@ -24,6 +24,7 @@
 import java.util.Calendar;
 import java.util.Formatter;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -36,6 +37,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.localization.LocalizationContext;
 import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.query.Query;
@@ -280,21 +282,99 @@ protected List<SearchResult> getPagesSearchResults(List<Object> queryResult, Str
             Boolean withPrettyNames, int limit, Boolean withUniquePages) throws XWikiException
     {
         List<SearchResult> result = new ArrayList<>();
-        Set<String> seenPages = new HashSet<>();
         XWiki xwikiApi = Utils.getXWikiApi(componentManager);
 
+        List<Object[]> pages = filterPages(queryResult, wikiName, limit, withUniquePages, xwikiApi);
+
+        preloadPages(pages, wikiName);
+
+        for (Object[] fields : pages) {
+            String spaceId = (String) fields[1];
+            List<String> spaces = Utils.getSpacesFromSpaceId(spaceId);
+            String pageName = (String) fields[2];
+            String language = (String) fields[3];
+
+            String pageId = Utils.getPageId(wikiName, spaces, pageName);
+            String pageFullName = Utils.getPageFullName(wikiName, spaces, pageName);
+
+            Document doc = xwikiApi.getDocument(pageFullName).getTranslatedDocument();
+            String title = doc.getDisplayTitle();
+            SearchResult searchResult = objectFactory.createSearchResult();
+            searchResult.setType("page");
+            searchResult.setId(pageId);
+            searchResult.setPageFullName(pageFullName);
+            searchResult.setTitle(title);
+            searchResult.setWiki(wikiName);
+            searchResult.setSpace(spaceId);
+            searchResult.setPageName(pageName);
+            searchResult.setVersion(doc.getVersion());
+            searchResult.setAuthor(doc.getAuthor());
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(doc.getDate());
+            searchResult.setModified(calendar);
+
+            if (withPrettyNames) {
+                searchResult.setAuthorName(Utils.getAuthorName(doc.getAuthorReference(), componentManager));
+            }
+
+            String pageUri;
+            if (StringUtils.isBlank(language)) {
+                pageUri = Utils.createURI(this.uriInfo.getBaseUri(), PageResource.class, wikiName, spaces, pageName)
+                        .toString();
+            } else {
+                searchResult.setLanguage(language);
+                pageUri = Utils.createURI(this.uriInfo.getBaseUri(), PageTranslationResource.class, wikiName,
+                        spaces, pageName, language).toString();
+            }
+
+            Link pageLink = new Link();
+            pageLink.setHref(pageUri);
+            pageLink.setRel(Relations.PAGE);
+            searchResult.getLinks().add(pageLink);
+
+            Hierarchy hierarchy = new Hierarchy();
+            for (EntityReference entityReference : doc.getDocumentReference().getReversedReferenceChain()) {
+                HierarchyItem hierarchyItem = new HierarchyItem();
+                if (Arrays.asList(EntityType.SPACE, EntityType.DOCUMENT).contains(entityReference.getType())) {
+                    Document document = xwikiApi.getDocument(entityReference).getTranslatedDocument();
+                    hierarchyItem.setLabel(document.getPlainTitle());
+                    hierarchyItem.setUrl(xwikiApi.getURL(document.getDocumentReferenceWithLocale()));
+                } else {
+                    hierarchyItem.setLabel(entityReference.getName());
+                    hierarchyItem.setUrl(xwikiApi.getURL(entityReference));
+                }
+                hierarchyItem.setName(entityReference.getName());
+                hierarchyItem.setType(entityReference.getType().getLowerCase());
+                hierarchy.withItems(hierarchyItem);
+            }
+            searchResult.setHierarchy(hierarchy);
+
+            result.add(searchResult);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the pages found by {@link #searchPages} which are returned: the ones the current user is allowed to see,
+     *         up to the passed limit
+     */
+    private List<Object[]> filterPages(List<Object> queryResult, String wikiName, int limit, Boolean withUniquePages,
+        XWiki xwikiApi) throws XWikiException
+    {
+        List<Object[]> pages = new ArrayList<>();
+        Set<String> seenPages = new HashSet<>();
+
         for (Object object : queryResult) {
             // Stop if there's a limit specified and we reach it.
-            if (limit > 0 && result.size() >= limit) {
+            if (limit > 0 && pages.size() >= limit) {
                 break;
             }
 
             Object[] fields = (Object[]) object;
 
-            String spaceId = (String) fields[1];
-            List<String> spaces = Utils.getSpacesFromSpaceId(spaceId);
+            List<String> spaces = Utils.getSpacesFromSpaceId((String) fields[1]);
             String pageName = (String) fields[2];
-            String language = (String) fields[3];
 
             String pageId = Utils.getPageId(wikiName, spaces, pageName);
             String pageFullName = Utils.getPageFullName(wikiName, spaces, pageName);
@@ -306,63 +386,31 @@ protected List<SearchResult> getPagesSearchResults(List<Object> queryResult, Str
 
             /* Check if the user has the right to see the found document */
             if (xwikiApi.hasAccessLevel("view", pageId)) {
-                Document doc = xwikiApi.getDocument(pageFullName).getTranslatedDocument();
-                String title = doc.getDisplayTitle();
-                SearchResult searchResult = objectFactory.createSearchResult();
-                searchResult.setType("page");
-                searchResult.setId(pageId);
-                searchResult.setPageFullName(pageFullName);
-                searchResult.setTitle(title);
-                searchResult.setWiki(wikiName);
-                searchResult.setSpace(spaceId);
-                searchResult.setPageName(pageName);
-                searchResult.setVersion(doc.getVersion());
-                searchResult.setAuthor(doc.getAuthor());
-                Calendar calendar = Calendar.getInstance();
-                calendar.setTime(doc.getDate());
-                searchResult.setModified(calendar);
-
-                if (withPrettyNames) {
-                    searchResult.setAuthorName(Utils.getAuthorName(doc.getAuthorReference(), componentManager));
-                }
-
-                String pageUri;
-                if (StringUtils.isBlank(language)) {
-                    pageUri = Utils.createURI(this.uriInfo.getBaseUri(), PageResource.class, wikiName, spaces, pageName)
-                            .toString();
-                } else {
-                    searchResult.setLanguage(language);
-                    pageUri = Utils.createURI(this.uriInfo.getBaseUri(), PageTranslationResource.class, wikiName,
-                            spaces, pageName, language).toString();
-                }
+                pages.add(fields);
+            }
+        }
 
-                Link pageLink = new Link();
-                pageLink.setHref(pageUri);
-                pageLink.setRel(Relations.PAGE);
-                searchResult.getLinks().add(pageLink);
-
-                Hierarchy hierarchy = new Hierarchy();
-                for (EntityReference entityReference : doc.getDocumentReference().getReversedReferenceChain()) {
-                    HierarchyItem hierarchyItem = new HierarchyItem();
-                    if (Arrays.asList(EntityType.SPACE, EntityType.DOCUMENT).contains(entityReference.getType())) {
-                        Document document = xwikiApi.getDocument(entityReference).getTranslatedDocument();
-                        hierarchyItem.setLabel(document.getPlainTitle());
-                        hierarchyItem.setUrl(xwikiApi.getURL(document.getDocumentReferenceWithLocale()));
-                    } else {
-                        hierarchyItem.setLabel(entityReference.getName());
-                        hierarchyItem.setUrl(xwikiApi.getURL(entityReference));
-                    }
-                    hierarchyItem.setName(entityReference.getName());
-                    hierarchyItem.setType(entityReference.getType().getLowerCase());
-                    hierarchy.withItems(hierarchyItem);
-                }
-                searchResult.setHierarchy(hierarchy);
+        return pages;
+    }
 
-                result.add(searchResult);
-            }
+    /**
+     * Load the returned pages at once so that they are then taken from the document cache.
+     */
+    private void preloadPages(List<Object[]> pages, String wikiName)
+    {
+        Set<DocumentReference> references = new LinkedHashSet<>();
+        for (Object[] fields : pages) {
+            references.add(new DocumentReference(wikiName, Utils.getSpacesFromSpaceId((String) fields[1]),
+                (String) fields[2]));
         }
 
-        return result;
+        XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+        try {
+            xcontext.getWiki().getDocuments(references, xcontext);
+        } catch (XWikiException e) {
+            // The pages will be loaded one by one
+            getLogger().debug("Failed to preload the pages [{}]", references, e);
+        }
     }
 
     /**
@@ -29,7 +29,6 @@
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.ModelFactory;
-import org.xwiki.rest.internal.RangeIterable;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Classes;
 import org.xwiki.rest.resources.classes.ClassesResource;
@@ -57,11 +56,14 @@ public Classes getClasses(String wikiName, Integer start, Integer number) throws
             List<String> classNames = Utils.getXWikiApi(componentManager).getClassList();
             Collections.sort(classNames);
 
-            RangeIterable<String> ri = new RangeIterable<String>(classNames, start, number);
-
             Classes classes = objectFactory.createClasses();
 
-            for (String className : ri) {
+            // Keep the class names starting with the requested one and let getRange add the link to the next range
+            int fromIndex = Math.min(start != null && start > 0 ? start : 0, classNames.size());
+            List<String> rangeClassNames =
+                getRange(classNames.subList(fromIndex, classNames.size()), start, number, classes);
+
+            for (String className : rangeClassNames) {
                 com.xpn.xwiki.api.Class xwikiClass = Utils.getXWikiApi(componentManager).getClass(className);
                 classes.getClazzs().add(this.utils.toRestClass(uriInfo.getBaseUri(), xwikiClass));
             }
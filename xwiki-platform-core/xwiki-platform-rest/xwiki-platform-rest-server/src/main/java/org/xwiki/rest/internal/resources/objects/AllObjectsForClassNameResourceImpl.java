@@ -19,21 +19,28 @@
  */
 package org.xwiki.rest.internal.resources.objects;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.objects.StreamingObjects;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
 import org.xwiki.rest.model.jaxb.ObjectSummary;
 import org.xwiki.rest.model.jaxb.Objects;
 import org.xwiki.rest.resources.objects.AllObjectsForClassNameResource;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.api.XWiki;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
 
@@ -44,49 +51,63 @@
 @Named("org.xwiki.rest.internal.resources.objects.AllObjectsForClassNameResourceImpl")
 public class AllObjectsForClassNameResourceImpl extends XWikiResource implements AllObjectsForClassNameResource
 {
+    /**
+     * The number of objects loaded at once while writing the response.
+     */
+    private static final int PAGE_SIZE = 100;
+
     @Override
     public Objects getObjects(String wikiName, String className, Integer start, Integer number, String order,
             Boolean withPrettyNames) throws XWikiRestException
     {
-        String database = Utils.getXWikiContext(componentManager).getWikiId();
-
-        try {
-            Objects objects = new Objects();
+        // The objects are loaded and written page by page after this resource has been released: don't use its
+        // fields while loading them
+        XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+        XWiki xwikiApi = Utils.getXWikiApi(componentManager);
+        QueryManager queryManager = this.queryManager;
+        ObjectFactory objectFactory = this.objectFactory;
+        URI baseUri = uriInfo.getBaseUri();
 
-            Utils.getXWikiContext(componentManager).setWikiId(wikiName);
+        // The objects are paginated so they need a stable order
+        String query =
+                "select doc, obj from BaseObject as obj, XWikiDocument as doc where obj.name=doc.fullName and obj.className=:className";
+        if ("date".equals(order)) {
+            query += " order by doc.date desc, obj.id";
+        } else {
+            query += " order by obj.id";
+        }
+        String statement = query;
 
-            String query =
-                    "select doc, obj from BaseObject as obj, XWikiDocument as doc where obj.name=doc.fullName and obj.className=:className";
-            if ("date".equals(order)) {
-                query += " order by doc.date desc";
-            }
+        try {
+            return new StreamingObjects(start, number, PAGE_SIZE, (offset, limit) -> {
+                String database = xcontext.getWikiId();
 
-            List<Object> queryResult = null;
-            queryResult =
-                    queryManager.createQuery(query, Query.XWQL).bindValue("className", className).setLimit(number)
-                            .setOffset(start).execute();
+                try {
+                    xcontext.setWikiId(wikiName);
 
-            for (Object object : queryResult) {
-                Object[] fields = (Object[]) object;
+                    List<Object> queryResult = queryManager.createQuery(statement, Query.XWQL)
+                        .bindValue("className", className).setLimit(limit).setOffset(offset).execute();
 
-                XWikiDocument xwikiDocument = (XWikiDocument) fields[0];
-                xwikiDocument.setDatabase(wikiName);
-                Document doc = new Document(xwikiDocument, Utils.getXWikiContext(componentManager));
-                BaseObject xwikiObject = (BaseObject) fields[1];
+                    List<ObjectSummary> objectSummaries = new ArrayList<>(queryResult.size());
+                    for (Object object : queryResult) {
+                        Object[] fields = (Object[]) object;
 
-                ObjectSummary objectSummary = DomainObjectFactory
-                        .createObjectSummary(objectFactory, uriInfo.getBaseUri(), Utils.getXWikiContext(
-                                componentManager), doc, xwikiObject, false, Utils.getXWikiApi(componentManager),
-                                withPrettyNames);
+                        XWikiDocument xwikiDocument = (XWikiDocument) fields[0];
+                        xwikiDocument.setDatabase(wikiName);
+                        Document doc = new Document(xwikiDocument, xcontext);
+                        BaseObject xwikiObject = (BaseObject) fields[1];
 
-                objects.getObjectSummaries().add(objectSummary);
-            }
+                        objectSummaries.add(DomainObjectFactory.createObjectSummary(objectFactory, baseUri, xcontext,
+                            doc, xwikiObject, false, xwikiApi, withPrettyNames));
+                    }
 
-            return objects;
+                    return objectSummaries;
+                } finally {
+                    xcontext.setWikiId(database);
+                }
+            });
         } catch (Exception e) {
             throw new XWikiRestException(e);
-        } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
         }
     }
 }
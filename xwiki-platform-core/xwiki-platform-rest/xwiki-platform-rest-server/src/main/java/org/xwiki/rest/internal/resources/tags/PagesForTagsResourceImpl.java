@@ -20,6 +20,7 @@
 package org.xwiki.rest.internal.resources.tags;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.inject.Named;
@@ -30,7 +31,6 @@
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
-import org.xwiki.rest.internal.RangeIterable;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.resources.tags.PagesForTagsResource;
@@ -52,23 +52,11 @@ public Pages getTags(String wikiName, String tagNames, Integer start, Integer nu
 
             Utils.getXWikiContext(componentManager).setWikiId(wikiName);
 
-            String[] tagNamesArray = tagNames.split(",");
+            List<String> documentNames =
+                getRange(getDocumentsWithTags(Arrays.asList(tagNames.split(",")), start, number), start, number,
+                    pages);
 
-            List<String> documentNames = new ArrayList<String>();
-            for (String tagName : tagNamesArray) {
-                List<String> documentNamesForTag = getDocumentsWithTag(tagName);
-
-                /* Avoid duplicates */
-                for (String documentName : documentNamesForTag) {
-                    if (!documentNames.contains(documentName)) {
-                        documentNames.add(documentName);
-                    }
-                }
-            }
-
-            RangeIterable<String> ri = new RangeIterable<String>(documentNames, start, number);
-
-            for (String documentName : ri) {
+            for (String documentName : documentNames) {
                 Document doc = Utils.getXWikiApi(componentManager).getDocument(documentName);
                 if (doc != null) {
                     pages.getPageSummaries().add(DomainObjectFactory
@@ -85,15 +73,23 @@ public Pages getTags(String wikiName, String tagNames, Integer start, Integer nu
         }
     }
 
-    private List<String> getDocumentsWithTag(String tag) throws QueryException
+    private List<String> getDocumentsWithTags(List<String> tags, Integer start, Integer number)
+        throws QueryException
     {
-        String query =
-                "select doc.fullName from XWikiDocument as doc, BaseObject as obj, DBStringListProperty as prop "
-                        + "where obj.name=doc.fullName and obj.className='XWiki.TagClass' and obj.id=prop.id.id "
-                        + "and prop.id.name='tags' and :tag in elements(prop.list) order by doc.name asc";
-
-        List<String> documentsWithTag = queryManager.createQuery(query, Query.HQL).bindValue("tag", tag).execute();
+        // Paginate in the database to not load all the tagged documents for each requested range
+        String query = "select distinct doc.fullName, doc.name from XWikiDocument as doc, BaseObject as obj, "
+            + "DBStringListProperty as prop join prop.list as tag where obj.name=doc.fullName "
+            + "and obj.className='XWiki.TagClass' and obj.id=prop.id.id and prop.id.name='tags' and tag in (:tags) "
+            + "order by doc.name asc, doc.fullName asc";
+
+        List<Object[]> results =
+            setRange(this.queryManager.createQuery(query, Query.HQL), start, number).bindValue("tags", tags).execute();
+
+        List<String> documentsWithTags = new ArrayList<String>(results.size());
+        for (Object[] result : results) {
+            documentsWithTags.add((String) result[0]);
+        }
 
-        return documentsWithTag;
+        return documentsWithTags;
     }
 }
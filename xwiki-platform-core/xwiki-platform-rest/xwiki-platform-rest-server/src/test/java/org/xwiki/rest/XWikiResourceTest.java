@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.query.Query;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.Pages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the range methods of {@link XWikiResource}.
+ *
+ * @version $Id$
+ */
+public class XWikiResourceTest
+{
+    private XWikiResource resource = new XWikiResource();
+
+    private UriBuilder uriBuilder = mock(UriBuilder.class);
+
+    private Query query = mock(Query.class);
+
+    @BeforeEach
+    public void configure()
+    {
+        this.resource.objectFactory = new ObjectFactory();
+        this.resource.uriInfo = mock(UriInfo.class);
+        when(this.resource.uriInfo.getRequestUriBuilder()).thenReturn(this.uriBuilder);
+    }
+
+    @Test
+    public void setRange()
+    {
+        assertSame(this.query, this.resource.setRange(this.query, 20, 10));
+
+        verify(this.query).setOffset(20);
+        verify(this.query).setLimit(11);
+    }
+
+    @Test
+    public void setRangeWithoutStartAndNumber()
+    {
+        this.resource.setRange(this.query, 0, -1);
+        this.resource.setRange(this.query, null, null);
+
+        verify(this.query, never()).setOffset(anyInt());
+        verify(this.query, never()).setLimit(anyInt());
+    }
+
+    @Test
+    public void getRangeWhenLastRange()
+    {
+        Pages pages = new Pages();
+        List<String> results = Arrays.asList("a", "b");
+
+        assertEquals(results, this.resource.getRange(results, 20, 2, pages));
+        assertEquals(results, this.resource.getRange(results, 20, -1, pages));
+        assertTrue(pages.getLinks().isEmpty());
+    }
+
+    @Test
+    public void getRangeWhenNextRange() throws Exception
+    {
+        when(this.uriBuilder.replaceQueryParam("start", 22)).thenReturn(this.uriBuilder);
+        when(this.uriBuilder.build()).thenReturn(new URI("/xwiki/rest/wikis/xwiki/tags/a?start=22&number=2"));
+        Pages pages = new Pages();
+
+        assertEquals(Arrays.asList("a", "b"), this.resource.getRange(Arrays.asList("a", "b", "c"), 20, 2, pages));
+
+        assertEquals(1, pages.getLinks().size());
+        Link nextLink = pages.getLinks().get(0);
+        assertEquals(Relations.NEXT, nextLink.getRel());
+        assertEquals("/xwiki/rest/wikis/xwiki/tags/a?start=22&number=2", nextLink.getHref());
+    }
+
+    @Test
+    public void getRangeWhenNextRangeWithoutStart() throws Exception
+    {
+        when(this.uriBuilder.replaceQueryParam("start", 1)).thenReturn(this.uriBuilder);
+        when(this.uriBuilder.build()).thenReturn(new URI("/xwiki/rest/wikis/xwiki/classes?start=1&number=1"));
+        Pages pages = new Pages();
+
+        assertEquals(Arrays.asList("a"), this.resource.getRange(Arrays.asList("a", "b"), null, 1, pages));
+
+        assertEquals("/xwiki/rest/wikis/xwiki/classes?start=1&number=1", pages.getLinks().get(0).getHref());
+    }
+}
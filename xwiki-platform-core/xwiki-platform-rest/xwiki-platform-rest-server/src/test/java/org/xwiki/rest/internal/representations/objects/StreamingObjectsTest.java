@@ -0,0 +1,154 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rest.model.jaxb.ObjectSummary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Validate {@link StreamingObjects}.
+ *
+ * @version $Id$
+ */
+public class StreamingObjectsTest
+{
+    /**
+     * The pages requested to the loader, as offset and limit.
+     */
+    private List<List<Integer>> loadedPages = new ArrayList<>();
+
+    private StreamingObjects.PageLoader createLoader(int total)
+    {
+        return (offset, limit) -> {
+            this.loadedPages.add(Arrays.asList(offset, limit));
+
+            List<ObjectSummary> page = new ArrayList<>();
+            for (int i = offset; i < total && i < offset + limit; ++i) {
+                ObjectSummary objectSummary = new ObjectSummary();
+                objectSummary.setNumber(i);
+                page.add(objectSummary);
+            }
+
+            return page;
+        };
+    }
+
+    private List<Integer> getNumbers(Iterable<ObjectSummary> objects)
+    {
+        List<Integer> numbers = new ArrayList<>();
+        for (ObjectSummary objectSummary : objects) {
+            numbers.add(objectSummary.getNumber());
+        }
+
+        return numbers;
+    }
+
+    @Test
+    public void iterateByPages() throws Exception
+    {
+        StreamingObjects objects = new StreamingObjects(1, -1, 3, createLoader(8));
+
+        // Only the first page is loaded before iterating
+        assertEquals(Arrays.asList(Arrays.asList(1, 3)), this.loadedPages);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), getNumbers(objects));
+        // The last page is smaller than requested so there is no need to ask for another one
+        assertEquals(Arrays.asList(Arrays.asList(1, 3), Arrays.asList(4, 3), Arrays.asList(7, 3)), this.loadedPages);
+    }
+
+    @Test
+    public void iterateWhenLastPageIsFull() throws Exception
+    {
+        StreamingObjects objects = new StreamingObjects(0, 0, 3, createLoader(6));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), getNumbers(objects));
+        assertEquals(Arrays.asList(Arrays.asList(0, 3), Arrays.asList(3, 3), Arrays.asList(6, 3)), this.loadedPages);
+    }
+
+    @Test
+    public void iterateWithNumber() throws Exception
+    {
+        StreamingObjects objects = new StreamingObjects(2, 5, 3, createLoader(20));
+
+        assertEquals(Arrays.asList(2, 3, 4, 5, 6), getNumbers(objects));
+        // The last page only asks for the missing objects
+        assertEquals(Arrays.asList(Arrays.asList(2, 3), Arrays.asList(5, 2)), this.loadedPages);
+    }
+
+    @Test
+    public void iterateOnlyOnce() throws Exception
+    {
+        StreamingObjects objects = new StreamingObjects(0, -1, 3, createLoader(2));
+
+        objects.iterator();
+
+        assertThrows(IllegalStateException.class, () -> objects.iterator());
+    }
+
+    @Test
+    public void getObjectSummaries() throws Exception
+    {
+        StreamingObjects objects = new StreamingObjects(0, -1, 3, createLoader(4));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), getNumbers(objects.getObjectSummaries()));
+        // The objects are loaded only once
+        assertEquals(Arrays.asList(0, 1, 2, 3), getNumbers(objects.getObjectSummaries()));
+        assertEquals(2, this.loadedPages.size());
+    }
+
+    @Test
+    public void loadFirstPageFails()
+    {
+        Exception failure = new Exception("failure");
+
+        Exception exception = assertThrows(Exception.class, () -> new StreamingObjects(0, -1, 3, (offset, limit) -> {
+            throw failure;
+        }));
+
+        assertSame(failure, exception);
+    }
+
+    @Test
+    public void loadNextPageFails() throws Exception
+    {
+        Exception failure = new Exception("failure");
+        StreamingObjects.PageLoader loader = createLoader(6);
+        StreamingObjects objects = new StreamingObjects(0, -1, 3, (offset, limit) -> {
+            if (offset > 0) {
+                throw failure;
+            }
+
+            return loader.load(offset, limit);
+        });
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> getNumbers(objects));
+
+        assertEquals("Failed to load the objects starting at [3]", exception.getMessage());
+        assertSame(failure, exception.getCause());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.objects;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXBContext;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.ObjectSummary;
+import org.xwiki.rest.model.jaxb.Objects;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link StreamingObjectsWriter}.
+ *
+ * @version $Id$
+ */
+public class StreamingObjectsWriterTest
+{
+    private StreamingObjectsWriter writer = new StreamingObjectsWriter();
+
+    private List<ObjectSummary> createObjectSummaries(int count)
+    {
+        List<ObjectSummary> objectSummaries = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            ObjectSummary objectSummary = new ObjectSummary();
+            objectSummary.setId("wiki:Space.Page" + i + ":guid" + i);
+            objectSummary.setWiki("wiki");
+            objectSummary.setPageId("wiki:Space.Page" + i);
+            objectSummary.setClassName("Space.Class");
+            objectSummary.setNumber(i);
+
+            Link link = new Link();
+            link.setHref("/xwiki/rest/wikis/wiki/spaces/Space/pages/Page" + i + "/objects/Space.Class/" + i);
+            link.setRel("http://www.xwiki.org/rel/object");
+            objectSummary.getLinks().add(link);
+
+            objectSummaries.add(objectSummary);
+        }
+
+        return objectSummaries;
+    }
+
+    private StreamingObjects createStreamingObjects(List<ObjectSummary> objectSummaries) throws Exception
+    {
+        return new StreamingObjects(0, -1, 2,
+            (offset, limit) -> objectSummaries.subList(offset, Math.min(offset + limit, objectSummaries.size())));
+    }
+
+    private String write(StreamingObjects objects, MediaType mediaType) throws Exception
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.writer.writeTo(objects, StreamingObjects.class, Objects.class, null, mediaType, null, output);
+
+        return output.toString("UTF-8");
+    }
+
+    @Test
+    public void isWriteable()
+    {
+        assertTrue(this.writer.isWriteable(StreamingObjects.class, Objects.class, null,
+            MediaType.APPLICATION_XML_TYPE));
+        assertFalse(this.writer.isWriteable(Objects.class, Objects.class, null, MediaType.APPLICATION_XML_TYPE));
+    }
+
+    @Test
+    public void writeXML() throws Exception
+    {
+        List<ObjectSummary> objectSummaries = createObjectSummaries(5);
+
+        String xml = write(createStreamingObjects(objectSummaries), MediaType.APPLICATION_XML_TYPE);
+
+        // The result can be read as the usual objects representation
+        Objects objects = (Objects) JAXBContext.newInstance(ObjectFactory.class.getPackage().getName())
+            .createUnmarshaller().unmarshal(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        assertEquals(5, objects.getObjectSummaries().size());
+        for (int i = 0; i < 5; ++i) {
+            ObjectSummary objectSummary = objects.getObjectSummaries().get(i);
+            assertEquals(objectSummaries.get(i).getId(), objectSummary.getId());
+            assertEquals(objectSummaries.get(i).getClassName(), objectSummary.getClassName());
+            assertEquals(i, objectSummary.getNumber());
+            assertEquals(objectSummaries.get(i).getLinks().get(0).getHref(),
+                objectSummary.getLinks().get(0).getHref());
+        }
+    }
+
+    @Test
+    public void writeXMLWithoutObjects() throws Exception
+    {
+        String xml = write(createStreamingObjects(Collections.emptyList()), MediaType.TEXT_XML_TYPE);
+
+        Objects objects = (Objects) JAXBContext.newInstance(ObjectFactory.class.getPackage().getName())
+            .createUnmarshaller().unmarshal(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        assertTrue(objects.getObjectSummaries().isEmpty());
+    }
+
+    @Test
+    public void writeJSON() throws Exception
+    {
+        List<ObjectSummary> objectSummaries = createObjectSummaries(5);
+
+        String json = write(createStreamingObjects(objectSummaries), MediaType.APPLICATION_JSON_TYPE);
+
+        // Same representation as the one produced by Jackson for the usual objects
+        Objects objects = new Objects();
+        objects.getObjectSummaries().addAll(objectSummaries);
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.readTree(mapper.writeValueAsString(objects)), mapper.readTree(json));
+    }
+}
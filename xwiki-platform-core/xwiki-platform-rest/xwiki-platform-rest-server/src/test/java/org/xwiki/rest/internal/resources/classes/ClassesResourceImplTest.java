@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.classes;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Provider;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.internal.ModelFactory;
+import org.xwiki.rest.model.jaxb.Class;
+import org.xwiki.rest.model.jaxb.Classes;
+import org.xwiki.rest.resources.classes.ClassesResource;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ClassesResourceImpl}.
+ *
+ * @version $Id$
+ */
+public class ClassesResourceImplTest
+{
+    @Rule
+    public MockitoComponentMockingRule<ClassesResource> mocker =
+        new MockitoComponentMockingRule<ClassesResource>(ClassesResourceImpl.class);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private UriBuilder uriBuilder = mock(UriBuilder.class);
+
+    private ClassesResource resource;
+
+    @Before
+    public void configure() throws Exception
+    {
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        Execution execution = mock(Execution.class);
+        ComponentManager componentManager = this.mocker.getInstance(ComponentManager.class, "context");
+        when(componentManager.getInstance(Execution.class)).thenReturn(execution);
+        when(execution.getContext()).thenReturn(executionContext);
+        when(this.xcontext.getWikiId()).thenReturn("current");
+
+        // Used by the public XWiki API
+        Utils.setComponentManager(this.mocker);
+        Provider<XWikiContext> xcontextProvider = mock(Provider.class);
+        when(componentManager.getInstance(XWikiContext.TYPE_PROVIDER, "default")).thenReturn(xcontextProvider);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+        DocumentReferenceResolver<String> resolver = mock(DocumentReferenceResolver.class);
+        when(componentManager.getInstance(DocumentReferenceResolver.TYPE_STRING, "currentmixed"))
+            .thenReturn(resolver);
+        when(resolver.resolve(anyString())).then(invocation -> new DocumentReference("wiki", "Space",
+            invocation.<String>getArgument(0)));
+
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getClassList(this.xcontext)).thenReturn(new ArrayList<>(Arrays.asList("C", "A", "D", "B")));
+        when(xwiki.getDocument(any(DocumentReference.class), any(XWikiContext.class))).then(invocation -> {
+            BaseClass xclass = mock(BaseClass.class);
+            when(xclass.getName()).thenReturn(invocation.<DocumentReference>getArgument(0).getName());
+            XWikiDocument document = mock(XWikiDocument.class);
+            when(document.getXClass()).thenReturn(xclass);
+            return document;
+        });
+
+        ModelFactory modelFactory = this.mocker.getInstance(ModelFactory.class);
+        when(modelFactory.toRestClass(any(), any())).then(invocation -> {
+            Class clazz = new Class();
+            clazz.setId(invocation.<com.xpn.xwiki.api.Class>getArgument(1).getName());
+            return clazz;
+        });
+
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("/xwiki/rest"));
+        when(uriInfo.getRequestUriBuilder()).thenReturn(this.uriBuilder);
+        this.resource = this.mocker.getComponentUnderTest();
+        ReflectionUtils.setFieldValue(this.resource, "uriInfo", uriInfo);
+    }
+
+    @After
+    public void tearDown()
+    {
+        Utils.setComponentManager(null);
+    }
+
+    @Test
+    public void getClassesWithNextRange() throws Exception
+    {
+        when(this.uriBuilder.replaceQueryParam("start", 3)).thenReturn(this.uriBuilder);
+        when(this.uriBuilder.build()).thenReturn(new URI("/xwiki/rest/wikis/wiki/classes?start=3&number=2"));
+
+        Classes classes = this.resource.getClasses("wiki", 1, 2);
+
+        assertEquals(Arrays.asList("B", "C"), getIds(classes));
+        assertEquals(1, classes.getLinks().size());
+        assertEquals(Relations.NEXT, classes.getLinks().get(0).getRel());
+        assertEquals("/xwiki/rest/wikis/wiki/classes?start=3&number=2", classes.getLinks().get(0).getHref());
+    }
+
+    @Test
+    public void getClassesWithLastRange() throws Exception
+    {
+        Classes classes = this.resource.getClasses("wiki", 2, 2);
+
+        assertEquals(Arrays.asList("C", "D"), getIds(classes));
+        assertTrue(classes.getLinks().isEmpty());
+    }
+
+    @Test
+    public void getClassesAfterTheLastOne() throws Exception
+    {
+        Classes classes = this.resource.getClasses("wiki", 10, 2);
+
+        assertTrue(classes.getClazzs().isEmpty());
+        assertTrue(classes.getLinks().isEmpty());
+    }
+
+    @Test
+    public void getAllClasses() throws Exception
+    {
+        Classes classes = this.resource.getClasses("wiki", 0, -1);
+
+        assertEquals(Arrays.asList("A", "B", "C", "D"), getIds(classes));
+        assertTrue(classes.getLinks().isEmpty());
+    }
+
+    private List<String> getIds(Classes classes)
+    {
+        List<String> ids = new ArrayList<>();
+        for (Class clazz : classes.getClazzs()) {
+            ids.add(clazz.getId());
+        }
+
+        return ids;
+    }
+}
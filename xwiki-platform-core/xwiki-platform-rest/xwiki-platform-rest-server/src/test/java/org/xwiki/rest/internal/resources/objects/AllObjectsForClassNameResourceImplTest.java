@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.objects;
+
+import java.net.URI;
+import java.util.Collections;
+
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.XWikiRestException;
+import org.xwiki.rest.internal.representations.objects.StreamingObjects;
+import org.xwiki.rest.model.jaxb.Objects;
+import org.xwiki.rest.resources.objects.AllObjectsForClassNameResource;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AllObjectsForClassNameResourceImpl}.
+ *
+ * @version $Id$
+ */
+public class AllObjectsForClassNameResourceImplTest
+{
+    @Rule
+    public MockitoComponentMockingRule<AllObjectsForClassNameResource> mocker =
+        new MockitoComponentMockingRule<AllObjectsForClassNameResource>(AllObjectsForClassNameResourceImpl.class);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private Query query = mock(Query.class);
+
+    private AllObjectsForClassNameResource resource;
+
+    @Before
+    public void configure() throws Exception
+    {
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        Execution execution = mock(Execution.class);
+        ComponentManager componentManager = this.mocker.getInstance(ComponentManager.class, "context");
+        when(componentManager.getInstance(Execution.class)).thenReturn(execution);
+        when(execution.getContext()).thenReturn(executionContext);
+        when(this.xcontext.getWikiId()).thenReturn("current");
+
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery(anyString(), eq(Query.XWQL))).thenReturn(this.query);
+        when(this.query.bindValue(anyString(), any())).thenReturn(this.query);
+        when(this.query.setLimit(anyInt())).thenReturn(this.query);
+        when(this.query.setOffset(anyInt())).thenReturn(this.query);
+
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("/xwiki/rest"));
+        this.resource = this.mocker.getComponentUnderTest();
+        ReflectionUtils.setFieldValue(this.resource, "uriInfo", uriInfo);
+    }
+
+    @Test
+    public void getObjectsWhenNoObject() throws Exception
+    {
+        when(this.query.execute()).thenReturn(Collections.emptyList());
+
+        Objects objects = this.resource.getObjects("wiki", "Space.Class", 0, 10, null, false);
+
+        assertTrue(objects.getObjectSummaries().isEmpty());
+        verify(this.query).bindValue("className", "Space.Class");
+        verify(this.xcontext).setWikiId("wiki");
+        verify(this.xcontext).setWikiId("current");
+    }
+
+    @Test
+    public void getObjectsFailsWhileCreatingTheSummaries() throws Exception
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        BaseObject object = mock(BaseObject.class);
+        when(this.query.execute()).thenReturn(Collections.singletonList(new Object[] {document, object}));
+        RuntimeException failure = new RuntimeException("failure");
+        doThrow(failure).when(document).setDatabase("wiki");
+
+        // The failure is reported by the resource method (i.e. with an error status) and not while the response is
+        // being written
+        try {
+            this.resource.getObjects("wiki", "Space.Class", 0, 10, null, false);
+            fail();
+        } catch (XWikiRestException expected) {
+            assertEquals(failure, expected.getCause());
+        }
+
+        verify(this.xcontext).setWikiId("current");
+    }
+
+    @Test
+    public void getObjectsLoadsTheFirstPage() throws Exception
+    {
+        when(this.query.execute()).thenReturn(Collections.emptyList());
+
+        Objects objects = this.resource.getObjects("wiki", "Space.Class", 20, -1, "date", false);
+
+        // The other pages are loaded while writing the response
+        assertTrue(objects instanceof StreamingObjects);
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        verify(queryManager).createQuery(endsWith(" order by doc.date desc, obj.id"), eq(Query.XWQL));
+        verify(this.query).setOffset(20);
+        verify(this.query).setLimit(100);
+        verify(this.query, never()).setLimit(-1);
+    }
+
+    @Test
+    public void getObjectsWithNumberSmallerThanAPage() throws Exception
+    {
+        when(this.query.execute()).thenReturn(Collections.emptyList());
+
+        this.resource.getObjects("wiki", "Space.Class", 0, 10, null, false);
+
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        verify(queryManager).createQuery(endsWith(" order by obj.id"), eq(Query.XWQL));
+        verify(this.query).setOffset(0);
+        verify(this.query).setLimit(10);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.wikis;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.SpaceReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.model.jaxb.Attachment;
+import org.xwiki.rest.model.jaxb.Attachments;
+import org.xwiki.rest.resources.wikis.WikiAttachmentsResource;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiURLFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the ranges of attachments returned by {@link WikiAttachmentsResourceImpl}.
+ *
+ * @version $Id$
+ */
+public class WikiAttachmentsResourceImplTest
+{
+    @Rule
+    public MockitoComponentMockingRule<WikiAttachmentsResource> mocker =
+        new MockitoComponentMockingRule<WikiAttachmentsResource>(WikiAttachmentsResourceImpl.class);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private Query query = mock(Query.class);
+
+    private UriBuilder uriBuilder = mock(UriBuilder.class);
+
+    private WikiAttachmentsResource resource;
+
+    @Before
+    public void configure() throws Exception
+    {
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        Execution execution = mock(Execution.class);
+        ComponentManager componentManager = this.mocker.getInstance(ComponentManager.class, "context");
+        when(componentManager.getInstance(Execution.class)).thenReturn(execution);
+        when(execution.getContext()).thenReturn(executionContext);
+        when(this.xcontext.getWikiId()).thenReturn("current");
+
+        // Used to compute the page identifiers
+        Utils.setComponentManager(this.mocker);
+        SpaceReferenceResolver<String> resolver = mock(SpaceReferenceResolver.class);
+        when(componentManager.getInstance(SpaceReferenceResolver.TYPE_STRING, "default")).thenReturn(resolver);
+        when(resolver.resolve(eq("Space"), any())).thenReturn(new SpaceReference("Space", new WikiReference("wiki")));
+        EntityReferenceSerializer<String> serializer = mock(EntityReferenceSerializer.class);
+        when(componentManager.getInstance(EntityReferenceSerializer.TYPE_STRING, "default")).thenReturn(serializer);
+        when(serializer.serialize(any())).thenReturn("wiki:Space.Page");
+
+        XWikiURLFactory urlFactory = mock(XWikiURLFactory.class);
+        when(this.xcontext.getURLFactory()).thenReturn(urlFactory);
+        when(urlFactory.createAttachmentURL(anyString(), eq("Space"), eq("Page"), eq("download"), any(), eq("wiki"),
+            eq(this.xcontext))).thenReturn(new URL("http://localhost/xwiki/bin/download/Space/Page/file"));
+
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery(anyString(), eq(Query.XWQL))).thenReturn(this.query);
+        when(this.query.bindValue(anyString(), any())).thenReturn(this.query);
+        when(this.query.setLimit(anyInt())).thenReturn(this.query);
+        when(this.query.setOffset(anyInt())).thenReturn(this.query);
+
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("/xwiki/rest"));
+        when(uriInfo.getRequestUriBuilder()).thenReturn(this.uriBuilder);
+        when(this.uriBuilder.replaceQueryParam(eq("start"), any())).thenReturn(this.uriBuilder);
+        this.resource = this.mocker.getComponentUnderTest();
+        ReflectionUtils.setFieldValue(this.resource, "uriInfo", uriInfo);
+    }
+
+    @After
+    public void tearDown()
+    {
+        Utils.setComponentManager(null);
+    }
+
+    @Test
+    public void getAttachmentsWithNextRange() throws Exception
+    {
+        when(this.query.execute()).thenReturn(rows("a.txt", "b.txt", "c.txt"));
+        when(this.uriBuilder.build()).thenReturn(new URI("/xwiki/rest/wikis/wiki/attachments?start=2&number=2"));
+
+        Attachments attachments = this.resource.getAttachments("wiki", "", "", "", "", "", 0, 2, false);
+
+        assertEquals(Arrays.asList("a.txt", "b.txt"), getNames(attachments));
+        assertEquals(1, attachments.getLinks().size());
+        assertEquals(Relations.NEXT, attachments.getLinks().get(0).getRel());
+        assertEquals("/xwiki/rest/wikis/wiki/attachments?start=2&number=2",
+            attachments.getLinks().get(0).getHref());
+        verify(this.uriBuilder).replaceQueryParam("start", 2);
+        verify(this.query).setLimit(3);
+        verify(this.query, never()).setOffset(anyInt());
+        verify(this.xcontext).setWikiId("wiki");
+        verify(this.xcontext).setWikiId("current");
+    }
+
+    @Test
+    public void getAttachmentsWithTypesFillsTheRange() throws Exception
+    {
+        when(this.query.execute()).thenReturn(rows("a.txt", "b.png", "c.txt"), rows("d.png", "e.txt", "f.png"));
+        when(this.uriBuilder.build()).thenReturn(new URI("/xwiki/rest/wikis/wiki/attachments?start=15"));
+
+        Attachments attachments = this.resource.getAttachments("wiki", "", "", "", "", "image", 10, 2, false);
+
+        // The range is filled with the attachments matching the types and the next range starts with the next one
+        assertEquals(Arrays.asList("b.png", "d.png"), getNames(attachments));
+        assertEquals(1, attachments.getLinks().size());
+        verify(this.uriBuilder).replaceQueryParam("start", 15);
+        verify(this.query).setOffset(10);
+        verify(this.query).setOffset(13);
+        verify(this.query, times(2)).setLimit(3);
+    }
+
+    @Test
+    public void getAttachmentsWithTypesAndShortLastRange() throws Exception
+    {
+        when(this.query.execute()).thenReturn(rows("a.txt", "b.png", "c.txt"), rows("d.txt"));
+
+        Attachments attachments = this.resource.getAttachments("wiki", "", "", "", "", "image", 0, 2, false);
+
+        // No attachment matching the types is left so there's no next range
+        assertEquals(Arrays.asList("b.png"), getNames(attachments));
+        assertTrue(attachments.getLinks().isEmpty());
+        verify(this.query).setOffset(3);
+        verify(this.query, times(2)).execute();
+    }
+
+    @Test
+    public void getAttachmentsWithTypesWhenNoneMatches() throws Exception
+    {
+        when(this.query.execute()).thenReturn(rows("a.txt", "b.txt", "c.txt"), new ArrayList<>());
+
+        Attachments attachments = this.resource.getAttachments("wiki", "", "", "", "", "image", 0, 2, false);
+
+        assertTrue(attachments.getAttachments().isEmpty());
+        assertTrue(attachments.getLinks().isEmpty());
+        verify(this.query, times(2)).execute();
+    }
+
+    @Test
+    public void getAllAttachments() throws Exception
+    {
+        when(this.query.execute()).thenReturn(rows("a.txt", "b.png", "c.txt"));
+
+        Attachments attachments = this.resource.getAttachments("wiki", "", "", "", "", "text", 0, -1, false);
+
+        assertEquals(Arrays.asList("a.txt", "c.txt"), getNames(attachments));
+        assertTrue(attachments.getLinks().isEmpty());
+        verify(this.query, never()).setLimit(anyInt());
+        verify(this.query).execute();
+    }
+
+    private List<Object> rows(String... fileNames)
+    {
+        List<Object> rows = new ArrayList<>();
+        for (String fileName : fileNames) {
+            XWikiAttachment attachment = mock(XWikiAttachment.class);
+            when(attachment.getFilename()).thenReturn(fileName);
+            when(attachment.getMimeType(this.xcontext))
+                .thenReturn(fileName.endsWith(".png") ? "image/png" : "text/plain");
+            when(attachment.getDate()).thenReturn(new Date());
+            rows.add(new Object[] {"Space", "Page", "1.1", attachment});
+        }
+
+        return rows;
+    }
+
+    private List<String> getNames(Attachments attachments)
+    {
+        List<String> names = new ArrayList<>();
+        for (Attachment attachment : attachments.getAttachments()) {
+            names.add(attachment.getName());
+        }
+
+        return names;
+    }
+}
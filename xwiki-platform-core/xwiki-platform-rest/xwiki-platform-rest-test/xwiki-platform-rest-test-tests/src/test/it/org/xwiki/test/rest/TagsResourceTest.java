@@ -19,6 +19,8 @@
  */
 package org.xwiki.test.rest;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import javax.ws.rs.core.MediaType;
@@ -126,6 +128,46 @@ public void testRepresentation() throws Exception
         Assert.assertNotNull(tagsLink);
     }
 
+    @Test
+    public void testGETPagesForTagsRanges() throws Exception
+    {
+        String tagName = UUID.randomUUID().toString();
+        String otherTagName = UUID.randomUUID().toString();
+
+        tagPage("Page1", tagName);
+        tagPage("Page2", tagName, otherTagName);
+        tagPage("Page3", otherTagName);
+
+        // A page having both tags is returned only once
+        GetMethod getMethod = executeGet(String.format("%s?number=2",
+            buildURI(PagesForTagsResource.class, getWiki(), String.format("%s,%s", tagName, otherTagName))));
+        Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+
+        Pages pages = (Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream());
+        Assert.assertEquals(getPagesInfo(pages), 2, pages.getPageSummaries().size());
+        Assert.assertEquals("Page1", pages.getPageSummaries().get(0).getName());
+        Assert.assertEquals("Page2", pages.getPageSummaries().get(1).getName());
+
+        Link nextLink = getFirstLinkByRelation(pages, Relations.NEXT);
+        Assert.assertNotNull(nextLink);
+
+        getMethod = executeGet(nextLink.getHref());
+        Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+
+        pages = (Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream());
+        Assert.assertEquals(getPagesInfo(pages), 1, pages.getPageSummaries().size());
+        Assert.assertEquals("Page3", pages.getPageSummaries().get(0).getName());
+        Assert.assertNull(getFirstLinkByRelation(pages, Relations.NEXT));
+
+        getMethod = executeGet(buildURI(PagesForTagsResource.class, getWiki(), otherTagName));
+        Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+
+        pages = (Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream());
+        Assert.assertEquals(getPagesInfo(pages), 2, pages.getPageSummaries().size());
+        Assert.assertEquals("Page2", pages.getPageSummaries().get(0).getName());
+        Assert.assertEquals("Page3", pages.getPageSummaries().get(1).getName());
+    }
+
     @Test
     public void testPUTTagsWithTextPlain() throws Exception
     {
@@ -200,4 +242,21 @@ public void testPUTTagsFormUrlEncoded() throws Exception
         }
         Assert.assertTrue(found);
     }
+
+    private void tagPage(String pageName, String... tagNames) throws Exception
+    {
+        List<String> spaces = Arrays.asList(getTestClassName(), getTestMethodName());
+        createPageIfDoesntExist(spaces, pageName, "Test");
+
+        Tags tags = objectFactory.createTags();
+        for (String tagName : tagNames) {
+            Tag tag = objectFactory.createTag();
+            tag.setName(tagName);
+            tags.getTags().add(tag);
+        }
+
+        PutMethod putMethod = executePutXml(buildURI(PageTagsResource.class, getWiki(), spaces, pageName), tags,
+            TestUtils.SUPER_ADMIN_CREDENTIALS.getUserName(), TestUtils.SUPER_ADMIN_CREDENTIALS.getPassword());
+        Assert.assertEquals(getHttpMethodInfo(putMethod), HttpStatus.SC_ACCEPTED, putMethod.getStatusCode());
+    }
 }
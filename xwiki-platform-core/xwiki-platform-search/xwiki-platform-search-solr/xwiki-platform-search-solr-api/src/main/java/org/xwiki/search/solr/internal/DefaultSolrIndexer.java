@@ -20,13 +20,21 @@
 package org.xwiki.search.solr.internal;
 
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -48,6 +56,7 @@
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
+import org.xwiki.search.solr.internal.api.SolrIndexerStatistics;
 import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.IndexerJob;
 import org.xwiki.search.solr.internal.job.IndexerRequest;
@@ -63,6 +72,11 @@
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
  * processes the queue.
+ * <p>
+ * The extraction of the metadata to index (which can involve rendering documents or extracting the text of
+ * attachments) is delegated to a pool of threads (see {@link SolrConfiguration#getIndexerThreads()}) but the result is
+ * always sent to the Solr server in the order in which the entries were queued so that, for example, an index operation
+ * followed by a delete operation on the same entity can't be reordered.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -97,6 +111,11 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The metadata being extracted from the entity to index.
+         */
+        public Future<LengthSolrInputDocument> solrDocument;
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -215,13 +234,16 @@ public void runInternal()
 
                         for (EntityReference reference : references) {
                             indexQueue.put(new IndexQueueEntry(reference, queueEntry.operation));
+                            resolvedCount.incrementAndGet();
                         }
                     } else {
                         if (queueEntry.recurse) {
                             indexQueue.put(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
                                 queueEntry.operation));
+                            resolvedCount.incrementAndGet();
                         } else if (queueEntry.reference != null) {
                             indexQueue.put(new IndexQueueEntry(queueEntry.reference, queueEntry.operation));
+                            resolvedCount.incrementAndGet();
                         }
                     }
                 } catch (Throwable e) {
@@ -295,11 +317,22 @@ public void runInternal()
      */
     private BlockingQueue<ResolveQueueEntry> resolveQueue;
 
+    /**
+     * The entries which are being extracted by the extraction threads, in the order they have to be sent to the Solr
+     * server.
+     */
+    private BlockingQueue<IndexQueueEntry> extractQueue;
+
     /**
      * Thread in which the indexUpdater will be executed.
      */
     private Thread indexThread;
 
+    /**
+     * The threads in which the metadata of the entities to index are extracted.
+     */
+    private ExecutorService extractExecutor;
+
     /**
      * Thread in which the provided references children will be resolved.
      */
@@ -315,6 +348,26 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The time when the indexer was started.
+     */
+    private long startTime;
+
+    /**
+     * The number of entries added to the index queue.
+     */
+    private final AtomicLong resolvedCount = new AtomicLong();
+
+    /**
+     * The number of entries for which metadata have been extracted.
+     */
+    private final AtomicLong extractedCount = new AtomicLong();
+
+    /**
+     * The number of entries sent to the Solr server.
+     */
+    private final AtomicLong indexedCount = new AtomicLong();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -322,6 +375,18 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Make sure the extraction threads always have something to do while the index thread is waiting for the
+        // oldest entry to be extracted, without keeping too many extracted documents in memory.
+        int threads = Math.max(1, this.configuration.getIndexerThreads());
+        this.extractQueue = new ArrayBlockingQueue<>(threads * 2);
+
+        // Create the extraction threads
+        ThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("XWiki Solr extract thread %d")
+            .daemon(true).priority(Thread.NORM_PRIORITY - 1).build();
+        this.extractExecutor = Executors.newFixedThreadPool(threads, factory);
+
+        this.startTime = System.currentTimeMillis();
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -379,12 +444,19 @@ public void run()
             }
         }
 
+        // Stop the extraction threads
+        this.extractExecutor.shutdownNow();
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
     /**
      * Process a batch of operations that were just read from the index operations queue. This method also commits the
      * batch when it finishes to process it.
+     * <p>
+     * The entries are read from the index queue and their metadata extraction is started in the extraction threads as
+     * long as there is room in the extract queue. The result of the extraction is then sent to the Solr server in the
+     * order of the extract queue.
      * 
      * @param queueEntry the batch to process
      * @return {@code true} to wait for another batch, {@code false} to stop the indexing thread
@@ -395,45 +467,36 @@ private boolean processBatch(IndexQueueEntry queueEntry)
 
         int length = 0;
 
-        for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
-            if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
-                // Discard the current batch and stop the indexing thread.
-                return false;
-            }
+        IndexQueueEntry nextEntry = queueEntry;
+        while (nextEntry != null || !this.extractQueue.isEmpty()) {
+            // Start the extraction of as many entries as possible
+            for (; nextEntry != null && this.extractQueue.remainingCapacity() > 0; nextEntry =
+                this.indexQueue.poll()) {
+                if (nextEntry == INDEX_QUEUE_ENTRY_STOP) {
+                    // Discard the current batch and stop the indexing thread.
+                    discardExtractions();
 
-            IndexOperation operation = batchEntry.operation;
+                    return false;
+                }
 
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
+                startExtraction(nextEntry);
+            }
 
-                    ++this.batchSize;
+            // Send the oldest entry to the Solr server
+            IndexQueueEntry batchEntry = this.extractQueue.poll();
+            if (batchEntry != null) {
+                length += processEntry(solrInstance, batchEntry);
+
+                // Commit the index changes so that they become available to queries. This is a costly operation and
+                // that is the reason why we perform it at the end of the batch.
+                if (shouldCommit(length, this.batchSize)) {
+                    commit();
+                    length = 0;
                 }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
             }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
+            if (nextEntry == null) {
+                nextEntry = this.indexQueue.poll();
             }
         }
 
@@ -445,6 +508,104 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Add the entry to the extract queue and, if it's an index operation, start extracting its metadata.
+     * 
+     * @param queueEntry the entry to extract
+     */
+    private void startExtraction(IndexQueueEntry queueEntry)
+    {
+        if (IndexOperation.INDEX.equals(queueEntry.operation)) {
+            EntityReference reference = queueEntry.reference;
+            queueEntry.solrDocument = this.extractExecutor.submit(() -> extract(reference));
+        }
+
+        this.extractQueue.add(queueEntry);
+    }
+
+    /**
+     * Cancel the extractions in progress and clear the extract queue.
+     */
+    private void discardExtractions()
+    {
+        for (IndexQueueEntry queueEntry = this.extractQueue.poll(); queueEntry != null; queueEntry =
+            this.extractQueue.poll()) {
+            if (queueEntry.solrDocument != null) {
+                queueEntry.solrDocument.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Extract the metadata of the passed entity. Executed in one of the extraction threads.
+     * 
+     * @param reference the reference of the entity to extract the metadata from
+     * @return the {@link SolrInputDocument} containing extracted metadata from the passed reference; {@code null} if
+     *         the reference type is not supported.
+     * @throws Exception when failing to extract the metadata
+     */
+    private LengthSolrInputDocument extract(EntityReference reference) throws Exception
+    {
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            return getSolrDocument(reference);
+        } finally {
+            this.execution.removeContext();
+
+            this.extractedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Send the passed entry to the Solr server.
+     * 
+     * @param solrInstance the Solr instance
+     * @param batchEntry the entry to send
+     * @return the length of the data sent to the Solr server
+     */
+    private int processEntry(SolrInstance solrInstance, IndexQueueEntry batchEntry)
+    {
+        int length = 0;
+
+        IndexOperation operation = batchEntry.operation;
+
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument = batchEntry.solrDocument.get();
+                if (solrDocument != null) {
+                    solrInstance.add(solrDocument);
+                    length = solrDocument.getLength();
+                    ++this.batchSize;
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                if (batchEntry.reference == null) {
+                    solrInstance.deleteByQuery(batchEntry.deleteQuery);
+                } else {
+                    solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
+                }
+
+                ++this.batchSize;
+            }
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e.getCause());
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", batchEntry, e);
+
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
+        } finally {
+            this.execution.removeContext();
+
+            this.indexedCount.incrementAndGet();
+        }
+
+        return length;
+    }
+
     /**
      * Commit.
      */
@@ -557,7 +718,15 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.extractQueue.size() + this.batchSize;
+    }
+
+    @Override
+    public SolrIndexerStatistics getStatistics()
+    {
+        return new SolrIndexerStatistics(this.resolveQueue.size(), this.indexQueue.size(), this.extractQueue.size(),
+            this.resolvedCount.get(), this.extractedCount.get(), this.indexedCount.get(),
+            System.currentTimeMillis() - this.startTime);
     }
 
     @Override
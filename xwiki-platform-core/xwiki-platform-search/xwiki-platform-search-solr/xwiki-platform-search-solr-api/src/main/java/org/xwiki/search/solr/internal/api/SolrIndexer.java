@@ -60,6 +60,12 @@
      */
     int getQueueSize();
 
+    /**
+     * @return the current size of the queues and the number of entries processed by each stage of the indexer
+     * @since 10.11RC1
+     */
+    SolrIndexerStatistics getStatistics();
+
     /**
      * Start an indexing with specific criteria.
      * 
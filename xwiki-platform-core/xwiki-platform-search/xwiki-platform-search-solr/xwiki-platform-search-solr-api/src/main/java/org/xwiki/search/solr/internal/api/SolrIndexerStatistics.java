@@ -0,0 +1,160 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.api;
+
+/**
+ * A snapshot of the state of the indexing pipeline: the size of each queue and the number of entries processed by
+ * each stage since the indexer was started.
+ * 
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class SolrIndexerStatistics
+{
+    private static final double MILLISECONDS_PER_SECOND = 1000D;
+
+    private final int resolveQueueSize;
+
+    private final int indexQueueSize;
+
+    private final int extractQueueSize;
+
+    private final long resolvedCount;
+
+    private final long extractedCount;
+
+    private final long indexedCount;
+
+    private final long elapsedTime;
+
+    /**
+     * @param resolveQueueSize the number of entries waiting to be resolved
+     * @param indexQueueSize the number of resolved entries waiting to be extracted
+     * @param extractQueueSize the number of entries being extracted or waiting to be sent to the Solr server
+     * @param resolvedCount the number of entries produced by the resolve stage
+     * @param extractedCount the number of entries whose metadata has been extracted
+     * @param indexedCount the number of entries sent to the Solr server
+     * @param elapsedTime the time in milliseconds since the indexer was started
+     */
+    public SolrIndexerStatistics(int resolveQueueSize, int indexQueueSize, int extractQueueSize, long resolvedCount,
+        long extractedCount, long indexedCount, long elapsedTime)
+    {
+        this.resolveQueueSize = resolveQueueSize;
+        this.indexQueueSize = indexQueueSize;
+        this.extractQueueSize = extractQueueSize;
+        this.resolvedCount = resolvedCount;
+        this.extractedCount = extractedCount;
+        this.indexedCount = indexedCount;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * @return the number of entries waiting to be resolved
+     */
+    public int getResolveQueueSize()
+    {
+        return this.resolveQueueSize;
+    }
+
+    /**
+     * @return the number of resolved entries waiting to be extracted
+     */
+    public int getIndexQueueSize()
+    {
+        return this.indexQueueSize;
+    }
+
+    /**
+     * @return the number of entries being extracted or waiting to be sent to the Solr server
+     */
+    public int getExtractQueueSize()
+    {
+        return this.extractQueueSize;
+    }
+
+    /**
+     * @return the number of entries produced by the resolve stage
+     */
+    public long getResolvedCount()
+    {
+        return this.resolvedCount;
+    }
+
+    /**
+     * @return the number of entries whose metadata has been extracted
+     */
+    public long getExtractedCount()
+    {
+        return this.extractedCount;
+    }
+
+    /**
+     * @return the number of entries sent to the Solr server
+     */
+    public long getIndexedCount()
+    {
+        return this.indexedCount;
+    }
+
+    /**
+     * @return the time in milliseconds since the indexer was started
+     */
+    public long getElapsedTime()
+    {
+        return this.elapsedTime;
+    }
+
+    /**
+     * @return the average number of entries produced by the resolve stage per second
+     */
+    public double getResolvedPerSecond()
+    {
+        return perSecond(this.resolvedCount);
+    }
+
+    /**
+     * @return the average number of entries extracted per second
+     */
+    public double getExtractedPerSecond()
+    {
+        return perSecond(this.extractedCount);
+    }
+
+    /**
+     * @return the average number of entries sent to the Solr server per second
+     */
+    public double getIndexedPerSecond()
+    {
+        return perSecond(this.indexedCount);
+    }
+
+    private double perSecond(long count)
+    {
+        return this.elapsedTime > 0 ? count * MILLISECONDS_PER_SECOND / this.elapsedTime : 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("resolve queue: %d, index queue: %d, extract queue: %d, resolved: %d, extracted: %d,"
+            + " indexed: %d", this.resolveQueueSize, this.indexQueueSize, this.extractQueueSize, this.resolvedCount,
+            this.extractedCount, this.indexedCount);
+    }
+}
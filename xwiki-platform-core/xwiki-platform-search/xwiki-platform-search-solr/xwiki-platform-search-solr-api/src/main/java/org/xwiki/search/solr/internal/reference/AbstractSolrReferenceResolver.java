@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.reference;
 
+import java.util.Collection;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -79,6 +81,25 @@ protected XWikiDocument getDocument(DocumentReference documentReference) throws
         return document;
     }
 
+    /**
+     * Load the passed documents at once so that they are taken from the document cache when resolving them one by
+     * one.
+     * 
+     * @param documentReferences the references of the documents to load
+     * @since 10.11RC1
+     */
+    protected void preloadDocuments(Collection<DocumentReference> documentReferences)
+    {
+        XWikiContext context = this.xcontextProvider.get();
+
+        try {
+            context.getWiki().getDocuments(documentReferences, context);
+        } catch (Exception e) {
+            // The documents will be loaded one by one
+            this.logger.debug("Failed to preload documents [{}]", documentReferences, e);
+        }
+    }
+
     @Override
     public String getId(EntityReference reference) throws SolrIndexerException, IllegalArgumentException
     {
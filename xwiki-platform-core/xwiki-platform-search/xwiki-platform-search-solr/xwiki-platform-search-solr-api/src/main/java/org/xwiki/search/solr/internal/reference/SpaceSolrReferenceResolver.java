@@ -30,14 +30,17 @@
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 /**
  * Resolve space references.
@@ -50,6 +53,11 @@
 @Singleton
 public class SpaceSolrReferenceResolver extends AbstractSolrReferenceResolver
 {
+    /**
+     * The number of documents loaded at once, small enough to stay in the document cache until they are resolved.
+     */
+    private static final int PRELOAD_BATCH_SIZE = 100;
+
     /**
      * Used to resolve document references.
      */
@@ -93,13 +101,20 @@ public List<EntityReference> getReferences(EntityReference spaceReference) throw
             throw new SolrIndexerException("Failed to query space [" + spaceReference + "] documents", e);
         }
 
-        for (String documentName : documentNames) {
-            EntityReference documentReference = new EntityReference(documentName, EntityType.DOCUMENT, spaceReference);
-
-            try {
-                Iterables.addAll(result, this.documentResolverProvider.get().getReferences(documentReference));
-            } catch (Exception e) {
-                this.logger.error("Failed to resolve references for document [" + documentReference + "]", e);
+        for (List<String> batch : Lists.partition(documentNames, PRELOAD_BATCH_SIZE)) {
+            // Load the documents of the batch together, they are then resolved from the document cache
+            List<DocumentReference> documentReferences = new ArrayList<>(batch.size());
+            for (String documentName : batch) {
+                documentReferences.add(new DocumentReference(documentName, new SpaceReference(spaceReference)));
+            }
+            preloadDocuments(documentReferences);
+
+            for (DocumentReference documentReference : documentReferences) {
+                try {
+                    Iterables.addAll(result, this.documentResolverProvider.get().getReferences(documentReference));
+                } catch (Exception e) {
+                    this.logger.error("Failed to resolve references for document [" + documentReference + "]", e);
+                }
             }
         }
 
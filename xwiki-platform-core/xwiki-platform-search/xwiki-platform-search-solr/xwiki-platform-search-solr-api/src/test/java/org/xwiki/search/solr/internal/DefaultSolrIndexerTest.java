@@ -20,13 +20,33 @@
 package org.xwiki.search.solr.internal;
 
 import java.net.URL;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Provider;
+
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import com.xpn.xwiki.XWiki;
@@ -34,9 +54,15 @@
 import com.xpn.xwiki.test.reference.ReferenceComponentList;
 import com.xpn.xwiki.web.Utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -49,7 +75,7 @@
 {
     @Rule
     public final MockitoComponentMockingRule<SolrIndexer> mocker =
-        new MockitoComponentMockingRule<SolrIndexer>(DefaultSolrIndexer.class);
+        new MockitoComponentMockingRule<SolrIndexer>(DefaultSolrIndexer.class, Arrays.asList(ComponentManager.class));
 
     private XWikiContext xcontext;
 
@@ -57,6 +83,26 @@
 
     private SolrConfiguration mockConfig;
 
+    private SolrInstance solrInstance;
+
+    /**
+     * The operations sent to the Solr server, in order.
+     */
+    private List<String> operations = new CopyOnWriteArrayList<>();
+
+    /**
+     * The time needed to extract the metadata of each entity.
+     */
+    private Map<EntityReference, Long> extractionDelays = new HashMap<>();
+
+    private Set<String> extractionThreads = ConcurrentHashMap.newKeySet();
+
+    private AtomicInteger startedExtractions = new AtomicInteger();
+
+    private AtomicInteger sentDocuments = new AtomicInteger();
+
+    private AtomicInteger maxInFlightExtractions = new AtomicInteger();
+
     @Before
     public void configure() throws Exception
     {
@@ -78,6 +124,99 @@ public void configure() throws Exception
         this.mockConfig = this.mocker.getInstance(SolrConfiguration.class);
         when(this.mockConfig.getInstanceConfiguration(eq(EmbeddedSolrInstance.TYPE), eq("home"), any()))
             .thenReturn(url.getPath());
+        when(this.mockConfig.getIndexerQueueCapacity()).thenReturn(1000);
+        when(this.mockConfig.getIndexerBatchSize()).thenReturn(50);
+        when(this.mockConfig.getIndexerBatchMaxLengh()).thenReturn(10000);
+
+        // Solr instance
+
+        this.solrInstance = mock(SolrInstance.class);
+        Provider<SolrInstance> solrInstanceProvider =
+            this.mocker.registerMockComponent(new DefaultParameterizedType(null, Provider.class, SolrInstance.class));
+        when(solrInstanceProvider.get()).thenReturn(this.solrInstance);
+        doAnswer(invocation -> {
+            this.sentDocuments.incrementAndGet();
+            this.operations.add("add " + invocation.<SolrInputDocument>getArgument(0).getFieldValue("id"));
+            return null;
+        }).when(this.solrInstance).add(any(SolrInputDocument.class));
+        doAnswer(invocation -> {
+            this.operations.add("delete " + invocation.getArgument(0));
+            return null;
+        }).when(this.solrInstance).delete(anyString());
+
+        SolrReferenceResolver referenceResolver = this.mocker.getInstance(SolrReferenceResolver.class);
+        when(referenceResolver.getId(any())).then(invocation -> invocation.<EntityReference>getArgument(0).getName());
+
+        // Metadata extraction
+
+        SolrMetadataExtractor extractor = this.mocker.registerMockComponent(SolrMetadataExtractor.class, "document");
+        when(extractor.getSolrDocument(any())).then(invocation -> {
+            EntityReference reference = invocation.getArgument(0);
+
+            int inFlight = this.startedExtractions.incrementAndGet() - this.sentDocuments.get();
+            this.maxInFlightExtractions.accumulateAndGet(inFlight, Math::max);
+            this.extractionThreads.add(Thread.currentThread().getName());
+
+            Thread.sleep(this.extractionDelays.getOrDefault(reference, 0L));
+
+            LengthSolrInputDocument document = new LengthSolrInputDocument();
+            document.setField("id", reference.getName());
+            return document;
+        });
+    }
+
+    private DocumentReference getDocumentReference(String page)
+    {
+        return new DocumentReference("xwiki", "Space", page);
+    }
+
+    @Test
+    public void indexWithSeveralThreadsInQueueOrder() throws Exception
+    {
+        when(this.mockConfig.getIndexerThreads()).thenReturn(4);
+
+        // The first documents are the slowest to extract
+        int count = 20;
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            this.extractionDelays.put(getDocumentReference("Page" + i), (count - i) * 10L);
+            expected.add("add Page" + i);
+        }
+
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+        for (int i = 0; i < count; i++) {
+            indexer.index(getDocumentReference("Page" + i), false);
+        }
+
+        verify(this.solrInstance, timeout(10000).times(count)).add(any(SolrInputDocument.class));
+
+        // The documents are sent in the order they were queued even if the latest ones are extracted first
+        assertEquals(expected, this.operations);
+
+        // The extraction is done in parallel but never more than twice the number of threads are in flight
+        assertTrue(this.extractionThreads.size() > 1);
+        assertTrue(this.maxInFlightExtractions.get() > 1);
+        assertTrue(this.maxInFlightExtractions.get() <= 8);
+    }
+
+    @Test
+    public void indexAndDeleteSameEntityWithSeveralThreads() throws Exception
+    {
+        when(this.mockConfig.getIndexerThreads()).thenReturn(4);
+
+        // The extraction of the first operation on the page ends after the next operations are started
+        DocumentReference page = getDocumentReference("Page");
+        this.extractionDelays.put(page, 300L);
+
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+        indexer.index(page, false);
+        indexer.delete(page, false);
+        indexer.index(getDocumentReference("Other"), false);
+        indexer.index(page, false);
+
+        verify(this.solrInstance, timeout(10000).times(3)).add(any(SolrInputDocument.class));
+
+        assertEquals(Arrays.asList("add Page", "delete Page", "add Other", "add Page"), this.operations);
     }
 
     @Test
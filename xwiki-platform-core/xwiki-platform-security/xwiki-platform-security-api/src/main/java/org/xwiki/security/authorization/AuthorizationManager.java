@@ -19,6 +19,10 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
@@ -73,6 +77,34 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Filter the passed entities to keep only the ones on which the user identified by {@code userReference} has the
+     * access identified by {@code right}. The result is the same as calling
+     * {@link #hasAccess(Right, DocumentReference, EntityReference)} for each entity, but implementations can share
+     * the work common to all the checks (resolving the user, checking the pre-conditions, etc.).
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return the entities on which the user has the specified right, in the iteration order of the passed collection
+     * @since 10.11RC1
+     */
+    default <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        List<T> result = new ArrayList<>(entityReferences.size());
+
+        for (T entityReference : entityReferences) {
+            if (hasAccess(right, userReference, entityReference)) {
+                result.add(entityReference);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
@@ -19,6 +19,10 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
 
@@ -80,4 +84,29 @@
      * @return {@code true} if the user has the specified right on the entity, {@code false} otherwise
      */
     boolean hasAccess(Right right, EntityReference entityReference);
+
+    /**
+     * Filter the passed entities to keep only the ones on which the access identified by {@code right} would be
+     * allowed in the current context. The result is the same as calling {@link #hasAccess(Right, EntityReference)}
+     * for each entity, but implementations can share the work common to all the checks.
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param entityReferences the entities on which to check the right
+     * @return the entities on which the right is allowed, in the iteration order of the passed collection
+     * @since 10.11RC1
+     */
+    default <T extends EntityReference> List<T> filterAccessible(Right right, Collection<T> entityReferences)
+    {
+        List<T> result = new ArrayList<>(entityReferences.size());
+
+        for (T entityReference : entityReferences) {
+            if (hasAccess(right, entityReference)) {
+                result.add(entityReference);
+            }
+        }
+
+        return result;
+    }
 }
@@ -19,6 +19,12 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -115,6 +121,45 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        if (isSuperAdmin(userReference)) {
+            return new ArrayList<>(entityReferences);
+        }
+
+        List<T> result = new ArrayList<>();
+
+        if (!checkPreAccess(right, userReference)) {
+            return result;
+        }
+
+        UserSecurityReference user = this.securityReferenceFactory.newUserReference(userReference);
+
+        // The access of the siblings inheriting their rights from the same entity are the same
+        Map<SecurityReference, SecurityAccess> sharedAccesses = new HashMap<>();
+
+        for (T entityReference : entityReferences) {
+            try {
+                SecurityAccess securityAccess =
+                    getAccess(user, this.securityReferenceFactory.newEntityReference(entityReference), sharedAccesses);
+
+                RuleState access = securityAccess.get(right);
+                logAccess(access, userReference, entityReference, right, "access inquiry", true);
+                if (access == RuleState.ALLOW) {
+                    result.add(entityReference);
+                }
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                    (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -144,14 +189,30 @@ private boolean hasSecurityAccess(Right right, DocumentReference userReference,
             return false;
         }
 
-        if ((!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
-            || (userReference == null && xwikiBridge.needsAuthentication(right))) {
+        if (!checkPreAccess(right, userReference)) {
             return false;
         }
 
         return evaluateSecurityAccess(right, userReference, entityReference, check);
     }
 
+    /**
+     * Check the pre-conditions which don't depend on the entity.
+     *
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @return {@code false} if the right is denied whatever the entity, {@code true} otherwise
+     */
+    private boolean checkPreAccess(Right right, DocumentReference userReference)
+    {
+        if (right == null || right == Right.ILLEGAL) {
+            return false;
+        }
+
+        return !((!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
+            || (userReference == null && xwikiBridge.needsAuthentication(right)));
+    }
+
     private boolean evaluateSecurityAccess(Right right, DocumentReference userReference,
         EntityReference entityReference, boolean check)
         throws AuthorizationException
@@ -198,12 +259,31 @@ public Right register(RightDescription rightDescription) throws UnableToRegister
      */
     private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException
+    {
+        return getAccess(user, entity, null);
+    }
+
+    /**
+     * Obtain the access for the user on the given entity and load it into the cache if unavailable.
+     *
+     * @param user The user identity.
+     * @param entity The entity.  May be of type DOCUMENT, WIKI, or SPACE.
+     * @param sharedAccesses the accesses already found in the cache during the current check, indexed by the
+     *            reference of the entity holding the rules, or {@code null} to always ask the cache
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> sharedAccesses) throws AuthorizationException
     {
         for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
             if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
                 // Skip search on entity types that will obviously have empty/useless list of rules.
                 continue;
             }
+            if (sharedAccesses != null && sharedAccesses.containsKey(ref)) {
+                return sharedAccesses.get(ref);
+            }
             SecurityRuleEntry entry = securityCache.get(ref);
             if (entry == null) {
                 SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
@@ -225,6 +305,10 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
 
                     logger.debug("3. Got entry for user {} on {} from cache: [{}]", user, entity, access);
 
+                    if (sharedAccesses != null) {
+                        sharedAccesses.put(ref, access);
+                    }
+
                     return access;
                 }
             } 
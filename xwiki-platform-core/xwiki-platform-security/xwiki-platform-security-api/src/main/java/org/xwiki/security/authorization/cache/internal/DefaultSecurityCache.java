@@ -25,6 +25,8 @@
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -54,6 +56,11 @@
 
 /**
  * Default implementation of the security cache.
+ * <p>
+ * Reading the cache first tries without any lock: the read is only valid if no modification of the cache started in
+ * the meantime (see {@link #modificationCount}), otherwise it's done again with the read lock, so that a reader never
+ * sees the cache in the middle of a cascaded removal. The parents of a cache entry are never modified once published
+ * (they are replaced by a new collection instead).
  *
  * @version $Id$
  * @since 4.0M2 
@@ -73,7 +80,7 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     private Logger logger;
 
     /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
 
     /** Fair read lock. */
     private final Lock readLock = readWriteLock.readLock();
@@ -81,6 +88,12 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     /** Fair write lock. */
     private final Lock writeLock = readWriteLock.writeLock();
 
+    /**
+     * Incremented when taking and when releasing the write lock: odd while the cache is being modified. Used to
+     * validate the reads done without lock.
+     */
+    private final AtomicLong modificationCount = new AtomicLong();
+
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
     private final Lock invalidationReadLock = invalidationReadWriteLock.readLock();
@@ -135,22 +148,24 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
-         * Parents of this cached entry.
+         * Parents of this cached entry. Never modified once the entry is published in the cache, since it can be read
+         * without any lock.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
-         * Children of this cached entry.
+         * Children of this cached entry. Accesses are synchronized on this entry since the cache can dispose an entry
+         * (eviction) without holding the write lock.
          */
         private Collection<SecurityCacheEntry> children;
 
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -268,16 +283,17 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             this.entry = entry;
             int parentSize = groups.size() + ((parentReference == null) ? 0 : 1);
             if (parentSize > 0) {
-                this.parents = new ArrayList<SecurityCacheEntry>(parentSize);
+                List<SecurityCacheEntry> newParents = new ArrayList<SecurityCacheEntry>(parentSize);
                 if (parentReference != null) {
                     SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
                     if (parent == null) {
                         throw new ParentEntryEvictedException();
                     }
-                    this.parents.add(parent);
+                    newParents.add(parent);
                     parent.addChild(this);
                 }
-                addParentGroups(groups, parentReference);
+                addParentGroups(newParents, groups, parentReference);
+                this.parents = newParents;
                 logNewEntry();
             } else {
                 this.parents = null;
@@ -288,12 +304,14 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
         /**
          * Add provided groups as parent of this entry, excluding the main parent reference.
          *
+         * @param newParents the parents collection to fill.
          * @param groups the list of groups to add.
          * @param parentReference the main parent reference to exclude.
          * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
          */
-        private void addParentGroups(Collection<GroupSecurityReference> groups,
-            SecurityReference parentReference) throws ParentEntryEvictedException
+        private void addParentGroups(Collection<SecurityCacheEntry> newParents,
+            Collection<GroupSecurityReference> groups, SecurityReference parentReference)
+            throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
                 if (group.equals(parentReference)) {
@@ -306,7 +324,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups,
                 if (parent == null) {
                     throw new ParentEntryEvictedException();
                 }
-                this.parents.add(parent);
+                newParents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -324,16 +342,19 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups)
                 return false;
             }
 
+            // The new parents are fully computed before being published since they can be read concurrently
             if (groups != null && !groups.isEmpty()) {
+                List<SecurityCacheEntry> newParents;
                 if (this.parents == null) {
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size());
-                    addParentGroups(groups, null);
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size());
+                    addParentGroups(newParents, groups, null);
                 } else {
                     SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(newParents, groups, parent.entry.getReference());
                 }
+                this.parents = newParents;
             }
 
             return true;
@@ -409,21 +430,27 @@ protected void disconnectFromParents()
 
         private void disposeChildren()
         {
-            if (children != null) {
-                for (SecurityCacheEntry child : children) {
-                    if (!child.disposed) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Cascaded removal of entry [{}] from cache.", child.getKey());
-                        }
-                        // XWIKI-13746: Prevent an addition in progress to bite his own entry in a bad way.
-                        if (child == newEntry) {
-                            child.dispose();
-                        } else {
-                            try {
-                                DefaultSecurityCache.this.cache.remove(child.getKey());
-                            } catch (Throwable e) {
-                                logger.error("Security cache failure during eviction of entry [{}]", child.getKey(), e);
-                            }
+            Collection<SecurityCacheEntry> currentChildren;
+            synchronized (this) {
+                if (children == null) {
+                    return;
+                }
+                currentChildren = new ArrayList<>(children);
+            }
+
+            for (SecurityCacheEntry child : currentChildren) {
+                if (!child.disposed) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Cascaded removal of entry [{}] from cache.", child.getKey());
+                    }
+                    // XWIKI-13746: Prevent an addition in progress to bite his own entry in a bad way.
+                    if (child == newEntry) {
+                        child.dispose();
+                    } else {
+                        try {
+                            DefaultSecurityCache.this.cache.remove(child.getKey());
+                        } catch (Throwable e) {
+                            logger.error("Security cache failure during eviction of entry [{}]", child.getKey(), e);
                         }
                     }
                 }
@@ -434,7 +461,7 @@ private void disposeChildren()
          * Add a children to this cache entry.
          * @param entry the children entry to add.
          */
-        private void addChild(SecurityCacheEntry entry)
+        private synchronized void addChild(SecurityCacheEntry entry)
         {
             if (this.children == null) {
                 this.children = new ArrayList<SecurityCacheEntry>();
@@ -446,7 +473,7 @@ private void addChild(SecurityCacheEntry entry)
          * Remove a children from this cache entry.
          * @param entry the children entry to remove.
          */
-        private void removeChild(SecurityCacheEntry entry)
+        private synchronized void removeChild(SecurityCacheEntry entry)
         {
             if (this.children != null) {
                 this.children.remove(entry);
@@ -545,12 +572,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getCacheEntry(getEntryKey(reference));
     }
 
     /**
@@ -561,12 +583,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getCacheEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -577,14 +594,50 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
+        return getCacheEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * Retrieve an entry from the cache, without lock when the cache is not modified in the meantime.
+     *
+     * @param key the key of the entry
+     * @return the entry or null if the entry is not in the cache
+     */
+    private SecurityCacheEntry getCacheEntry(String key)
+    {
+        long count = this.modificationCount.get();
+        if (count % 2 == 0) {
+            SecurityCacheEntry entry = this.cache.get(key);
+            if (this.modificationCount.get() == count) {
+                return entry;
+            }
+        }
+
+        // The cache is being modified (or has been modified during the read), wait for the modification to be done
         readLock.lock();
         try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
+            return this.cache.get(key);
         } finally {
             readLock.unlock();
         }
     }
 
+    private void lockWrite()
+    {
+        writeLock.lock();
+        if (this.readWriteLock.getWriteHoldCount() == 1) {
+            this.modificationCount.incrementAndGet();
+        }
+    }
+
+    private void unlockWrite()
+    {
+        if (this.readWriteLock.getWriteHoldCount() == 1) {
+            this.modificationCount.incrementAndGet();
+        }
+        writeLock.unlock();
+    }
+
     /**
      * @param key the key of the cache slot to check.
      * @param entry the entry to compare to.
@@ -683,7 +736,7 @@ private void add(SecurityEntry entry, Collection<GroupSecurityReference> groups)
     {
         String key = getEntryKey(entry);
 
-        writeLock.lock();
+        lockWrite();
         try {
             if (isAlreadyInserted(key, entry, groups)) {
                 return;
@@ -692,7 +745,7 @@ private void add(SecurityEntry entry, Collection<GroupSecurityReference> groups)
 
             logger.debug("Added rule/shadow entry [{}] into the cache.", key);
         } finally {
-            writeLock.unlock();
+            unlockWrite();
         }
     }
 
@@ -752,7 +805,7 @@ private void internalAdd(SecurityAccessEntry entry, SecurityReference wiki)
     {
         String key = getEntryKey(entry);
 
-        writeLock.lock();
+        lockWrite();
         try {
             if (isAlreadyInserted(key, entry)) {
                 return;
@@ -762,7 +815,7 @@ private void internalAdd(SecurityAccessEntry entry, SecurityReference wiki)
             logger.debug("Added access entry [{}] into the cache.", key);
         } finally {
             newEntry = null;
-            writeLock.unlock();
+            unlockWrite();
         }
     }
 
@@ -814,7 +867,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
         this.invalidationWriteLock.lock();
 
         try {
-            writeLock.lock();
+            lockWrite();
             try {
                 SecurityCacheEntry entry = getEntry(user, entity);
                 if (entry != null) {
@@ -824,7 +877,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
                     this.cache.remove(entry.getKey());
                 }
             } finally {
-                writeLock.unlock();
+                unlockWrite();
             }
         } finally {
             this.invalidationWriteLock.unlock();
@@ -837,7 +890,7 @@ public void remove(SecurityReference entity)
         this.invalidationWriteLock.lock();
 
         try {
-            writeLock.lock();
+            lockWrite();
             try {
                 SecurityCacheEntry entry = getEntry(entity);
                 if (entry != null) {
@@ -847,7 +900,7 @@ public void remove(SecurityReference entity)
                     this.cache.remove(entry.getKey());
                 }
             } finally {
-                writeLock.unlock();
+                unlockWrite();
             }
         } finally {
             this.invalidationWriteLock.unlock();
@@ -21,8 +21,10 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -70,6 +72,7 @@
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -473,6 +476,25 @@ public void testInheritancePolicyForGlobalFullWikiAccess() throws Exception
             getDoc("docDenyA", "any space", "wikiAllowA"));
     }
 
+    @Test
+    public void testFilterAccessible() throws Exception
+    {
+        initialiseWikiMock("inheritancePolicyForGlobalFullWikiAccess");
+
+        List<DocumentReference> documents = Arrays.asList(getXDoc("any document", "any space"),
+            getXDoc("any document", "spaceAllowA"), getXDoc("docDenyA", "spaceAllowA"),
+            getXDoc("docAllowA", "any space"), getDoc("any document", "any space", "wikiNoRules"),
+            getDoc("other document", "spaceAllowA", "wikiNoRules"), getDoc("any document", "any space", "wikiAllowA"));
+
+        assertEquals(Arrays.asList(documents.get(1), documents.get(2), documents.get(3), documents.get(5),
+            documents.get(6)), authorizationManager.filterAccessible(VIEW, getXUser("userA"), documents));
+        assertEquals(Arrays.asList(documents.get(6)),
+            authorizationManager.filterAccessible(LOGIN, getXUser("userA"), documents));
+        assertEquals(documents, authorizationManager.filterAccessible(VIEW, SUPERADMIN, documents));
+        assertEquals(Collections.emptyList(), authorizationManager.filterAccessible(ILLEGAL, getXUser("userA"),
+            documents));
+    }
+
     @Test
     public void testInheritancePolicyForLocalWikiAccess() throws Exception
     {
@@ -26,6 +26,9 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -60,6 +63,7 @@
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
@@ -862,4 +866,49 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    @Test
+    public void testReadDuringCascadedRemoval() throws Exception
+    {
+        // Fill the cache
+        InsertUsers();
+        InsertEntities();
+        InsertAccess();
+
+        assertThat(securityCache.get(userRef, docRef), notNullValue());
+
+        // Suspend the cascaded removal before removing the first child of the removed entry
+        final CountDownLatch removing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger removeCount = new AtomicInteger();
+        cache.setRemoveHook(key -> {
+            if (removeCount.incrementAndGet() == 2) {
+                removing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        Thread remover = new Thread(() -> securityCache.remove(docRef));
+        remover.start();
+        removing.await();
+
+        // Read an access entry which is going to be removed by the cascade
+        final AtomicReference<SecurityAccessEntry> readEntry = new AtomicReference<>();
+        Thread reader = new Thread(() -> readEntry.set(securityCache.get(userRef, docRef)));
+        reader.start();
+        // Give the reader the time to read the cache (or to start waiting for the removal)
+        reader.join(500);
+
+        release.countDown();
+        remover.join();
+        reader.join();
+
+        // The reader waited for the end of the removal instead of getting an outdated entry
+        assertThat(readEntry.get(), nullValue());
+        assertThat(securityCache.get(userRef, docRef), nullValue());
+    }
 }
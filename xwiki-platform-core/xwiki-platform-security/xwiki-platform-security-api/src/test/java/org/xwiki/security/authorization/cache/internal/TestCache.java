@@ -20,8 +20,9 @@
 
 package org.xwiki.security.authorization.cache.internal;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheEntry;
@@ -43,9 +44,10 @@
  */
 public class TestCache<T> implements Cache<T>
 {
-    private Map<String, T> cache = new HashMap<String, T>();
+    private Map<String, T> cache = new ConcurrentHashMap<String, T>();
     private CacheEntryListener<T> listener;
-    private String lastInsertedKey;
+    private volatile String lastInsertedKey;
+    private volatile Consumer<String> removeHook;
 
     class TestCacheEntry implements CacheEntry<T>
     {
@@ -123,6 +125,10 @@ public T get(String key)
     @Override
     public void remove(String key)
     {
+        if (removeHook != null) {
+            removeHook.accept(key);
+        }
+
         T value = cache.remove(key);
         if (listener != null) {
             listener.cacheEntryRemoved(getEvent(key, value));
@@ -170,4 +176,12 @@ public String getLastInsertedKey()
     {
         return lastInsertedKey;
     }
+
+    /**
+     * @param removeHook called with the key before removing an entry from the cache
+     */
+    public void setRemoveHook(Consumer<String> removeHook)
+    {
+        this.removeHook = removeHook;
+    }
 }
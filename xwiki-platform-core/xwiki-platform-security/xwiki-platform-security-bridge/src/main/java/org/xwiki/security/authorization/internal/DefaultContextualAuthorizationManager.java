@@ -19,8 +19,11 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -117,6 +120,36 @@ public boolean hasAccess(Right right, EntityReference entity)
         return hasAccess(right, user, entity);
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, Collection<T> entities)
+    {
+        // The user to check depends on each entity for content author rights
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            return ContextualAuthorizationManager.super.filterAccessible(right, entities);
+        }
+
+        List<T> result = new ArrayList<>();
+
+        if (checkPreAccess(right)) {
+            List<EntityReference> fullReferences = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                fullReferences.add(getFullReference(entity));
+            }
+
+            Set<EntityReference> allowed = new HashSet<>(this.authorizationManager.filterAccessible(right,
+                this.xcontextProvider.get().getUserReference(), fullReferences));
+
+            int index = 0;
+            for (T entity : entities) {
+                if (allowed.contains(fullReferences.get(index++))) {
+                    result.add(entity);
+                }
+            }
+        }
+
+        return result;
+    }
+
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
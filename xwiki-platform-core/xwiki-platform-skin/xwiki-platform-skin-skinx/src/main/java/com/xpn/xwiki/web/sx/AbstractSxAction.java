@@ -20,17 +20,26 @@
 package com.xpn.xwiki.web.sx;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.skinx.internal.SxOutput;
+import org.xwiki.skinx.internal.SxOutputCache;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.debug.DebugConfiguration;
 import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiAction;
+import com.xpn.xwiki.web.XWikiRequest;
 import com.xpn.xwiki.web.XWikiResponse;
 import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
 
@@ -58,14 +67,41 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used to specify the entity tag of the content. */
+    private static final String ETAG_HEADER = "ETag";
+
+    /** What http header parameter is used by the browser to send the entity tag of the content it has in cache. */
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    /** What http header parameter is used by the browser to list the content encodings it supports. */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /** What http header parameter is used to specify the encoding of the content. */
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+    /** The gzip content encoding. */
+    private static final String GZIP_ENCODING = "gzip";
+
+    /** The request parameter or preference holding the current color theme. */
+    private static final String COLOR_THEME = "colorTheme";
+
+    /** The separator of the elements of the cache variant. */
+    private static final char VARIANT_SEPARATOR = '|';
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
+    /**
+     * The request parameters added by the skin extension plugins which are already taken into account in the cache
+     * variant, or which are only used to bust the browser cache.
+     */
+    private static final List<String> VARIANT_IGNORED_PARAMETERS =
+        Arrays.asList(COLOR_THEME, "docVersion", "language", JAR_RESOURCE_REQUEST_PARAMETER);
+
     private DebugConfiguration debugConfiguration;
 
+    private SxOutputCache outputCache;
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -83,7 +119,9 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
     {
         XWikiResponse response = context.getResponse();
 
-        String extensionContent = sxSource.getContent();
+        CachePolicy cachePolicy = sxSource.getCachePolicy();
+
+        SxOutput output = getOutput(sxSource, sxType, cachePolicy, context);
 
         response.setContentType(sxType.getContentType());
 
@@ -91,8 +129,6 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setDateHeader(LAST_MODIFIED_HEADER, sxSource.getLastModifiedDate());
         }
 
-        CachePolicy cachePolicy = sxSource.getCachePolicy();
-
         if (cachePolicy != CachePolicy.FORBID) {
             response.setHeader(CACHE_CONTROL_HEADER, "public");
         }
@@ -106,19 +142,161 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = sxType.getCompressor().compress(extensionContent);
+        boolean gzip = StringUtils.contains(context.getRequest().getHeader(ACCEPT_ENCODING_HEADER), GZIP_ENCODING);
+        // The compressed content has its own entity tag since it's not the same bytes
+        String etag = gzip ? StringUtils.removeEnd(output.getETag(), "\"") + "-gzip\"" : output.getETag();
+
+        response.setHeader("Vary", ACCEPT_ENCODING_HEADER);
+        if (cachePolicy != CachePolicy.FORBID) {
+            response.setHeader(ETAG_HEADER, etag);
+
+            if (isNotModified(etag, context)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+                return;
+            }
         }
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            byte[] content;
+            if (gzip) {
+                response.setHeader(CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+                content = output.getGzipContent();
+            } else {
+                content = output.getContent();
+            }
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
 
     }
 
+    /**
+     * Get the final content of the extension from the cache, or produce it if it's not cached (or cannot be cached).
+     *
+     * @param sxSource the source of the extension
+     * @param sxType the type of extension
+     * @param cachePolicy the cache policy of the extension
+     * @param context the XWiki context
+     * @return the final content of the extension
+     */
+    private SxOutput getOutput(SxSource sxSource, Extension sxType, CachePolicy cachePolicy, XWikiContext context)
+    {
+        String key = isCacheable(sxSource, cachePolicy) ? getCacheKey(sxSource) : null;
+        if (key == null) {
+            return new SxOutput(getContent(sxSource, sxType));
+        }
+
+        String variant = getCacheVariant(sxSource, sxType, context);
+
+        SxOutput output = getOutputCache().get(key, variant);
+        if (output == null) {
+            output = new SxOutput(getContent(sxSource, sxType));
+            getOutputCache().set(key, variant, output);
+        }
+
+        return output;
+    }
+
+    /**
+     * The cached content is invalidated only when its own source is modified. Parsed content can depend on other
+     * documents or data, so it's cached only when the extension asked to be cached for a long time.
+     */
+    private boolean isCacheable(SxSource sxSource, CachePolicy cachePolicy)
+    {
+        if (cachePolicy == CachePolicy.LONG) {
+            return true;
+        }
+
+        return cachePolicy != CachePolicy.FORBID
+            && !(sxSource instanceof SxDocumentSource && ((SxDocumentSource) sxSource).isParsed());
+    }
+
+    private String getContent(SxSource sxSource, Extension sxType)
+    {
+        String extensionContent = sxSource.getContent();
+
+        if (getDebugConfiguration().isMinify()) {
+            extensionContent = sxType.getCompressor().compress(extensionContent);
+        }
+
+        return extensionContent;
+    }
+
+    private String getCacheKey(SxSource sxSource)
+    {
+        if (sxSource instanceof SxDocumentSource) {
+            return getOutputCache().getKey(((SxDocumentSource) sxSource).getDocument().getDocumentReference());
+        } else if (sxSource instanceof SxResourceSource) {
+            return getOutputCache().getKey(((SxResourceSource) sxSource).getResourceName());
+        }
+
+        // Unknown source, we don't know how to identify its content
+        return null;
+    }
+
+    /**
+     * @return a string identifying everything the content of the extension depends on, besides its source (the
+     *         parameters of the request are taken into account only for parsed content, which can use them, and the
+     *         cache busting parameters are ignored so that they don't multiply the variants)
+     */
+    private String getCacheVariant(SxSource sxSource, Extension sxType, XWikiContext context)
+    {
+        XWikiRequest request = context.getRequest();
+
+        StringBuilder variant = new StringBuilder(sxType.getClassName());
+        variant.append(VARIANT_SEPARATOR).append(getDebugConfiguration().isMinify());
+
+        if (sxSource instanceof SxDocumentSource) {
+            SxDocumentSource documentSource = (SxDocumentSource) sxSource;
+            XWikiDocument document = documentSource.getDocument();
+
+            variant.append(VARIANT_SEPARATOR).append(document.getVersion());
+            variant.append(VARIANT_SEPARATOR).append(document.getDate().getTime());
+            variant.append(VARIANT_SEPARATOR).append(context.getLocale());
+            variant.append(VARIANT_SEPARATOR).append(context.getWiki().getSkin(context));
+            variant.append(VARIANT_SEPARATOR).append(StringUtils.defaultIfEmpty(request.getParameter(COLOR_THEME),
+                context.getWiki().getUserPreference(COLOR_THEME, context)));
+
+            // The parsed content can depend on the current user and on the parameters passed when using the extension
+            if (documentSource.isParsed()) {
+                variant.append(VARIANT_SEPARATOR).append(context.getUserReference());
+                appendParameters(variant, request);
+            }
+        }
+
+        return variant.toString();
+    }
+
+    private void appendParameters(StringBuilder variant, XWikiRequest request)
+    {
+        // Sort the parameters so that their order in the URL doesn't matter
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        parameters.keySet().removeAll(VARIANT_IGNORED_PARAMETERS);
+
+        for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+            variant.append(VARIANT_SEPARATOR).append(parameter.getKey()).append('=')
+                .append(Arrays.toString(parameter.getValue()));
+        }
+    }
+
+    private boolean isNotModified(String etag, XWikiContext context)
+    {
+        String ifNoneMatch = context.getRequest().getHeader(IF_NONE_MATCH_HEADER);
+        if (ifNoneMatch != null) {
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                // Weak comparison, as required for If-None-Match
+                if (etag.equals(StringUtils.removeStart(clientETag.trim(), "W/"))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public String render(XWikiContext context) throws XWikiException
     {
@@ -152,6 +330,15 @@ protected DebugConfiguration getDebugConfiguration()
         return this.debugConfiguration;
     }
 
+    private SxOutputCache getOutputCache()
+    {
+        if (this.outputCache == null) {
+            this.outputCache = Utils.getComponent(SxOutputCache.class);
+        }
+
+        return this.outputCache;
+    }
+
     /**
      * Get the type of extension, depends on the type of action.
      *
@@ -67,6 +67,15 @@ public String getContent()
         }
     }
 
+    /**
+     * @return the full path of the resource to use as extension
+     * @since 10.11RC1
+     */
+    public String getResourceName()
+    {
+        return this.resourceName;
+    }
+
     @Override
     public long getLastModifiedDate()
     {
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * The final content of a skin extension (evaluated, compiled and minified), as sent to the browser.
+ * <p>
+ * The gzip compressed variant of the content is computed only once, the first time it's requested.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+public class SxOutput
+{
+    private final byte[] content;
+
+    private final String etag;
+
+    private volatile byte[] gzipContent;
+
+    /**
+     * @param content the content of the skin extension
+     */
+    public SxOutput(String content)
+    {
+        this.content = content.getBytes(StandardCharsets.UTF_8);
+        this.etag = '"' + DigestUtils.sha1Hex(this.content) + '"';
+    }
+
+    /**
+     * @return the content encoded in UTF-8
+     */
+    public byte[] getContent()
+    {
+        return this.content;
+    }
+
+    /**
+     * @return the content encoded in UTF-8 and compressed with gzip
+     * @throws IOException if the compression fails
+     */
+    public byte[] getGzipContent() throws IOException
+    {
+        byte[] compressed = this.gzipContent;
+        if (compressed == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.content.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+                gzip.write(this.content);
+            }
+            compressed = bytes.toByteArray();
+            this.gzipContent = compressed;
+        }
+
+        return compressed;
+    }
+
+    /**
+     * @return the entity tag of the content, quoted
+     */
+    public String getETag()
+    {
+        return this.etag;
+    }
+}
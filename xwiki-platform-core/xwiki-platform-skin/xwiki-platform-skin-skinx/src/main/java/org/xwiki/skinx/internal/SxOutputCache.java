@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Keep the final content of the skin extensions so that they are not evaluated and minified again for each request.
+ * <p>
+ * The cache contains an entry for each source of skin extension (a document or a resource). Each entry holds the
+ * content produced for the different variants of the source (extension type, version, locale, skin, color theme,
+ * etc.) so that all the variants of a document can be removed at once when it's modified.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component(roles = SxOutputCache.class)
+@Singleton
+public class SxOutputCache implements Initializable, Disposable
+{
+    private static final String CACHE_NAME = "skinx.output";
+
+    /**
+     * The maximum number of sources of skin extensions kept in the cache.
+     */
+    private static final int CACHE_SIZE = 500;
+
+    /**
+     * The maximum number of variants kept for each source.
+     */
+    private static final int SOURCE_VARIANTS_SIZE = 32;
+
+    private static final String RESOURCE_PREFIX = "resource:";
+
+    private static final String DOCUMENT_PREFIX = "document:";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Map<String, SxOutput>> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(CACHE_NAME);
+        LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+        lru.setMaxEntries(CACHE_SIZE);
+        cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+
+        try {
+            this.cache = this.cacheManager.createNewCache(cacheConfiguration);
+        } catch (CacheException e) {
+            throw new InitializationException(
+                String.format("Failed to initialize the skin extensions cache [%s].", CACHE_NAME), e);
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.cache.dispose();
+    }
+
+    /**
+     * @param documentReference the reference of a document containing skin extensions
+     * @return the key of the document in the cache
+     */
+    public String getKey(DocumentReference documentReference)
+    {
+        return DOCUMENT_PREFIX + this.serializer.serialize(documentReference);
+    }
+
+    /**
+     * @param resourceName the name of a resource used as skin extension
+     * @return the key of the resource in the cache
+     */
+    public String getKey(String resourceName)
+    {
+        return RESOURCE_PREFIX + resourceName;
+    }
+
+    /**
+     * @param key the key of the source of the skin extension
+     * @param variant the variant of the content
+     * @return the cached content, or {@code null} if it's not in the cache
+     */
+    public SxOutput get(String key, String variant)
+    {
+        Map<String, SxOutput> variants = this.cache.get(key);
+
+        return variants != null ? variants.get(variant) : null;
+    }
+
+    /**
+     * @param key the key of the source of the skin extension
+     * @param variant the variant of the content
+     * @param output the content to cache
+     */
+    public void set(String key, String variant, SxOutput output)
+    {
+        Map<String, SxOutput> variants = this.cache.get(key);
+        if (variants == null) {
+            variants = new ConcurrentHashMap<>();
+            this.cache.set(key, variants);
+        } else if (variants.size() >= SOURCE_VARIANTS_SIZE) {
+            // The old versions of the source are also removed that way
+            variants.clear();
+        }
+
+        variants.put(variant, output);
+    }
+
+    /**
+     * Remove all the cached content of a document.
+     *
+     * @param documentReference the reference of the document
+     */
+    public void remove(DocumentReference documentReference)
+    {
+        this.cache.remove(getKey(documentReference));
+    }
+
+    /**
+     * Remove all the cached content, for example because a color theme has been modified.
+     */
+    public void removeAll()
+    {
+        this.cache.removeAll();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Remove from the {@link SxOutputCache} the content of the skin extensions which might have changed.
+ *
+ * @version $Id$
+ * @since 10.11RC1
+ */
+@Component
+@Named(SxOutputCacheListener.NAME)
+@Singleton
+public class SxOutputCacheListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "Skin extensions output cache listener";
+
+    /**
+     * The classes of the documents which can affect the content of all the skin extensions (color themes and skins).
+     */
+    private static final List<LocalDocumentReference> GLOBAL_CLASSES =
+        Arrays.asList(new LocalDocumentReference("ColorThemes", "ColorThemeClass"),
+            new LocalDocumentReference("FlamingoThemesCode", "ThemeClass"),
+            new LocalDocumentReference("XWiki", "XWikiSkins"));
+
+    @Inject
+    private SxOutputCache cache;
+
+    /**
+     * Constructs a new {@link SxOutputCacheListener}.
+     */
+    public SxOutputCacheListener()
+    {
+        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        XWikiDocument document = (XWikiDocument) source;
+
+        if (isGlobal(document) || isGlobal(document.getOriginalDocument())) {
+            this.cache.removeAll();
+        } else {
+            this.cache.remove(document.getDocumentReference());
+        }
+    }
+
+    private boolean isGlobal(XWikiDocument document)
+    {
+        if (document != null) {
+            for (LocalDocumentReference classReference : GLOBAL_CLASSES) {
+                if (!document.getXObjects(classReference).isEmpty()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skinx.internal.SxOutput;
+import org.xwiki.skinx.internal.SxOutputCache;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.web.JsxAction;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the response produced by {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class AbstractSxActionTest
+{
+    private static final String CONTENT = "var a = 1;";
+
+    private static final String ETAG = new SxOutput(CONTENT).getETag();
+
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private SxOutputCache outputCache;
+
+    private XWikiRequest request;
+
+    private XWikiResponse response;
+
+    private StubServletOutputStream responseContent;
+
+    private JsxAction action = new JsxAction();
+
+    private class StubServletOutputStream extends ServletOutputStream
+    {
+        private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int i) throws IOException
+        {
+            this.baos.write(i);
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(DebugConfiguration.class);
+        this.outputCache = this.oldcore.getMocker().registerMockComponent(SxOutputCache.class);
+        when(this.outputCache.getKey(DOCUMENT_REFERENCE)).thenReturn("document");
+
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+
+        this.request = mock(XWikiRequest.class);
+        xcontext.setRequest(this.request);
+
+        this.response = mock(XWikiResponse.class);
+        this.responseContent = new StubServletOutputStream();
+        when(this.response.getOutputStream()).thenReturn(this.responseContent);
+        xcontext.setResponse(this.response);
+
+        doReturn("flamingo").when(this.oldcore.getSpyXWiki()).getSkin(xcontext);
+        doReturn("").when(this.oldcore.getSpyXWiki()).getUserPreference(anyString(), any(XWikiContext.class));
+    }
+
+    private SxSource mockSource(CachePolicy cachePolicy)
+    {
+        SxSource source = mock(SxSource.class);
+        when(source.getCachePolicy()).thenReturn(cachePolicy);
+        when(source.getContent()).thenReturn(CONTENT);
+
+        return source;
+    }
+
+    private SxDocumentSource mockDocumentSource(CachePolicy cachePolicy, boolean parsed)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(DOCUMENT_REFERENCE);
+        when(document.getVersion()).thenReturn("1.1");
+        when(document.getDate()).thenReturn(new Date(42));
+
+        SxDocumentSource source = mock(SxDocumentSource.class);
+        when(source.getCachePolicy()).thenReturn(cachePolicy);
+        when(source.getContent()).thenReturn(CONTENT);
+        when(source.getDocument()).thenReturn(document);
+        when(source.isParsed()).thenReturn(parsed);
+
+        return source;
+    }
+
+    private void render(SxSource source) throws Exception
+    {
+        this.action.renderExtension(source, this.action.getExtensionType(), this.oldcore.getXWikiContext());
+    }
+
+    @Test
+    public void renderWithETag() throws Exception
+    {
+        render(mockSource(CachePolicy.SHORT));
+
+        verify(this.response).setHeader("ETag", ETAG);
+        verify(this.response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(this.response).setContentLength(CONTENT.length());
+        assertEquals(CONTENT, new String(this.responseContent.baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void renderWhenNotModified() throws Exception
+    {
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + ETAG);
+
+        render(mockSource(CachePolicy.SHORT));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, this.responseContent.baos.size());
+    }
+
+    @Test
+    public void renderWhenCacheForbidden() throws Exception
+    {
+        when(this.request.getHeader("If-None-Match")).thenReturn(ETAG);
+
+        render(mockSource(CachePolicy.FORBID));
+
+        verify(this.response, never()).setHeader(eq("ETag"), anyString());
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(CONTENT, new String(this.responseContent.baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void renderWithGzip() throws Exception
+    {
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        render(mockSource(CachePolicy.LONG));
+
+        verify(this.response).setHeader("Content-Encoding", "gzip");
+        // The compressed content doesn't have the same entity tag as the uncompressed one
+        verify(this.response).setHeader("ETag", ETAG.substring(0, ETAG.length() - 1) + "-gzip\"");
+        verify(this.response).setHeader("Vary", "Accept-Encoding");
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), IOUtils.toByteArray(
+            new GZIPInputStream(new ByteArrayInputStream(this.responseContent.baos.toByteArray()))));
+    }
+
+    @Test
+    public void renderNotParsedDocument() throws Exception
+    {
+        SxDocumentSource source = mockDocumentSource(CachePolicy.DEFAULT, false);
+
+        when(this.request.getQueryString()).thenReturn("v=1");
+        render(source);
+        when(this.request.getQueryString()).thenReturn("v=2");
+        render(source);
+
+        // The query string is not part of the variant
+        ArgumentCaptor<String> variants = ArgumentCaptor.forClass(String.class);
+        verify(this.outputCache, times(2)).get(eq("document"), variants.capture());
+        assertEquals(variants.getAllValues().get(0), variants.getAllValues().get(1));
+        verify(this.outputCache, times(2)).set(eq("document"), eq(variants.getValue()), any(SxOutput.class));
+    }
+
+    @Test
+    public void renderParsedDocument() throws Exception
+    {
+        render(mockDocumentSource(CachePolicy.DEFAULT, true));
+
+        // The parsed content can depend on other documents so it's not cached
+        verify(this.outputCache, never()).get(anyString(), anyString());
+        verify(this.outputCache, never()).set(anyString(), anyString(), any(SxOutput.class));
+        assertEquals(CONTENT, new String(this.responseContent.baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void renderParsedDocumentWithLongCache() throws Exception
+    {
+        SxOutput cached = new SxOutput("cached");
+        when(this.outputCache.get(eq("document"), anyString())).thenReturn(cached);
+
+        SxDocumentSource source = mockDocumentSource(CachePolicy.LONG, true);
+        render(source);
+
+        verify(source, never()).getContent();
+        assertEquals("cached", new String(this.responseContent.baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private Map<String, String[]> parameters(String... keyValues)
+    {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            parameters.put(keyValues[i], new String[] { keyValues[i + 1] });
+        }
+
+        return parameters;
+    }
+
+    @Test
+    public void renderParsedDocumentWithParameters() throws Exception
+    {
+        SxDocumentSource source = mockDocumentSource(CachePolicy.LONG, true);
+
+        // Parameters passed with $xwiki.jsx.use(doc, {params})
+        when(this.request.getParameterMap()).thenReturn(parameters("docVersion", "1.1", "color", "red", "size", "1"));
+        render(source);
+        when(this.request.getParameterMap()).thenReturn(parameters("color", "blue", "size", "1"));
+        render(source);
+        // Same parameters in another order, with a different cache busting parameter
+        when(this.request.getParameterMap()).thenReturn(parameters("size", "1", "color", "red", "docVersion", "1.2"));
+        render(source);
+
+        ArgumentCaptor<String> variants = ArgumentCaptor.forClass(String.class);
+        verify(this.outputCache, times(3)).get(eq("document"), variants.capture());
+        assertNotEquals(variants.getAllValues().get(0), variants.getAllValues().get(1));
+        assertEquals(variants.getAllValues().get(0), variants.getAllValues().get(2));
+    }
+
+    @Test
+    public void renderNotParsedDocumentWithParameters() throws Exception
+    {
+        SxDocumentSource source = mockDocumentSource(CachePolicy.LONG, false);
+
+        when(this.request.getParameterMap()).thenReturn(parameters("color", "red"));
+        render(source);
+        when(this.request.getParameterMap()).thenReturn(parameters("color", "blue"));
+        render(source);
+
+        // The content which is not parsed can't use the parameters
+        ArgumentCaptor<String> variants = ArgumentCaptor.forClass(String.class);
+        verify(this.outputCache, times(2)).get(eq("document"), variants.capture());
+        assertEquals(variants.getAllValues().get(0), variants.getAllValues().get(1));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SxOutputCacheListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class SxOutputCacheListenerTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    private static final LocalDocumentReference COLOR_THEME_CLASS =
+        new LocalDocumentReference("ColorThemes", "ColorThemeClass");
+
+    @InjectMockComponents
+    private SxOutputCacheListener listener;
+
+    @MockComponent
+    private SxOutputCache cache;
+
+    private XWikiDocument document;
+
+    private XWikiDocument originalDocument;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.document = mockDocument();
+        this.originalDocument = mockDocument();
+        when(this.document.getOriginalDocument()).thenReturn(this.originalDocument);
+    }
+
+    private XWikiDocument mockDocument()
+    {
+        XWikiDocument mockDocument = mock(XWikiDocument.class);
+        when(mockDocument.getDocumentReference()).thenReturn(DOCUMENT);
+        when(mockDocument.getXObjects(any(LocalDocumentReference.class))).thenReturn(Collections.emptyList());
+
+        return mockDocument;
+    }
+
+    @Test
+    public void onDocumentUpdated()
+    {
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT), this.document, null);
+
+        verify(this.cache).remove(DOCUMENT);
+        verify(this.cache, never()).removeAll();
+    }
+
+    @Test
+    public void onColorThemeUpdated()
+    {
+        when(this.document.getXObjects(COLOR_THEME_CLASS)).thenReturn(Collections.singletonList(new BaseObject()));
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT), this.document, null);
+
+        verify(this.cache).removeAll();
+        verify(this.cache, never()).remove(any());
+    }
+
+    @Test
+    public void onSkinDeleted()
+    {
+        // The objects of a deleted document are only available in the original document
+        when(this.originalDocument.getXObjects(new LocalDocumentReference("XWiki", "XWikiSkins")))
+            .thenReturn(Collections.singletonList(new BaseObject()));
+
+        this.listener.onEvent(new DocumentDeletedEvent(DOCUMENT), this.document, null);
+
+        verify(this.cache).removeAll();
+        verify(this.cache, never()).remove(any());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SxOutputCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class SxOutputCacheTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockComponents
+    private SxOutputCache outputCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    private Map<String, Map<String, SxOutput>> cacheContent = new HashMap<>();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        Cache<Map<String, SxOutput>> cache = mock(Cache.class);
+        when(cache.get(any())).then(invocation -> this.cacheContent.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.cacheContent.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(any(), any());
+        doAnswer(invocation -> this.cacheContent.remove(invocation.getArgument(0))).when(cache).remove(any());
+        doAnswer(invocation -> {
+            this.cacheContent.clear();
+            return null;
+        }).when(cache).removeAll();
+        when(this.cacheManager.<Map<String, SxOutput>>createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
+
+        when(this.serializer.serialize(DOCUMENT)).thenReturn("wiki:Space.Page");
+
+        // Initialize again now that the cache manager returns a cache
+        this.outputCache.initialize();
+    }
+
+    @Test
+    public void getAndSet()
+    {
+        String key = this.outputCache.getKey(DOCUMENT);
+
+        assertNull(this.outputCache.get(key, "variant1"));
+
+        SxOutput output1 = new SxOutput("content1");
+        SxOutput output2 = new SxOutput("content2");
+        this.outputCache.set(key, "variant1", output1);
+        this.outputCache.set(key, "variant2", output2);
+
+        assertSame(output1, this.outputCache.get(key, "variant1"));
+        assertSame(output2, this.outputCache.get(key, "variant2"));
+        assertNull(this.outputCache.get(key, "variant3"));
+        assertNull(this.outputCache.get(this.outputCache.getKey("resource.js"), "variant1"));
+    }
+
+    @Test
+    public void remove()
+    {
+        String documentKey = this.outputCache.getKey(DOCUMENT);
+        String resourceKey = this.outputCache.getKey("resource.js");
+
+        SxOutput output = new SxOutput("content");
+        this.outputCache.set(documentKey, "variant1", output);
+        this.outputCache.set(documentKey, "variant2", output);
+        this.outputCache.set(resourceKey, "variant1", output);
+
+        // All the variants of the document are removed
+        this.outputCache.remove(DOCUMENT);
+
+        assertNull(this.outputCache.get(documentKey, "variant1"));
+        assertNull(this.outputCache.get(documentKey, "variant2"));
+        assertSame(output, this.outputCache.get(resourceKey, "variant1"));
+
+        this.outputCache.removeAll();
+
+        assertNull(this.outputCache.get(resourceKey, "variant1"));
+    }
+
+    @Test
+    public void setWhenTooManyVariants()
+    {
+        String key = this.outputCache.getKey(DOCUMENT);
+
+        SxOutput output = new SxOutput("content");
+        for (int i = 0; i < 32; ++i) {
+            this.outputCache.set(key, "variant" + i, output);
+        }
+
+        assertSame(output, this.outputCache.get(key, "variant0"));
+        assertSame(output, this.outputCache.get(key, "variant31"));
+
+        // The existing variants are dropped instead of keeping an unlimited number of them
+        this.outputCache.set(key, "variant32", output);
+
+        assertNull(this.outputCache.get(key, "variant0"));
+        assertNull(this.outputCache.get(key, "variant31"));
+        assertSame(output, this.outputCache.get(key, "variant32"));
+    }
+}
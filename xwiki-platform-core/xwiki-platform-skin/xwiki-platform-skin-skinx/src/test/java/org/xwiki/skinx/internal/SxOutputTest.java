@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Validate {@link SxOutput}.
+ *
+ * @version $Id$
+ */
+public class SxOutputTest
+{
+    @Test
+    public void getETag()
+    {
+        SxOutput output = new SxOutput("content");
+
+        assertEquals("\"040f06fd774092478d450774f5ba30c5da78acc8\"", output.getETag());
+        assertEquals(output.getETag(), new SxOutput("content").getETag());
+        assertNotEquals(output.getETag(), new SxOutput("other content").getETag());
+    }
+
+    @Test
+    public void getGzipContent() throws Exception
+    {
+        SxOutput output = new SxOutput("contént");
+
+        assertArrayEquals("contént".getBytes(StandardCharsets.UTF_8), output.getContent());
+
+        byte[] compressed = output.getGzipContent();
+        assertArrayEquals(output.getContent(),
+            IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+        // The compressed content is computed only once
+        assertSame(compressed, output.getGzipContent());
+    }
+}